@@ -0,0 +1,97 @@
+package com.emc.documentum.sample.benchmarks;
+
+import com.emc.documentum.sample.cache.ContactCache;
+import com.emc.documentum.sample.cache.ContactCacheInterceptor;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import com.emc.documentum.sample.search.ContactNameIndex;
+import com.emc.documentum.sample.search.ContactNameIndexInterceptor;
+import com.emc.documentum.sample.search.ContactIndexLoader;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the contact repositories the benchmarks run against, all offline.
+ *
+ * <ul>
+ *     <li><code>memory</code> the plain in-memory repository</li>
+ *     <li><code>cached</code> the in-memory repository behind the contact cache</li>
+ *     <li><code>indexed</code> the in-memory repository behind the contact cache and name index</li>
+ *     <li>any other value is taken as the class name of a {@link ContactRepository} with a no-arg constructor</li>
+ * </ul>
+ */
+final class BenchmarkRepositories {
+
+    private BenchmarkRepositories() {
+    }
+
+    /**
+     * Create a repository holding generated contacts
+     *
+     * @param type the repository type
+     * @param contacts the number of contacts to generate
+     * @return the repository
+     */
+    static ContactRepository create(String type, int contacts) {
+
+        ContactRepository target = "memory".equals(type) || "cached".equals(type) || "indexed".equals(type)
+                ? new InMemoryContactRepository()
+                : instantiate(type);
+
+        List<Contact> generated = new ArrayList<Contact>(contacts);
+        for (int i = 0; i < contacts; i++) {
+            generated.add(generateContact(i));
+        }
+        target.saveAll(generated);
+
+        if ("memory".equals(type)) {
+            return target;
+        }
+
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new ContactCacheInterceptor(new ContactCache(contacts, Long.MAX_VALUE, 3600000)));
+
+        if ("indexed".equals(type)) {
+            ContactNameIndex index = new ContactNameIndex();
+            new ContactIndexLoader("name index", index, target, 1000).rebuild();
+            proxyFactory.addAdvice(new ContactNameIndexInterceptor(index));
+        }
+
+        return (ContactRepository) proxyFactory.getProxy();
+    }
+
+    /**
+     * Generate a contact shaped like the sample address list
+     *
+     * @param i the contact number
+     * @return the contact
+     */
+    static Contact generateContact(int i) {
+
+        Contact contact = new Contact();
+        contact.setName(FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length] + " " + i);
+        contact.setEmail("contact." + i + "@thecloud.com");
+        contact.setTelephone(String.format("(%03d) %03d-%04d", i % 1000, (i / 7) % 1000, i % 10000));
+
+        return contact;
+    }
+
+    private static ContactRepository instantiate(String className) {
+        try {
+            return (ContactRepository) Class.forName(className).newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unknown contact repository " + className, e);
+        }
+    }
+
+    private static final String[] FIRST_NAMES = {
+            "Cecilia", "Iris", "Celeste", "Theodore", "Calista", "Kyla", "Forrest", "Hiroko", "Nyssa", "Lawrence"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Chapman", "Watson", "Slater", "Lowe", "Wise", "Olsen", "Ray", "Potter", "Vazquez", "Moran"
+    };
+}
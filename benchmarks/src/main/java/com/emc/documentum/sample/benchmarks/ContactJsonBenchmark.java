@@ -0,0 +1,55 @@
+package com.emc.documentum.sample.benchmarks;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization and deserialization of a contact
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactJsonBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private Contact contact;
+
+    private byte[] json;
+
+    /**
+     * Prepare a contact and its JSON form
+     */
+    @Setup
+    public void setup() throws IOException {
+        contact = BenchmarkRepositories.generateContact(4711);
+        contact.setId("0900000180004711");
+        json = objectMapper.writeValueAsBytes(contact);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(contact);
+    }
+
+    @Benchmark
+    public Contact deserialize() throws IOException {
+        return objectMapper.readValue(json, Contact.class);
+    }
+}
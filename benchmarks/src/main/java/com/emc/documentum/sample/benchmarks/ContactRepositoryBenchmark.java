@@ -0,0 +1,107 @@
+package com.emc.documentum.sample.benchmarks;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.domain.ContactName;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contact repository operations, optionally behind the cache and name index
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContactRepositoryBenchmark {
+
+    @Param({"memory", "cached", "indexed"})
+    private String repository;
+
+    @Param({"1000", "100000"})
+    private int contacts;
+
+    private ContactRepository contactRepository;
+
+    private String[] ids;
+
+    private String[] names;
+
+    /**
+     * Fill the repository and remember the generated ids and names
+     */
+    @Setup
+    public void setup() {
+
+        contactRepository = BenchmarkRepositories.create(repository, contacts);
+
+        ids = new String[contacts];
+        names = new String[contacts];
+
+        int i = 0;
+        for (Contact contact : contactRepository.findAll()) {
+            ids[i] = contact.getId();
+            names[i] = contact.getName();
+            i++;
+        }
+    }
+
+    @Benchmark
+    public Contact findOne() {
+        return contactRepository.findOne(ids[ThreadLocalRandom.current().nextInt(contacts)]);
+    }
+
+    @Benchmark
+    public Contact save() {
+
+        int i = ThreadLocalRandom.current().nextInt(contacts);
+
+        Contact contact = BenchmarkRepositories.generateContact(i);
+        contact.setId(ids[i]);
+
+        return contactRepository.save(contact);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void findAll(Blackhole blackhole) {
+        for (Contact contact : contactRepository.findAll()) {
+            blackhole.consume(contact);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void findAllNames(Blackhole blackhole) {
+        for (ContactName name : contactRepository.findAllProjected(ContactName.class)) {
+            blackhole.consume(name.getName());
+        }
+    }
+
+    @Benchmark
+    public void findByNameContaining(Blackhole blackhole) {
+
+        // a distinctive part of a random existing name: its last name and number
+        String name = names[ThreadLocalRandom.current().nextInt(contacts)];
+        String substring = name.substring(name.indexOf(' ') + 1);
+
+        for (Contact contact : contactRepository.findByNameContaining(substring)) {
+            blackhole.consume(contact);
+        }
+    }
+}
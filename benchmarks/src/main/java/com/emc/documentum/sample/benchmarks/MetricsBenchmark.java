@@ -0,0 +1,93 @@
+package com.emc.documentum.sample.benchmarks;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.metrics.ContactRepositoryMetricsInterceptor;
+import com.emc.documentum.sample.metrics.LatencyHistogram;
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.metrics.Timer;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the instrumentation on the hot path. Run with <code>-prof gc</code> to confirm that recording does not
+ * allocate: <code>gc.alloc.rate.norm</code> of the metered lookup should match the plain proxied lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final int CONTACTS = 10000;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final Timer timer = new Timer("benchmark");
+
+    private ContactRepository proxiedRepository;
+
+    private ContactRepository meteredRepository;
+
+    private String[] ids;
+
+    /**
+     * Build the same in-memory repository behind a bare proxy and behind the metrics interceptor
+     */
+    @Setup
+    public void setup() {
+
+        ContactRepository target = BenchmarkRepositories.create("memory", CONTACTS);
+
+        proxiedRepository = (ContactRepository) new ProxyFactory(target).getProxy();
+
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addAdvice(new ContactRepositoryMetricsInterceptor(new MetricsRegistry()));
+        meteredRepository = (ContactRepository) proxyFactory.getProxy();
+
+        ids = new String[CONTACTS];
+        int i = 0;
+        for (Contact contact : target.findAll()) {
+            ids[i++] = contact.getId();
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void histogramRecord() {
+        histogram.record(ThreadLocalRandom.current().nextLong(1000000));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long timerStartStop() {
+        long start = timer.start();
+        timer.stop(start, true);
+        return start;
+    }
+
+    @Benchmark
+    public Contact findOneProxied() {
+        return proxiedRepository.findOne(ids[ThreadLocalRandom.current().nextInt(CONTACTS)]);
+    }
+
+    @Benchmark
+    public Contact findOneMetered() {
+        return meteredRepository.findOne(ids[ThreadLocalRandom.current().nextInt(CONTACTS)]);
+    }
+}
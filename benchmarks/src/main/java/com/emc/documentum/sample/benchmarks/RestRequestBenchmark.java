@@ -0,0 +1,76 @@
+package com.emc.documentum.sample.benchmarks;
+
+import com.emc.documentum.sample.SimpleCORSFilter;
+import com.emc.documentum.sample.controller.ContactSliceController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * HTTP request path through the CORS filter, Spring MVC dispatch and JSON rendering of contacts.
+ *
+ * The Spring Data REST resources need a Spring Data repository factory, which only exists against a live docbase,
+ * so the contact listing is measured through the keyset slice controller, which takes the same filter, dispatch
+ * and message conversion path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestRequestBenchmark {
+
+    private SimpleCORSFilter corsFilter;
+
+    private MockMvc mockMvc;
+
+    /**
+     * Setup the filter and a standalone MVC stack over the in-memory repository
+     */
+    @Setup
+    public void setup() {
+
+        corsFilter = new SimpleCORSFilter();
+
+        ContactSliceController controller = new ContactSliceController();
+        ReflectionTestUtils.setField(controller, "contactRepository", BenchmarkRepositories.create("memory", 1000));
+
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(corsFilter).build();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public MockHttpServletResponse corsFilter() throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contacts/slice");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        corsFilter.doFilter(request, response, new MockFilterChain());
+
+        return response;
+    }
+
+    @Benchmark
+    public MvcResult getContactSlice() throws Exception {
+        return mockMvc.perform(get("/contacts/slice").param("size", "50")).andReturn();
+    }
+}
@@ -0,0 +1,61 @@
+package com.emc.documentum.sample.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ids of the contacts the load test knows to exist.
+ *
+ * Created contacts are added, contacts are taken out before they are deleted, so no two deletes go for the same
+ * contact. Reads and updates may still race with a delete and see a 404.
+ */
+class ContactPool {
+
+    private final List<String> ids = new ArrayList<String>();
+
+    /**
+     * Add a contact
+     *
+     * @param id the contact id
+     */
+    synchronized void add(String id) {
+        ids.add(id);
+    }
+
+    /**
+     * Pick a contact at random, leaving it in the pool
+     *
+     * @param random the random source
+     * @return the contact id, null if the pool is empty
+     */
+    synchronized String pick(Random random) {
+        return ids.isEmpty() ? null : ids.get(random.nextInt(ids.size()));
+    }
+
+    /**
+     * Take a contact at random out of the pool
+     *
+     * @param random the random source
+     * @return the contact id, null if the pool is empty
+     */
+    synchronized String take(Random random) {
+
+        if (ids.isEmpty()) {
+            return null;
+        }
+
+        int index = random.nextInt(ids.size());
+        String id = ids.get(index);
+
+        // swap with the last so removal does not shift the list
+        ids.set(index, ids.get(ids.size() - 1));
+        ids.remove(ids.size() - 1);
+
+        return id;
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+}
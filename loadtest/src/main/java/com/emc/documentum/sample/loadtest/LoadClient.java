@@ -0,0 +1,171 @@
+package com.emc.documentum.sample.loadtest;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * HTTP client of the contact resources.
+ *
+ * Uses the JDK client, which keeps connections alive as long as every response is read to the end, so the server
+ * sees a steady set of connections rather than one per request. All requests come from the one address, so they
+ * count against a single rate limit of the server.
+ */
+class LoadClient {
+
+    private final String baseUrl;
+
+    private final String resource;
+
+    private final byte[] picture;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Constructor
+     *
+     * @param baseUrl the server URL, without a trailing slash
+     * @param resource the path of the contact resource, <code>/contacts/async</code> or <code>/contacts</code>
+     * @param pictureBytes the size of the pictures uploaded
+     */
+    LoadClient(String baseUrl, String resource, int pictureBytes) {
+        this.baseUrl = baseUrl;
+        this.resource = resource;
+        this.picture = new byte[pictureBytes];
+        new Random(pictureBytes).nextBytes(picture);
+    }
+
+    String getResource() {
+        return resource;
+    }
+
+    byte[] getPicture() {
+        return picture;
+    }
+
+    /**
+     * Send a request
+     *
+     * @param method the HTTP method
+     * @param path the path below the server URL, with any query string
+     * @param contentType the content type of the body, null for none
+     * @param body the body, null for none
+     * @return the response
+     * @throws IOException if the server could not be reached
+     */
+    Response send(String method, String path, String contentType, byte[] body) throws IOException {
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        connection.setRequestProperty("Accept", "application/json");
+        connection.setConnectTimeout(10000);
+        connection.setReadTimeout(60000);
+
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setFixedLengthStreamingMode(body.length);
+            OutputStream out = connection.getOutputStream();
+            try {
+                out.write(body);
+            } finally {
+                out.close();
+            }
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+
+        return new Response(status, connection.getHeaderField("Location"), readFully(in));
+    }
+
+    /**
+     * Serialise a contact as JSON
+     *
+     * @param contact the contact
+     * @return the JSON
+     * @throws IOException if the contact could not be serialised
+     */
+    byte[] toJson(Contact contact) throws IOException {
+        return objectMapper.writeValueAsBytes(contact);
+    }
+
+    /**
+     * The id of a created contact, from the body or else from the <code>Location</code> header Spring Data REST sends
+     *
+     * @param response the response to the create
+     * @return the contact id, null if the response has none
+     * @throws IOException if the body is not JSON
+     */
+    String createdId(Response response) throws IOException {
+
+        if (response.body.length > 0) {
+            JsonNode id = objectMapper.readTree(response.body).get("id");
+            if (id != null && !id.isNull()) {
+                return id.asText();
+            }
+        }
+
+        if (response.location != null) {
+            return response.location.substring(response.location.lastIndexOf('/') + 1);
+        }
+
+        return null;
+    }
+
+    /*
+     * the connection only goes back to the keep-alive cache once its response is consumed and closed
+     */
+    private static byte[] readFully(InputStream in) throws IOException {
+
+        if (in == null) {
+            return new byte[0];
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+
+        try {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Status, location and body of a response
+     */
+    static class Response {
+
+        final int status;
+
+        final String location;
+
+        final byte[] body;
+
+        Response(int status, String location, byte[] body) {
+            this.status = status;
+            this.location = location;
+            this.body = body;
+        }
+
+        @Override
+        public String toString() {
+            return status + " " + new String(body, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.emc.documentum.sample.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests at a fixed rate, whatever the server's response times.
+ *
+ * Requests fall due at evenly spaced times and are handed to a pool of sender threads, one per connection. When
+ * all connections are busy requests queue, so the server keeps being offered the target rate while it falls behind,
+ * as it would by independent users, rather than the load backing off as responses slow down. Size the connections
+ * above the rate times the expected response time, the backlog in the report shows when they were too few.
+ */
+class LoadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long DRAIN_TIMEOUT_SECONDS = 300;
+
+    private final LoadClient client;
+
+    private final ContactPool pool;
+
+    private final LoadMix mix;
+
+    private final int connections;
+
+    private final Random random = new Random();
+
+    /**
+     * Constructor
+     *
+     * @param client the client sending the requests
+     * @param pool the contacts known to exist
+     * @param mix the mix of operations
+     * @param connections the number of requests sent concurrently
+     */
+    LoadGenerator(LoadClient client, ContactPool pool, LoadMix mix, int connections) {
+        this.client = client;
+        this.pool = pool;
+        this.mix = mix;
+        this.connections = connections;
+    }
+
+    /**
+     * Create contacts for the run to work on
+     *
+     * @param contacts the number of contacts to create
+     * @throws InterruptedException if interrupted while waiting for the contacts to be created
+     */
+    void seed(int contacts) throws InterruptedException {
+
+        ExecutorService senders = newSenders();
+        List<Callable<LoadClient.Response>> creates = new ArrayList<Callable<LoadClient.Response>>(contacts);
+
+        for (int i = 0; i < contacts; i++) {
+            creates.add(new Callable<LoadClient.Response>() {
+                @Override
+                public LoadClient.Response call() throws IOException {
+                    return Operation.CREATE.execute(client, pool, ThreadLocalRandom.current());
+                }
+            });
+        }
+
+        try {
+            senders.invokeAll(creates);
+        } finally {
+            senders.shutdownNow();
+        }
+
+        if (pool.size() < contacts) {
+            logger.warn("Only {} of {} contacts could be created", pool.size(), contacts);
+        }
+    }
+
+    /**
+     * Send requests for a while
+     *
+     * @param rate the requests per second
+     * @param durationSeconds the time to send requests for
+     * @return the report of the requests sent
+     * @throws InterruptedException if interrupted while sending
+     */
+    LoadReport run(double rate, long durationSeconds) throws InterruptedException {
+
+        final LoadReport report = new LoadReport();
+        ThreadPoolExecutor senders = newSenders();
+
+        long requests = (long) (rate * durationSeconds);
+        long start = System.nanoTime();
+
+        try {
+
+            for (long i = 0; i < requests; i++) {
+
+                final long due = start + (long) (i * 1e9 / rate);
+                final Operation operation = mix.next(random);
+
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                report.backlog(senders.getQueue().size());
+
+                senders.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        send(operation, due, report);
+                    }
+                });
+            }
+
+        } finally {
+            senders.shutdown();
+        }
+
+        if (!senders.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            logger.warn("Requests still outstanding after {} seconds, reporting without them", DRAIN_TIMEOUT_SECONDS);
+            senders.shutdownNow();
+        }
+
+        report.finish(System.nanoTime() - start);
+
+        return report;
+    }
+
+    private void send(Operation operation, long due, LoadReport report) {
+
+        long sent = System.nanoTime();
+        int status;
+
+        try {
+
+            LoadClient.Response response = operation.execute(client, pool, ThreadLocalRandom.current());
+
+            if (response == null) {
+                report.skip();
+                return;
+            }
+
+            status = response.status;
+
+            if (status >= 500) {
+                logger.debug("{} failed with {}", operation, response);
+            }
+
+        } catch (IOException e) {
+            logger.debug("{} failed", operation, e);
+            status = 0;
+        }
+
+        report.record(operation, status, due, sent, System.nanoTime());
+    }
+
+    private ThreadPoolExecutor newSenders() {
+
+        return new ThreadPoolExecutor(connections, connections, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "loadtest-sender-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.emc.documentum.sample.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Weighted mix of the operations the load test sends, parsed from <code>get=40,search=15,create=10</code>.
+ *
+ * Operations not named are not sent.
+ */
+class LoadMix {
+
+    private final Map<Operation, Integer> weights = new EnumMap<Operation, Integer>(Operation.class);
+
+    private final Operation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private final int totalWeight;
+
+    /**
+     * Constructor
+     *
+     * @param mix the operation weights, operation names as in {@link Operation} in any case
+     */
+    LoadMix(String mix) {
+
+        for (String entry : mix.split(",")) {
+
+            String[] nameAndWeight = entry.trim().split("=");
+
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight in the mix but got " + entry);
+            }
+
+            Operation operation = Operation.valueOf(nameAndWeight[0].trim().toUpperCase());
+            int weight = Integer.parseInt(nameAndWeight[1].trim());
+
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + operation);
+            }
+
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix has no operations: " + mix);
+        }
+
+        operations = weights.keySet().toArray(new Operation[weights.size()]);
+        cumulativeWeights = new int[operations.length];
+
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+
+        totalWeight = total;
+    }
+
+    /**
+     * Choose the next operation
+     *
+     * @param random the random source
+     * @return the operation
+     */
+    Operation next(Random random) {
+
+        int value = random.nextInt(totalWeight);
+
+        for (int i = 0; i < operations.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+
+        return operations[operations.length - 1];
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
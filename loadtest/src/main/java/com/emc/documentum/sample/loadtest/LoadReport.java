@@ -0,0 +1,168 @@
+package com.emc.documentum.sample.loadtest;
+
+import com.emc.documentum.sample.metrics.Timer;
+import com.emc.documentum.sample.metrics.TimerSnapshot;
+
+import java.io.PrintStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies, statuses and throughput of one load test run.
+ *
+ * Response times are measured from the time a request was due to be sent rather than the time it was sent, so
+ * time spent waiting for a free connection while the server falls behind counts against the server instead of
+ * disappearing from the results. Service times are measured from the time it was actually sent. Responses with
+ * status 400 and above and requests that failed to reach the server count as errors, status 0 in the statuses.
+ */
+class LoadReport {
+
+    private final Map<Operation, Timer> responseTimes = new EnumMap<Operation, Timer>(Operation.class);
+
+    private final Timer totalResponseTime = new Timer("total");
+
+    private final Timer totalServiceTime = new Timer("service");
+
+    private final ConcurrentMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<Integer, AtomicLong>();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final AtomicLong maxBacklog = new AtomicLong();
+
+    private volatile long elapsedNanos;
+
+    LoadReport() {
+        for (Operation operation : Operation.values()) {
+            responseTimes.put(operation, new Timer(operation.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Record a completed request
+     *
+     * @param operation the operation
+     * @param status the response status, 0 if the server could not be reached
+     * @param dueNanos the time the request was due to be sent
+     * @param sentNanos the time the request was sent
+     * @param completedNanos the time the response was read
+     */
+    void record(Operation operation, int status, long dueNanos, long sentNanos, long completedNanos) {
+
+        boolean success = status > 0 && status < 400;
+
+        responseTimes.get(operation).record(completedNanos - dueNanos, success);
+        totalResponseTime.record(completedNanos - dueNanos, success);
+        totalServiceTime.record(completedNanos - sentNanos, success);
+
+        AtomicLong count = statuses.get(status);
+        if (count == null) {
+            AtomicLong existing = statuses.putIfAbsent(status, count = new AtomicLong());
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Record a request skipped as there was no contact to send it for
+     */
+    void skip() {
+        skipped.incrementAndGet();
+    }
+
+    /**
+     * Record the number of requests waiting for a connection
+     *
+     * @param backlog the number of requests due but not yet sent
+     */
+    void backlog(long backlog) {
+
+        long current = maxBacklog.get();
+        while (backlog > current && !maxBacklog.compareAndSet(current, backlog)) {
+            current = maxBacklog.get();
+        }
+    }
+
+    /**
+     * Record the end of the run
+     *
+     * @param elapsedNanos the time from the first request being due to the last response
+     */
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    long getCount() {
+        return totalResponseTime.snapshot().getCount();
+    }
+
+    long getErrors() {
+        return totalResponseTime.snapshot().getErrors();
+    }
+
+    /**
+     * The share of requests that failed
+     *
+     * @return the error rate between 0 and 1, 0 if nothing was sent
+     */
+    double getErrorRate() {
+        TimerSnapshot total = totalResponseTime.snapshot();
+        return total.getCount() == 0 ? 0.0 : (double) total.getErrors() / total.getCount();
+    }
+
+    /**
+     * Completed requests per second
+     *
+     * @return the throughput, 0 if the run has not finished
+     */
+    double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : getCount() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Print the report
+     *
+     * @param out the stream to print to
+     * @param targetRate the rate the requests were due at
+     */
+    void print(PrintStream out, double targetRate) {
+
+        out.println();
+        out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "errors", "mean ms", "p50 ms", "p99 ms", "p999 ms", "max ms");
+
+        for (Timer timer : responseTimes.values()) {
+            if (timer.snapshot().getCount() > 0) {
+                printRow(out, timer.getName(), timer.snapshot());
+            }
+        }
+
+        printRow(out, totalResponseTime.getName(), totalResponseTime.snapshot());
+        out.println();
+        printRow(out, totalServiceTime.getName(), totalServiceTime.snapshot());
+
+        out.println();
+        out.printf("throughput %.1f requests/s, target %.1f requests/s, %.1f s%n",
+                getThroughput(), targetRate, elapsedNanos / 1e9);
+        out.printf("errors %d (%.3f%%), skipped %d, largest backlog %d%n",
+                getErrors(), getErrorRate() * 100, skipped.get(), maxBacklog.get());
+
+        SortedMap<Integer, Long> sortedStatuses = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, AtomicLong> status : statuses.entrySet()) {
+            sortedStatuses.put(status.getKey(), status.getValue().get());
+        }
+        out.println("statuses " + sortedStatuses);
+    }
+
+    private static void printRow(PrintStream out, String name, TimerSnapshot snapshot) {
+        out.printf("%-10s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", name, snapshot.getCount(),
+                snapshot.getErrors(), snapshot.getMean(), snapshot.getP50(), snapshot.getP99(), snapshot.getP999(),
+                snapshot.getMax());
+    }
+}
@@ -0,0 +1,144 @@
+package com.emc.documentum.sample.loadtest;
+
+import com.emc.documentum.sample.Application;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.SimpleCommandLinePropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * End-to-end load test of the address book server.
+ *
+ * Boots the server on a random port with the <code>offline</code> profile, so it runs against the in-memory
+ * contact repository, creates contacts to work on, then sends a mix of requests at a fixed rate and prints the
+ * response time percentiles, throughput and error rate. Exits with 1 if the error rate is above the limit.
+ *
+ * <ul>
+ *     <li><code>--rate=200</code> requests per second</li>
+ *     <li><code>--duration-seconds=60</code> time the requests are measured for</li>
+ *     <li><code>--warmup-seconds=10</code> time requests are sent at the same rate before measuring</li>
+ *     <li><code>--connections=64</code> requests sent concurrently</li>
+ *     <li><code>--contacts=1000</code> contacts created before the run</li>
+ *     <li><code>--mix=get=40,list=2,search=15,create=10,update=15,delete=8,picture=10</code> operation weights,
+ *     see {@link Operation}</li>
+ *     <li><code>--picture-bytes=16384</code> size of the uploaded pictures</li>
+ *     <li><code>--resource=/contacts/async</code> contact resource, <code>/contacts</code> for the Spring Data
+ *     REST resource of a server running against a docbase</li>
+ *     <li><code>--max-error-rate=0.01</code> share of failed requests above which the run fails</li>
+ *     <li><code>--url=http://host:8080</code> drive a running server rather than booting one</li>
+ * </ul>
+ *
+ * All arguments are passed on to the booted server, so its properties can be set as well, for instance
+ * <code>--contact.offline.latency-micros=2000</code> to give the in-memory repository docbase-like latencies.
+ *
+ * The server rate limits each address, and every request of the run comes from this one. The booted server is
+ * given a rate limit of twice the rate of the run, with a burst that takes the contacts created before it, unless
+ * these are set; a running server has to allow for them itself.
+ */
+public class LoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTest.class);
+
+    private LoadTest() {
+    }
+
+    /**
+     * Main method
+     *
+     * @param args the options, as <code>--name=value</code>
+     * @throws Exception if the run could not complete
+     */
+    public static void main(String[] args) throws Exception {
+
+        SimpleCommandLinePropertySource options = new SimpleCommandLinePropertySource(args);
+
+        double rate = Double.parseDouble(option(options, "rate", "200"));
+        long durationSeconds = Long.parseLong(option(options, "duration-seconds", "60"));
+        long warmupSeconds = Long.parseLong(option(options, "warmup-seconds", "10"));
+        int connections = Integer.parseInt(option(options, "connections", "64"));
+        int contacts = Integer.parseInt(option(options, "contacts", "1000"));
+        LoadMix mix = new LoadMix(option(options, "mix", "get=40,list=2,search=15,create=10,update=15,delete=8,picture=10"));
+        int pictureBytes = Integer.parseInt(option(options, "picture-bytes", "16384"));
+        String resource = option(options, "resource", "/contacts/async");
+        double maxErrorRate = Double.parseDouble(option(options, "max-error-rate", "0.01"));
+        String url = option(options, "url", null);
+
+        if (rate <= 0 || connections <= 0) {
+            throw new IllegalArgumentException("The rate and connections must be positive");
+        }
+
+        // the JDK client keeps only 5 idle connections per server by default
+        System.setProperty("http.maxConnections", String.valueOf(connections));
+
+        ConfigurableApplicationContext server = null;
+        int exitCode;
+
+        try {
+
+            if (url == null) {
+                server = startServer(options, args, rate, contacts);
+                url = "http://localhost:" + ((EmbeddedWebApplicationContext) server).getEmbeddedServletContainer().getPort();
+            }
+
+            ContactPool pool = new ContactPool();
+            LoadGenerator generator = new LoadGenerator(new LoadClient(url, resource, pictureBytes), pool, mix, connections);
+
+            logger.info("Creating {} contacts at {}{}", contacts, url, resource);
+            generator.seed(contacts);
+
+            if (warmupSeconds > 0) {
+                logger.info("Warming up for {} s at {} requests/s", warmupSeconds, rate);
+                generator.run(rate, warmupSeconds);
+            }
+
+            logger.info("Measuring for {} s at {} requests/s with {} connections, mix {}",
+                    durationSeconds, rate, connections, mix);
+            LoadReport report = generator.run(rate, durationSeconds);
+
+            report.print(System.out, rate);
+
+            exitCode = report.getErrorRate() > maxErrorRate ? 1 : 0;
+
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+
+        System.exit(exitCode);
+    }
+
+    /*
+     * the server gets a random port unless one is given, and rate limits the seeding and the run stay inside
+     */
+    private static ConfigurableApplicationContext startServer(SimpleCommandLinePropertySource options, String[] args,
+                                                              double rate, int contacts) {
+
+        List<String> serverArgs = new ArrayList<String>(Arrays.asList(args));
+        if (!options.containsProperty("server.port")) {
+            serverArgs.add("--server.port=0");
+        }
+        long requestsPerSecond = (long) Math.ceil(2 * rate);
+        if (!options.containsProperty("contact.admission.rate-limit.requests-per-second")) {
+            serverArgs.add("--contact.admission.rate-limit.requests-per-second=" + requestsPerSecond);
+        }
+        if (!options.containsProperty("contact.admission.rate-limit.burst")) {
+            serverArgs.add("--contact.admission.rate-limit.burst=" + (contacts + requestsPerSecond));
+        }
+
+        return new SpringApplicationBuilder(Application.class)
+                .profiles("offline")
+                .run(serverArgs.toArray(new String[serverArgs.size()]));
+    }
+
+    private static String option(SimpleCommandLinePropertySource options, String name, String defaultValue) {
+        String value = options.getProperty(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,168 @@
+package com.emc.documentum.sample.loadtest;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.Random;
+
+/**
+ * The requests the load test sends, each against the contact resource of the {@link LoadClient}.
+ *
+ * Operations on an existing contact pick one from the {@link ContactPool}, and are skipped when it is empty.
+ */
+enum Operation {
+
+    /**
+     * <code>GET</code> the contact collection
+     */
+    LIST {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+            return client.send("GET", client.getResource(), null, null);
+        }
+    },
+
+    /**
+     * <code>GET</code> a contact
+     */
+    GET {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            String id = pool.pick(random);
+
+            return id == null ? null : client.send("GET", client.getResource() + "/" + id, null, null);
+        }
+    },
+
+    /**
+     * <code>GET</code> the contacts whose name contains a last name
+     */
+    SEARCH {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            String name = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+
+            return client.send("GET", client.getResource() + "/search/findByNameContaining?name="
+                    + URLEncoder.encode(name, "UTF-8"), null, null);
+        }
+    },
+
+    /**
+     * <code>POST</code> a new contact, adding it to the pool
+     */
+    CREATE {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            LoadClient.Response response = client.send("POST", client.getResource(), JSON,
+                    client.toJson(generateContact(random)));
+
+            if (response.status == 200 || response.status == 201) {
+                String id = client.createdId(response);
+                if (id != null) {
+                    pool.add(id);
+                }
+            }
+
+            return response;
+        }
+    },
+
+    /**
+     * <code>PUT</code> new values of a contact
+     */
+    UPDATE {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            String id = pool.pick(random);
+
+            return id == null ? null : client.send("PUT", client.getResource() + "/" + id, JSON,
+                    client.toJson(generateContact(random)));
+        }
+    },
+
+    /**
+     * <code>DELETE</code> a contact, taking it out of the pool
+     */
+    DELETE {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            String id = pool.take(random);
+
+            if (id == null) {
+                return null;
+            }
+
+            boolean deleted = false;
+
+            try {
+                LoadClient.Response response = client.send("DELETE", client.getResource() + "/" + id, null, null);
+                deleted = response.status < 500;
+                return response;
+            } finally {
+                // contacts that may still exist stay available to the other operations
+                if (!deleted) {
+                    pool.add(id);
+                }
+            }
+        }
+    },
+
+    /**
+     * <code>PUT</code> the picture of a contact
+     */
+    PICTURE {
+        @Override
+        LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException {
+
+            String id = pool.pick(random);
+
+            return id == null ? null : client.send("PUT", "/contacts/" + id + "/picture", "image/png",
+                    client.getPicture());
+        }
+    };
+
+    private static final String JSON = "application/json";
+
+    /**
+     * Send the request
+     *
+     * @param client the client
+     * @param pool the contacts known to exist
+     * @param random the random source
+     * @return the response, null if the request was skipped as there is no contact to send it for
+     * @throws IOException if the server could not be reached
+     */
+    abstract LoadClient.Response execute(LoadClient client, ContactPool pool, Random random) throws IOException;
+
+    /**
+     * Generate a contact shaped like the sample address list
+     *
+     * @param random the random source
+     * @return the contact, without an id
+     */
+    static Contact generateContact(Random random) {
+
+        int i = random.nextInt(1000000);
+
+        Contact contact = new Contact();
+        contact.setName(FIRST_NAMES[i % FIRST_NAMES.length] + " " + LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length] + " " + i);
+        contact.setEmail("contact." + i + "@thecloud.com");
+        contact.setTelephone(String.format("(%03d) %03d-%04d", i % 1000, (i / 7) % 1000, i % 10000));
+
+        return contact;
+    }
+
+    private static final String[] FIRST_NAMES = {
+            "Cecilia", "Iris", "Celeste", "Theodore", "Calista", "Kyla", "Forrest", "Hiroko", "Nyssa", "Lawrence"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "Chapman", "Watson", "Slater", "Lowe", "Wise", "Olsen", "Ray", "Potter", "Vazquez", "Moran"
+    };
+}
@@ -1,13 +1,13 @@
 package com.emc.documentum.sample;
 
-import com.emc.documentum.springdata.repository.config.EnableDctmRepositories;
+import com.emc.documentum.sample.metrics.StartupReport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.env.Environment;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
@@ -17,19 +17,20 @@ import org.springframework.web.servlet.config.annotation.EnableWebMvc;
  * @author Simon O'Brien
  */
 @Configuration
-@ComponentScan(basePackages = {"com.emc.documentum.springdata", "com.emc.documentum.sample"})
+@Import({ComponentScanConfiguration.class, ExplicitComponentsConfiguration.class})
 @EnableAutoConfiguration
-@EnableDctmRepositories
 @EnableWebMvc
 public class Application {
 
 
     /**
-     * Main method
+     * Main method, logging a startup time report once the server is up
      *
      * @param args command line args
      */
     public static void main(String[] args){
-        SpringApplication.run(Application.class, args);
+        SpringApplication application = new SpringApplication(Application.class);
+        application.addListeners(new StartupReport());
+        application.run(args);
     }
 }
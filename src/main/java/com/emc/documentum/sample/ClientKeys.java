@@ -0,0 +1,82 @@
+package com.emc.documentum.sample;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.security.Principal;
+
+/**
+ * Tells the clients of HTTP requests apart.
+ *
+ * Every request has an owner the client cannot choose: the authenticated user, or failing that the address, which
+ * puts clients behind the same proxy together. Behind a trusted proxy or load balancer the address can be taken from
+ * the header it forwards it in instead, the last address in the header being the one the proxy saw, so one a client
+ * put there itself is ignored. Limits are kept per owner. Inside an owner, clients are told apart
+ * by the <code>X-Client-Id</code> header, or failing that by their HTTP session, so a client naming itself can only
+ * ever pick a key below its own owner. No session is created for this.
+ */
+public final class ClientKeys {
+
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private ClientKeys() {
+    }
+
+    /**
+     * Get the key of the owner of a request, the authenticated user or else the address
+     *
+     * @param request the request
+     * @return the owner key
+     */
+    public static String owner(HttpServletRequest request) {
+        return owner(request, null);
+    }
+
+    /**
+     * Get the key of the owner of a request, the authenticated user or else the address forwarded by a trusted proxy
+     *
+     * @param request the request
+     * @param addressHeader the header the proxy forwards the client address in, like <code>X-Forwarded-For</code>,
+     *                      null to use the address the request came from
+     * @return the owner key
+     */
+    public static String owner(HttpServletRequest request, String addressHeader) {
+
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "user:" + principal.getName();
+        }
+
+        String forwarded = addressHeader == null ? null : request.getHeader(addressHeader);
+        if (forwarded != null) {
+            String address = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+            if (!address.isEmpty()) {
+                return "address:" + address;
+            }
+        }
+
+        return "address:" + request.getRemoteAddr();
+    }
+
+    /**
+     * Get the key of the client making a request, below the key of its owner
+     *
+     * @param request the request
+     * @return the client key
+     */
+    public static String of(HttpServletRequest request) {
+
+        String owner = owner(request);
+
+        String clientId = request.getHeader(CLIENT_ID_HEADER);
+        if (clientId != null && !clientId.isEmpty()) {
+            return owner + "/id:" + clientId;
+        }
+
+        HttpSession session = request.getSession(false);
+        if (session != null) {
+            return owner + "/session:" + session.getId();
+        }
+
+        return owner;
+    }
+}
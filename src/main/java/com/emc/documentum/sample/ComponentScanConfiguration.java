@@ -0,0 +1,18 @@
+package com.emc.documentum.sample;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Application and Spring Data Documentum components found by classpath scanning, unless the
+ * <code>fast-startup</code> profile is active, see {@link ExplicitComponentsConfiguration}
+ */
+@Configuration
+@Profile("!fast-startup")
+@ComponentScan(basePackages = {"com.emc.documentum.springdata", "com.emc.documentum.sample"}, excludeFilters = {
+        @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, value = Application.class)
+})
+public class ComponentScanConfiguration {
+}
@@ -0,0 +1,211 @@
+package com.emc.documentum.sample;
+
+import com.emc.documentum.sample.controller.EntityTags;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.replica.ReplicaRouter;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactRepositoryEvent;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Conditional requests for the contact resources.
+ *
+ * Entity tags of single contacts are computed from the contact as the resource reads it, through the contact cache, so
+ * a tag is never newer than the body it is sent with and a cached contact is validated without a docbase round trip.
+ * Tags of collection and search resources are computed from the version of the whole set of contacts. Both are computed
+ * before the request reaches Spring Data REST, and a request tagged from the version on the primary reads its contacts
+ * from the primary rather than a replica that may be behind it. Each tag also names the representation, the resource
+ * with its query string and the <code>Accept</code> header, as the same contacts give different bodies for different
+ * pages, sort orders and media types. A matching <code>If-None-Match</code> is answered with 304 without serialising
+ * any contact. <code>If-Modified-Since</code> is left to the entity tags, contacts are read without their modification
+ * date and deleting a contact does not move the modification date of the collections.
+ *
+ * An <code>If-Match</code> that does not name a tag of the current version with the strong comparison is answered
+ * with 412 before the request changes anything. The current version of a contact is read from the docbase for it,
+ * tagged from the same fields, and it compares the version only, so a tag read with any <code>Accept</code>
+ * header, resource or query string of the same version matches.
+ *
+ * The version of the whole set of contacts is an aggregate over every contact. It is kept until the next repository
+ * event, or at most <code>contact.http-cache.collection-version-ttl-millis</code> for changes made by other nodes.
+ *
+ * Enabled unless <code>contact.http-cache.enabled=false</code>.
+ */
+@Component
+@ConditionalOnProperty(prefix = "contact.http-cache", name = "enabled", matchIfMissing = true)
+public class ContactETagFilter implements Filter, ApplicationListener<ContactRepositoryEvent> {
+
+    private static final Pattern CONTACT = Pattern.compile("/contacts/([0-9a-f]{16})");
+
+    private static final String CONTACTS = "/contacts";
+
+    private static final String SEARCH = "/contacts/search/";
+
+    private static final Pattern REPRESENTATION = Pattern.compile("\"([^\"]*)-[0-9a-f]+\"");
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile CollectionVersion collectionVersion;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired(required = false)
+    private ReplicaRouter replicaRouter;
+
+    @Value("${contact.http-cache.max-age-seconds:0}")
+    private long maxAgeSeconds;
+
+    @Value("${contact.http-cache.collection-version-ttl-millis:1000}")
+    private long collectionVersionTtlMillis;
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        boolean safe = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+
+        // unconditional changes need no version
+        if (!safe && ifMatch == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher contact = CONTACT.matcher(path);
+
+        ContactVersion version;
+
+        if (contact.matches() && safe) {
+            Contact found = contactRepository.findOne(contact.group(1));
+            version = found == null ? null : ContactVersion.of(found, null);
+        } else if (contact.matches()) {
+            version = contactRepository.findVersion(contact.group(1));
+        } else if (path.equals(CONTACTS) || path.startsWith(SEARCH)) {
+            version = findCollectionVersion();
+            // the collection version comes from the primary, a replica behind it would answer with an older body
+            if (replicaRouter != null) {
+                replicaRouter.readFromPrimary();
+            }
+        } else {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        // If-Match fails when there is no current version at all
+        if (ifMatch != null
+                && (version == null || !EntityTags.matchesStrongly(versionTags(ifMatch), quote(version.getTag())))) {
+            response.setStatus(HttpStatus.PRECONDITION_FAILED.value());
+            return;
+        }
+
+        // unknown contacts, unknown versions and changes are left to the resources
+        if (version == null || !safe) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        String etag = quote(representationTag(version, path, request));
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "max-age=" + maxAgeSeconds + ", must-revalidate");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (version.getLastModified() != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, version.getLastModified().getTime());
+        }
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && EntityTags.matches(ifNoneMatch, etag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        chain.doFilter(req, res);
+    }
+
+    @Override
+    public void onApplicationEvent(ContactRepositoryEvent event) {
+        generation.incrementAndGet();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    /*
+     * a version read while a change went through is stored with the generation before it, and not used again
+     */
+    private ContactVersion findCollectionVersion() {
+
+        long now = System.currentTimeMillis();
+        long currentGeneration = generation.get();
+
+        CollectionVersion cached = collectionVersion;
+        if (cached != null && cached.generation == currentGeneration && now < cached.expires) {
+            return cached.version;
+        }
+
+        ContactVersion version = contactRepository.findCollectionVersion();
+        if (version != null) {
+            collectionVersion = new CollectionVersion(version, currentGeneration, now + collectionVersionTtlMillis);
+        }
+
+        return version;
+    }
+
+    /*
+     * the same contacts give different bodies for different resources, pages, sort orders and media types
+     */
+    private static String representationTag(ContactVersion version, String path, HttpServletRequest request) {
+
+        String resource = request.getQueryString() == null ? path : path + "?" + request.getQueryString();
+        String accept = request.getHeader(HttpHeaders.ACCEPT) == null ? "*/*" : request.getHeader(HttpHeaders.ACCEPT);
+
+        return version.getTag() + "-" + Integer.toHexString((resource + " " + accept).hashCode());
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+
+    /*
+     * the tags of an If-Match header cut down to the version they name, whatever representation they were read with
+     */
+    private static String versionTags(String ifMatch) {
+        return REPRESENTATION.matcher(ifMatch).replaceAll("\"$1\"");
+    }
+
+    private static class CollectionVersion {
+
+        private final ContactVersion version;
+
+        private final long generation;
+
+        private final long expires;
+
+        CollectionVersion(ContactVersion version, long generation, long expires) {
+            this.version = version;
+            this.generation = generation;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.emc.documentum.sample;
+
+import com.emc.documentum.sample.admission.AdmissionConfiguration;
+import com.emc.documentum.sample.async.AsyncRepositoryConfiguration;
+import com.emc.documentum.sample.cache.ContactCacheConfiguration;
+import com.emc.documentum.sample.cache.OffHeapContactStoreConfiguration;
+import com.emc.documentum.sample.changes.ChangeFeedConfiguration;
+import com.emc.documentum.sample.content.PictureConfiguration;
+import com.emc.documentum.sample.controller.AsyncContactController;
+import com.emc.documentum.sample.controller.ContactBatchController;
+import com.emc.documentum.sample.controller.ContactChangesController;
+import com.emc.documentum.sample.controller.ContactFieldsController;
+import com.emc.documentum.sample.controller.ContactPictureController;
+import com.emc.documentum.sample.controller.ContactSliceController;
+import com.emc.documentum.sample.controller.ContactStreamController;
+import com.emc.documentum.sample.controller.ContactSuggestController;
+import com.emc.documentum.sample.controller.ContactThumbnailController;
+import com.emc.documentum.sample.controller.ControllerExceptionHandler;
+import com.emc.documentum.sample.controller.MetricsController;
+import com.emc.documentum.sample.controller.OfflineContactController;
+import com.emc.documentum.sample.dfc.DfcConfiguration;
+import com.emc.documentum.sample.importer.ContactImporter;
+import com.emc.documentum.sample.metrics.MetricsConfiguration;
+import com.emc.documentum.sample.replica.ReplicaConfiguration;
+import com.emc.documentum.sample.repositories.ContactEventPublishingInterceptor;
+import com.emc.documentum.sample.repositories.ContactRepositoryPostProcessor;
+import com.emc.documentum.sample.repositories.DocbaseRepositoryConfiguration;
+import com.emc.documentum.sample.repositories.OfflineRepositoryConfiguration;
+import com.emc.documentum.sample.search.ContactNameIndexConfiguration;
+import com.emc.documentum.sample.search.ContactSuggestConfiguration;
+import com.emc.documentum.sample.singleflight.SingleFlightConfiguration;
+import com.emc.documentum.sample.streaming.StreamingConfiguration;
+import com.emc.documentum.sample.writebehind.WriteBehindConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Application components registered explicitly rather than found by scanning, with the <code>fast-startup</code>
+ * profile active.
+ *
+ * Only the Spring Data Documentum package is still scanned, its components are not known here. The profile also
+ * leaves the docbase session pool to fill on first use, see <code>application-fast-startup.properties</code>. New
+ * components must be added to the list, <code>ExplicitComponentsConfigurationTest</code> fails until they are.
+ */
+@Configuration
+@Profile("fast-startup")
+@ComponentScan(basePackages = "com.emc.documentum.springdata")
+@Import({
+        SimpleCORSFilter.class,
+        ContactETagFilter.class,
+        DfcConfiguration.class,
+        DocbaseRepositoryConfiguration.class,
+        ReplicaConfiguration.class,
+        OfflineRepositoryConfiguration.class,
+        ContactRepositoryPostProcessor.class,
+        ContactEventPublishingInterceptor.class,
+        MetricsConfiguration.class,
+        AdmissionConfiguration.class,
+        ContactCacheConfiguration.class,
+        OffHeapContactStoreConfiguration.class,
+        SingleFlightConfiguration.class,
+        WriteBehindConfiguration.class,
+        ContactNameIndexConfiguration.class,
+        ContactSuggestConfiguration.class,
+        PictureConfiguration.class,
+        AsyncRepositoryConfiguration.class,
+        ChangeFeedConfiguration.class,
+        StreamingConfiguration.class,
+        ContactImporter.class,
+        AsyncContactController.class,
+        ContactBatchController.class,
+        ContactChangesController.class,
+        ContactFieldsController.class,
+        ContactPictureController.class,
+        ContactSliceController.class,
+        ContactStreamController.class,
+        ContactSuggestController.class,
+        ContactThumbnailController.class,
+        MetricsController.class,
+        OfflineContactController.class,
+        ControllerExceptionHandler.class
+})
+public class ExplicitComponentsConfiguration {
+}
@@ -19,10 +19,11 @@ public class SimpleCORSFilter implements Filter {
         HttpServletResponse response = (HttpServletResponse) res;
         response.setHeader("Access-Control-Allow-Origin", "*");
 
-        response.setHeader("Access-Control-Allow-Methods", "POST, GET, OPTIONS, DELETE");
+        response.setHeader("Access-Control-Allow-Methods", "POST, GET, HEAD, PUT, OPTIONS, DELETE");
         response.setHeader("Access-Control-Allow-Credentials", "true");
         response.setHeader("Access-Control-Max-Age", "3600");
-        response.setHeader("Access-Control-Allow-Headers", "x-requested-with, Content-Type");
+        response.setHeader("Access-Control-Allow-Headers", "x-requested-with, Content-Type, Range, If-Range, If-Match, If-None-Match, If-Modified-Since");
+        response.setHeader("Access-Control-Expose-Headers", "ETag, Last-Modified, Content-Range, Retry-After");
         chain.doFilter(req, res);
     }
 
@@ -0,0 +1,144 @@
+package com.emc.documentum.sample.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit adapting to the latency of the calls it protects.
+ *
+ * Two moving averages of the latency are kept, a short one following the last few calls and a long one standing for
+ * the latency the calls usually have. While the short average stays within the tolerance of the long one the limit
+ * grows, by the square root of the limit per call while at least half of it is in use. Once calls slow down beyond
+ * the tolerance, queueing somewhere downstream, the limit shrinks in proportion, by at most half. Changes are
+ * smoothed over several calls and the limit stays between its minimum and maximum. Latencies under a millisecond
+ * count as a millisecond, jitter that small is no sign of queueing.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final long MIN_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final double SHORT_SMOOTHING = 0.1;
+
+    private static final double LONG_SMOOTHING = 0.01;
+
+    private static final double LIMIT_SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double tolerance;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimate;
+
+    private double shortLatency;
+
+    private double longLatency;
+
+    /**
+     * Constructor
+     *
+     * @param initialLimit the limit before any latency was observed
+     * @param minLimit the lowest the limit goes
+     * @param maxLimit the highest the limit goes
+     * @param tolerance how many times slower than usual calls may get before the limit shrinks
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.estimate = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimate;
+    }
+
+    /**
+     * Take a slot without waiting
+     *
+     * @return true if a slot was taken, false if the limit is reached
+     */
+    public boolean tryAcquire() {
+
+        for (;;) {
+
+            int current = inFlight.get();
+
+            if (current >= limit) {
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a slot taken with {@link #tryAcquire()}
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    /**
+     * Record the latency of a call
+     *
+     * @param nanos the call latency in nanoseconds
+     */
+    public synchronized void sample(long nanos) {
+
+        long latency = Math.max(nanos, MIN_LATENCY_NANOS);
+
+        if (longLatency == 0) {
+            shortLatency = latency;
+            longLatency = latency;
+            return;
+        }
+
+        shortLatency += (latency - shortLatency) * SHORT_SMOOTHING;
+        longLatency += (latency - longLatency) * LONG_SMOOTHING;
+
+        // calls got much faster again, let the usual latency catch up sooner
+        if (longLatency > 2 * shortLatency) {
+            longLatency *= 0.95;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / shortLatency));
+        double headroom = 2 * inFlight.get() >= estimate ? Math.sqrt(estimate) : 0;
+
+        estimate += (estimate * gradient + headroom - estimate) * LIMIT_SMOOTHING;
+        estimate = Math.max(minLimit, Math.min(maxLimit, estimate));
+
+        limit = (int) estimate;
+    }
+
+    /**
+     * Get the current limit
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the number of slots taken
+     *
+     * @return the slots in use
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Get the latency calls usually have
+     *
+     * @return the long moving average of the latency, in nanoseconds
+     */
+    public synchronized long getUsualLatency() {
+        return (long) longLatency;
+    }
+}
@@ -0,0 +1,91 @@
+package com.emc.documentum.sample.admission;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * HTTP admission control configuration, enabled unless <code>contact.admission.enabled=false</code>.
+ *
+ * Per client rate limits are off unless <code>contact.admission.rate-limit.enabled=true</code>. Anonymous clients are
+ * limited per address, so behind a proxy or load balancer they would all share the limit of the proxy address:
+ * set <code>contact.admission.rate-limit.client-address-header</code> to the header the proxy forwards client
+ * addresses in, and only when every request comes through that proxy, as clients can send the header themselves.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.admission", name = "enabled", matchIfMissing = true)
+public class AdmissionConfiguration {
+
+    @Value("${contact.admission.rate-limit.enabled:false}")
+    private boolean rateLimitEnabled;
+
+    @Value("${contact.admission.rate-limit.client-address-header:}")
+    private String clientAddressHeader;
+
+    @Value("${contact.admission.rate-limit.requests-per-second:50}")
+    private double requestsPerSecond;
+
+    @Value("${contact.admission.rate-limit.burst:100}")
+    private int burst;
+
+    @Value("${contact.admission.rate-limit.max-clients:10000}")
+    private int maxClients;
+
+    @Value("${contact.admission.metadata.initial-limit:32}")
+    private int initialLimit;
+
+    @Value("${contact.admission.metadata.min-limit:4}")
+    private int minLimit;
+
+    @Value("${contact.admission.metadata.max-limit:256}")
+    private int maxLimit;
+
+    @Value("${contact.admission.metadata.latency-tolerance:2.0}")
+    private double latencyTolerance;
+
+    @Value("${contact.admission.content.max-concurrent:8}")
+    private int maxConcurrentContent;
+
+    /**
+     * Admission control bean
+     *
+     * @return the admission control
+     */
+    @Bean
+    public AdmissionControl admissionControl() {
+        ClientRateLimiter rateLimiter =
+                rateLimitEnabled ? new ClientRateLimiter(requestsPerSecond, burst, maxClients) : null;
+
+        return new AdmissionControl(rateLimiter,
+                new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTolerance), maxConcurrentContent);
+    }
+
+    /**
+     * Docbase latency repository interceptor bean, adapting the metadata limit
+     *
+     * @return the docbase latency interceptor
+     */
+    @Bean
+    public DocbaseLatencyInterceptor docbaseLatencyInterceptor() {
+        return new DocbaseLatencyInterceptor(admissionControl());
+    }
+
+    /**
+     * Admission filter registration bean, behind the request metrics so turned away requests are timed
+     *
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean admissionFilter() {
+
+        FilterRegistrationBean registration = new FilterRegistrationBean(new AdmissionFilter(admissionControl(),
+                clientAddressHeader.isEmpty() ? null : clientAddressHeader));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        registration.setAsyncSupported(true);
+
+        return registration;
+    }
+}
@@ -0,0 +1,182 @@
+package com.emc.documentum.sample.admission;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which HTTP requests are let in, so one heavy client or a slow docbase does not starve everyone else.
+ *
+ * Every client is rate limited on its own, when rate limits are on. Content transfers, picture uploads and downloads and contact streams,
+ * and metadata calls then have separate bulkheads: a fixed number of content transfers, which hold a request
+ * thread and often a session for long, and a number of metadata calls adapting to the docbase latency. Requests
+ * past a limit are not queued, they are turned away at once.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=AdmissionControl", description = "HTTP admission control")
+public class AdmissionControl {
+
+    private final ClientRateLimiter rateLimiter;
+
+    private final AdaptiveConcurrencyLimit metadataLimit;
+
+    private final Semaphore contentPermits;
+
+    private final int contentLimit;
+
+    private final ThreadLocal<Boolean> admittedThreads = new ThreadLocal<Boolean>();
+
+    private final AtomicLong admitted = new AtomicLong();
+
+    private final AtomicLong rateLimited = new AtomicLong();
+
+    private final AtomicLong shedMetadata = new AtomicLong();
+
+    private final AtomicLong shedContent = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param rateLimiter the per client rate limits, null for none
+     * @param metadataLimit the concurrency limit of metadata calls
+     * @param contentLimit the most content transfers at a time
+     */
+    public AdmissionControl(ClientRateLimiter rateLimiter, AdaptiveConcurrencyLimit metadataLimit, int contentLimit) {
+        this.rateLimiter = rateLimiter;
+        this.metadataLimit = metadataLimit;
+        this.contentPermits = new Semaphore(contentLimit);
+        this.contentLimit = contentLimit;
+    }
+
+    /**
+     * Check a client's rate limit, counting the request against it
+     *
+     * @param client the client key
+     * @return 0 if the request may go ahead, otherwise the nanoseconds until the client may make one
+     */
+    public long checkRate(String client) {
+
+        long wait = rateLimiter == null ? 0 : rateLimiter.tryAcquire(client);
+
+        if (wait > 0) {
+            rateLimited.incrementAndGet();
+        }
+
+        return wait;
+    }
+
+    /**
+     * Take a place in a bulkhead without waiting, to be given back with {@link #release(boolean)}
+     *
+     * @param content true for a content transfer, false for a metadata call
+     * @return true if the request was let in
+     */
+    public boolean tryAcquire(boolean content) {
+
+        boolean acquired = content ? contentPermits.tryAcquire() : metadataLimit.tryAcquire();
+
+        if (acquired) {
+            admitted.incrementAndGet();
+        } else {
+            (content ? shedContent : shedMetadata).incrementAndGet();
+        }
+
+        return acquired;
+    }
+
+    /**
+     * Give back a place taken in a bulkhead
+     *
+     * @param content true for a content transfer, false for a metadata call
+     */
+    public void release(boolean content) {
+        if (content) {
+            contentPermits.release();
+        } else {
+            metadataLimit.release();
+        }
+    }
+
+    /**
+     * Mark the current thread as serving a request that was let in, until {@link #unbindAdmitted()}
+     */
+    public void bindAdmitted() {
+        admittedThreads.set(Boolean.TRUE);
+    }
+
+    /**
+     * Clear the mark of the current thread
+     */
+    public void unbindAdmitted() {
+        admittedThreads.remove();
+    }
+
+    /**
+     * Check if the current thread serves a request that was let in
+     *
+     * @return true if bound with {@link #bindAdmitted()}
+     */
+    public boolean isAdmitted() {
+        return admittedThreads.get() != null;
+    }
+
+    /**
+     * Record the latency of a docbase call
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void docbaseCalled(long nanos) {
+        metadataLimit.sample(nanos);
+    }
+
+    @ManagedAttribute(description = "Current limit of concurrent metadata calls")
+    public int getMetadataLimit() {
+        return metadataLimit.getLimit();
+    }
+
+    @ManagedAttribute(description = "Number of metadata calls in progress")
+    public int getMetadataInFlight() {
+        return metadataLimit.getInFlight();
+    }
+
+    @ManagedAttribute(description = "Usual docbase call latency, in milliseconds")
+    public double getUsualDocbaseLatency() {
+        return metadataLimit.getUsualLatency() / 1e6;
+    }
+
+    @ManagedAttribute(description = "Limit of concurrent content transfers")
+    public int getContentLimit() {
+        return contentLimit;
+    }
+
+    @ManagedAttribute(description = "Number of content transfers in progress")
+    public int getContentInFlight() {
+        return contentLimit - contentPermits.availablePermits();
+    }
+
+    @ManagedAttribute(description = "Number of clients rate limited apart")
+    public int getClientCount() {
+        return rateLimiter == null ? 0 : rateLimiter.getClientCount();
+    }
+
+    @ManagedAttribute(description = "Number of requests let in")
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    @ManagedAttribute(description = "Number of requests turned away over their client's rate limit")
+    public long getRateLimitedCount() {
+        return rateLimited.get();
+    }
+
+    @ManagedAttribute(description = "Number of metadata calls turned away over the concurrency limit")
+    public long getShedMetadataCount() {
+        return shedMetadata.get();
+    }
+
+    @ManagedAttribute(description = "Number of content transfers turned away over the concurrency limit")
+    public long getShedContentCount() {
+        return shedContent.get();
+    }
+}
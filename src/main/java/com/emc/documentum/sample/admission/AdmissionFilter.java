@@ -0,0 +1,141 @@
+package com.emc.documentum.sample.admission;
+
+import com.emc.documentum.sample.ClientKeys;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Lets HTTP requests in through the {@link AdmissionControl}, turning the others away with a
+ * <code>Retry-After</code> header: <code>429</code> for a client over its rate limit, <code>503</code> when the
+ * bulkhead of the request is full.
+ *
+ * Pictures, thumbnails, contact streams and multipart uploads are content transfers, all other requests metadata
+ * calls. CORS preflight requests and the metrics go through untouched. Rate limits are kept per
+ * {@link ClientKeys#owner(HttpServletRequest, String) owner}, so a client cannot get round them by naming itself
+ * anew. Behind a proxy every anonymous client has the address of the proxy, unless the header the proxy forwards
+ * client addresses in is configured. A
+ * place taken by an asynchronous request is given back when its response completes, and the dispatch that writes
+ * its response was let in already. The thread serving a request that was let in is bound to the admission control
+ * until the request leaves the filter, so only its docbase calls are reported for the metadata limit.
+ */
+public class AdmissionFilter implements Filter {
+
+    private static final Pattern CONTENT = Pattern.compile("/contacts/(stream|[^/]+/(picture|thumbnail))(/.*)?");
+
+    private final AdmissionControl admissionControl;
+
+    private final String clientAddressHeader;
+
+    /**
+     * Constructor
+     *
+     * @param admissionControl the admission control deciding which requests are let in
+     */
+    public AdmissionFilter(AdmissionControl admissionControl) {
+        this(admissionControl, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param admissionControl the admission control deciding which requests are let in
+     * @param clientAddressHeader the header a trusted proxy forwards client addresses in, null if there is none
+     */
+    public AdmissionFilter(AdmissionControl admissionControl, String clientAddressHeader) {
+        this.admissionControl = admissionControl;
+        this.clientAddressHeader = clientAddressHeader;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (request.getDispatcherType() == DispatcherType.ASYNC || "OPTIONS".equals(request.getMethod())
+                || path.equals("/metrics") || path.startsWith("/metrics/")) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        long wait = admissionControl.checkRate(ClientKeys.owner(request, clientAddressHeader));
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, wait, "Too many requests, slow down");
+            return;
+        }
+
+        final boolean content = CONTENT.matcher(path).matches()
+                || (request.getContentType() != null && request.getContentType().startsWith("multipart/"));
+
+        if (!admissionControl.tryAcquire(content)) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Too busy for more " + (content ? "content transfers" : "requests") + ", try again later");
+            return;
+        }
+
+        boolean async = false;
+        admissionControl.bindAdmitted();
+        try {
+            chain.doFilter(req, res);
+            async = request.isAsyncStarted();
+        } finally {
+            admissionControl.unbindAdmitted();
+            if (async) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        admissionControl.release(content);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        // completes afterwards
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        // completes afterwards
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+            } else {
+                admissionControl.release(content);
+            }
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    private static void reject(HttpServletResponse response, HttpStatus status, long waitNanos, String message)
+            throws IOException {
+
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+        response.sendError(status.value(), message);
+    }
+}
@@ -0,0 +1,123 @@
+package com.emc.documentum.sample.admission;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket rate limits per client.
+ *
+ * Each client has a bucket holding up to <code>burst</code> tokens and refilled at <code>rate</code> tokens a
+ * second, every request takes a token. Buckets that have filled up again are the same as new ones and are dropped
+ * once more than the maximum number of clients are tracked. Clients beyond the maximum while all buckets are in use
+ * share one bucket.
+ */
+public class ClientRateLimiter {
+
+    private static final String OVERFLOW = "overflow";
+
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<String, Bucket>();
+
+    private final double tokensPerNano;
+
+    private final double burst;
+
+    private final int maxClients;
+
+    /**
+     * Constructor
+     *
+     * @param rate the requests a second each client may make
+     * @param burst the requests a client may make at once after being idle
+     * @param maxClients the number of clients tracked apart
+     */
+    public ClientRateLimiter(double rate, int burst, int maxClients) {
+        this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Take a token from a client's bucket
+     *
+     * @param client the client key
+     * @return 0 if the client may go ahead, otherwise the nanoseconds until it may
+     */
+    public long tryAcquire(String client) {
+
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(client);
+
+        if (bucket == null) {
+
+            if (buckets.size() >= maxClients) {
+                evictFull(now);
+            }
+
+            String key = buckets.size() < maxClients ? client : OVERFLOW;
+            Bucket created = new Bucket(burst, now);
+            bucket = buckets.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+
+        return bucket.take(now);
+    }
+
+    /**
+     * Get the number of clients tracked
+     *
+     * @return the number of buckets
+     */
+    public int getClientCount() {
+        return buckets.size();
+    }
+
+    private void evictFull(long now) {
+
+        Iterator<Bucket> iterator = buckets.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isFull(now)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private class Bucket {
+
+        private double tokens;
+
+        private long updated;
+
+        private Bucket(double tokens, long updated) {
+            this.tokens = tokens;
+            this.updated = updated;
+        }
+
+        private synchronized long take(long now) {
+
+            refill(now);
+
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        private synchronized boolean isFull(long now) {
+            refill(now);
+            return tokens >= burst;
+        }
+
+        private void refill(long now) {
+            if (now > updated) {
+                tokens = Math.min(burst, tokens + (now - updated) * tokensPerNano);
+                updated = now;
+            }
+        }
+    }
+}
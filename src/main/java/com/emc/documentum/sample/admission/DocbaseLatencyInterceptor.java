@@ -0,0 +1,53 @@
+package com.emc.documentum.sample.admission;
+
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Reports the latency of contact repository calls to the {@link AdmissionControl}, so the number of metadata
+ * requests let in follows how fast the docbase answers.
+ *
+ * Only calls made on a thread serving a request let in by the {@link AdmissionFilter} are reported. Write-behind
+ * flushes, replica checks, imports and other background work do not hold a place in the metadata limit, and their
+ * batch calls would make the docbase look slower than requests find it. Calls of asynchronous requests made on other
+ * threads are not reported either.
+ *
+ * Runs inside the write-behind buffer, the cache and the name index, whose answers from memory say nothing about
+ * the docbase, and around the replica routing so reads on replicas count too.
+ */
+public class DocbaseLatencyInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = 350;
+
+    private final AdmissionControl admissionControl;
+
+    /**
+     * Constructor
+     *
+     * @param admissionControl the admission control to report to
+     */
+    public DocbaseLatencyInterceptor(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        if (!admissionControl.isAdmitted()) {
+            return invocation.proceed();
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            return invocation.proceed();
+        } finally {
+            admissionControl.docbaseCalled(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.emc.documentum.sample.async;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous view of the contact repository, running each call on a bounded executor so callers are not blocked
+ * while DFC talks to the docbase.
+ *
+ * Calls go through the repository proxy, so caching, indexing, metrics and events apply as for synchronous calls.
+ * When the executor is saturated the returned future completes exceptionally with a
+ * {@link java.util.concurrent.RejectedExecutionException}.
+ */
+public class AsyncContactRepository {
+
+    private final ContactRepository contactRepository;
+
+    private final Executor executor;
+
+    /**
+     * Constructor
+     *
+     * @param contactRepository the repository the calls are made on
+     * @param executor the executor running the calls
+     */
+    public AsyncContactRepository(ContactRepository contactRepository, Executor executor) {
+        this.contactRepository = contactRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * Save a contact
+     *
+     * @param contact the contact
+     * @return the saved contact
+     */
+    public CompletableFuture<Contact> save(final Contact contact) {
+        return supply(new Supplier<Contact>() {
+            @Override
+            public Contact get() {
+                return contactRepository.save(contact);
+            }
+        });
+    }
+
+    /**
+     * Replace an existing contact
+     *
+     * @param contact the contact, with its id set
+     * @return the saved contact, completing with null if there is no contact with its id
+     */
+    public CompletableFuture<Contact> update(final Contact contact) {
+        return supply(new Supplier<Contact>() {
+            @Override
+            public Contact get() {
+                return contactRepository.exists(contact.getId()) ? contactRepository.save(contact) : null;
+            }
+        });
+    }
+
+    /**
+     * Delete a contact
+     *
+     * @param id the contact id
+     * @return the contact id, completing with null if there was no contact to delete
+     */
+    public CompletableFuture<String> delete(final String id) {
+        return supply(new Supplier<String>() {
+            @Override
+            public String get() {
+
+                if (!contactRepository.exists(id)) {
+                    return null;
+                }
+
+                contactRepository.delete(id);
+                return id;
+            }
+        });
+    }
+
+    /**
+     * Find a contact by id
+     *
+     * @param id the contact id
+     * @return the contact, completing with null if there is none
+     */
+    public CompletableFuture<Contact> findOne(final String id) {
+        return supply(new Supplier<Contact>() {
+            @Override
+            public Contact get() {
+                return contactRepository.findOne(id);
+            }
+        });
+    }
+
+    /**
+     * Find all contacts
+     *
+     * @return the contacts
+     */
+    public CompletableFuture<List<Contact>> findAll() {
+        return supply(new Supplier<List<Contact>>() {
+            @Override
+            public List<Contact> get() {
+                return toList(contactRepository.findAll());
+            }
+        });
+    }
+
+    /**
+     * Find contacts whose name contains a substring
+     *
+     * @param value the substring
+     * @return the matching contacts
+     */
+    public CompletableFuture<List<Contact>> findByNameContaining(final String value) {
+        return supply(new Supplier<List<Contact>>() {
+            @Override
+            public List<Contact> get() {
+                return toList(contactRepository.findByNameContaining(value));
+            }
+        });
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> call) {
+
+        try {
+            return CompletableFuture.supplyAsync(call, executor);
+        } catch (RuntimeException e) {
+            // rejected by the executor, report through the future like any other failure
+            CompletableFuture<T> failed = new CompletableFuture<T>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    private static List<Contact> toList(Iterable<Contact> contacts) {
+
+        if (contacts instanceof List) {
+            return (List<Contact>) contacts;
+        }
+
+        List<Contact> list = new ArrayList<Contact>();
+        for (Contact contact : contacts) {
+            list.add(contact);
+        }
+
+        return list;
+    }
+}
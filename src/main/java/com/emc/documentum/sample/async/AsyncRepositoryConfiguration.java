@@ -0,0 +1,77 @@
+package com.emc.documentum.sample.async;
+
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous contact repository configuration.
+ *
+ * Calls run on a fixed pool of <code>contact.async.threads</code> threads, or with
+ * <code>contact.async.virtual-threads=true</code> on a virtual thread each when the JDK provides them. Either way
+ * at most <code>contact.async.max-pending</code> calls are queued or running.
+ */
+@Configuration
+public class AsyncRepositoryConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncRepositoryConfiguration.class);
+
+    @Value("${contact.async.threads:32}")
+    private int threads;
+
+    @Value("${contact.async.virtual-threads:false}")
+    private boolean virtualThreads;
+
+    @Value("${contact.async.max-pending:1000}")
+    private int maxPending;
+
+    /**
+     * Executor service bean running the asynchronous repository calls, shut down with the context
+     *
+     * @return the executor service
+     */
+    @Bean
+    public ExecutorService contactRepositoryExecutorService() {
+
+        if (virtualThreads) {
+            try {
+                // looked up reflectively, the application is built for Java 8
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads are not available on this JDK, using {} platform threads", threads);
+            }
+        }
+
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "contact-repository-async-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Asynchronous contact repository bean
+     *
+     * @param contactRepository the contact repository
+     * @return the asynchronous contact repository
+     */
+    @Bean
+    public AsyncContactRepository asyncContactRepository(ContactRepository contactRepository) {
+        return new AsyncContactRepository(contactRepository,
+                new BoundedExecutor(contactRepositoryExecutorService(), maxPending));
+    }
+}
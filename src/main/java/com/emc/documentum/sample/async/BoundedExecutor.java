@@ -0,0 +1,65 @@
+package com.emc.documentum.sample.async;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Executor admitting a bounded number of tasks at a time, queued or running, and rejecting the rest right away.
+ *
+ * Bounds an executor that would otherwise queue or spawn without limit, such as a virtual thread per task executor,
+ * so overload surfaces as a {@link RejectedExecutionException} instead of an ever growing backlog.
+ */
+public class BoundedExecutor implements Executor {
+
+    private final Executor delegate;
+
+    private final Semaphore permits;
+
+    private final int maxTasks;
+
+    /**
+     * Constructor
+     *
+     * @param delegate the executor running the tasks
+     * @param maxTasks the maximum number of tasks queued or running
+     */
+    public BoundedExecutor(Executor delegate, int maxTasks) {
+        this.delegate = delegate;
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks);
+    }
+
+    @Override
+    public void execute(final Runnable task) {
+
+        if (!permits.tryAcquire()) {
+            throw new RejectedExecutionException("More than " + maxTasks + " tasks pending");
+        }
+
+        try {
+            delegate.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Number of tasks queued or running
+     *
+     * @return the number of tasks
+     */
+    public int getPendingTasks() {
+        return maxTasks - permits.availablePermits();
+    }
+}
@@ -0,0 +1,320 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory cache of contacts keyed by contact id.
+ *
+ * Entries expire after a fixed time to live and the least recently used entries are evicted once either the entry
+ * count or the estimated memory footprint is exceeded. The cache is split into independently locked segments so
+ * concurrent readers of different contacts do not contend. Contacts are copied on the way in and out, callers are
+ * free to modify what they get back.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ContactCache", description = "Contact read-through cache")
+public class ContactCache implements ContactStore {
+
+    private static final int SEGMENTS = 16;
+
+    /*
+     * rough per entry overhead: map entry, cache entry, contact object and four string headers
+     */
+    private static final long ENTRY_OVERHEAD_BYTES = 64 + 32 + 32 + 4 * 40;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final long ttlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries maximum number of cached contacts
+     * @param maxBytes maximum estimated memory held by cached contacts
+     * @param ttlMillis time to live of a cached contact in milliseconds
+     */
+    public ContactCache(int maxEntries, long maxBytes, long ttlMillis) {
+
+        if (maxEntries < 1 || maxBytes < 1 || ttlMillis < 1) {
+            throw new IllegalArgumentException("Cache limits must be positive");
+        }
+
+        this.ttlMillis = ttlMillis;
+
+        // spread the limits over the segments, rounding up so tiny caches still hold something
+        int segmentEntries = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+        long segmentBytes = (maxBytes + SEGMENTS - 1) / SEGMENTS;
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentEntries, segmentBytes);
+        }
+    }
+
+    /**
+     * Get a cached contact
+     *
+     * @param id the contact id
+     * @return a copy of the cached contact or null if it is not cached or has expired
+     */
+    @Override
+    public Contact get(String id) {
+
+        if (id == null) {
+            return null;
+        }
+
+        Contact contact = segmentFor(id).get(id, currentTimeMillis());
+
+        if (contact == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return contact.copy();
+    }
+
+    /**
+     * Check if a contact is cached
+     *
+     * @param id the contact id
+     * @return true if an unexpired entry exists for the contact, does not count as a hit or miss
+     */
+    @Override
+    public boolean contains(String id) {
+        return id != null && segmentFor(id).get(id, currentTimeMillis()) != null;
+    }
+
+    /**
+     * Cache a contact, contacts without an id are ignored
+     *
+     * @param contact the contact
+     */
+    @Override
+    public void put(Contact contact) {
+
+        if (contact == null || contact.getId() == null) {
+            return;
+        }
+
+        Contact copy = contact.copy();
+        segmentFor(copy.getId()).put(copy, weigh(copy), currentTimeMillis() + ttlMillis);
+    }
+
+    /**
+     * Remove a contact from the cache
+     *
+     * @param id the contact id
+     */
+    @Override
+    public void evict(String id) {
+
+        if (id != null && segmentFor(id).remove(id)) {
+            invalidations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Remove all contacts from the cache
+     */
+    @Override
+    @ManagedOperation(description = "Remove all contacts from the cache")
+    public void clear() {
+        for (Segment segment : segments) {
+            invalidations.addAndGet(segment.clear());
+        }
+    }
+
+    @ManagedAttribute(description = "Number of lookups answered from the cache")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Number of lookups not answered from the cache")
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts evicted to stay within the size limits")
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts dropped after their time to live")
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts removed because they were saved or deleted")
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @ManagedAttribute(description = "Fraction of lookups answered from the cache")
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @ManagedAttribute(description = "Number of cached contacts")
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @ManagedAttribute(description = "Estimated memory held by cached contacts in bytes")
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    /**
+     * Current time used for expiry, overridable for tests
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private Segment segmentFor(String id) {
+        int hash = id.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private static long weigh(Contact contact) {
+        return ENTRY_OVERHEAD_BYTES
+                + 2L * (length(contact.getId()) + length(contact.getName())
+                + length(contact.getEmail()) + length(contact.getTelephone()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /*
+     * cache entry holding the contact, its weight and expiry time
+     */
+    private static final class Entry {
+
+        private final Contact contact;
+
+        private final long weight;
+
+        private final long expiresAt;
+
+        private Entry(Contact contact, long weight, long expiresAt) {
+            this.contact = contact;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /*
+     * access ordered map guarded by its own lock
+     */
+    private final class Segment {
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+        private final int maxEntries;
+
+        private final long maxBytes;
+
+        private long weight;
+
+        private Segment(int maxEntries, long maxBytes) {
+            this.maxEntries = maxEntries;
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized Contact get(String id, long now) {
+
+            Entry entry = entries.get(id);
+
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.expiresAt <= now) {
+                entries.remove(id);
+                weight -= entry.weight;
+                expirations.incrementAndGet();
+                return null;
+            }
+
+            return entry.contact;
+        }
+
+        private synchronized void put(Contact contact, long entryWeight, long expiresAt) {
+
+            Entry previous = entries.put(contact.getId(), new Entry(contact, entryWeight, expiresAt));
+
+            if (previous != null) {
+                weight -= previous.weight;
+            }
+
+            weight += entryWeight;
+
+            // evict from the least recently used end until back within limits
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || weight > maxBytes) && iterator.hasNext()) {
+                Entry eldest = iterator.next().getValue();
+                iterator.remove();
+                weight -= eldest.weight;
+                evictions.incrementAndGet();
+            }
+        }
+
+        private synchronized boolean remove(String id) {
+
+            Entry entry = entries.remove(id);
+
+            if (entry == null) {
+                return false;
+            }
+
+            weight -= entry.weight;
+            return true;
+        }
+
+        private synchronized int clear() {
+            int size = entries.size();
+            entries.clear();
+            weight = 0;
+            return size;
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+
+        private synchronized long weight() {
+            return weight;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.emc.documentum.sample.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact cache configuration, enabled unless <code>contact.cache.enabled=false</code>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.cache", name = "enabled", matchIfMissing = true)
+public class ContactCacheConfiguration {
+
+    @Value("${contact.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${contact.cache.max-bytes:16777216}")
+    private long maxBytes;
+
+    @Value("${contact.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * Contact cache bean
+     *
+     * @return the contact cache
+     */
+    @Bean
+    public ContactCache contactCache() {
+        return new ContactCache(maxEntries, maxBytes, ttlSeconds * 1000);
+    }
+
+    /**
+     * Contact cache repository interceptor bean
+     *
+     * @return the contact cache interceptor
+     */
+    @Bean
+    public ContactCacheInterceptor contactCacheInterceptor() {
+        return new ContactCacheInterceptor(contactCache());
+    }
+}
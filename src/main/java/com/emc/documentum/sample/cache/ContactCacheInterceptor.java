@@ -0,0 +1,183 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Read-through caching around the contact repository.
+ *
+ * <code>findOne</code> and <code>exists</code> are answered from a {@link ContactStore} when possible, found
+ * contacts are added to it and saved, updated or deleted contacts are evicted from it. The on-heap
+ * {@link ContactCache} is read first, the {@link OffHeapContactStore} behind it on its misses.
+ *
+ * A lookup that started before a write went through may come back with the state from before it, after the write
+ * evicted the contact. Writes therefore bump a generation for the ids they touch, and a lookup that sees the
+ * generation of its id move while it ran takes back what it stored. Generations are kept per stripe of ids, a write
+ * to one contact may cost a lookup of another its entry but never lets a stale one stay.
+ */
+public class ContactCacheInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = 100;
+
+    /**
+     * Order of the interceptor reading through the off-heap store, just inside the on-heap cache
+     */
+    public static final int OFF_HEAP_ORDER = 120;
+
+    private static final int STRIPES = 1024;
+
+    private final ContactStore cache;
+
+    private final int order;
+
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param cache the contact cache
+     */
+    public ContactCacheInterceptor(ContactCache cache) {
+        this(cache, ORDER);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param cache the contact store
+     * @param order the order of the interceptor
+     */
+    public ContactCacheInterceptor(ContactStore cache, int order) {
+        this.cache = cache;
+        this.order = order;
+    }
+
+    @Override
+    public int getOrder() {
+        return order;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        String methodName = invocation.getMethod().getName();
+        Object[] arguments = invocation.getArguments();
+
+        if ("findOne".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            return findOne(invocation, (String) arguments[0]);
+        }
+
+        if ("exists".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            return cache.contains((String) arguments[0]) || (Boolean) invocation.proceed();
+        }
+
+        if ("findAll".equals(methodName) && arguments.length == 0) {
+            long written = writes.get();
+            Object result = invocation.proceed();
+            warm(result, written);
+            return result;
+        }
+
+        if ((("save".equals(methodName) || "saveAll".equals(methodName) || "delete".equals(methodName)
+                || "deleteAllByIdIn".equals(methodName)) && arguments.length == 1)
+                || ("updateAllByIdIn".equals(methodName) && arguments.length == 2)) {
+            try {
+                return invocation.proceed();
+            } finally {
+                written(arguments[0]);
+            }
+        }
+
+        // the ids a name matched are not known here
+        if (("deleteAll".equals(methodName) && arguments.length == 0)
+                || ("deleteByNameContaining".equals(methodName) && arguments.length == 1)) {
+            try {
+                return invocation.proceed();
+            } finally {
+                for (int stripe = 0; stripe < STRIPES; stripe++) {
+                    generations.incrementAndGet(stripe);
+                }
+                writes.incrementAndGet();
+                cache.clear();
+            }
+        }
+
+        return invocation.proceed();
+    }
+
+    private Contact findOne(MethodInvocation invocation, String id) throws Throwable {
+
+        Contact cached = cache.get(id);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = generations.get(stripe(id));
+        Contact found = (Contact) invocation.proceed();
+
+        // stored before checking, a write bumping the generation afterwards evicts it itself
+        cache.put(found);
+        if (generations.get(stripe(id)) != generation) {
+            cache.evict(id);
+        }
+
+        return found;
+    }
+
+    /*
+     * only materialised results are used to warm the cache, lazy iterables are left untouched
+     */
+    private void warm(Object result, long written) {
+
+        if (!(result instanceof Collection)) {
+            return;
+        }
+
+        for (Object contact : (Collection<?>) result) {
+            if (contact instanceof Contact) {
+                cache.put((Contact) contact);
+            }
+        }
+
+        if (writes.get() != written) {
+            for (Object contact : (Collection<?>) result) {
+                if (contact instanceof Contact && ((Contact) contact).getId() != null) {
+                    cache.evict(((Contact) contact).getId());
+                }
+            }
+        }
+    }
+
+    /*
+     * the generation moves before the eviction, so a lookup either sees it move or stores before the eviction
+     */
+    private void written(Object argument) {
+
+        if (argument instanceof String) {
+            generations.incrementAndGet(stripe((String) argument));
+            writes.incrementAndGet();
+            cache.evict((String) argument);
+        } else if (argument instanceof Contact) {
+            if (((Contact) argument).getId() != null) {
+                written(((Contact) argument).getId());
+            }
+        } else if (argument instanceof Iterable) {
+            for (Object element : (Iterable<?>) argument) {
+                written(element);
+            }
+        }
+    }
+
+    private static int stripe(String id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,44 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+
+/**
+ * Store of contacts keyed by contact id that a {@link ContactCacheInterceptor} reads through, on the heap or off it
+ */
+public interface ContactStore {
+
+    /**
+     * Get a stored contact
+     *
+     * @param id the contact id
+     * @return a copy of the stored contact, free to be modified, or null if it is not stored or has expired
+     */
+    Contact get(String id);
+
+    /**
+     * Check if a contact is stored
+     *
+     * @param id the contact id
+     * @return true if an unexpired entry exists for the contact
+     */
+    boolean contains(String id);
+
+    /**
+     * Store a contact, contacts without an id are ignored
+     *
+     * @param contact the contact
+     */
+    void put(Contact contact);
+
+    /**
+     * Remove a contact
+     *
+     * @param id the contact id
+     */
+    void evict(String id);
+
+    /**
+     * Remove all contacts
+     */
+    void clear();
+}
@@ -0,0 +1,107 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.domain.ContactName;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Contact read from the {@link OffHeapContactStore}, each field decoded from the stored UTF-8 record on first access.
+ *
+ * A view holds its own copy of the record, it stays valid whatever is stored or evicted afterwards. Like a contact,
+ * a view is not meant to be shared between threads.
+ */
+public class ContactView implements ContactName {
+
+    private static final int FIELDS = 4;
+
+    private static final int ID = 0;
+
+    private static final int NAME = 1;
+
+    private static final int EMAIL = 2;
+
+    private static final int TELEPHONE = 3;
+
+    private final byte[] record;
+
+    private final int start;
+
+    private final String[] values = new String[FIELDS];
+
+    private int decoded;
+
+    /**
+     * Constructor
+     *
+     * @param record the stored record, holding the field lengths followed by the field values
+     * @param start the index of the first field length in the record
+     */
+    ContactView(byte[] record, int start) {
+        this.record = record;
+        this.start = start;
+    }
+
+    @Override
+    public String getId() {
+        return field(ID);
+    }
+
+    @Override
+    public String getName() {
+        return field(NAME);
+    }
+
+    public String getEmail() {
+        return field(EMAIL);
+    }
+
+    public String getTelephone() {
+        return field(TELEPHONE);
+    }
+
+    /**
+     * Decode the whole record into a contact
+     *
+     * @return a new contact
+     */
+    public Contact toContact() {
+
+        Contact contact = new Contact();
+        contact.setId(getId());
+        contact.setName(getName());
+        contact.setEmail(getEmail());
+        contact.setTelephone(getTelephone());
+
+        return contact;
+    }
+
+    private String field(int field) {
+
+        if ((decoded & (1 << field)) == 0) {
+            values[field] = decode(field);
+            decoded |= 1 << field;
+        }
+
+        return values[field];
+    }
+
+    /*
+     * the values follow the lengths in field order, a negative length stands for null
+     */
+    private String decode(int field) {
+
+        int offset = start + 2 * FIELDS;
+        for (int i = 0; i < field; i++) {
+            offset += Math.max(0, length(i));
+        }
+
+        int length = length(field);
+        return length < 0 ? null : new String(record, offset, length, StandardCharsets.UTF_8);
+    }
+
+    private int length(int field) {
+        int at = start + 2 * field;
+        return (short) ((record[at] << 8) | (record[at + 1] & 0xff));
+    }
+}
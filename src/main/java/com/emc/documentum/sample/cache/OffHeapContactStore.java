@@ -0,0 +1,747 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Contact store kept outside the Java heap, so holding millions of contacts adds nothing for the garbage collector
+ * to trace.
+ *
+ * Contacts are encoded as compact UTF-8 records in direct buffers, or in a memory mapped file that a restarted node
+ * can open again with its contacts still in place. The store is split into segments, each with its own buffer holding
+ * an open addressing index of record offsets keyed by contact id and a circular log of records. Records are
+ * appended to the log, when it is full the oldest records are overwritten and dropped from the index, replaced or
+ * removed records are simply left for the log to overwrite.
+ *
+ * Writers lock their segment. Readers do not lock, they copy the record out and check that no writer changed the
+ * segment meanwhile, retrying under a read lock if one did. Lookups return {@link ContactView}s decoding their
+ * fields on access. Entries expire after a fixed time to live, including those restored from the file. The file is
+ * emptied at startup unless restoring is asked for, and even then only reused after a clean shutdown: contacts
+ * changed by other nodes while this one was down would otherwise be served stale.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=OffHeapContactStore",
+        description = "Contact store outside the Java heap")
+public class OffHeapContactStore implements ContactStore, Closeable {
+
+    private static final int SEGMENTS = 16;
+
+    private static final int MIN_SEGMENT_BYTES = 4096;
+
+    /*
+     * file header: magic, format version, segment count, segment size and whether the store was closed cleanly,
+     * padded to a page so the segments are page aligned
+     */
+    private static final int FILE_MAGIC = 0x43544f48;
+
+    private static final int FILE_VERSION = 1;
+
+    private static final int FILE_HEADER_BYTES = 4096;
+
+    private static final int FILE_CLEAN = 16;
+
+    /*
+     * segment header: write position and oldest record position in the log, both ever increasing, and entry count
+     */
+    private static final int HEAD = 0;
+
+    private static final int TAIL = 8;
+
+    private static final int COUNT = 16;
+
+    private static final int INDEX_START = 32;
+
+    /*
+     * index slot: the id hash and the record offset in the log plus one, zero when empty
+     */
+    private static final int SLOT_BYTES = 8;
+
+    /*
+     * record: aligned size, negative for padding up to the end of the log, id hash, expiry time and the lengths of
+     * id, name, email and telephone followed by their UTF-8 bytes
+     */
+    private static final int RECORD_HASH = 4;
+
+    private static final int RECORD_EXPIRES = 8;
+
+    private static final int RECORD_LENGTHS = 16;
+
+    private static final int RECORD_HEADER_BYTES = 24;
+
+    private static final byte[] EXPIRED = new byte[0];
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final long ttlMillis;
+
+    private final File file;
+
+    private final int restored;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong expirations = new AtomicLong();
+
+    private final AtomicLong rejections = new AtomicLong();
+
+    private final AtomicLong readRetries = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes memory taken by the store, records and index, in bytes
+     * @param ttlMillis time to live of a stored contact in milliseconds
+     * @param file the file to map, null to keep the contacts in direct buffers only
+     * @param restore true to restore the contacts of a file closed cleanly, false to empty the file
+     * @throws IOException if the file cannot be mapped
+     */
+    public OffHeapContactStore(long maxBytes, long ttlMillis, File file, boolean restore) throws IOException {
+
+        if (maxBytes < (long) SEGMENTS * MIN_SEGMENT_BYTES || ttlMillis < 1) {
+            throw new IllegalArgumentException("Off-heap store needs at least " + SEGMENTS * MIN_SEGMENT_BYTES / 1024
+                    + " KB and a positive time to live");
+        }
+
+        this.ttlMillis = ttlMillis;
+        this.file = file;
+
+        int segmentBytes = (int) Math.min(maxBytes / SEGMENTS, Integer.MAX_VALUE) & ~7;
+        ByteBuffer[] buffers = file == null ? allocate(segmentBytes) : map(file, segmentBytes, restore);
+
+        int count = 0;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(buffers[i]);
+            count += segments[i].size();
+        }
+
+        restored = count;
+    }
+
+    /**
+     * Get a stored contact view
+     *
+     * @param id the contact id
+     * @return the view of the stored contact or null if it is not stored or has expired
+     */
+    public ContactView view(String id) {
+
+        if (id == null) {
+            return null;
+        }
+
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        byte[] record = segmentFor(hash).read(hash, idBytes, currentTimeMillis());
+
+        if (record == EXPIRED) {
+            expirations.incrementAndGet();
+            segmentFor(hash).removeExpired(hash, idBytes, currentTimeMillis());
+            record = null;
+        }
+
+        if (record == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        return new ContactView(record, RECORD_LENGTHS - RECORD_EXPIRES);
+    }
+
+    @Override
+    public Contact get(String id) {
+        ContactView view = view(id);
+        return view == null ? null : view.toContact();
+    }
+
+    @Override
+    public boolean contains(String id) {
+
+        if (id == null) {
+            return false;
+        }
+
+        int hash = hash(id);
+        byte[] record = segmentFor(hash).read(hash, id.getBytes(StandardCharsets.UTF_8), currentTimeMillis());
+        return record != null && record != EXPIRED;
+    }
+
+    @Override
+    public void put(Contact contact) {
+
+        if (contact == null || contact.getId() == null) {
+            return;
+        }
+
+        byte[][] fields = {
+                contact.getId().getBytes(StandardCharsets.UTF_8),
+                bytes(contact.getName()),
+                bytes(contact.getEmail()),
+                bytes(contact.getTelephone())
+        };
+
+        int hash = hash(contact.getId());
+        if (!segmentFor(hash).put(hash, fields, currentTimeMillis() + ttlMillis)) {
+            rejections.incrementAndGet();
+            evict(contact.getId());
+        }
+    }
+
+    @Override
+    public void evict(String id) {
+        if (id != null) {
+            int hash = hash(id);
+            segmentFor(hash).remove(hash, id.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    @ManagedOperation(description = "Remove all contacts from the store")
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Write the mapped file out and mark it clean for the next start, the store is not to be used afterwards
+     */
+    @Override
+    public void close() {
+
+        if (file == null) {
+            return;
+        }
+
+        for (Segment segment : segments) {
+            segment.force();
+        }
+
+        try {
+            FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+                header.putInt(FILE_CLEAN, 1);
+                header.force();
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // left unclean, the next start begins empty
+        }
+    }
+
+    @ManagedAttribute(description = "Number of lookups answered from the store")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Number of lookups not answered from the store")
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Fraction of lookups answered from the store")
+    public double getHitRatio() {
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    @ManagedAttribute(description = "Number of contacts overwritten to make room for newer ones")
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts dropped after their time to live")
+    public long getExpirationCount() {
+        return expirations.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts too large to store")
+    public long getRejectionCount() {
+        return rejections.get();
+    }
+
+    @ManagedAttribute(description = "Number of lookups retried under a lock because a write overlapped them")
+    public long getReadRetryCount() {
+        return readRetries.get();
+    }
+
+    @ManagedAttribute(description = "Number of stored contacts")
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @ManagedAttribute(description = "Number of contacts restored from the file at startup")
+    public int getRestoredCount() {
+        return restored;
+    }
+
+    @ManagedAttribute(description = "Bytes of the logs taken by records, including replaced ones not yet overwritten")
+    public long getUsedBytes() {
+        long used = 0;
+        for (Segment segment : segments) {
+            used += segment.used();
+        }
+        return used;
+    }
+
+    @ManagedAttribute(description = "Bytes of the logs records are written to")
+    public long getCapacityBytes() {
+        return (long) SEGMENTS * segments[0].dataBytes;
+    }
+
+    @ManagedAttribute(description = "Whether contacts are kept in a mapped file across restarts")
+    public boolean isPersistent() {
+        return file != null;
+    }
+
+    /**
+     * Current time used for expiry, overridable for tests
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[hash & (SEGMENTS - 1)];
+    }
+
+    private static int hash(String id) {
+        int hash = id.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] bytes(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer[] allocate(int segmentBytes) {
+
+        ByteBuffer[] buffers = new ByteBuffer[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(segmentBytes);
+        }
+
+        return buffers;
+    }
+
+    /*
+     * a file not to be restored, left by an unclean shutdown or with another layout is emptied, a new file reads as
+     * zeros: empty indexes and logs
+     */
+    private static ByteBuffer[] map(File file, int segmentBytes, boolean restore) throws IOException {
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_BYTES);
+            channel.read(header, 0);
+
+            boolean reusable = restore && channel.size() == FILE_HEADER_BYTES + (long) SEGMENTS * segmentBytes
+                    && header.getInt(0) == FILE_MAGIC && header.getInt(4) == FILE_VERSION
+                    && header.getInt(8) == SEGMENTS && header.getInt(12) == segmentBytes
+                    && header.getInt(FILE_CLEAN) == 1;
+
+            if (!reusable) {
+                channel.truncate(0);
+            }
+
+            MappedByteBuffer mappedHeader = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_HEADER_BYTES);
+            mappedHeader.putInt(0, FILE_MAGIC);
+            mappedHeader.putInt(4, FILE_VERSION);
+            mappedHeader.putInt(8, SEGMENTS);
+            mappedHeader.putInt(12, segmentBytes);
+            mappedHeader.putInt(FILE_CLEAN, 0);
+            mappedHeader.force();
+
+            ByteBuffer[] buffers = new ByteBuffer[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                        FILE_HEADER_BYTES + (long) i * segmentBytes, segmentBytes);
+            }
+
+            return buffers;
+        } finally {
+            // mappings stay valid once the channel is closed
+            channel.close();
+        }
+    }
+
+    /*
+     * index and log in one buffer guarded by its own lock, all positions are within the buffer so a mapped file
+     * holds the whole state
+     */
+    private final class Segment {
+
+        private final StampedLock lock = new StampedLock();
+
+        private final ByteBuffer buffer;
+
+        private final int slots;
+
+        private final int maxCount;
+
+        private final int dataStart;
+
+        private final int dataBytes;
+
+        private final int maxRecordBytes;
+
+        private boolean closed;
+
+        private Segment(ByteBuffer buffer) {
+
+            this.buffer = buffer;
+
+            // an eighth to a quarter of the segment for the index, kept at most three quarters full
+            slots = Integer.highestOneBit(buffer.capacity() / (4 * SLOT_BYTES));
+            maxCount = slots / 4 * 3;
+            dataStart = INDEX_START + slots * SLOT_BYTES;
+            dataBytes = (buffer.capacity() - dataStart) & ~7;
+            maxRecordBytes = dataBytes / 8;
+        }
+
+        /*
+         * the record from its expiry time on, EXPIRED or null, without locking unless a write overlaps
+         */
+        private byte[] read(int hash, byte[] id, long now) {
+
+            long stamp = lock.tryOptimisticRead();
+
+            if (stamp != 0) {
+
+                byte[] record;
+                try {
+                    record = find(hash, id, now);
+                } catch (RuntimeException e) {
+                    // torn by a concurrent write, the stamp no longer validates
+                    record = null;
+                }
+
+                if (lock.validate(stamp)) {
+                    return record;
+                }
+
+                readRetries.incrementAndGet();
+            }
+
+            stamp = lock.readLock();
+            try {
+                return find(hash, id, now);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private boolean put(int hash, byte[][] fields, long expiresAt) {
+
+            int size = RECORD_HEADER_BYTES;
+            for (byte[] field : fields) {
+                if (field != null && field.length > Short.MAX_VALUE) {
+                    return false;
+                }
+                size += field == null ? 0 : field.length;
+            }
+
+            size = (size + 7) & ~7;
+            if (size > maxRecordBytes) {
+                return false;
+            }
+
+            long stamp = lock.writeLock();
+            try {
+                if (closed) {
+                    return true;
+                }
+
+                int slot = probe(hash, fields[0]);
+                if (slot >= 0) {
+                    removeSlot(slot);
+                }
+
+                long head = buffer.getLong(HEAD);
+                long tail = buffer.getLong(TAIL);
+                int offset = (int) (head % dataBytes);
+
+                // records do not wrap around the end of the log, the space left there is skipped
+                int padding = offset + size > dataBytes ? dataBytes - offset : 0;
+
+                while (head + padding + size - tail > dataBytes || buffer.getInt(COUNT) >= maxCount) {
+                    tail = dropOldest(tail);
+                }
+
+                if (padding > 0) {
+                    buffer.putInt(dataStart + offset, -padding);
+                    head += padding;
+                    offset = 0;
+                }
+
+                int at = dataStart + offset;
+                buffer.putInt(at, size);
+                buffer.putInt(at + RECORD_HASH, hash);
+                buffer.putLong(at + RECORD_EXPIRES, expiresAt);
+
+                ByteBuffer target = buffer.duplicate();
+                target.position(at + RECORD_HEADER_BYTES);
+                for (int i = 0; i < fields.length; i++) {
+                    buffer.putShort(at + RECORD_LENGTHS + 2 * i, (short) (fields[i] == null ? -1 : fields[i].length));
+                    if (fields[i] != null) {
+                        target.put(fields[i]);
+                    }
+                }
+
+                buffer.putLong(HEAD, head + size);
+                buffer.putLong(TAIL, tail);
+                insertSlot(hash, offset);
+
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void remove(int hash, byte[] id) {
+
+            long stamp = lock.writeLock();
+            try {
+                int slot = probe(hash, id);
+                if (slot >= 0) {
+                    removeSlot(slot);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        /*
+         * a newer record may have replaced the expired one since it was read
+         */
+        private void removeExpired(int hash, byte[] id, long now) {
+
+            long stamp = lock.writeLock();
+            try {
+                int slot = probe(hash, id);
+                if (slot >= 0 && buffer.getLong(recordAt(slot) + RECORD_EXPIRES) <= now) {
+                    removeSlot(slot);
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void clear() {
+
+            long stamp = lock.writeLock();
+            try {
+                for (int slot = 0; slot < slots; slot++) {
+                    buffer.putLong(INDEX_START + slot * SLOT_BYTES, 0);
+                }
+                buffer.putLong(HEAD, 0);
+                buffer.putLong(TAIL, 0);
+                buffer.putInt(COUNT, 0);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void force() {
+
+            long stamp = lock.writeLock();
+            try {
+                // nothing more is stored once the file is marked clean, removals still reach it
+                closed = true;
+                if (buffer instanceof MappedByteBuffer) {
+                    ((MappedByteBuffer) buffer).force();
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private int size() {
+
+            long stamp = lock.readLock();
+            try {
+                return buffer.getInt(COUNT);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private long used() {
+
+            long stamp = lock.readLock();
+            try {
+                return buffer.getLong(HEAD) - buffer.getLong(TAIL);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        private byte[] find(int hash, byte[] id, long now) {
+
+            int slot = probe(hash, id);
+
+            if (slot < 0) {
+                return null;
+            }
+
+            int at = recordAt(slot);
+            if (buffer.getLong(at + RECORD_EXPIRES) <= now) {
+                return EXPIRED;
+            }
+
+            int size = buffer.getInt(at);
+            if (size < RECORD_HEADER_BYTES || size > maxRecordBytes) {
+                return null;
+            }
+
+            // absolute bulk reads are not available, a duplicate keeps the shared position untouched
+            byte[] record = new byte[size - RECORD_EXPIRES];
+            ByteBuffer source = buffer.duplicate();
+            source.position(at + RECORD_EXPIRES);
+            source.get(record);
+
+            return record;
+        }
+
+        /*
+         * linear probing from the slot the hash points at, the slot holding the id or minus one if there is none
+         */
+        private int probe(int hash, byte[] id) {
+
+            int mask = slots - 1;
+            int slot = (hash >>> 4) & mask;
+
+            for (int probes = 0; probes < slots; probes++) {
+
+                int index = INDEX_START + slot * SLOT_BYTES;
+                int offset = buffer.getInt(index + 4) - 1;
+
+                if (offset < 0) {
+                    return -1;
+                }
+
+                if (buffer.getInt(index) == hash && idEquals(dataStart + offset, id)) {
+                    return slot;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            return -1;
+        }
+
+        private boolean idEquals(int at, byte[] id) {
+
+            if (buffer.getShort(at + RECORD_LENGTHS) != id.length) {
+                return false;
+            }
+
+            int position = at + RECORD_HEADER_BYTES;
+            for (int i = 0; i < id.length; i++) {
+                if (buffer.get(position + i) != id[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private int recordAt(int slot) {
+            return dataStart + buffer.getInt(INDEX_START + slot * SLOT_BYTES + 4) - 1;
+        }
+
+        private void insertSlot(int hash, int offset) {
+
+            int mask = slots - 1;
+            int slot = (hash >>> 4) & mask;
+
+            while (buffer.getInt(INDEX_START + slot * SLOT_BYTES + 4) != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            buffer.putInt(INDEX_START + slot * SLOT_BYTES, hash);
+            buffer.putInt(INDEX_START + slot * SLOT_BYTES + 4, offset + 1);
+            buffer.putInt(COUNT, buffer.getInt(COUNT) + 1);
+        }
+
+        /*
+         * backward shift deletion, later slots of the probe sequence move into the hole so no tombstones are needed
+         */
+        private void removeSlot(int slot) {
+
+            int mask = slots - 1;
+            int hole = slot;
+
+            for (int next = (hole + 1) & mask; buffer.getInt(INDEX_START + next * SLOT_BYTES + 4) != 0;
+                 next = (next + 1) & mask) {
+
+                int home = (buffer.getInt(INDEX_START + next * SLOT_BYTES) >>> 4) & mask;
+
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    buffer.putLong(INDEX_START + hole * SLOT_BYTES, buffer.getLong(INDEX_START + next * SLOT_BYTES));
+                    hole = next;
+                }
+            }
+
+            buffer.putLong(INDEX_START + hole * SLOT_BYTES, 0);
+            buffer.putInt(COUNT, buffer.getInt(COUNT) - 1);
+        }
+
+        /*
+         * the oldest record is dropped from the index unless it was already replaced or removed
+         */
+        private long dropOldest(long tail) {
+
+            int offset = (int) (tail % dataBytes);
+            int size = buffer.getInt(dataStart + offset);
+
+            if (size < 0) {
+                return tail - size;
+            }
+
+            int mask = slots - 1;
+            int slot = (buffer.getInt(dataStart + offset + RECORD_HASH) >>> 4) & mask;
+
+            for (int index = INDEX_START + slot * SLOT_BYTES; buffer.getInt(index + 4) != 0;
+                 index = INDEX_START + slot * SLOT_BYTES) {
+
+                if (buffer.getInt(index + 4) == offset + 1) {
+                    removeSlot(slot);
+                    evictions.incrementAndGet();
+                    break;
+                }
+
+                slot = (slot + 1) & mask;
+            }
+
+            return tail + size;
+        }
+    }
+}
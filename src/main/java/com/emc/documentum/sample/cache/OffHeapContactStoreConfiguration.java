@@ -0,0 +1,56 @@
+package com.emc.documentum.sample.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Off-heap contact store configuration, enabled with <code>contact.off-heap.enabled=true</code>.
+ *
+ * Contacts are kept in direct buffers unless <code>contact.off-heap.file</code> names a file to map. The file is
+ * emptied at startup unless <code>contact.off-heap.restore=true</code>, which is only safe for a node that is the
+ * sole writer of its contacts.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.off-heap", name = "enabled")
+public class OffHeapContactStoreConfiguration {
+
+    @Value("${contact.off-heap.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${contact.off-heap.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${contact.off-heap.file:}")
+    private String file;
+
+    @Value("${contact.off-heap.restore:false}")
+    private boolean restore;
+
+    /**
+     * Off-heap contact store bean, its file is written out and marked clean when the context closes
+     *
+     * @return the off-heap contact store
+     * @throws IOException if the file cannot be mapped
+     */
+    @Bean(destroyMethod = "close")
+    public OffHeapContactStore offHeapContactStore() throws IOException {
+        return new OffHeapContactStore(maxBytes, ttlSeconds * 1000, file.isEmpty() ? null : new File(file),
+                restore);
+    }
+
+    /**
+     * Repository interceptor reading through the off-heap store on misses of the on-heap cache
+     *
+     * @return the off-heap contact store interceptor
+     * @throws IOException if the file cannot be mapped
+     */
+    @Bean
+    public ContactCacheInterceptor offHeapContactStoreInterceptor() throws IOException {
+        return new ContactCacheInterceptor(offHeapContactStore(), ContactCacheInterceptor.OFF_HEAP_ORDER);
+    }
+}
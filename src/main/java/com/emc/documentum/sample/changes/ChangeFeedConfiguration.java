@@ -0,0 +1,37 @@
+package com.emc.documentum.sample.changes;
+
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact change feed configuration
+ */
+@Configuration
+public class ChangeFeedConfiguration {
+
+    @Value("${contact.changes.max-entries:100000}")
+    private int maxEntries;
+
+    /**
+     * Contact change log bean, keeping up to <code>contact.changes.max-entries</code> changes
+     *
+     * @return the change log
+     */
+    @Bean
+    public ContactChangeLog contactChangeLog() {
+        return new ContactChangeLog(maxEntries);
+    }
+
+    /**
+     * Contact change feed bean
+     *
+     * @param contactRepository the contact repository
+     * @return the change feed
+     */
+    @Bean
+    public ContactChangeFeed contactChangeFeed(ContactRepository contactRepository) {
+        return new ContactChangeFeed(contactRepository, contactChangeLog());
+    }
+}
@@ -0,0 +1,17 @@
+package com.emc.documentum.sample.changes;
+
+/**
+ * Thrown when changes are asked for from a point the change log no longer covers, the reader has to start over
+ * from a snapshot
+ */
+public class ChangeLogExpiredException extends RuntimeException {
+
+    /**
+     * Constructor
+     *
+     * @param message the message
+     */
+    public ChangeLogExpiredException(String message) {
+        super(message);
+    }
+}
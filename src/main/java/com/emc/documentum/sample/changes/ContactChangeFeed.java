@@ -0,0 +1,129 @@
+package com.emc.documentum.sample.changes;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental sync of contacts for clients keeping their own copy.
+ *
+ * A new client starts without a cursor and is first handed a snapshot of all contacts, a page at a time in id
+ * order, then the changes made since the snapshot started, read from the {@link ContactChangeLog}. A contact
+ * changed while the snapshot was read may come twice, clients apply pages in order and keep the last state. Changes
+ * hand out contacts at their current state rather than as they were saved, so each changed contact is read once
+ * however often it changed.
+ *
+ * Cursors name the log epoch and the last change read, and while in a snapshot the last contact read. A cursor the
+ * log no longer covers, after the log dropped the changes following it or the application restarted, raises
+ * {@link ChangeLogExpiredException}, the client then starts over.
+ */
+public class ContactChangeFeed {
+
+    private final ContactRepository contactRepository;
+
+    private final ContactChangeLog changeLog;
+
+    /**
+     * Constructor
+     *
+     * @param contactRepository the contact repository
+     * @param changeLog the change log
+     */
+    public ContactChangeFeed(ContactRepository contactRepository, ContactChangeLog changeLog) {
+        this.contactRepository = contactRepository;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Read a page of the feed
+     *
+     * @param cursor the cursor of the previous page, null to start with a snapshot
+     * @param size the maximum number of contacts and deletes in the page
+     * @return the page
+     * @throws IllegalArgumentException if the cursor is malformed
+     * @throws ChangeLogExpiredException if the changes after the cursor are no longer known
+     */
+    public ContactChanges read(String cursor, int size) {
+
+        if (cursor == null) {
+            return snapshot(changeLog.getSequence(), null, size);
+        }
+
+        String[] parts = cursor.split("\\.");
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Invalid change feed cursor " + cursor);
+        }
+
+        long sequence;
+        try {
+            sequence = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid change feed cursor " + cursor);
+        }
+
+        if (!parts[0].equals(changeLog.getEpoch()) || !changeLog.isAvailable(sequence)) {
+            throw new ChangeLogExpiredException("The change feed cursor has expired, start over without a cursor");
+        }
+
+        return parts.length == 3 ? snapshot(sequence, parts[2], size) : changes(sequence, size);
+    }
+
+    /*
+     * the changes made while the snapshot is read follow it, from the sequence number it started at
+     */
+    private ContactChanges snapshot(long startSequence, String afterId, int size) {
+
+        Slice<Contact> slice = contactRepository.findAllAfter(afterId, new PageRequest(0, size));
+        List<Contact> contacts = slice.getContent();
+
+        if (slice.hasNext()) {
+            String lastId = contacts.get(contacts.size() - 1).getId();
+            return new ContactChanges(contacts, new ArrayList<String>(),
+                    cursor(startSequence) + "." + lastId, true, true);
+        }
+
+        return new ContactChanges(contacts, new ArrayList<String>(), cursor(startSequence), true,
+                changeLog.getSequence() > startSequence);
+    }
+
+    private ContactChanges changes(long afterSequence, int size) {
+
+        ContactChangeLog.ChangeBatch batch = changeLog.read(afterSequence, size);
+
+        List<String> changedIds = new ArrayList<String>();
+        List<String> deleted = new ArrayList<String>();
+        for (ContactChangeLog.Change change : batch.getChanges()) {
+            (change.isDeleted() ? deleted : changedIds).add(change.getId());
+        }
+
+        Map<String, Contact> found = new HashMap<String, Contact>();
+        if (!changedIds.isEmpty()) {
+            for (Contact contact : contactRepository.findAllById(changedIds)) {
+                found.put(contact.getId(), contact);
+            }
+        }
+
+        // deleted since the log was read, their tombstones come with a later page too
+        List<Contact> contacts = new ArrayList<Contact>(changedIds.size());
+        for (String id : changedIds) {
+            Contact contact = found.get(id);
+            if (contact != null) {
+                contacts.add(contact);
+            } else {
+                deleted.add(id);
+            }
+        }
+
+        return new ContactChanges(contacts, deleted, cursor(batch.getSequence()), false, batch.hasMore());
+    }
+
+    private String cursor(long sequence) {
+        return changeLog.getEpoch() + "." + sequence;
+    }
+}
@@ -0,0 +1,266 @@
+package com.emc.documentum.sample.changes;
+
+import com.emc.documentum.sample.repositories.ContactContentChangedEvent;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactRepositoryEvent;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Append-only log of the contact changes made through this node, fed by the repository events.
+ *
+ * Every save, content change and delete is appended with the next sequence number, deletes as tombstones. Readers
+ * ask for the changes after a sequence number they were given before and get every contact changed since once, at
+ * its latest change. The log is compacted as it goes: a change replaces the earlier change of the same contact,
+ * which loses nothing any reader needs. When it is full anyway the oldest changes are dropped. Readers behind the
+ * oldest dropped change, and all readers after contacts were cleared, can no longer be told what changed and have
+ * to start over from a snapshot.
+ *
+ * The log lives in memory, its epoch tells sequence numbers of one run from another.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ContactChangeLog", description = "Contact change log")
+public class ContactChangeLog implements ApplicationListener<ContactRepositoryEvent> {
+
+    private final int maxEntries;
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE);
+
+    private final NavigableMap<Long, Change> changes = new TreeMap<Long, Change>();
+
+    private final Map<String, Long> latest = new HashMap<String, Long>();
+
+    private long sequence;
+
+    private long floor;
+
+    private long compactions;
+
+    /**
+     * Constructor
+     *
+     * @param maxEntries number of changes kept before compacting
+     */
+    public ContactChangeLog(int maxEntries) {
+
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The change log must keep at least one change");
+        }
+
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void onApplicationEvent(ContactRepositoryEvent event) {
+
+        if (event instanceof ContactSavedEvent) {
+            append(((ContactSavedEvent) event).getContact().getId(), false);
+        } else if (event instanceof ContactContentChangedEvent) {
+            append(((ContactContentChangedEvent) event).getId(), false);
+        } else if (event instanceof ContactDeletedEvent) {
+            append(((ContactDeletedEvent) event).getId(), true);
+        } else if (event instanceof ContactsClearedEvent) {
+            clear();
+        }
+    }
+
+    /**
+     * Get the epoch of the log, sequence numbers are only meaningful within one epoch
+     *
+     * @return the epoch
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Get the sequence number of the last change, changes after it are yet to come
+     *
+     * @return the sequence number
+     */
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Whether changes after the given sequence number can still be read
+     *
+     * @param after the sequence number
+     * @return false if a change after it was dropped, or contacts were cleared since
+     */
+    public synchronized boolean isAvailable(long after) {
+        return after >= floor && after <= sequence;
+    }
+
+    /**
+     * Read the contacts changed after a sequence number, each at its latest change
+     *
+     * @param after the sequence number of the last change already read
+     * @param max the maximum number of changes to return
+     * @return the changes, in sequence order
+     * @throws ChangeLogExpiredException if the changes after the sequence number are no longer known
+     */
+    public synchronized ChangeBatch read(long after, int max) {
+
+        if (!isAvailable(after)) {
+            throw new ChangeLogExpiredException("Changes after " + after + " are no longer available");
+        }
+
+        List<Change> batch = new ArrayList<Change>();
+        long last = after;
+
+        for (Change change : changes.tailMap(after, false).values()) {
+
+            if (batch.size() == max) {
+                return new ChangeBatch(batch, last, true);
+            }
+
+            batch.add(change);
+            last = change.getSequence();
+        }
+
+        return new ChangeBatch(batch, sequence, false);
+    }
+
+    @ManagedAttribute(description = "Number of changes in the log")
+    public synchronized int getSize() {
+        return changes.size();
+    }
+
+    @ManagedAttribute(description = "Sequence number of the oldest change readers can start after")
+    public synchronized long getFloor() {
+        return floor;
+    }
+
+    @ManagedAttribute(description = "Number of times the oldest changes were dropped")
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    private synchronized void append(String id, boolean deleted) {
+
+        long next = ++sequence;
+
+        Long previous = latest.put(id, next);
+        if (previous != null) {
+            changes.remove(previous);
+        }
+
+        changes.put(next, new Change(next, id, deleted, System.currentTimeMillis()));
+
+        if (changes.size() > maxEntries) {
+            compact();
+        }
+    }
+
+    /*
+     * superseded changes are already gone, so only the oldest are left to drop, down to 3/4 full so this is not
+     * repeated on every append
+     */
+    private void compact() {
+
+        compactions++;
+
+        int target = maxEntries - maxEntries / 4;
+        Iterator<Change> oldest = changes.values().iterator();
+
+        while (changes.size() > target) {
+            Change dropped = oldest.next();
+            oldest.remove();
+            latest.remove(dropped.getId());
+            floor = dropped.getSequence();
+        }
+    }
+
+    /*
+     * the clear takes a sequence number of its own, so readers that have not seen it expire
+     */
+    private synchronized void clear() {
+        changes.clear();
+        latest.clear();
+        floor = ++sequence;
+    }
+
+    /**
+     * The latest change of a contact
+     */
+    public static final class Change {
+
+        private final long sequence;
+
+        private final String id;
+
+        private final boolean deleted;
+
+        private final long time;
+
+        private Change(long sequence, String id, boolean deleted, long time) {
+            this.sequence = sequence;
+            this.id = id;
+            this.deleted = deleted;
+            this.time = time;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isDeleted() {
+            return deleted;
+        }
+
+        public long getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * Changes read from the log
+     */
+    public static final class ChangeBatch {
+
+        private final List<Change> changes;
+
+        private final long sequence;
+
+        private final boolean more;
+
+        private ChangeBatch(List<Change> changes, long sequence, boolean more) {
+            this.changes = changes;
+            this.sequence = sequence;
+            this.more = more;
+        }
+
+        public List<Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * The sequence number to read the next changes after
+         *
+         * @return the sequence number
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        public boolean hasMore() {
+            return more;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.emc.documentum.sample.changes;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.util.List;
+
+/**
+ * A page of the contact change feed: contacts created or modified and ids of contacts deleted, with the cursor to
+ * read the next page from
+ */
+public class ContactChanges {
+
+    private final List<Contact> contacts;
+
+    private final List<String> deleted;
+
+    private final String cursor;
+
+    private final boolean snapshot;
+
+    private final boolean more;
+
+    /**
+     * Constructor
+     *
+     * @param contacts the contacts created or modified, at their current state
+     * @param deleted the ids of the contacts deleted
+     * @param cursor the cursor to read the next page from
+     * @param snapshot whether the page is part of a snapshot of all contacts
+     * @param more whether the next page is known to hold more contacts or changes
+     */
+    public ContactChanges(List<Contact> contacts, List<String> deleted, String cursor, boolean snapshot,
+                          boolean more) {
+        this.contacts = contacts;
+        this.deleted = deleted;
+        this.cursor = cursor;
+        this.snapshot = snapshot;
+        this.more = more;
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    public List<String> getDeleted() {
+        return deleted;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isMore() {
+        return more;
+    }
+}
@@ -0,0 +1,76 @@
+package com.emc.documentum.sample.content;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed number of equally sized direct buffers shared by content transfers.
+ *
+ * Buffers are allocated on first use and reused afterwards, so the off-heap memory taken by transfers never exceeds
+ * the buffer count times the buffer size however many requests are in flight. Transfers beyond the buffer count wait
+ * for a buffer to be released.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+
+    private final long maxWaitMillis;
+
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<ByteBuffer>();
+
+    /**
+     * Constructor
+     *
+     * @param bufferCount the maximum number of buffers
+     * @param bufferSize the size of each buffer in bytes
+     * @param maxWaitMillis the maximum time to wait for a buffer
+     */
+    public DirectBufferPool(int bufferCount, int bufferSize, long maxWaitMillis) {
+        this.bufferSize = bufferSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.permits = new Semaphore(bufferCount, true);
+    }
+
+    /**
+     * Take a cleared buffer, which must be handed back with {@link #release(ByteBuffer)}
+     *
+     * @return the buffer
+     * @throws IOException if no buffer became available in time
+     */
+    public ByteBuffer acquire() throws IOException {
+
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("No transfer buffer available within " + maxWaitMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a transfer buffer", e);
+        }
+
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Hand back a buffer taken from this pool, null is ignored
+     *
+     * @param buffer the buffer
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.clear();
+            buffers.offer(buffer);
+            permits.release();
+        }
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
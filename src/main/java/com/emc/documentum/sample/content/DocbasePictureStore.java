@@ -0,0 +1,324 @@
+package com.emc.documentum.sample.content;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.client.IDfSysObject;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfTime;
+import com.emc.documentum.sample.dfc.DocbaseAccessException;
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.DqlTemplate;
+import com.emc.documentum.sample.dfc.RowMapper;
+import com.emc.documentum.sample.repositories.ContactAttributes;
+import com.emc.documentum.sample.repositories.ContactContentChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Picture store reading and writing contact content through DFC.
+ *
+ * Content is read with content collections, which hand it out in chunks of the DFC transfer size. DFC only accepts
+ * content whole, so uploads are spooled to a temporary file first and set as the single primary content page from
+ * that file, a docbase session is only held once the upload has been received. Chunks are moved through buffers
+ * taken from a {@link DirectBufferPool}. A {@link ContactContentChangedEvent} is published for every picture written.
+ */
+public class DocbasePictureStore implements PictureStore, ApplicationEventPublisherAware {
+
+    private static final String CONTENT_TYPE = "a_content_type";
+
+    private static final String PAGE_COUNT = "r_page_cnt";
+
+    private static final String CONTENT_SIZE = "r_full_content_size";
+
+    private static final String VERSION = "i_vstamp";
+
+    private static final String MODIFY_DATE = "r_modify_date";
+
+    private final DocbaseSessionSource sessionSource;
+
+    private final DqlTemplate dqlTemplate;
+
+    private final DirectBufferPool bufferPool;
+
+    private final Path spoolDirectory;
+
+    private final long maxBytes;
+
+    private ApplicationEventPublisher publisher;
+
+    /**
+     * Constructor
+     *
+     * @param sessionSource source of docbase sessions
+     * @param dqlTemplate template for DQL queries
+     * @param bufferPool pool of transfer buffers
+     * @param spoolDirectory directory of the temporary files uploads are spooled to
+     * @param maxBytes maximum size of an uploaded picture
+     */
+    public DocbasePictureStore(DocbaseSessionSource sessionSource, DqlTemplate dqlTemplate,
+                               DirectBufferPool bufferPool, Path spoolDirectory, long maxBytes) {
+        this.sessionSource = sessionSource;
+        this.dqlTemplate = dqlTemplate;
+        this.bufferPool = bufferPool;
+        this.spoolDirectory = spoolDirectory;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public PictureInfo describe(final String contactId) {
+
+        String dql = "SELECT " + CONTENT_TYPE + ", " + PAGE_COUNT + ", " + CONTENT_SIZE + ", " + VERSION + ", "
+                + MODIFY_DATE + " FROM " + ContactAttributes.TYPE
+                + " WHERE " + ContactAttributes.ID + " = " + ContactAttributes.quote(contactId);
+
+        List<PictureInfo> pictures = dqlTemplate.query(dql, new RowMapper<PictureInfo>() {
+            @Override
+            public PictureInfo mapRow(IDfTypedObject row) throws DfException {
+
+                // the object only records the size of its first page, the total is summed up below
+                long length = row.getInt(PAGE_COUNT) > 1 ? -1 : (long) row.getDouble(CONTENT_SIZE);
+
+                return new PictureInfo(contactId, row.getString(CONTENT_TYPE), length, row.getInt(VERSION),
+                        date(row.getTime(MODIFY_DATE)));
+            }
+        });
+
+        if (pictures.isEmpty()) {
+            return null;
+        }
+
+        PictureInfo picture = pictures.get(0);
+
+        if (picture.getLength() < 0) {
+            picture = new PictureInfo(contactId, picture.getFormat(), contentLength(contactId, picture.getFormat()),
+                    picture.getVersion(), picture.getLastModified());
+        }
+
+        return picture;
+    }
+
+    @Override
+    public void read(String contactId, long offset, long length, WritableByteChannel target) throws IOException {
+
+        IDfSession session = null;
+        ByteBuffer buffer = bufferPool.acquire();
+
+        try {
+
+            session = sessionSource.getSession();
+
+            IDfSysObject object = (IDfSysObject) session.getObject(new DfId(contactId));
+            String format = object.getContentType();
+            int pages = object.getPageCount();
+
+            long position = 0;
+            long end = offset + length;
+
+            for (int page = 0; page < pages && position < end; page++) {
+
+                IDfCollection collection = object.getCollectionForContent(format, page);
+
+                try {
+                    while (position < end && collection.next()) {
+
+                        ByteArrayInputStream chunk = collection.getBytesBuffer(null, null, null, 0);
+                        int available = chunk.available();
+
+                        // chunks wholly before the range are only counted
+                        if (position + available <= offset) {
+                            position += available;
+                            continue;
+                        }
+
+                        if (position < offset) {
+                            chunk.skip(offset - position);
+                            position = offset;
+                        }
+
+                        position += copy(Channels.newChannel(chunk), target, buffer, end - position);
+                    }
+                } finally {
+                    collection.close();
+                }
+            }
+
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to read picture of contact " + contactId, e);
+        } finally {
+            bufferPool.release(buffer);
+            sessionSource.release(session);
+        }
+    }
+
+    @Override
+    public PictureInfo write(String contactId, String format, ReadableByteChannel source) throws IOException {
+
+        Path spool = Files.createTempFile(spoolDirectory, "contact-picture-", ".tmp");
+
+        try {
+
+            long length = spool(source, spool);
+
+            if (length == 0) {
+                throw new IllegalArgumentException("Picture is empty");
+            }
+
+            return write(contactId, format, spool, length);
+
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private PictureInfo write(String contactId, String format, Path spool, long length) {
+
+        IDfSession session = null;
+        IDfSysObject object = null;
+        boolean saved = false;
+
+        try {
+
+            session = sessionSource.getSession();
+
+            object = (IDfSysObject) session.getObject(new DfId(contactId));
+
+            // pages left over from a picture written in pages would be served after the new content
+            for (int page = object.getPageCount() - 1; page > 0; page--) {
+                object.removeContent(page);
+            }
+
+            object.setContentType(format);
+            object.setFileEx(spool.toString(), format, 0, null);
+
+            object.save();
+            saved = true;
+
+            if (publisher != null) {
+                publisher.publishEvent(new ContactContentChangedEvent(this, contactId));
+            }
+
+            return new PictureInfo(contactId, format, length, object.getVStamp(), date(object.getModifyDate()));
+
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to write picture of contact " + contactId, e);
+        } finally {
+            if (!saved) {
+                revertQuietly(object);
+            }
+            sessionSource.release(session);
+        }
+    }
+
+    /*
+     * copy the source to the spool file, failing as soon as it exceeds the maximum size
+     */
+    private long spool(ReadableByteChannel source, Path spool) throws IOException {
+
+        ByteBuffer buffer = bufferPool.acquire();
+
+        try (FileChannel file = FileChannel.open(spool, StandardOpenOption.WRITE)) {
+
+            long length = 0;
+
+            while (true) {
+
+                buffer.clear();
+                if (source.read(buffer) < 0) {
+                    return length;
+                }
+
+                length += buffer.position();
+                if (length > maxBytes) {
+                    throw new PictureTooLargeException(maxBytes);
+                }
+
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    file.write(buffer);
+                }
+            }
+
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /*
+     * copy up to limit bytes from source to target, returning the number copied
+     */
+    private static long copy(ReadableByteChannel source, WritableByteChannel target, ByteBuffer buffer, long limit)
+            throws IOException {
+
+        long copied = 0;
+
+        while (copied < limit) {
+
+            buffer.clear();
+            if (limit - copied < buffer.capacity()) {
+                buffer.limit((int) (limit - copied));
+            }
+
+            if (source.read(buffer) < 0) {
+                break;
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                copied += target.write(buffer);
+            }
+        }
+
+        return copied;
+    }
+
+    private long contentLength(String contactId, String format) {
+
+        String dql = "SELECT SUM(full_content_size) AS content_length FROM dmr_content"
+                + " WHERE ANY parent_id = " + ContactAttributes.quote(contactId)
+                + " AND full_format = " + ContactAttributes.quote(format) + " AND rendition = 0";
+
+        return dqlTemplate.query(dql, new RowMapper<Long>() {
+            @Override
+            public Long mapRow(IDfTypedObject row) throws DfException {
+                return (long) row.getDouble("content_length");
+            }
+        }).get(0);
+    }
+
+    /*
+     * drop unsaved content changes so the session returns to the pool clean
+     */
+    private static void revertQuietly(IDfSysObject object) {
+        if (object != null) {
+            try {
+                object.revert();
+            } catch (DfException e) {
+                // the write failed already, keep its exception
+            }
+        }
+    }
+
+    private static Date date(IDfTime time) {
+        return time == null || time.isNullDate() ? null : time.getDate();
+    }
+}
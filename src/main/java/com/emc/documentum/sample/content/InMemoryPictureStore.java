@@ -0,0 +1,145 @@
+package com.emc.documentum.sample.content;
+
+import com.emc.documentum.sample.repositories.ContactContentChangedEvent;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactRepositoryEvent;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Picture store keeping pictures in memory, for running offline next to the in-memory contact repository.
+ *
+ * Pictures can only be stored for contacts the repository knows, and are dropped when their contact is deleted.
+ * The picture version is derived from the content, so thumbnails cached on disk by an earlier run are never
+ * served for a different picture.
+ */
+public class InMemoryPictureStore implements PictureStore, ApplicationEventPublisherAware,
+        ApplicationListener<ContactRepositoryEvent> {
+
+    private final ContactRepository contactRepository;
+
+    private final long maxBytes;
+
+    private final Map<String, PictureInfo> pictures = new ConcurrentHashMap<String, PictureInfo>();
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<String, byte[]>();
+
+    private ApplicationEventPublisher publisher;
+
+    /**
+     * Constructor
+     *
+     * @param contactRepository the repository of the contacts the pictures belong to
+     * @param maxBytes maximum size of an uploaded picture
+     */
+    public InMemoryPictureStore(ContactRepository contactRepository, long maxBytes) {
+        this.contactRepository = contactRepository;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public void onApplicationEvent(ContactRepositoryEvent event) {
+
+        if (event instanceof ContactDeletedEvent) {
+            String id = ((ContactDeletedEvent) event).getId();
+            pictures.remove(id);
+            contents.remove(id);
+        } else if (event instanceof ContactsClearedEvent) {
+            pictures.clear();
+            contents.clear();
+        }
+    }
+
+    @Override
+    public PictureInfo describe(String contactId) {
+
+        ContactVersion version = contactRepository.findVersion(contactId);
+
+        if (version == null) {
+            return null;
+        }
+
+        PictureInfo picture = pictures.get(contactId);
+
+        return picture != null ? picture : new PictureInfo(contactId, null, 0, 0, version.getLastModified());
+    }
+
+    @Override
+    public void read(String contactId, long offset, long length, WritableByteChannel target) throws IOException {
+
+        byte[] content = contents.get(contactId);
+
+        if (content == null) {
+            throw new IllegalArgumentException("No picture for contact " + contactId);
+        }
+
+        int from = (int) Math.min(offset, content.length);
+        ByteBuffer range = ByteBuffer.wrap(content, from, (int) Math.min(length, content.length - from));
+
+        while (range.hasRemaining()) {
+            target.write(range);
+        }
+    }
+
+    @Override
+    public PictureInfo write(String contactId, String format, ReadableByteChannel source) throws IOException {
+
+        if (contactRepository.findVersion(contactId) == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        WritableByteChannel contentChannel = Channels.newChannel(content);
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+        while (source.read(buffer) >= 0) {
+
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                contentChannel.write(buffer);
+            }
+            buffer.clear();
+
+            if (content.size() > maxBytes) {
+                throw new PictureTooLargeException(maxBytes);
+            }
+        }
+
+        if (content.size() == 0) {
+            throw new IllegalArgumentException("Picture is empty");
+        }
+
+        byte[] bytes = content.toByteArray();
+        PictureInfo picture = new PictureInfo(contactId, format, bytes.length, Arrays.hashCode(bytes) & Integer.MAX_VALUE,
+                new Date());
+
+        contents.put(contactId, bytes);
+        pictures.put(contactId, picture);
+
+        if (publisher != null) {
+            publisher.publishEvent(new ContactContentChangedEvent(this, contactId));
+        }
+
+        return picture;
+    }
+}
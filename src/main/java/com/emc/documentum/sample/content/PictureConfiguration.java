@@ -0,0 +1,106 @@
+package com.emc.documentum.sample.content;
+
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.DqlTemplate;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Contact picture streaming and thumbnail configuration, pictures are kept in memory with the <code>offline</code>
+ * profile active
+ */
+@Configuration
+public class PictureConfiguration {
+
+    @Value("${contact.picture.buffer-count:32}")
+    private int bufferCount;
+
+    @Value("${contact.picture.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${contact.picture.buffer-wait-millis:10000}")
+    private long bufferWaitMillis;
+
+    @Value("${contact.picture.spool-directory:${java.io.tmpdir}}")
+    private String spoolDirectory;
+
+    @Value("${contact.picture.max-bytes:1073741824}")
+    private long maxBytes;
+
+    @Value("${contact.thumbnail.size:128}")
+    private int thumbnailSize;
+
+    @Value("${contact.thumbnail.max-picture-bytes:33554432}")
+    private long thumbnailMaxPictureBytes;
+
+    @Value("${contact.thumbnail.cache.directory:${java.io.tmpdir}/contact-thumbnails}")
+    private String thumbnailCacheDirectory;
+
+    @Value("${contact.thumbnail.cache.max-bytes:67108864}")
+    private long thumbnailCacheMaxBytes;
+
+    /**
+     * Transfer buffer pool bean
+     *
+     * @return the buffer pool
+     */
+    @Bean
+    public DirectBufferPool pictureBufferPool() {
+        return new DirectBufferPool(bufferCount, bufferSize, bufferWaitMillis);
+    }
+
+    /**
+     * Docbase picture store bean
+     *
+     * @param docbaseSessionSource source of docbase sessions
+     * @param dqlTemplate template for DQL queries
+     * @return the picture store
+     */
+    @Bean
+    @Profile("!offline")
+    public PictureStore pictureStore(DocbaseSessionSource docbaseSessionSource, DqlTemplate dqlTemplate) {
+        return new DocbasePictureStore(docbaseSessionSource, dqlTemplate, pictureBufferPool(),
+                Paths.get(spoolDirectory), maxBytes);
+    }
+
+    /**
+     * In-memory picture store bean
+     *
+     * @param contactRepository the contact repository
+     * @return the picture store
+     */
+    @Bean
+    @Profile("offline")
+    public PictureStore offlinePictureStore(ContactRepository contactRepository) {
+        return new InMemoryPictureStore(contactRepository, maxBytes);
+    }
+
+    /**
+     * Thumbnail disk cache bean
+     *
+     * @return the thumbnail cache
+     * @throws IOException if the cache directory could not be created or read
+     */
+    @Bean
+    public ThumbnailCache thumbnailCache() throws IOException {
+        return new ThumbnailCache(Paths.get(thumbnailCacheDirectory), thumbnailCacheMaxBytes);
+    }
+
+    /**
+     * Thumbnail service bean
+     *
+     * @param pictureStore the picture store
+     * @return the thumbnail service
+     * @throws IOException if the cache directory could not be created or read
+     */
+    @Bean
+    public ThumbnailService thumbnailService(PictureStore pictureStore) throws IOException {
+        return new ThumbnailService(pictureStore, thumbnailCache(), thumbnailSize, thumbnailMaxPictureBytes);
+    }
+}
@@ -0,0 +1,74 @@
+package com.emc.documentum.sample.content;
+
+import java.util.Date;
+
+/**
+ * Description of a contact picture, enough to answer conditional and range requests without reading the content
+ */
+public class PictureInfo {
+
+    private final String contactId;
+
+    private final String format;
+
+    private final long length;
+
+    private final int version;
+
+    private final Date lastModified;
+
+    /**
+     * Constructor
+     *
+     * @param contactId the contact id
+     * @param format the docbase format name, null if the contact has no picture
+     * @param length the content length in bytes
+     * @param version the contact version stamp, changes with every save
+     * @param lastModified the last modification date of the contact
+     */
+    public PictureInfo(String contactId, String format, long length, int version, Date lastModified) {
+        this.contactId = contactId;
+        this.format = format;
+        this.length = length;
+        this.version = version;
+        this.lastModified = lastModified;
+    }
+
+    public String getContactId() {
+        return contactId;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Whether the contact has a picture
+     *
+     * @return true if the contact has content
+     */
+    public boolean hasContent() {
+        return format != null && !format.isEmpty();
+    }
+
+    /**
+     * Strong entity tag for the picture, derived from the contact id and version stamp
+     *
+     * @return the quoted entity tag
+     */
+    public String getETag() {
+        return "\"" + contactId + "." + version + "\"";
+    }
+}
@@ -0,0 +1,41 @@
+package com.emc.documentum.sample.content;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streaming access to contact pictures, content is moved between channels in bounded chunks and never held whole
+ */
+public interface PictureStore {
+
+    /**
+     * Describe the picture of a contact
+     *
+     * @param contactId the contact id
+     * @return the picture description, null if there is no such contact
+     */
+    PictureInfo describe(String contactId);
+
+    /**
+     * Copy a range of the picture of a contact to a channel
+     *
+     * @param contactId the contact id
+     * @param offset the first byte to copy
+     * @param length the number of bytes to copy
+     * @param target the channel receiving the bytes
+     * @throws IOException if writing to the target failed
+     */
+    void read(String contactId, long offset, long length, WritableByteChannel target) throws IOException;
+
+    /**
+     * Replace the picture of a contact with the content of a channel
+     *
+     * @param contactId the contact id
+     * @param format the docbase format name of the content
+     * @param source the channel supplying the content, read to its end
+     * @return the description of the new picture, null if there is no such contact
+     * @throws IOException if reading from the source failed
+     */
+    PictureInfo write(String contactId, String format, ReadableByteChannel source) throws IOException;
+}
@@ -0,0 +1,23 @@
+package com.emc.documentum.sample.content;
+
+/**
+ * Thrown when an uploaded picture exceeds the maximum picture size
+ */
+public class PictureTooLargeException extends IllegalArgumentException {
+
+    private final long maxBytes;
+
+    /**
+     * Constructor
+     *
+     * @param maxBytes the maximum picture size
+     */
+    public PictureTooLargeException(long maxBytes) {
+        super("Picture exceeds the maximum size of " + maxBytes + " bytes");
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,41 @@
+package com.emc.documentum.sample.content;
+
+import java.nio.ByteBuffer;
+
+/**
+ * PNG thumbnail of a contact picture
+ */
+public class Thumbnail {
+
+    private final ByteBuffer content;
+
+    private final String etag;
+
+    /**
+     * Constructor
+     *
+     * @param content the PNG encoded thumbnail
+     * @param etag the quoted entity tag, changes with the picture
+     */
+    public Thumbnail(ByteBuffer content, String etag) {
+        this.content = content;
+        this.etag = etag;
+    }
+
+    /**
+     * PNG encoded thumbnail
+     *
+     * @return a buffer of its own over the content, positioned at the start
+     */
+    public ByteBuffer getContent() {
+        return content.duplicate();
+    }
+
+    public int getLength() {
+        return content.remaining();
+    }
+
+    public String getETag() {
+        return etag;
+    }
+}
@@ -0,0 +1,290 @@
+package com.emc.documentum.sample.content;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Least recently used cache of small binary files in a directory, bounded by the total size of the files.
+ *
+ * Entries are read by mapping their file, so hits are served from the page cache without copying into the heap.
+ * Files are written under a temporary name and moved into place, and files left by a previous run are taken over
+ * oldest first, so the cache survives restarts. Keys must be usable as file names.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ThumbnailCache", description = "Thumbnail disk cache")
+public class ThumbnailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailCache.class);
+
+    private static final String SUFFIX = ".bin";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor, takes over the files of a previous run
+     *
+     * @param directory the cache directory, created if missing
+     * @param maxBytes the maximum total size of the cached files
+     * @throws IOException if the directory could not be created or read
+     */
+    public ThumbnailCache(Path directory, long maxBytes) throws IOException {
+
+        this.directory = Files.createDirectories(directory);
+        this.maxBytes = maxBytes;
+
+        List<Path> files = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+        try {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        } finally {
+            stream.close();
+        }
+
+        // oldest first so the most recently written files end up most recently used
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path a, Path b) {
+                return Long.compare(a.toFile().lastModified(), b.toFile().lastModified());
+            }
+        });
+
+        synchronized (this) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SUFFIX)) {
+                    long size = Files.size(file);
+                    entries.put(name.substring(0, name.length() - SUFFIX.length()), size);
+                    bytes += size;
+                } else if (name.endsWith(TEMPORARY_SUFFIX)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        evict();
+    }
+
+    /**
+     * Get a cached entry
+     *
+     * @param key the key
+     * @return a read only buffer mapping the entry, null if not cached
+     */
+    public ByteBuffer get(String key) {
+
+        synchronized (this) {
+            // get rather than containsKey, only get moves the entry to the most recently used end
+            if (entries.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        try {
+
+            FileChannel channel = FileChannel.open(file(key), StandardOpenOption.READ);
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                hits.incrementAndGet();
+                return buffer;
+            } finally {
+                // the mapping stays valid after the channel is closed
+                channel.close();
+            }
+
+        } catch (NoSuchFileException e) {
+            // evicted or invalidated since the lookup, or lost behind the cache's back
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException e) {
+            logger.warn("Unable to read cached thumbnail {}", key, e);
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Add an entry, evicting the least recently used entries until the cache fits its size
+     *
+     * @param key the key
+     * @param content the entry content
+     */
+    public void put(String key, byte[] content) {
+
+        if (content.length > maxBytes) {
+            return;
+        }
+
+        Path temporary = directory.resolve(key + "." + Thread.currentThread().getId() + TEMPORARY_SUFFIX);
+
+        try {
+
+            Files.write(temporary, content);
+            Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        } catch (IOException e) {
+            logger.warn("Unable to cache thumbnail {}", key, e);
+            deleteQuietly(temporary);
+            return;
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(key, (long) content.length);
+            bytes += content.length - (previous != null ? previous : 0);
+        }
+
+        evict();
+    }
+
+    /**
+     * Remove all entries whose key starts with a prefix
+     *
+     * @param prefix the key prefix
+     */
+    public void invalidate(String prefix) {
+
+        List<String> removed = new ArrayList<String>();
+
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (entry.getKey().startsWith(prefix)) {
+                    iterator.remove();
+                    bytes -= entry.getValue();
+                    removed.add(entry.getKey());
+                }
+            }
+        }
+
+        invalidations.addAndGet(removed.size());
+
+        for (String key : removed) {
+            deleteQuietly(file(key));
+        }
+    }
+
+    /**
+     * Remove all entries
+     */
+    @ManagedOperation(description = "Remove all cached thumbnails")
+    public void clear() {
+        invalidate("");
+    }
+
+    @ManagedAttribute(description = "Number of cached thumbnails")
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @ManagedAttribute(description = "Total size of the cached thumbnails in bytes")
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    @ManagedAttribute(description = "Number of cache hits")
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Number of cache misses")
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Number of thumbnails evicted to make room")
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @ManagedAttribute(description = "Number of thumbnails invalidated")
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    private void evict() {
+
+        List<String> evicted = new ArrayList<String>();
+
+        synchronized (this) {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                iterator.remove();
+                bytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+            }
+        }
+
+        evictions.addAndGet(evicted.size());
+
+        for (String key : evicted) {
+            deleteQuietly(file(key));
+        }
+    }
+
+    private void remove(String key) {
+
+        synchronized (this) {
+            Long size = entries.remove(key);
+            if (size != null) {
+                bytes -= size;
+            }
+        }
+
+        deleteQuietly(file(key));
+    }
+
+    private Path file(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Unable to delete {}", file, e);
+        }
+    }
+}
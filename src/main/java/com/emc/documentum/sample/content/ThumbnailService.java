@@ -0,0 +1,159 @@
+package com.emc.documentum.sample.content;
+
+import com.emc.documentum.sample.repositories.ContactContentChangedEvent;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactRepositoryEvent;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * Renders contact pictures as fixed size PNG thumbnails on first access and keeps them in a {@link ThumbnailCache}.
+ *
+ * Thumbnails are keyed by contact id, version stamp and size, so a changed picture is never answered from a stale
+ * thumbnail. Content change and delete events remove the thumbnails of a contact to free their space early.
+ * Rendering only uses ImageIO and Java 2D.
+ */
+public class ThumbnailService implements ApplicationListener<ContactRepositoryEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final PictureStore pictureStore;
+
+    private final ThumbnailCache cache;
+
+    private final int size;
+
+    private final long maxPictureBytes;
+
+    /**
+     * Constructor
+     *
+     * @param pictureStore the store of the full size pictures
+     * @param cache the thumbnail cache
+     * @param size the width and height thumbnails are scaled to fit
+     * @param maxPictureBytes the size of the largest picture that is rendered
+     */
+    public ThumbnailService(PictureStore pictureStore, ThumbnailCache cache, int size, long maxPictureBytes) {
+        this.pictureStore = pictureStore;
+        this.cache = cache;
+        this.size = size;
+        this.maxPictureBytes = maxPictureBytes;
+    }
+
+    @Override
+    public void onApplicationEvent(ContactRepositoryEvent event) {
+
+        if (event instanceof ContactContentChangedEvent) {
+            cache.invalidate(keyPrefix(((ContactContentChangedEvent) event).getId()));
+        } else if (event instanceof ContactDeletedEvent) {
+            cache.invalidate(keyPrefix(((ContactDeletedEvent) event).getId()));
+        } else if (event instanceof ContactsClearedEvent) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Get the thumbnail of a contact picture, rendering it if not cached
+     *
+     * @param contactId the contact id
+     * @return the thumbnail, null if the contact has no picture that can be rendered
+     * @throws IOException if the picture could not be read
+     */
+    public Thumbnail getThumbnail(String contactId) throws IOException {
+
+        PictureInfo picture = pictureStore.describe(contactId);
+
+        if (picture == null || !picture.hasContent()) {
+            return null;
+        }
+
+        String key = keyPrefix(contactId) + picture.getVersion() + "-" + size;
+        String etag = "\"" + contactId + "." + picture.getVersion() + ".t" + size + "\"";
+
+        ByteBuffer cached = cache.get(key);
+        if (cached != null) {
+            return new Thumbnail(cached, etag);
+        }
+
+        if (picture.getLength() > maxPictureBytes) {
+            logger.debug("Picture of contact {} too large to render: {} bytes", contactId, picture.getLength());
+            return null;
+        }
+
+        ByteArrayOutputStream original = new ByteArrayOutputStream((int) picture.getLength());
+        pictureStore.read(contactId, 0, picture.getLength(), Channels.newChannel(original));
+
+        byte[] thumbnail = render(new ByteArrayInputStream(original.toByteArray()));
+
+        if (thumbnail == null) {
+            logger.debug("Picture of contact {} is not in a readable image format", contactId);
+            return null;
+        }
+
+        cache.put(key, thumbnail);
+
+        return new Thumbnail(ByteBuffer.wrap(thumbnail), etag);
+    }
+
+    /*
+     * scale to fit within size x size keeping the aspect ratio, halving first so large pictures keep their detail
+     */
+    private byte[] render(ByteArrayInputStream picture) throws IOException {
+
+        BufferedImage image = ImageIO.read(picture);
+
+        if (image == null) {
+            return null;
+        }
+
+        double scale = Math.min(1.0, Math.min((double) size / image.getWidth(), (double) size / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        while (image.getWidth() / 2 >= width && image.getHeight() / 2 >= height) {
+            image = scale(image, image.getWidth() / 2, image.getHeight() / 2);
+        }
+
+        image = scale(image, width, height);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+
+        return png.toByteArray();
+    }
+
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return scaled;
+    }
+
+    /*
+     * cache keys start with the contact id reduced to file name characters
+     */
+    private static String keyPrefix(String contactId) {
+        return contactId.replaceAll("[^A-Za-z0-9]", "_") + "-";
+    }
+}
@@ -0,0 +1,145 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.async.AsyncContactRepository;
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Contact endpoints that release the request thread while the docbase works, answering from the asynchronous
+ * repository once its future completes.
+ *
+ * Requests still waiting after <code>contact.async.timeout-millis</code> are answered with 503, requests the
+ * repository executor has no room for are answered with 503 right away.
+ */
+@RestController
+@RequestMapping("/contacts/async")
+public class AsyncContactController {
+
+    @Autowired
+    private AsyncContactRepository asyncContactRepository;
+
+    @Value("${contact.async.timeout-millis:30000}")
+    private long timeoutMillis;
+
+    /**
+     * Get all contacts
+     *
+     * @return the contacts
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<List<Contact>>> getContacts() {
+        return defer(asyncContactRepository.findAll(), HttpStatus.OK);
+    }
+
+    /**
+     * Get a contact
+     *
+     * @param id the contact id
+     * @return the contact, 404 if there is none
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<Contact>> getContact(@PathVariable("id") String id) {
+        return defer(asyncContactRepository.findOne(id), HttpStatus.OK);
+    }
+
+    /**
+     * Find contacts whose name contains a substring
+     *
+     * @param name the substring
+     * @return the matching contacts
+     */
+    @RequestMapping(value = "/search/findByNameContaining", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<List<Contact>>> findByNameContaining(@RequestParam("name") String name) {
+        return defer(asyncContactRepository.findByNameContaining(name), HttpStatus.OK);
+    }
+
+    /**
+     * Create a contact
+     *
+     * @param contact the contact
+     * @return the created contact
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public DeferredResult<ResponseEntity<Contact>> createContact(@RequestBody Contact contact) {
+
+        if (contact.getId() != null) {
+            throw new IllegalArgumentException("New contacts must not have an id");
+        }
+
+        return defer(asyncContactRepository.save(contact), HttpStatus.CREATED);
+    }
+
+    /**
+     * Replace a contact
+     *
+     * @param id the contact id
+     * @param contact the contact
+     * @return the saved contact, 404 if there is none to replace
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.PUT)
+    public DeferredResult<ResponseEntity<Contact>> updateContact(@PathVariable("id") String id,
+                                                                 @RequestBody Contact contact) {
+
+        if (contact.getId() != null && !contact.getId().equals(id)) {
+            throw new IllegalArgumentException("Contact id " + contact.getId() + " does not match " + id);
+        }
+
+        contact.setId(id);
+
+        return defer(asyncContactRepository.update(contact), HttpStatus.OK);
+    }
+
+    /**
+     * Delete a contact
+     *
+     * @param id the contact id
+     * @return 204, 404 if there is none
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.DELETE)
+    public DeferredResult<ResponseEntity<String>> deleteContact(@PathVariable("id") String id) {
+        return defer(asyncContactRepository.delete(id), HttpStatus.NO_CONTENT);
+    }
+
+    /*
+     * complete a deferred result from a future, null values as 404, no body for 204 and failures through the exception
+     * handlers
+     */
+    private <T> DeferredResult<ResponseEntity<T>> defer(CompletableFuture<T> future, final HttpStatus status) {
+
+        final DeferredResult<ResponseEntity<T>> result =
+                new DeferredResult<ResponseEntity<T>>(timeoutMillis, new ResponseEntity<T>(HttpStatus.SERVICE_UNAVAILABLE));
+
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T value, Throwable failure) {
+                if (failure != null) {
+                    result.setErrorResult(failure instanceof CompletionException && failure.getCause() != null
+                            ? failure.getCause() : failure);
+                } else if (value == null) {
+                    result.setResult(new ResponseEntity<T>(HttpStatus.NOT_FOUND));
+                } else if (status == HttpStatus.NO_CONTENT) {
+                    result.setResult(new ResponseEntity<T>(status));
+                } else {
+                    result.setResult(new ResponseEntity<T>(value, status));
+                }
+            }
+        });
+
+        return result;
+    }
+}
@@ -0,0 +1,101 @@
+package com.emc.documentum.sample.controller;
+
+/**
+ * Single byte range of an HTTP <code>Range</code> header resolved against the length of a representation
+ */
+public final class ByteRange {
+
+    /**
+     * Range that lies wholly beyond the end of the representation
+     */
+    public static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    private final long first;
+
+    private final long last;
+
+    private ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    /**
+     * Parse a <code>Range</code> header.
+     *
+     * Only single ranges are served, headers with several ranges or that cannot be parsed are ignored and the full
+     * representation is sent, as the specification allows.
+     *
+     * @param header the header value
+     * @param length the length of the representation
+     * @return the range, {@link #UNSATISFIABLE} if it starts beyond the end, null if the header is to be ignored
+     */
+    public static ByteRange parse(String header, long length) {
+
+        if (header == null || !header.startsWith(BYTES_UNIT) || header.indexOf(',') >= 0) {
+            return null;
+        }
+
+        String spec = header.substring(BYTES_UNIT.length()).trim();
+        int dash = spec.indexOf('-');
+
+        if (dash < 0) {
+            return null;
+        }
+
+        try {
+
+            // suffix range, the last n bytes
+            if (dash == 0) {
+                long suffix = Long.parseLong(spec.substring(1));
+                if (suffix <= 0) {
+                    return suffix == 0 ? UNSATISFIABLE : null;
+                }
+                return length == 0 ? UNSATISFIABLE : new ByteRange(Math.max(0, length - suffix), length - 1);
+            }
+
+            long first = Long.parseLong(spec.substring(0, dash));
+            long last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+
+            if (first < 0 || last < first) {
+                return null;
+            }
+
+            if (first >= length) {
+                return UNSATISFIABLE;
+            }
+
+            return new ByteRange(first, Math.min(last, length - 1));
+
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long getFirst() {
+        return first;
+    }
+
+    public long getLast() {
+        return last;
+    }
+
+    public long getLength() {
+        return last - first + 1;
+    }
+
+    public boolean isSatisfiable() {
+        return first >= 0;
+    }
+
+    /**
+     * <code>Content-Range</code> header value for this range
+     *
+     * @param length the length of the representation
+     * @return the header value
+     */
+    public String toContentRange(long length) {
+        return isSatisfiable() ? "bytes " + first + "-" + last + "/" + length : "bytes */" + length;
+    }
+}
@@ -0,0 +1,66 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.repositories.ContactField;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set based deletes and updates of contacts, each run as a few statements on the server rather than a round trip
+ * per contact. Every operation answers with the number of contacts it affected.
+ */
+@RestController
+@RequestMapping("/contacts/batch")
+public class ContactBatchController {
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    /**
+     * Delete the contacts with the given ids
+     *
+     * @param ids the contact ids
+     * @return the number of contacts deleted
+     */
+    @RequestMapping(value = "/delete", method = RequestMethod.POST)
+    public Map<String, Integer> deleteContacts(@RequestBody List<String> ids) {
+        return Collections.singletonMap("deleted", contactRepository.deleteAllByIdIn(ids));
+    }
+
+    /**
+     * Delete the contacts whose name contains a value
+     *
+     * @param value the value to look for in the names, not empty
+     * @return the number of contacts deleted
+     */
+    @RequestMapping(method = RequestMethod.DELETE, params = "nameContaining")
+    public Map<String, Integer> deleteContactsByName(@RequestParam("nameContaining") String value) {
+        return Collections.singletonMap("deleted", contactRepository.deleteByNameContaining(value));
+    }
+
+    /**
+     * Give the listed contacts the same field values
+     *
+     * @param update the contact ids and the values by property name
+     * @return the number of contacts updated
+     */
+    @RequestMapping(value = "/update", method = RequestMethod.POST)
+    public Map<String, Integer> updateContacts(@RequestBody ContactBatchUpdate update) {
+
+        Map<ContactField, String> values = new EnumMap<ContactField, String>(ContactField.class);
+        for (Map.Entry<String, String> value : update.getValues().entrySet()) {
+            values.put(ContactField.forProperty(value.getKey()), value.getValue());
+        }
+
+        return Collections.singletonMap("updated", contactRepository.updateAllByIdIn(update.getIds(), values));
+    }
+}
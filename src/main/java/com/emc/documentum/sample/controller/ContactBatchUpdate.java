@@ -0,0 +1,32 @@
+package com.emc.documentum.sample.controller;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request body of a batch update, the contacts to change and the field values to give all of them
+ */
+public class ContactBatchUpdate {
+
+    private List<String> ids = new ArrayList<String>();
+
+    private Map<String, String> values = new LinkedHashMap<String, String>();
+
+    public List<String> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<String> ids) {
+        this.ids = ids;
+    }
+
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    public void setValues(Map<String, String> values) {
+        this.values = values;
+    }
+}
@@ -0,0 +1,42 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.changes.ContactChangeFeed;
+import com.emc.documentum.sample.changes.ContactChanges;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Incremental sync of contacts: a snapshot of all contacts for new clients, then only the contacts created,
+ * modified or deleted since the cursor a client was last handed. An expired cursor is answered with 410 Gone, the
+ * client then starts over without a cursor.
+ */
+@RestController
+@RequestMapping("/contacts/changes")
+public class ContactChangesController {
+
+    private static final int MAX_SIZE = 1000;
+
+    @Autowired
+    private ContactChangeFeed changeFeed;
+
+    /**
+     * Get the changes following the given cursor
+     *
+     * @param cursor the cursor of the previous page, omitted by new clients
+     * @param size the maximum number of contacts and deletes in the page
+     * @return the changes
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ContactChanges getChanges(@RequestParam(value = "cursor", required = false) String cursor,
+                                     @RequestParam(value = "size", defaultValue = "200") int size) {
+
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SIZE);
+        }
+
+        return changeFeed.read(cursor, size);
+    }
+}
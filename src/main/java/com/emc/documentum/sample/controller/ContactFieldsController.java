@@ -0,0 +1,63 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.repositories.ContactField;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partial listing of contacts, <code>/contacts?fields=name,email</code> reads and returns only the listed fields
+ * and the id. Requests without the parameter are left to the Spring Data REST collection resource.
+ *
+ * Contacts are listed a keyset slice at a time like <code>/contacts/slice</code>, so a request never reads the whole
+ * address book into memory.
+ */
+@RestController
+@RequestMapping(value = "/contacts", params = "fields")
+public class ContactFieldsController {
+
+    private static final int MAX_SIZE = 1000;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    /**
+     * Get the slice of contacts following the given contact id, with only the requested fields
+     *
+     * @param fields comma separated contact property names
+     * @param after the last contact id of the previous slice, omitted for the first slice
+     * @param size the maximum number of contacts in the slice
+     * @return the field values of each contact in the slice
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ContactSlice<Map<String, String>> getContacts(@RequestParam("fields") String fields,
+                                                         @RequestParam(value = "after", required = false) String after,
+                                                         @RequestParam(value = "size", defaultValue = "50") int size) {
+
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Slice size must be between 1 and " + MAX_SIZE);
+        }
+
+        Slice<Map<String, String>> slice =
+                contactRepository.findFieldsAfter(ContactField.parse(fields), after, new PageRequest(0, size));
+        List<Map<String, String>> contacts = slice.getContent();
+
+        String next = null;
+        if (slice.hasNext()) {
+            next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", contacts.get(contacts.size() - 1).get(ContactField.ID.getProperty()))
+                    .build().toUriString();
+        }
+
+        return new ContactSlice<Map<String, String>>(contacts, next);
+    }
+}
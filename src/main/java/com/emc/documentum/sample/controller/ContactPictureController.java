@@ -0,0 +1,186 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.content.PictureInfo;
+import com.emc.documentum.sample.content.PictureStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams contact pictures to and from the picture store without holding them in memory, with support for range
+ * requests and conditional requests on the picture's entity tag. Uploads over the maximum picture size are answered
+ * with 413 and <code>If-Match</code> uses the strong comparison.
+ */
+@RestController
+@RequestMapping("/contacts/{id}/picture")
+public class ContactPictureController {
+
+    private static final Map<String, String> FORMATS = new HashMap<String, String>();
+
+    private static final Map<String, String> MEDIA_TYPES = new HashMap<String, String>();
+
+    static {
+        mediaType("jpeg", MediaType.IMAGE_JPEG_VALUE);
+        mediaType("png", MediaType.IMAGE_PNG_VALUE);
+        mediaType("gif", MediaType.IMAGE_GIF_VALUE);
+        mediaType("bmp", "image/bmp");
+    }
+
+    @Autowired
+    private PictureStore pictureStore;
+
+    /**
+     * Get the picture of a contact, or the requested byte range of it
+     *
+     * @param id the contact id
+     * @param request the request
+     * @param response the response
+     * @throws IOException if the picture could not be sent
+     */
+    @RequestMapping(method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getPicture(@PathVariable("id") String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        PictureInfo picture = pictureStore.describe(id);
+
+        if (picture == null || !picture.hasContent()) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "No picture for contact " + id);
+            return;
+        }
+
+        String etag = picture.getETag();
+        long length = picture.getLength();
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (picture.getLastModified() != null) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, picture.getLastModified().getTime());
+        }
+
+        if (notModified(request, picture)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        // a range of a since modified picture would be stitched to the wrong content
+        ByteRange range = null;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null || ifRange.equals(etag)) {
+            range = ByteRange.parse(request.getHeader(HttpHeaders.RANGE), length);
+        }
+
+        if (range != null && !range.isSatisfiable()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(length));
+            response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        long offset = 0;
+        if (range != null) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(length));
+            offset = range.getFirst();
+            length = range.getLength();
+        }
+
+        response.setContentType(mediaType(picture.getFormat()));
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, Long.toString(length));
+
+        if (!RequestMethod.HEAD.name().equals(request.getMethod())) {
+            pictureStore.read(id, offset, length, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * Replace the picture of a contact with the request body, whose content type selects the docbase format
+     *
+     * @param id the contact id
+     * @param request the request
+     * @param response the response
+     * @throws IOException if the picture could not be received
+     */
+    @RequestMapping(method = RequestMethod.PUT)
+    public void putPicture(@PathVariable("id") String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        String format = format(request.getContentType());
+
+        if (format == null) {
+            response.sendError(HttpStatus.UNSUPPORTED_MEDIA_TYPE.value(),
+                    "Pictures must be one of " + MEDIA_TYPES.values());
+            return;
+        }
+
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+
+        if (ifMatch != null) {
+
+            PictureInfo current = pictureStore.describe(id);
+
+            if (current == null) {
+                response.sendError(HttpStatus.NOT_FOUND.value(), "No contact " + id);
+                return;
+            }
+
+            if (!EntityTags.matchesStrongly(ifMatch, current.getETag())) {
+                response.sendError(HttpStatus.PRECONDITION_FAILED.value());
+                return;
+            }
+        }
+
+        PictureInfo picture = pictureStore.write(id, format, Channels.newChannel(request.getInputStream()));
+
+        response.setHeader(HttpHeaders.ETAG, picture.getETag());
+        response.setStatus(HttpStatus.NO_CONTENT.value());
+    }
+
+    private static boolean notModified(HttpServletRequest request, PictureInfo picture) {
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return EntityTags.matches(ifNoneMatch, picture.getETag());
+        }
+
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+
+        // header dates have second precision
+        return ifModifiedSince >= 0 && picture.getLastModified() != null
+                && picture.getLastModified().getTime() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String format(String contentType) {
+
+        if (contentType == null) {
+            return null;
+        }
+
+        int parameters = contentType.indexOf(';');
+        if (parameters >= 0) {
+            contentType = contentType.substring(0, parameters);
+        }
+
+        return FORMATS.get(contentType.trim().toLowerCase());
+    }
+
+    private static String mediaType(String format) {
+        String mediaType = MEDIA_TYPES.get(format);
+        return mediaType != null ? mediaType : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+    }
+
+    private static void mediaType(String format, String mediaType) {
+        FORMATS.put(mediaType, format);
+        MEDIA_TYPES.put(format, mediaType);
+    }
+}
@@ -0,0 +1,38 @@
+package com.emc.documentum.sample.controller;
+
+import java.util.List;
+
+/**
+ * A slice of contacts with a link to the next slice, if any
+ *
+ * @param <T> the type of the contacts, whole contacts or their field values
+ */
+public class ContactSlice<T> {
+
+    private final List<T> contacts;
+
+    private final String next;
+
+    /**
+     * Constructor
+     *
+     * @param contacts the contacts in the slice
+     * @param next the URI of the next slice, null for the last slice
+     */
+    public ContactSlice(List<T> contacts, String next) {
+        this.contacts = contacts;
+        this.next = next;
+    }
+
+    public List<T> getContacts() {
+        return contacts;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public boolean isLast() {
+        return next == null;
+    }
+}
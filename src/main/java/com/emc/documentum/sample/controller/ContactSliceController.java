@@ -0,0 +1,56 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.util.List;
+
+/**
+ * Keyset paginated listing of contacts, an alternative to the unpaged Spring Data REST <code>/contacts</code>
+ * collection resource for large address books
+ */
+@RestController
+@RequestMapping("/contacts/slice")
+public class ContactSliceController {
+
+    private static final int MAX_SIZE = 1000;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    /**
+     * Get the slice of contacts following the given contact id
+     *
+     * @param after the last contact id of the previous slice, omitted for the first slice
+     * @param size the maximum number of contacts in the slice
+     * @return the slice of contacts
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public ContactSlice<Contact> getSlice(@RequestParam(value = "after", required = false) String after,
+                                 @RequestParam(value = "size", defaultValue = "50") int size) {
+
+        if (size < 1 || size > MAX_SIZE) {
+            throw new IllegalArgumentException("Slice size must be between 1 and " + MAX_SIZE);
+        }
+
+        Slice<Contact> slice = contactRepository.findAllAfter(after, new PageRequest(0, size));
+        List<Contact> contacts = slice.getContent();
+
+        String next = null;
+        if (slice.hasNext()) {
+            next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", contacts.get(contacts.size() - 1).getId())
+                    .build().toUriString();
+        }
+
+        return new ContactSlice<Contact>(contacts, next);
+    }
+}
@@ -0,0 +1,65 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.streaming.ContactStreamFormat;
+import com.emc.documentum.sample.streaming.ContactStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * Streamed listing of all contacts for bulk consumers, written as the contacts are read from the repository so
+ * memory use does not grow with the address book.
+ *
+ * The format follows the <code>Accept</code> header: a JSON array by default, NDJSON with
+ * <code>application/x-ndjson</code>, or Smile or CBOR with <code>application/x-jackson-smile</code> or
+ * <code>application/cbor</code>. The Spring Data REST <code>/contacts</code> collection resource is unchanged.
+ */
+@RestController
+@RequestMapping("/contacts/stream")
+public class ContactStreamController {
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ContactStreamWriter contactStreamWriter;
+
+    /**
+     * Stream all contacts in id order
+     *
+     * @param accept the accepted media types
+     * @param response the response to write to
+     * @throws IOException if the response could not be written
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public void streamContacts(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                               HttpServletResponse response) throws IOException {
+
+        ContactStreamFormat format = ContactStreamFormat.negotiate(accept);
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        if (format == null) {
+            response.sendError(HttpStatus.NOT_ACCEPTABLE.value(),
+                    "Contacts can be streamed as JSON, NDJSON, Smile or CBOR");
+            return;
+        }
+
+        response.setContentType(format.getMediaType().toString());
+
+        // the stream holds a docbase session until it is closed
+        try (Stream<Contact> contacts = contactRepository.streamAll()) {
+            contactStreamWriter.write(contacts.iterator(), format, response.getOutputStream());
+        }
+    }
+}
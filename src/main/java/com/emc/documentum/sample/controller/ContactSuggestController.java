@@ -0,0 +1,66 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.search.ContactSuggestIndex;
+import com.emc.documentum.sample.search.ContactSuggestion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Type-ahead suggestions for the contact search box, ids and names of the contacts best matching what has been
+ * typed so far
+ */
+@RestController
+@RequestMapping("/contacts/suggest")
+public class ContactSuggestController {
+
+    @Autowired
+    private ContactSuggestIndex contactSuggestIndex;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    /**
+     * Get the contacts suggested for a query, from the suggest index once it has loaded and until then from the
+     * contacts whose name contains the query
+     *
+     * @param query the text typed so far
+     * @param size the most contacts to suggest
+     * @return the suggested contacts, best match first
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public List<ContactSuggestion> getSuggestions(@RequestParam("q") String query,
+                                                  @RequestParam(value = "size", defaultValue = "10") int size) {
+
+        int maxSize = contactSuggestIndex.getMaxResults();
+
+        if (size < 1 || size > maxSize) {
+            throw new IllegalArgumentException("Suggestion size must be between 1 and " + maxSize);
+        }
+
+        if (query.trim().isEmpty()) {
+            return new ArrayList<ContactSuggestion>();
+        }
+
+        if (contactSuggestIndex.isReadyForQuery()) {
+            return contactSuggestIndex.suggest(query, size);
+        }
+
+        List<ContactSuggestion> suggestions = new ArrayList<ContactSuggestion>(size);
+        for (Contact contact : contactRepository.findByNameContaining(query.trim())) {
+            if (suggestions.size() == size) {
+                break;
+            }
+            suggestions.add(new ContactSuggestion(contact.getId(), contact.getName()));
+        }
+
+        return suggestions;
+    }
+}
@@ -0,0 +1,72 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.content.Thumbnail;
+import com.emc.documentum.sample.content.ThumbnailService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serves PNG thumbnails of contact pictures for address book listings
+ */
+@RestController
+@RequestMapping("/contacts/{id}/thumbnail")
+public class ContactThumbnailController {
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    /**
+     * Get the thumbnail of a contact picture
+     *
+     * @param id the contact id
+     * @param request the request
+     * @param response the response
+     * @throws IOException if the thumbnail could not be rendered or sent
+     */
+    @RequestMapping(method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getThumbnail(@PathVariable("id") String id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        Thumbnail thumbnail = thumbnailService.getThumbnail(id);
+
+        if (thumbnail == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "No thumbnail for contact " + id);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, thumbnail.getETag());
+
+        // revalidate every time, the tag changes with the picture
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && EntityTags.matches(ifNoneMatch, thumbnail.getETag())) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        response.setContentType(MediaType.IMAGE_PNG_VALUE);
+        response.setContentLength(thumbnail.getLength());
+
+        if (!RequestMethod.HEAD.name().equals(request.getMethod())) {
+            ByteBuffer content = thumbnail.getContent();
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.changes.ChangeLogExpiredException;
+import com.emc.documentum.sample.content.PictureTooLargeException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Maps exceptions raised by the controllers in this package to HTTP responses, the Spring Data REST resources keep
+ * their own handling
+ */
+@ControllerAdvice(basePackageClasses = ControllerExceptionHandler.class)
+public class ControllerExceptionHandler {
+
+    /**
+     * Invalid request parameters
+     *
+     * @param e the exception
+     * @param response the response
+     * @throws IOException if the error could not be sent
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public void badRequest(IllegalArgumentException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), e.getMessage());
+    }
+
+    /**
+     * Uploaded picture larger than allowed
+     *
+     * @param e the exception
+     * @param response the response
+     * @throws IOException if the error could not be sent
+     */
+    @ExceptionHandler(PictureTooLargeException.class)
+    public void payloadTooLarge(PictureTooLargeException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), e.getMessage());
+    }
+
+    /**
+     * Change feed cursor no longer covered by the change log
+     *
+     * @param e the exception
+     * @param response the response
+     * @throws IOException if the error could not be sent
+     */
+    @ExceptionHandler(ChangeLogExpiredException.class)
+    public void gone(ChangeLogExpiredException e, HttpServletResponse response) throws IOException {
+        response.sendError(HttpStatus.GONE.value(), e.getMessage());
+    }
+
+    /**
+     * No capacity left to take the request on
+     *
+     * @param e the exception
+     * @param response the response
+     * @throws IOException if the error could not be sent
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public void serviceUnavailable(RejectedExecutionException e, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage());
+    }
+}
@@ -0,0 +1,61 @@
+package com.emc.documentum.sample.controller;
+
+/**
+ * Entity tag comparison for conditional requests
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Check whether an <code>If-None-Match</code> header lists an entity tag using the weak comparison, weak tags
+     * compare by their opaque part
+     *
+     * @param header the header value
+     * @param etag the quoted entity tag
+     * @return true if the header is <code>*</code> or lists the tag
+     */
+    public static boolean matches(String header, String etag) {
+        return matches(header, etag, false);
+    }
+
+    /**
+     * Check whether an <code>If-Match</code> header lists an entity tag using the strong comparison, weak tags never
+     * match
+     *
+     * @param header the header value
+     * @param etag the quoted entity tag
+     * @return true if the header is <code>*</code> or lists the tag and both are strong
+     */
+    public static boolean matchesStrongly(String header, String etag) {
+        return matches(header, etag, true);
+    }
+
+    private static boolean matches(String header, String etag, boolean strong) {
+
+        boolean weakTag = etag.startsWith("W/");
+        if (weakTag) {
+            etag = etag.substring(2);
+        }
+
+        for (String candidate : header.split(",")) {
+
+            candidate = candidate.trim();
+            if (candidate.equals("*")) {
+                return true;
+            }
+
+            boolean weakCandidate = candidate.startsWith("W/");
+            if (weakCandidate) {
+                candidate = candidate.substring(2);
+            }
+
+            if (candidate.equals(etag) && !(strong && (weakTag || weakCandidate))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.metrics.TimerSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Publishes the repository and HTTP request timers, latencies in milliseconds
+ */
+@RestController
+@RequestMapping("/metrics")
+public class MetricsController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Get all timers
+     *
+     * @return the timer snapshots by name
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public Map<String, TimerSnapshot> getMetrics() {
+        return metricsRegistry.snapshot();
+    }
+}
@@ -0,0 +1,214 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contact CRUD resources with the <code>offline</code> profile active, where the in-memory repository is a plain
+ * bean that Spring Data REST does not export.
+ *
+ * The resources answer at the same URIs and with the same status codes as the Spring Data REST ones, and in HAL as
+ * they do: every contact with its <code>self</code> and <code>contact</code> links, the collection paged with the
+ * <code>page</code> and <code>size</code> parameters, its contacts under <code>_embedded.contacts</code> with the
+ * <code>page</code> metadata and the links to the neighbouring pages. Projections are not supported.
+ */
+@RestController
+@Profile("offline")
+@RequestMapping("/contacts")
+public class OfflineContactController {
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    /**
+     * Get a page of contacts
+     *
+     * @param page the page number, from 0
+     * @param size the page size
+     * @param request the current request, for the links
+     * @return the page of contacts
+     */
+    @RequestMapping(method = RequestMethod.GET)
+    public PagedResources<Resource<Contact>> getContacts(@RequestParam(value = "page", defaultValue = "0") int page,
+                                                         @RequestParam(value = "size", defaultValue = "20") int size,
+                                                         HttpServletRequest request) {
+
+        int pageSize = size < 1 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (Contact contact : contactRepository.findAll()) {
+            contacts.add(contact);
+        }
+
+        int totalPages = (contacts.size() + pageSize - 1) / pageSize;
+        int from = (int) Math.min((long) pageNumber * pageSize, contacts.size());
+        int to = Math.min(from + pageSize, contacts.size());
+
+        String uri = contactsUri(request);
+
+        List<Link> links = new ArrayList<Link>();
+        links.add(new Link(pageUri(uri, pageNumber, pageSize)));
+        if (totalPages > 1) {
+            links.add(new Link(pageUri(uri, 0, pageSize), Link.REL_FIRST));
+        }
+        if (pageNumber > 0 && totalPages > 0) {
+            links.add(new Link(pageUri(uri, Math.min(pageNumber, totalPages) - 1, pageSize), Link.REL_PREVIOUS));
+        }
+        if (pageNumber + 1 < totalPages) {
+            links.add(new Link(pageUri(uri, pageNumber + 1, pageSize), Link.REL_NEXT));
+        }
+        if (totalPages > 1) {
+            links.add(new Link(pageUri(uri, totalPages - 1, pageSize), Link.REL_LAST));
+        }
+
+        return new PagedResources<Resource<Contact>>(toResources(contacts.subList(from, to), uri),
+                new PagedResources.PageMetadata(pageSize, pageNumber, contacts.size(), totalPages), links);
+    }
+
+    /**
+     * Get the contacts whose name contains a value
+     *
+     * @param value the value to look for in the names
+     * @param request the current request, for the links
+     * @return the matching contacts
+     */
+    @RequestMapping(value = "/search/findByNameContaining", method = RequestMethod.GET)
+    public Resources<Resource<Contact>> findByNameContaining(@RequestParam("value") String value,
+                                                             HttpServletRequest request) {
+
+        String self = request.getQueryString() == null ? request.getRequestURL().toString()
+                : request.getRequestURL().append('?').append(request.getQueryString()).toString();
+
+        return new Resources<Resource<Contact>>(
+                toResources(contactRepository.findByNameContaining(value), contactsUri(request)), new Link(self));
+    }
+
+    /**
+     * Get a contact
+     *
+     * @param id the contact id
+     * @param request the current request, for the links
+     * @return the contact, 404 if there is none
+     */
+    @RequestMapping(value = "/{id:[0-9a-f]{16}}", method = RequestMethod.GET)
+    public ResponseEntity<Resource<Contact>> getContact(@PathVariable("id") String id, HttpServletRequest request) {
+
+        Contact contact = contactRepository.findOne(id);
+
+        return contact == null ? new ResponseEntity<Resource<Contact>>(HttpStatus.NOT_FOUND)
+                : new ResponseEntity<Resource<Contact>>(toResource(contact, contactsUri(request)), HttpStatus.OK);
+    }
+
+    /**
+     * Create a contact
+     *
+     * @param contact the contact, without an id
+     * @param request the current request, for the location of the new contact
+     * @return 201 with the location of the new contact
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    public ResponseEntity<Void> createContact(@RequestBody Contact contact, HttpServletRequest request) {
+
+        contact.setId(null);
+        Contact saved = contactRepository.save(contact);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LOCATION, request.getRequestURL().append('/').append(saved.getId()).toString());
+
+        return new ResponseEntity<Void>(headers, HttpStatus.CREATED);
+    }
+
+    /**
+     * Replace a contact
+     *
+     * @param id the contact id
+     * @param contact the new state of the contact
+     * @return 204, 404 if there is no such contact
+     */
+    @RequestMapping(value = "/{id:[0-9a-f]{16}}", method = RequestMethod.PUT)
+    public ResponseEntity<Void> replaceContact(@PathVariable("id") String id, @RequestBody Contact contact) {
+
+        if (!contactRepository.exists(id)) {
+            return new ResponseEntity<Void>(HttpStatus.NOT_FOUND);
+        }
+
+        contact.setId(id);
+        contactRepository.save(contact);
+
+        return new ResponseEntity<Void>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * Delete a contact
+     *
+     * @param id the contact id
+     * @return 204, 404 if there is no such contact
+     */
+    @RequestMapping(value = "/{id:[0-9a-f]{16}}", method = RequestMethod.DELETE)
+    public ResponseEntity<Void> deleteContact(@PathVariable("id") String id) {
+
+        if (!contactRepository.exists(id)) {
+            return new ResponseEntity<Void>(HttpStatus.NOT_FOUND);
+        }
+
+        contactRepository.delete(id);
+
+        return new ResponseEntity<Void>(HttpStatus.NO_CONTENT);
+    }
+
+    private static Resource<Contact> toResource(Contact contact, String contactsUri) {
+
+        String uri = contactsUri + "/" + contact.getId();
+
+        return new Resource<Contact>(contact, new Link(uri), new Link(uri, "contact"));
+    }
+
+    private static List<Resource<Contact>> toResources(Iterable<Contact> contacts, String contactsUri) {
+
+        List<Resource<Contact>> resources = new ArrayList<Resource<Contact>>();
+        for (Contact contact : contacts) {
+            resources.add(toResource(contact, contactsUri));
+        }
+
+        return resources;
+    }
+
+    /*
+     * the collection URI on the host and context path the request came in on
+     */
+    private static String contactsUri(HttpServletRequest request) {
+
+        StringBuffer url = request.getRequestURL();
+        url.setLength(url.length() - request.getRequestURI().length());
+
+        return url.append(request.getContextPath()).append("/contacts").toString();
+    }
+
+    private static String pageUri(String contactsUri, int page, int size) {
+        return contactsUri + "?page=" + page + "&size=" + size;
+    }
+}
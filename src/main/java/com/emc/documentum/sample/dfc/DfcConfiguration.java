@@ -0,0 +1,84 @@
+package com.emc.documentum.sample.dfc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * DFC session configuration for direct docbase access, not used with the <code>offline</code> profile active
+ */
+@Configuration
+@Profile("!offline")
+public class DfcConfiguration {
+
+    @Value("${repository.name}")
+    private String repositoryName;
+
+    @Value("${repository.username}")
+    private String repositoryUsername;
+
+    @Value("${repository.password}")
+    private String repositoryPassword;
+
+    @Value("${repository.session-pool.enabled:true}")
+    private boolean poolEnabled;
+
+    @Value("${repository.session-pool.prewarm:true}")
+    private boolean poolPrewarm;
+
+    @Value("${repository.session-pool.min-size:2}")
+    private int poolMinSize;
+
+    @Value("${repository.session-pool.max-size:16}")
+    private int poolMaxSize;
+
+    @Value("${repository.session-pool.max-wait-millis:5000}")
+    private long poolMaxWaitMillis;
+
+    @Value("${repository.session-pool.idle-timeout-seconds:300}")
+    private long poolIdleTimeoutSeconds;
+
+    @Value("${repository.session-pool.leak-threshold-seconds:60}")
+    private long poolLeakThresholdSeconds;
+
+    @Value("${repository.session-pool.leak-stack-traces:false}")
+    private boolean poolLeakStackTraces;
+
+    @Value("${repository.session-pool.maintenance-interval-seconds:30}")
+    private long poolMaintenanceIntervalSeconds;
+
+    /**
+     * Docbase session source bean, a session pool unless <code>repository.session-pool.enabled=false</code>, prewarmed
+     * at startup unless <code>repository.session-pool.prewarm=false</code>
+     *
+     * @return the session source
+     */
+    @Bean
+    public DocbaseSessionSource docbaseSessionSource() {
+
+        DocbaseSessionSource sessionManager =
+                new SessionManagerSessionSource(repositoryName, repositoryUsername, repositoryPassword);
+
+        if (!poolEnabled) {
+            return sessionManager;
+        }
+
+        PooledSessionSource pool = new PooledSessionSource(sessionManager, poolMinSize, poolMaxSize,
+                poolMaxWaitMillis, poolIdleTimeoutSeconds * 1000, poolLeakThresholdSeconds * 1000);
+        pool.setLeakStackTraces(poolLeakStackTraces);
+        pool.start(poolMaintenanceIntervalSeconds * 1000, poolPrewarm);
+
+        return pool;
+    }
+
+    /**
+     * DQL template bean
+     *
+     * @return the DQL template
+     */
+    @Bean
+    public DqlTemplate dqlTemplate() {
+        return new DqlTemplate(docbaseSessionSource());
+    }
+}
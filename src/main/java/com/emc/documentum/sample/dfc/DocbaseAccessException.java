@@ -0,0 +1,19 @@
+package com.emc.documentum.sample.dfc;
+
+import org.springframework.dao.UncategorizedDataAccessException;
+
+/**
+ * Unchecked wrapper for DFC failures raised by code talking to the docbase directly
+ */
+public class DocbaseAccessException extends UncategorizedDataAccessException {
+
+    /**
+     * Constructor
+     *
+     * @param message description of the failed operation
+     * @param cause the underlying DFC exception
+     */
+    public DocbaseAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
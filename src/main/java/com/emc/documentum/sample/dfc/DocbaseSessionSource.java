@@ -0,0 +1,27 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+
+/**
+ * Source of DFC sessions for code that talks to the docbase directly rather than through Spring Data.
+ *
+ * Every session obtained must be handed back with {@link #release(IDfSession)}, usually in a finally block.
+ */
+public interface DocbaseSessionSource {
+
+    /**
+     * Get a session on the configured docbase
+     *
+     * @return the session
+     * @throws DfException if no session could be established
+     */
+    IDfSession getSession() throws DfException;
+
+    /**
+     * Release a session obtained from this source, null is ignored
+     *
+     * @param session the session
+     */
+    void release(IDfSession session);
+}
@@ -0,0 +1,199 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.DfQuery;
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfQuery;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Runs DQL statements on sessions from a {@link DocbaseSessionSource}, taking care of closing collections and
+ * releasing sessions and translating DFC exceptions into {@link DocbaseAccessException}.
+ */
+public class DqlTemplate {
+
+    private final DocbaseSessionSource sessionSource;
+
+    /**
+     * Constructor
+     *
+     * @param sessionSource source of docbase sessions
+     */
+    public DqlTemplate(DocbaseSessionSource sessionSource) {
+        this.sessionSource = sessionSource;
+    }
+
+    /**
+     * Run a read query and map every row of the result
+     *
+     * @param dql the query
+     * @param rowMapper the row mapper
+     * @param <T> the mapped type
+     * @return the mapped rows
+     */
+    public <T> List<T> query(String dql, RowMapper<T> rowMapper) {
+
+        IDfSession session = null;
+        IDfCollection collection = null;
+
+        try {
+
+            session = sessionSource.getSession();
+            collection = new DfQuery(dql).execute(session, IDfQuery.DF_READ_QUERY);
+
+            List<T> results = new ArrayList<T>();
+            while (collection.next()) {
+                results.add(rowMapper.mapRow(collection));
+            }
+
+            return results;
+
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to run query: " + dql, e);
+        } finally {
+            closeQuietly(collection);
+            sessionSource.release(session);
+        }
+    }
+
+    /**
+     * Run a statement that changes objects on the server, such as <code>UPDATE ... OBJECTS</code> or
+     * <code>DELETE ... OBJECTS</code>, and read the number of objects it affected
+     *
+     * @param dql the statement
+     * @param countAttribute the result attribute holding the number of affected objects, e.g.
+     *                       <code>objects_deleted</code>
+     * @return the number of affected objects
+     */
+    public int update(String dql, String countAttribute) {
+
+        IDfSession session = null;
+        IDfCollection collection = null;
+
+        try {
+
+            session = sessionSource.getSession();
+            collection = new DfQuery(dql).execute(session, IDfQuery.DF_QUERY);
+
+            int count = 0;
+            while (collection.next()) {
+                count += collection.getInt(countAttribute);
+            }
+
+            return count;
+
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to run statement: " + dql, e);
+        } finally {
+            closeQuietly(collection);
+            sessionSource.release(session);
+        }
+    }
+
+    /**
+     * Run a read query and map the rows lazily as the returned stream is consumed.
+     *
+     * Rows are fetched from the docbase <code>fetchSize</code> at a time. The collection and its session stay open
+     * until the stream is closed, so the stream must be closed, preferably with try-with-resources.
+     *
+     * @param dql the query
+     * @param fetchSize the number of rows fetched from the docbase at a time
+     * @param rowMapper the row mapper
+     * @param <T> the mapped type
+     * @return the stream of mapped rows
+     */
+    public <T> Stream<T> stream(String dql, int fetchSize, RowMapper<T> rowMapper) {
+
+        IDfSession session = null;
+
+        try {
+
+            session = sessionSource.getSession();
+
+            IDfQuery query = new DfQuery(dql);
+            query.setBatchSize(fetchSize);
+
+            final CollectionSpliterator<T> spliterator =
+                    new CollectionSpliterator<T>(query.execute(session, IDfQuery.DF_READ_QUERY), session, rowMapper);
+
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+
+        } catch (DfException e) {
+            sessionSource.release(session);
+            throw new DocbaseAccessException("Unable to run query: " + dql, e);
+        }
+    }
+
+    private static void closeQuietly(IDfCollection collection) {
+
+        if (collection == null) {
+            return;
+        }
+
+        try {
+            collection.close();
+        } catch (DfException e) {
+            // nothing left to clean up, the session is released anyway
+        }
+    }
+
+    /*
+     * advances the collection one row per element, closing it as soon as it is exhausted
+     */
+    private final class CollectionSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final IDfCollection collection;
+
+        private final IDfSession session;
+
+        private final RowMapper<T> rowMapper;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CollectionSpliterator(IDfCollection collection, IDfSession session, RowMapper<T> rowMapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.collection = collection;
+            this.session = session;
+            this.rowMapper = rowMapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+
+            if (closed.get()) {
+                return false;
+            }
+
+            try {
+
+                if (!collection.next()) {
+                    close();
+                    return false;
+                }
+
+                action.accept(rowMapper.mapRow(collection));
+                return true;
+
+            } catch (DfException e) {
+                close();
+                throw new DocbaseAccessException("Unable to read query result", e);
+            }
+        }
+
+        private void close() {
+            if (closed.compareAndSet(false, true)) {
+                closeQuietly(collection);
+                sessionSource.release(session);
+            }
+        }
+    }
+}
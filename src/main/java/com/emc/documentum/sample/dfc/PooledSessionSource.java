@@ -0,0 +1,536 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of docbase sessions in front of another session source, which creates and finally releases the
+ * pooled sessions.
+ *
+ * Callers check a session out per operation and hand it back with {@link #release(IDfSession)}. Idle sessions are
+ * reused most recently used first, sessions idle for longer than the idle timeout are closed down to the minimum
+ * size and sessions checked out for longer than the leak threshold are reported, together with the stack that
+ * checked them out if {@link #setLeakStackTraces(boolean) leak stack traces} are on. When the pool is exhausted
+ * callers wait up to the maximum wait for a session to come back.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=SessionPool", description = "Docbase session pool")
+public class PooledSessionSource implements DocbaseSessionSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledSessionSource.class);
+
+    private final DocbaseSessionSource delegate;
+
+    private final int minSize;
+
+    private final int maxSize;
+
+    private final long maxWaitNanos;
+
+    private final long idleTimeoutNanos;
+
+    private final long leakThresholdNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition sessionReturned = lock.newCondition();
+
+    private final Deque<IdleSession> idle = new ArrayDeque<IdleSession>();
+
+    private final Map<IDfSession, Checkout> checkedOut = new IdentityHashMap<IDfSession, Checkout>();
+
+    private int size;
+
+    private boolean closed;
+
+    private volatile boolean leakStackTraces;
+
+    private ScheduledExecutorService maintenance;
+
+    private final AtomicLong checkouts = new AtomicLong();
+
+    private final AtomicLong waits = new AtomicLong();
+
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private final AtomicLong maxWaitObservedNanos = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong created = new AtomicLong();
+
+    private final AtomicLong destroyed = new AtomicLong();
+
+    private final AtomicLong leaks = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param delegate source creating and releasing the pooled sessions
+     * @param minSize number of sessions created up front and kept through idle periods
+     * @param maxSize maximum number of sessions open at once
+     * @param maxWaitMillis maximum time to wait for a session when all are checked out
+     * @param idleTimeoutMillis time after which idle sessions above the minimum are closed
+     * @param leakThresholdMillis time after which a checked out session is reported as leaked
+     */
+    public PooledSessionSource(DocbaseSessionSource delegate, int minSize, int maxSize, long maxWaitMillis,
+                               long idleTimeoutMillis, long leakThresholdMillis) {
+
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Pool size must satisfy 0 <= min <= max and max >= 1");
+        }
+
+        this.delegate = delegate;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.leakThresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+    }
+
+    /**
+     * Set whether every checkout records the stack that checked the session out, so a leak report shows where the
+     * session was taken. Off by default, filling in a stack trace on every checkout costs more than the checkout.
+     *
+     * @param leakStackTraces whether to record checkout stacks
+     */
+    public void setLeakStackTraces(boolean leakStackTraces) {
+        this.leakStackTraces = leakStackTraces;
+    }
+
+    /**
+     * Open the minimum number of sessions and start idle eviction and leak detection.
+     *
+     * A docbase that cannot be reached does not fail startup, the pool then fills on demand.
+     *
+     * @param maintenanceIntervalMillis interval between eviction and leak detection runs
+     */
+    public void start(long maintenanceIntervalMillis) {
+        start(maintenanceIntervalMillis, true);
+    }
+
+    /**
+     * Start idle eviction and leak detection, opening the minimum number of sessions first if asked to.
+     *
+     * Without prewarming nothing contacts the docbroker until the first session is checked out, the pool then fills
+     * on demand.
+     *
+     * @param maintenanceIntervalMillis interval between eviction and leak detection runs
+     * @param prewarm whether to open the minimum number of sessions now
+     */
+    public void start(long maintenanceIntervalMillis, boolean prewarm) {
+
+        if (prewarm) {
+            prewarm();
+        }
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "docbase-session-pool-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        maintenance.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    evictIdle();
+                    detectLeaks();
+                } catch (RuntimeException e) {
+                    logger.warn("Session pool maintenance failed", e);
+                }
+            }
+        }, maintenanceIntervalMillis, maintenanceIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open sessions until the pool holds the minimum number
+     */
+    public void prewarm() {
+
+        List<IDfSession> sessions = new ArrayList<IDfSession>();
+
+        try {
+            while (getSize() < minSize) {
+                sessions.add(getSession());
+            }
+        } catch (DfException e) {
+            logger.warn("Unable to prewarm docbase session pool, sessions will be opened on demand", e);
+        } catch (RuntimeException e) {
+            logger.warn("Unable to prewarm docbase session pool, sessions will be opened on demand", e);
+        } finally {
+            for (IDfSession session : sessions) {
+                release(session);
+            }
+        }
+    }
+
+    @Override
+    public IDfSession getSession() throws DfException {
+
+        long start = System.nanoTime();
+        boolean waited = false;
+
+        while (true) {
+
+            IDfSession session = null;
+            boolean create = false;
+
+            lock.lock();
+            try {
+
+                long deadline = start + maxWaitNanos;
+
+                while (idle.isEmpty() && size >= maxSize && !closed) {
+
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        recordWait(System.nanoTime() - start);
+                        throw new TransientDataAccessResourceException("No docbase session available within "
+                                + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + " ms, all " + maxSize + " in use");
+                    }
+
+                    waited = true;
+                    sessionReturned.awaitNanos(remaining);
+                }
+
+                if (closed) {
+                    throw new IllegalStateException("Docbase session pool is closed");
+                }
+
+                if (!idle.isEmpty()) {
+                    session = idle.pop().session;
+                } else {
+                    size++;
+                    create = true;
+                }
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TransientDataAccessResourceException("Interrupted waiting for a docbase session", e);
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                session = create();
+            } else if (!session.isConnected()) {
+
+                // dropped by the server while idle, replace it
+                discard(session);
+                continue;
+            }
+
+            checkouts.incrementAndGet();
+            if (waited) {
+                recordWait(System.nanoTime() - start);
+            }
+
+            lock.lock();
+            try {
+                checkedOut.put(session, new Checkout(leakStackTraces));
+            } finally {
+                lock.unlock();
+            }
+
+            return session;
+        }
+    }
+
+    @Override
+    public void release(IDfSession session) {
+
+        if (session == null) {
+            return;
+        }
+
+        boolean keep;
+
+        lock.lock();
+        try {
+
+            if (checkedOut.remove(session) == null) {
+                logger.warn("Ignoring release of a session not checked out from the pool");
+                return;
+            }
+
+            keep = !closed && session.isConnected();
+
+            if (keep) {
+                idle.push(new IdleSession(session));
+                sessionReturned.signal();
+            }
+
+        } finally {
+            lock.unlock();
+        }
+
+        if (!keep) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Close all idle sessions and stop handing out sessions, checked out sessions are closed as they come back
+     */
+    public void close() {
+
+        List<IDfSession> sessions = new ArrayList<IDfSession>();
+
+        lock.lock();
+        try {
+            closed = true;
+            for (IdleSession idleSession : idle) {
+                sessions.add(idleSession.session);
+            }
+            idle.clear();
+            sessionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+
+        for (IDfSession session : sessions) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Close sessions idle for longer than the idle timeout, keeping the minimum number open
+     */
+    void evictIdle() {
+
+        List<IDfSession> evicted = new ArrayList<IDfSession>();
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+
+            // the least recently used sessions are at the tail
+            Iterator<IdleSession> iterator = idle.descendingIterator();
+            while (iterator.hasNext() && size - evicted.size() > minSize) {
+
+                IdleSession idleSession = iterator.next();
+                if (now - idleSession.since < idleTimeoutNanos) {
+                    break;
+                }
+
+                iterator.remove();
+                evicted.add(idleSession.session);
+            }
+
+        } finally {
+            lock.unlock();
+        }
+
+        for (IDfSession session : evicted) {
+            discard(session);
+        }
+    }
+
+    /**
+     * Report sessions checked out for longer than the leak threshold, each once
+     */
+    void detectLeaks() {
+
+        long now = System.nanoTime();
+
+        lock.lock();
+        try {
+            for (Checkout checkout : checkedOut.values()) {
+                if (!checkout.reported && now - checkout.since > leakThresholdNanos) {
+                    checkout.reported = true;
+                    leaks.incrementAndGet();
+                    if (checkout.stack != null) {
+                        logger.warn("Docbase session checked out by thread {} for {} ms, possible leak",
+                                checkout.thread, TimeUnit.NANOSECONDS.toMillis(now - checkout.since), checkout.stack);
+                    } else {
+                        logger.warn("Docbase session checked out by thread {} for {} ms, possible leak, turn leak "
+                                + "stack traces on to see where", checkout.thread,
+                                TimeUnit.NANOSECONDS.toMillis(now - checkout.since));
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of open sessions")
+    public int getSize() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of sessions checked out")
+    public int getActive() {
+        lock.lock();
+        try {
+            return checkedOut.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of idle sessions")
+    public int getIdle() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of session checkouts")
+    public long getCheckoutCount() {
+        return checkouts.get();
+    }
+
+    @ManagedAttribute(description = "Number of checkouts that had to wait for a session")
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    @ManagedAttribute(description = "Mean wait of the checkouts that had to wait, in milliseconds")
+    public double getMeanWaitMillis() {
+        long count = waits.get();
+        return count == 0 ? 0.0 : waitNanos.get() / 1e6 / count;
+    }
+
+    @ManagedAttribute(description = "Longest checkout wait, in milliseconds")
+    public double getMaxWaitMillis() {
+        return maxWaitObservedNanos.get() / 1e6;
+    }
+
+    @ManagedAttribute(description = "Number of checkouts that timed out")
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @ManagedAttribute(description = "Number of sessions opened")
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    @ManagedAttribute(description = "Number of sessions closed")
+    public long getDestroyedCount() {
+        return destroyed.get();
+    }
+
+    @ManagedAttribute(description = "Number of sessions reported as leaked")
+    public long getLeakCount() {
+        return leaks.get();
+    }
+
+    private IDfSession create() throws DfException {
+
+        boolean success = false;
+
+        try {
+            IDfSession session = delegate.getSession();
+            created.incrementAndGet();
+            success = true;
+            return session;
+        } finally {
+            if (!success) {
+                shrink();
+            }
+        }
+    }
+
+    private void discard(IDfSession session) {
+        try {
+            delegate.release(session);
+        } catch (RuntimeException e) {
+            logger.debug("Ignoring failure releasing a discarded session", e);
+        } finally {
+            destroyed.incrementAndGet();
+            shrink();
+        }
+    }
+
+    private void shrink() {
+        lock.lock();
+        try {
+            size--;
+            sessionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordWait(long nanos) {
+
+        waits.incrementAndGet();
+        waitNanos.addAndGet(nanos);
+
+        long max = maxWaitObservedNanos.get();
+        while (nanos > max && !maxWaitObservedNanos.compareAndSet(max, nanos)) {
+            max = maxWaitObservedNanos.get();
+        }
+    }
+
+    /*
+     * idle session and when it was returned
+     */
+    private static final class IdleSession {
+
+        private final IDfSession session;
+
+        private final long since = System.nanoTime();
+
+        private IdleSession(IDfSession session) {
+            this.session = session;
+        }
+    }
+
+    /*
+     * who checked a session out and when, the stack is only recorded if asked for and only formatted if a leak is
+     * reported
+     */
+    private static final class Checkout {
+
+        private final long since = System.nanoTime();
+
+        private final String thread = Thread.currentThread().getName();
+
+        private final Throwable stack;
+
+        private boolean reported;
+
+        private Checkout(boolean recordStack) {
+            this.stack = recordStack ? new Throwable("Session checked out here") : null;
+        }
+    }
+}
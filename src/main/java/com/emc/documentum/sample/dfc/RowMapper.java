@@ -0,0 +1,21 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+
+/**
+ * Maps a row of a DQL query result to an object
+ *
+ * @param <T> the mapped type
+ */
+public interface RowMapper<T> {
+
+    /**
+     * Map the current row
+     *
+     * @param row the row, only valid for the duration of the call
+     * @return the mapped object
+     * @throws DfException if an attribute could not be read
+     */
+    T mapRow(IDfTypedObject row) throws DfException;
+}
@@ -0,0 +1,76 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.DfClient;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.client.IDfSessionManager;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfLoginInfo;
+
+/**
+ * Session source backed by a DFC session manager holding a single identity for the docbase.
+ *
+ * The session manager is created on first use so building the bean never contacts the docbroker.
+ */
+public class SessionManagerSessionSource implements DocbaseSessionSource {
+
+    private final String docbase;
+
+    private final String username;
+
+    private final String password;
+
+    private volatile IDfSessionManager sessionManager;
+
+    /**
+     * Constructor
+     *
+     * @param docbase the docbase name
+     * @param username the docbase username
+     * @param password the docbase password
+     */
+    public SessionManagerSessionSource(String docbase, String username, String password) {
+        this.docbase = docbase;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public IDfSession getSession() throws DfException {
+        // a new rather than shared session, callers on different threads must not interleave on one session
+        return getSessionManager().newSession(docbase);
+    }
+
+    @Override
+    public void release(IDfSession session) {
+        if (session != null) {
+            session.getSessionManager().release(session);
+        }
+    }
+
+    /**
+     * Docbase name
+     *
+     * @return the docbase name
+     */
+    public String getDocbase() {
+        return docbase;
+    }
+
+    private IDfSessionManager getSessionManager() throws DfException {
+
+        IDfSessionManager manager = sessionManager;
+
+        if (manager == null) {
+            synchronized (this) {
+                manager = sessionManager;
+                if (manager == null) {
+                    manager = DfClient.getLocalClient().newSessionManager();
+                    manager.setIdentity(docbase, new DfLoginInfo(username, password));
+                    sessionManager = manager;
+                }
+            }
+        }
+
+        return manager;
+    }
+}
@@ -5,6 +5,7 @@ import com.emc.documentum.springdata.entitymanager.mapping.DctmEntity;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.data.annotation.Id;
+import org.springframework.hateoas.core.Relation;
 
 import javax.persistence.Entity;
 import java.util.List;
@@ -16,6 +17,7 @@ import java.util.List;
  */
 @DctmEntity(repository = "contact")
 @Entity(name="contact")
+@Relation(value = "contact", collectionRelation = "contacts")
 public class Contact {
 
 	@Id
@@ -62,4 +64,18 @@ public class Contact {
 		this.telephone = telephone;
 	}
 
+    /**
+     * Create a detached copy of this contact
+     *
+     * @return the copy
+     */
+    public Contact copy() {
+        Contact copy = new Contact();
+        copy.setId(id);
+        copy.setName(name);
+        copy.setEmail(email);
+        copy.setTelephone(telephone);
+        return copy;
+    }
+
 }
@@ -0,0 +1,11 @@
+package com.emc.documentum.sample.domain;
+
+/**
+ * Projection of a contact to its id and name, for picker lists
+ */
+public interface ContactName {
+
+    String getId();
+
+    String getName();
+}
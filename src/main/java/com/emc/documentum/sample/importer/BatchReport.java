@@ -0,0 +1,59 @@
+package com.emc.documentum.sample.importer;
+
+/**
+ * Outcome of writing one import batch
+ */
+public class BatchReport {
+
+    private final long batch;
+
+    private final int size;
+
+    private final long elapsedNanos;
+
+    private final Exception failure;
+
+    /**
+     * Constructor
+     *
+     * @param batch the batch number
+     * @param size the number of contacts in the batch
+     * @param elapsedNanos the time taken to write the batch
+     * @param failure the reason the batch failed, null if it was written
+     */
+    public BatchReport(long batch, int size, long elapsedNanos, Exception failure) {
+        this.batch = batch;
+        this.size = size;
+        this.elapsedNanos = elapsedNanos;
+        this.failure = failure;
+    }
+
+    public long getBatch() {
+        return batch;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * Write throughput of the batch
+     *
+     * @return contacts written per second
+     */
+    public double getContactsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : size * 1e9 / elapsedNanos;
+    }
+}
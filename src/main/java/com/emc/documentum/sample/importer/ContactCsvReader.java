@@ -0,0 +1,145 @@
+package com.emc.documentum.sample.importer;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Streaming reader of contacts from CSV rows of <code>name,telephone[,email]</code>, as in
+ * <code>addresses.csv</code>.
+ *
+ * Only one row is held in memory at a time. Fields may be quoted with double quotes, a doubled quote inside a
+ * quoted field stands for a single one. Blank lines are skipped.
+ */
+public class ContactCsvReader implements Iterator<Contact>, Closeable {
+
+    private final BufferedReader reader;
+
+    private Contact next;
+
+    private long lineNumber;
+
+    /**
+     * Constructor
+     *
+     * @param reader the CSV source
+     */
+    public ContactCsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        if (next == null) {
+            next = readContact();
+        }
+
+        return next != null;
+    }
+
+    @Override
+    public Contact next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Contact contact = next;
+        next = null;
+        return contact;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Contact readContact() {
+
+        try {
+
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+
+                lineNumber++;
+
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+
+                List<String> fields = parse(line);
+
+                if (fields.size() < 2) {
+                    throw new IllegalArgumentException("Line " + lineNumber + " has no telephone column: " + line);
+                }
+
+                Contact contact = new Contact();
+                contact.setName(fields.get(0));
+                contact.setTelephone(fields.get(1));
+
+                if (fields.size() > 2 && !fields.get(2).isEmpty()) {
+                    contact.setEmail(fields.get(2));
+                }
+
+                return contact;
+            }
+
+            return null;
+
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read contact CSV after line " + lineNumber, e);
+        }
+    }
+
+    private List<String> parse(String line) {
+
+        List<String> fields = new ArrayList<String>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+
+            char c = line.charAt(i);
+
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Line " + lineNumber + " has an unterminated quote: " + line);
+        }
+
+        fields.add(field.toString().trim());
+        return fields;
+    }
+}
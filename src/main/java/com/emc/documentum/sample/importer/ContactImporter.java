@@ -0,0 +1,301 @@
+package com.emc.documentum.sample.importer;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import of contacts into the repository.
+ *
+ * The source is consumed as a stream and cut into fixed size batches, each written with a single
+ * {@link ContactRepository#saveAll} call by one of a fixed number of parallel writers. At most two batches per
+ * writer are held in memory. Written batches are recorded in an {@link ImportCheckpoint}, an import stops
+ * submitting work at the first failed batch and can be resumed from the checkpoint later. A resumed batch that may
+ * already have been written skips the contacts the repository already holds with the same name, email and
+ * telephone, so a failure between writing a batch and recording it does not duplicate its contacts.
+ */
+@Component
+public class ContactImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactImporter.class);
+
+    private final ContactRepository contactRepository;
+
+    private final int batchSize;
+
+    private final int writers;
+
+    private ImportListener listener = new ImportListener() {
+        @Override
+        public void batchCompleted(BatchReport report) {
+            if (report.isSuccessful()) {
+                logger.info("Imported batch {} of {} contacts in {} ms ({} contacts/s)", report.getBatch(),
+                        report.getSize(), TimeUnit.NANOSECONDS.toMillis(report.getElapsedNanos()),
+                        Math.round(report.getContactsPerSecond()));
+            } else {
+                logger.error("Import of batch {} failed", report.getBatch(), report.getFailure());
+            }
+        }
+    };
+
+    /**
+     * Constructor
+     *
+     * @param contactRepository the repository to write to
+     * @param batchSize the number of contacts per batch
+     * @param writers the number of batches written in parallel
+     */
+    @Autowired
+    public ContactImporter(ContactRepository contactRepository,
+                           @Value("${contact.import.batch-size:500}") int batchSize,
+                           @Value("${contact.import.writers:4}") int writers) {
+
+        if (batchSize < 1 || writers < 1) {
+            throw new IllegalArgumentException("Batch size and number of writers must be positive");
+        }
+
+        this.contactRepository = contactRepository;
+        this.batchSize = batchSize;
+        this.writers = writers;
+    }
+
+    /**
+     * Replace the default logging progress listener
+     *
+     * @param listener the listener
+     */
+    public void setListener(ImportListener listener) {
+        this.listener = listener;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Import contacts without checkpointing
+     *
+     * @param contacts the contacts to import
+     * @return the import totals
+     */
+    public ImportReport importContacts(Iterator<Contact> contacts) {
+        return importContacts(contacts, ImportCheckpoint.inMemory(batchSize));
+    }
+
+    /**
+     * Import contacts, skipping the batches the checkpoint records as written
+     *
+     * @param contacts the contacts to import, in the same order as for any earlier run with this checkpoint
+     * @param checkpoint the checkpoint to resume from and record progress in
+     * @return the import totals
+     */
+    public ImportReport importContacts(Iterator<Contact> contacts, ImportCheckpoint checkpoint) {
+
+        if (checkpoint.getBatchSize() != batchSize) {
+            throw new IllegalArgumentException("Checkpoint batch size " + checkpoint.getBatchSize()
+                    + " does not match import batch size " + batchSize);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers, new WriterThreadFactory());
+
+        // two batches per writer: one being written, one queued behind it
+        Semaphore inFlight = new Semaphore(writers * 2);
+
+        ImportProgress progress = new ImportProgress();
+        long skipped = 0;
+        long batch = 0;
+        long start = System.nanoTime();
+
+        try {
+
+            while (contacts.hasNext() && !progress.aborted.get()) {
+
+                List<Contact> contactsInBatch = nextBatch(contacts);
+                long batchNumber = batch++;
+
+                if (checkpoint.isCompleted(batchNumber)) {
+                    skipped += contactsInBatch.size();
+                    continue;
+                }
+
+                inFlight.acquire();
+                executor.execute(new BatchWriter(batchNumber, contactsInBatch, checkpoint.isInDoubt(batchNumber),
+                        checkpoint, progress, inFlight));
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.aborted.set(true);
+        } finally {
+            awaitWriters(executor);
+        }
+
+        ImportReport report = new ImportReport(progress.imported.get(), skipped + progress.existing.get(),
+                progress.batches.get(), progress.failedBatches.get(), System.nanoTime() - start);
+
+        logger.info("Contact import finished: {}", report);
+
+        return report;
+    }
+
+    private List<Contact> nextBatch(Iterator<Contact> contacts) {
+
+        List<Contact> contactsInBatch = new ArrayList<Contact>(batchSize);
+
+        while (contactsInBatch.size() < batchSize && contacts.hasNext()) {
+            contactsInBatch.add(contacts.next());
+        }
+
+        return contactsInBatch;
+    }
+
+    /*
+     * one lookup per contact, only made for the few batches in doubt when an import resumes
+     */
+    private List<Contact> withoutExisting(List<Contact> contacts) {
+
+        List<Contact> missing = new ArrayList<Contact>(contacts.size());
+
+        for (Contact contact : contacts) {
+            if (contact.getName() == null || !exists(contact)) {
+                missing.add(contact);
+            }
+        }
+
+        return missing;
+    }
+
+    private boolean exists(Contact contact) {
+
+        for (Contact existing : contactRepository.findByNameContaining(contact.getName())) {
+            if (contact.getName().equals(existing.getName())
+                    && Objects.equals(contact.getEmail(), existing.getEmail())
+                    && Objects.equals(contact.getTelephone(), existing.getTelephone())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void awaitWriters(ExecutorService executor) {
+
+        executor.shutdown();
+
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for contact import writers to finish");
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /*
+     * counters shared by the writers of one import run
+     */
+    private static final class ImportProgress {
+
+        private final AtomicLong imported = new AtomicLong();
+
+        private final AtomicLong existing = new AtomicLong();
+
+        private final AtomicInteger batches = new AtomicInteger();
+
+        private final AtomicInteger failedBatches = new AtomicInteger();
+
+        private final AtomicBoolean aborted = new AtomicBoolean();
+    }
+
+    /*
+     * writes a single batch and records the outcome
+     */
+    private final class BatchWriter implements Runnable {
+
+        private final long batch;
+
+        private final List<Contact> contacts;
+
+        private final boolean inDoubt;
+
+        private final ImportCheckpoint checkpoint;
+
+        private final ImportProgress progress;
+
+        private final Semaphore inFlight;
+
+        private BatchWriter(long batch, List<Contact> contacts, boolean inDoubt, ImportCheckpoint checkpoint,
+                            ImportProgress progress, Semaphore inFlight) {
+            this.batch = batch;
+            this.contacts = contacts;
+            this.inDoubt = inDoubt;
+            this.checkpoint = checkpoint;
+            this.progress = progress;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void run() {
+
+            long start = System.nanoTime();
+            Exception failure = null;
+
+            try {
+
+                List<Contact> toWrite = inDoubt ? withoutExisting(contacts) : contacts;
+
+                checkpoint.markStarted(batch);
+                if (!toWrite.isEmpty()) {
+                    contactRepository.saveAll(toWrite);
+                }
+                checkpoint.markCompleted(batch);
+
+                progress.imported.addAndGet(toWrite.size());
+                progress.existing.addAndGet(contacts.size() - toWrite.size());
+                progress.batches.incrementAndGet();
+
+            } catch (Exception e) {
+                failure = e;
+                progress.failedBatches.incrementAndGet();
+                progress.aborted.set(true);
+            } finally {
+                inFlight.release();
+            }
+
+            listener.batchCompleted(new BatchReport(batch, contacts.size(), System.nanoTime() - start, failure));
+        }
+    }
+
+    /*
+     * named daemon threads so a stuck import does not keep the JVM alive
+     */
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "contact-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
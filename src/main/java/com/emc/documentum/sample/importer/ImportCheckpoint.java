@@ -0,0 +1,235 @@
+package com.emc.documentum.sample.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * Record of the import batches already written, so an interrupted import can resume without writing any contact
+ * twice.
+ *
+ * Batches are numbered by their position in the source, which only stays stable while the batch size does, so the
+ * batch size is recorded too. Parallel writers finish batches out of order: everything below
+ * {@link #getCompletedThrough()} is done and finished batches above it are listed individually. A file backed
+ * checkpoint is rewritten atomically before and after every batch.
+ *
+ * The docbase write and the checkpoint cannot be committed together, a batch may have been written without being
+ * recorded as complete. Batches are recorded as started before they are written, a batch started but not completed
+ * is in doubt and its contacts have to be checked against the repository before it is written again.
+ */
+public class ImportCheckpoint {
+
+    private static final String BATCH_SIZE = "batchSize";
+
+    private static final String COMPLETED_THROUGH = "completedThrough";
+
+    private static final String COMPLETED = "completed";
+
+    private static final String STARTED = "started";
+
+    private final Path file;
+
+    private final int batchSize;
+
+    private long completedThrough;
+
+    private final TreeSet<Long> completed = new TreeSet<Long>();
+
+    private final TreeSet<Long> started = new TreeSet<Long>();
+
+    private ImportCheckpoint(Path file, int batchSize) {
+        this.file = file;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Create a checkpoint that is not persisted
+     *
+     * @param batchSize the import batch size
+     * @return the checkpoint
+     */
+    public static ImportCheckpoint inMemory(int batchSize) {
+        return new ImportCheckpoint(null, batchSize);
+    }
+
+    /**
+     * Open a file backed checkpoint, resuming from the file if it exists
+     *
+     * @param file the checkpoint file
+     * @param batchSize the import batch size
+     * @return the checkpoint
+     * @throws IllegalStateException if the file was written for a different batch size
+     */
+    public static ImportCheckpoint open(Path file, int batchSize) {
+
+        ImportCheckpoint checkpoint = new ImportCheckpoint(file, batchSize);
+
+        if (!Files.exists(file)) {
+            return checkpoint;
+        }
+
+        Properties properties = new Properties();
+
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read import checkpoint " + file, e);
+        }
+
+        int recordedBatchSize = Integer.parseInt(properties.getProperty(BATCH_SIZE));
+
+        if (recordedBatchSize != batchSize) {
+            throw new IllegalStateException("Checkpoint " + file + " was written with batch size "
+                    + recordedBatchSize + ", cannot resume with batch size " + batchSize);
+        }
+
+        checkpoint.completedThrough = Long.parseLong(properties.getProperty(COMPLETED_THROUGH, "0"));
+
+        parseBatches(properties.getProperty(COMPLETED, ""), checkpoint.completed);
+        parseBatches(properties.getProperty(STARTED, ""), checkpoint.started);
+
+        return checkpoint;
+    }
+
+    /**
+     * Import batch size the checkpoint was written for
+     *
+     * @return the batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Number of leading batches that are all complete
+     *
+     * @return the number of batches
+     */
+    public synchronized long getCompletedThrough() {
+        return completedThrough;
+    }
+
+    /**
+     * Check if a batch was already written
+     *
+     * @param batch the batch number
+     * @return true if the batch is complete
+     */
+    public synchronized boolean isCompleted(long batch) {
+        return batch < completedThrough || completed.contains(batch);
+    }
+
+    /**
+     * Check if a batch may have been written without being recorded as complete
+     *
+     * @param batch the batch number
+     * @return true if the batch was started and not completed
+     */
+    public synchronized boolean isInDoubt(long batch) {
+        return started.contains(batch) && !isCompleted(batch);
+    }
+
+    /**
+     * Record a batch as about to be written, before any of its contacts are
+     *
+     * @param batch the batch number
+     */
+    public synchronized void markStarted(long batch) {
+
+        if (isCompleted(batch) || !started.add(batch)) {
+            return;
+        }
+
+        store();
+    }
+
+    /**
+     * Record a batch as written
+     *
+     * @param batch the batch number
+     */
+    public synchronized void markCompleted(long batch) {
+
+        if (isCompleted(batch)) {
+            return;
+        }
+
+        started.remove(batch);
+        completed.add(batch);
+
+        // fold finished batches into the contiguous prefix
+        while (!completed.isEmpty() && completed.first() == completedThrough) {
+            completed.pollFirst();
+            completedThrough++;
+        }
+
+        store();
+    }
+
+    /**
+     * Remove the checkpoint file once an import has finished
+     */
+    public void delete() {
+
+        if (file == null) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to delete import checkpoint " + file, e);
+        }
+    }
+
+    private void store() {
+
+        if (file == null) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty(BATCH_SIZE, String.valueOf(batchSize));
+        properties.setProperty(COMPLETED_THROUGH, String.valueOf(completedThrough));
+        properties.setProperty(COMPLETED, formatBatches(completed));
+        properties.setProperty(STARTED, formatBatches(started));
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "contact import checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write import checkpoint " + file, e);
+        }
+    }
+
+    private static void parseBatches(String value, TreeSet<Long> batches) {
+        for (String batch : value.split(",")) {
+            if (!batch.isEmpty()) {
+                batches.add(Long.valueOf(batch));
+            }
+        }
+    }
+
+    private static String formatBatches(TreeSet<Long> batches) {
+
+        StringBuilder value = new StringBuilder();
+        for (Long batch : batches) {
+            if (value.length() > 0) {
+                value.append(',');
+            }
+            value.append(batch);
+        }
+
+        return value.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package com.emc.documentum.sample.importer;
+
+/**
+ * Callback for import progress, invoked on the writer thread that wrote the batch
+ */
+public interface ImportListener {
+
+    /**
+     * Called after each batch was written or failed
+     *
+     * @param report the batch outcome
+     */
+    void batchCompleted(BatchReport report);
+}
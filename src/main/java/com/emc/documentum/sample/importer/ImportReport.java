@@ -0,0 +1,73 @@
+package com.emc.documentum.sample.importer;
+
+/**
+ * Totals of a complete or aborted import run
+ */
+public class ImportReport {
+
+    private final long imported;
+
+    private final long skipped;
+
+    private final int batches;
+
+    private final int failedBatches;
+
+    private final long elapsedNanos;
+
+    /**
+     * Constructor
+     *
+     * @param imported the number of contacts written by this run
+     * @param skipped the number of contacts skipped because a previous run wrote them
+     * @param batches the number of batches written by this run
+     * @param failedBatches the number of batches that failed
+     * @param elapsedNanos the duration of the run
+     */
+    public ImportReport(long imported, long skipped, int batches, int failedBatches, long elapsedNanos) {
+        this.imported = imported;
+        this.skipped = skipped;
+        this.batches = batches;
+        this.failedBatches = failedBatches;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public int getFailedBatches() {
+        return failedBatches;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isComplete() {
+        return failedBatches == 0;
+    }
+
+    /**
+     * Overall write throughput of the run
+     *
+     * @return contacts written per second
+     */
+    public double getContactsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : imported * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("imported %d contacts (%d skipped) in %d batches, %d failed, %.1f contacts/s",
+                imported, skipped, batches, failedBatches, getContactsPerSecond());
+    }
+}
@@ -0,0 +1,74 @@
+package com.emc.documentum.sample.metrics;
+
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times every contact repository method, including derived queries and the content methods.
+ *
+ * Runs outermost so the timings are what callers see, cache hits included. Each method gets a timer named after
+ * its signature, e.g. <code>repository.save(Iterable)</code>. Methods returning a lazy stream are timed until the
+ * stream is returned, not while it is consumed.
+ */
+public class ContactRepositoryMetricsInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    private final MetricsRegistry registry;
+
+    private final ConcurrentMap<Method, Timer> timers = new ConcurrentHashMap<Method, Timer>();
+
+    /**
+     * Constructor
+     *
+     * @param registry the registry holding the timers
+     */
+    public ContactRepositoryMetricsInterceptor(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        Timer timer = timer(invocation.getMethod());
+        long start = timer.start();
+        boolean success = false;
+
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            return result;
+        } finally {
+            timer.stop(start, success);
+        }
+    }
+
+    private Timer timer(Method method) {
+
+        Timer timer = timers.get(method);
+
+        if (timer == null) {
+
+            StringBuilder name = new StringBuilder("repository.").append(method.getName()).append('(');
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            for (int i = 0; i < parameterTypes.length; i++) {
+                name.append(i > 0 ? ", " : "").append(parameterTypes[i].getSimpleName());
+            }
+
+            timer = registry.timer(name.append(')').toString());
+            timers.putIfAbsent(method, timer);
+        }
+
+        return timer;
+    }
+}
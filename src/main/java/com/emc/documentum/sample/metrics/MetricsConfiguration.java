@@ -0,0 +1,48 @@
+package com.emc.documentum.sample.metrics;
+
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Repository and HTTP request instrumentation configuration
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    /**
+     * Metrics registry bean
+     *
+     * @return the metrics registry
+     */
+    @Bean
+    public MetricsRegistry metricsRegistry() {
+        return new MetricsRegistry();
+    }
+
+    /**
+     * Contact repository metrics interceptor bean
+     *
+     * @return the metrics interceptor
+     */
+    @Bean
+    public ContactRepositoryMetricsInterceptor contactRepositoryMetricsInterceptor() {
+        return new ContactRepositoryMetricsInterceptor(metricsRegistry());
+    }
+
+    /**
+     * Request metrics filter registration bean, ahead of all other filters
+     *
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean requestMetricsFilter() {
+
+        FilterRegistrationBean registration = new FilterRegistrationBean(new RequestMetricsFilter(metricsRegistry()));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        registration.setAsyncSupported(true);
+
+        return registration;
+    }
+}
@@ -0,0 +1,52 @@
+package com.emc.documentum.sample.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Named timers of the instrumented operations.
+ *
+ * Callers on hot paths look their timers up once and keep them, so recording never touches the registry.
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+    /**
+     * Get the timer of an operation, created on first use
+     *
+     * @param name the operation name
+     * @return the timer
+     */
+    public Timer timer(String name) {
+
+        Timer timer = timers.get(name);
+
+        if (timer == null) {
+            Timer created = new Timer(name);
+            timer = timers.putIfAbsent(name, created);
+            if (timer == null) {
+                timer = created;
+            }
+        }
+
+        return timer;
+    }
+
+    /**
+     * Snapshot all timers
+     *
+     * @return the timer snapshots by name, in name order
+     */
+    public Map<String, TimerSnapshot> snapshot() {
+
+        Map<String, TimerSnapshot> snapshots = new TreeMap<String, TimerSnapshot>();
+        for (Timer timer : timers.values()) {
+            snapshots.put(timer.getName(), timer.snapshot());
+        }
+
+        return snapshots;
+    }
+}
@@ -0,0 +1,150 @@
+package com.emc.documentum.sample.metrics;
+
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times every HTTP request by method and the route pattern it was mapped to, e.g.
+ * <code>http.GET /contacts/{id}/picture</code>, so the number of timers stays bounded by the routes. Requests no
+ * handler was mapped to share the <code>unmatched</code> route. Responses with a 5xx status count as errors and the
+ * <code>http</code> timer covers all requests, with the number in flight.
+ *
+ * An asynchronous request is timed once, from its first dispatch until the async context completes. The dispatch
+ * back into the container that writes its response is not timed again.
+ */
+public class RequestMetricsFilter implements Filter {
+
+    private static final String[] METHODS = {"GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"};
+
+    private static final String UNMATCHED = "unmatched";
+
+    private final MetricsRegistry registry;
+
+    private final Timer requests;
+
+    private final ConcurrentMap<String, Timer[]> routes = new ConcurrentHashMap<String, Timer[]>();
+
+    /**
+     * Constructor
+     *
+     * @param registry the registry holding the timers
+     */
+    public RequestMetricsFilter(MetricsRegistry registry) {
+        this.registry = registry;
+        this.requests = registry.timer("http");
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        if (req.getDispatcherType() == DispatcherType.ASYNC) {
+            // already timed by the listener added on the first dispatch
+            chain.doFilter(req, res);
+            return;
+        }
+
+        final HttpServletRequest request = (HttpServletRequest) req;
+        final HttpServletResponse response = (HttpServletResponse) res;
+        final long start = requests.start();
+        boolean success = false;
+
+        try {
+            chain.doFilter(req, res);
+            success = true;
+        } finally {
+            if (success && request.isAsyncStarted()) {
+
+                // the response is written later, on another thread
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        complete(request, response, start, true);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        complete(request, response, start, false);
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        complete(request, response, start, false);
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // keep listening to the restarted request
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+
+            } else {
+                complete(request, response, start, success);
+            }
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+
+    private void complete(HttpServletRequest request, HttpServletResponse response, long start, boolean success) {
+
+        long nanos = System.nanoTime() - start;
+        boolean ok = success && response.getStatus() < 500;
+
+        requests.stop(start, ok);
+        routeTimer(request).record(nanos, ok);
+    }
+
+    private Timer routeTimer(HttpServletRequest request) {
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String route = pattern instanceof String ? (String) pattern : UNMATCHED;
+
+        Timer[] timers = routes.get(route);
+        if (timers == null) {
+            routes.putIfAbsent(route, new Timer[METHODS.length + 1]);
+            timers = routes.get(route);
+        }
+
+        int method = methodIndex(request.getMethod());
+        Timer timer = timers[method];
+
+        // racing threads get the same timer from the registry
+        if (timer == null) {
+            String methodName = method < METHODS.length ? METHODS[method] : "OTHER";
+            timer = registry.timer("http." + methodName + " " + route);
+            timers[method] = timer;
+        }
+
+        return timer;
+    }
+
+    private static int methodIndex(String method) {
+
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return i;
+            }
+        }
+
+        return METHODS.length;
+    }
+}
@@ -0,0 +1,280 @@
+package com.emc.documentum.sample.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessorAdapter;
+import org.springframework.boot.context.embedded.EmbeddedServletContainerInitializedEvent;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.boot.context.event.ApplicationPreparedEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.lang.management.ManagementFactory;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup time report, logged once the application has started.
+ *
+ * Breaks the time since the JVM started down into the startup phases, and lists the beans that took longest to
+ * create. A bean's time is its own, time spent creating the beans it depends on while it is created is counted
+ * against those beans, so the list points at the beans whose own construction is slow. Registered on the
+ * <code>SpringApplication</code> rather than as a bean, as the first phases are over before any bean exists.
+ */
+public class StartupReport implements ApplicationListener<ApplicationEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupReport.class);
+
+    private static final int DEFAULT_SLOWEST_BEANS = 20;
+
+    private final int slowestBeans;
+
+    private final BeanTimer beanTimer = new BeanTimer();
+
+    private final Map<String, Long> phases = new LinkedHashMap<String, Long>();
+
+    private long phaseStart;
+
+    private boolean reported;
+
+    /**
+     * Constructor, reporting the 20 slowest beans
+     */
+    public StartupReport() {
+        this(DEFAULT_SLOWEST_BEANS);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param slowestBeans the number of beans to report
+     */
+    public StartupReport(int slowestBeans) {
+
+        this.slowestBeans = slowestBeans;
+
+        // the JVM start time has millisecond precision, the phases after it are timed in nanoseconds
+        long jvmMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        phases.put("jvm", TimeUnit.MILLISECONDS.toNanos(Math.max(jvmMillis, 0)));
+        phaseStart = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ApplicationEvent event) {
+
+        if (reported) {
+            return;
+        }
+
+        if (event instanceof ApplicationStartedEvent) {
+            phase("main");
+        } else if (event instanceof ApplicationEnvironmentPreparedEvent) {
+            phase("environment");
+        } else if (event instanceof ApplicationPreparedEvent) {
+            phase("context");
+            ((ApplicationPreparedEvent) event).getApplicationContext().getBeanFactory().addBeanPostProcessor(beanTimer);
+        } else if (event instanceof ContextRefreshedEvent) {
+            phase("refresh");
+            // a web application is up once its servlet container has started, which follows the refresh
+            if (!(((ContextRefreshedEvent) event).getApplicationContext() instanceof EmbeddedWebApplicationContext)) {
+                report();
+            }
+        } else if (event instanceof EmbeddedServletContainerInitializedEvent) {
+            phase("servlet container");
+            report();
+        }
+    }
+
+    /**
+     * Time taken by each startup phase so far, in the order they ran
+     *
+     * @return the phase durations in milliseconds by phase name
+     */
+    public synchronized Map<String, Long> getPhases() {
+
+        Map<String, Long> millis = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Long> phase : phases.entrySet()) {
+            millis.put(phase.getKey(), TimeUnit.NANOSECONDS.toMillis(phase.getValue()));
+        }
+
+        return millis;
+    }
+
+    /**
+     * The beans that took longest to create so far, slowest first
+     *
+     * @return the time each bean took to create in milliseconds by bean name
+     */
+    public Map<String, Long> getSlowestBeans() {
+
+        Map<String, Long> millis = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Long> bean : beanTimer.getSlowest(slowestBeans)) {
+            millis.put(bean.getKey(), TimeUnit.NANOSECONDS.toMillis(bean.getValue()));
+        }
+
+        return millis;
+    }
+
+    BeanTimer getBeanTimer() {
+        return beanTimer;
+    }
+
+    private void phase(String name) {
+        long now = System.nanoTime();
+        phases.put(name, now - phaseStart);
+        phaseStart = now;
+    }
+
+    private void report() {
+
+        reported = true;
+
+        long total = 0;
+        StringBuilder phaseSummary = new StringBuilder();
+        for (Map.Entry<String, Long> phase : getPhases().entrySet()) {
+            total += phase.getValue();
+            phaseSummary.append(phaseSummary.length() == 0 ? "" : ", ")
+                    .append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append("Started in ").append(total).append(" ms: ").append(phaseSummary);
+        report.append(String.format("%n%d beans created in %d ms, slowest:", beanTimer.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(beanTimer.getTotal())));
+
+        for (Map.Entry<String, Long> bean : getSlowestBeans().entrySet()) {
+            report.append(String.format("%n%8d ms  %s", bean.getValue(), bean.getKey()));
+        }
+
+        logger.info(report.toString());
+    }
+
+    /**
+     * Times the creation of each bean, from before it is instantiated to after it is initialised, less the time spent
+     * creating other beans meanwhile.
+     */
+    static class BeanTimer extends InstantiationAwareBeanPostProcessorAdapter {
+
+        private final ThreadLocal<Deque<Creation>> creations = new ThreadLocal<Deque<Creation>>() {
+            @Override
+            protected Deque<Creation> initialValue() {
+                return new ArrayDeque<Creation>();
+            }
+        };
+
+        private final Map<String, Long> times = new LinkedHashMap<String, Long>();
+
+        private long total;
+
+        @Override
+        public Object postProcessBeforeInstantiation(Class<?> beanClass, String beanName) throws BeansException {
+            creations.get().push(new Creation(beanName, System.nanoTime()));
+            return null;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+            long now = System.nanoTime();
+            Deque<Creation> stack = creations.get();
+
+            // objects made by factory beans are initialised without being instantiated first
+            if (!contains(stack, beanName)) {
+                return bean;
+            }
+
+            // creations above this one failed, their time is part of this bean's
+            Creation creation = stack.pop();
+            while (!creation.beanName.equals(beanName)) {
+                creation = stack.pop();
+            }
+
+            long elapsed = now - creation.start;
+
+            if (!stack.isEmpty()) {
+                stack.peek().dependencies += elapsed;
+            }
+
+            record(beanName, elapsed - creation.dependencies, stack.isEmpty() ? elapsed : 0);
+
+            return bean;
+        }
+
+        synchronized int getCount() {
+            return times.size();
+        }
+
+        synchronized long getTotal() {
+            return total;
+        }
+
+        /**
+         * The slowest beans
+         *
+         * @param count the number of beans
+         * @return the bean names and their own creation times in nanoseconds, slowest first
+         */
+        synchronized List<Map.Entry<String, Long>> getSlowest(int count) {
+
+            List<Map.Entry<String, Long>> beans = new ArrayList<Map.Entry<String, Long>>(times.entrySet());
+
+            Collections.sort(beans, new Comparator<Map.Entry<String, Long>>() {
+                @Override
+                public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+                    return b.getValue().compareTo(a.getValue());
+                }
+            });
+
+            List<Map.Entry<String, Long>> slowest = new ArrayList<Map.Entry<String, Long>>();
+            for (Map.Entry<String, Long> bean : beans.subList(0, Math.min(count, beans.size()))) {
+                slowest.add(new AbstractMap.SimpleImmutableEntry<String, Long>(bean));
+            }
+
+            return slowest;
+        }
+
+        private synchronized void record(String beanName, long ownTime, long topLevelTime) {
+
+            Long previous = times.get(beanName);
+            times.put(beanName, previous == null ? ownTime : previous + ownTime);
+            total += topLevelTime;
+        }
+
+        private static boolean contains(Deque<Creation> stack, String beanName) {
+
+            for (Creation creation : stack) {
+                if (creation.beanName.equals(beanName)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static final class Creation {
+
+        private final String beanName;
+
+        private final long start;
+
+        private long dependencies;
+
+        private Creation(String beanName, long start) {
+            this.beanName = beanName;
+            this.start = start;
+        }
+    }
+}
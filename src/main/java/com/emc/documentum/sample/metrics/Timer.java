@@ -0,0 +1,92 @@
+package com.emc.documentum.sample.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histogram, error counter and in-flight gauge of one instrumented operation.
+ *
+ * <pre>
+ * long start = timer.start();
+ * boolean success = false;
+ * try {
+ *     ...
+ *     success = true;
+ * } finally {
+ *     timer.stop(start, success);
+ * }
+ * </pre>
+ */
+public class Timer {
+
+    private final String name;
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Constructor
+     *
+     * @param name the operation name
+     */
+    public Timer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return the start time to pass to {@link #stop(long, boolean)}
+     */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Stop timing an operation
+     *
+     * @param start the start time returned by {@link #start()}
+     * @param success false if the operation failed
+     */
+    public void stop(long start, boolean success) {
+        histogram.record(System.nanoTime() - start);
+        inFlight.decrementAndGet();
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record an operation that was timed elsewhere
+     *
+     * @param nanos the latency in nanoseconds
+     * @param success false if the operation failed
+     */
+    public void record(long nanos, boolean success) {
+        histogram.record(nanos);
+        if (!success) {
+            errors.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Current values of the timer
+     *
+     * @return the snapshot
+     */
+    public TimerSnapshot snapshot() {
+
+        long[] quantiles = histogram.getValuesAtQuantiles(0.5, 0.9, 0.99, 0.999);
+
+        return new TimerSnapshot(histogram.getCount(), errors.get(), inFlight.get(), histogram.getMean(),
+                histogram.getMax(), quantiles[0], quantiles[1], quantiles[2], quantiles[3]);
+    }
+}
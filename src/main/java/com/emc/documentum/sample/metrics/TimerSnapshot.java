@@ -0,0 +1,89 @@
+package com.emc.documentum.sample.metrics;
+
+/**
+ * Values of a {@link Timer} at one point in time, latencies in milliseconds
+ */
+public class TimerSnapshot {
+
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final long count;
+
+    private final long errors;
+
+    private final int inFlight;
+
+    private final double mean;
+
+    private final double max;
+
+    private final double p50;
+
+    private final double p90;
+
+    private final double p99;
+
+    private final double p999;
+
+    /**
+     * Constructor, latencies in nanoseconds
+     *
+     * @param count the number of completed operations
+     * @param errors the number of failed operations
+     * @param inFlight the number of operations in progress
+     * @param mean the mean latency
+     * @param max the maximum latency
+     * @param p50 the median latency
+     * @param p90 the 90th percentile latency
+     * @param p99 the 99th percentile latency
+     * @param p999 the 99.9th percentile latency
+     */
+    public TimerSnapshot(long count, long errors, int inFlight, double mean, long max, long p50, long p90, long p99,
+                         long p999) {
+        this.count = count;
+        this.errors = errors;
+        this.inFlight = inFlight;
+        this.mean = mean / NANOS_PER_MILLI;
+        this.max = max / NANOS_PER_MILLI;
+        this.p50 = p50 / NANOS_PER_MILLI;
+        this.p90 = p90 / NANOS_PER_MILLI;
+        this.p99 = p99 / NANOS_PER_MILLI;
+        this.p999 = p999 / NANOS_PER_MILLI;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public int getInFlight() {
+        return inFlight;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+}
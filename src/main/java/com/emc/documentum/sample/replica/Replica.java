@@ -0,0 +1,123 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.repositories.ContactRepositoryCustom;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A read-only copy of the contacts, with the health and lag last observed by the {@link ReplicaRouter}.
+ *
+ * A replica starts out of rotation, so no read goes to it before a check has found it reachable and measured its
+ * lag. It is taken out of rotation when a read on it fails or a check finds it unreachable, and put back by the next
+ * check that reaches it.
+ */
+public class Replica {
+
+    private final String name;
+
+    private final ContactRepositoryCustom reader;
+
+    private final Closeable resources;
+
+    private volatile boolean healthy;
+
+    private volatile long lagMillis;
+
+    private final AtomicLong reads = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param name the replica name
+     * @param reader the contact queries on the replica
+     * @param resources released when the router is closed, may be null
+     */
+    public Replica(String name, ContactRepositoryCustom reader, Closeable resources) {
+        this.name = name;
+        this.reader = reader;
+        this.resources = resources;
+    }
+
+    /**
+     * Replica name
+     *
+     * @return the replica name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Contact queries on the replica
+     *
+     * @return the replica reader
+     */
+    public ContactRepositoryCustom getReader() {
+        return reader;
+    }
+
+    /**
+     * Whether the replica was reachable when last used or checked
+     *
+     * @return true if the replica is healthy
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * How far the replica was behind the primary when last checked
+     *
+     * @return the lag in milliseconds
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * Number of reads routed to the replica
+     *
+     * @return the read count
+     */
+    public long getReads() {
+        return reads.get();
+    }
+
+    /**
+     * Number of reads and checks that failed on the replica
+     *
+     * @return the failure count
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    void read() {
+        reads.incrementAndGet();
+    }
+
+    void failed() {
+        failures.incrementAndGet();
+        healthy = false;
+    }
+
+    void checked(long lagMillis) {
+        this.lagMillis = lagMillis;
+        this.healthy = true;
+    }
+
+    void close() throws IOException {
+        if (resources != null) {
+            resources.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,48 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.ClientKeys;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Binds the client of each HTTP request to the request thread, for read-after-write stickiness and so the reads of
+ * a request all go to the same place, clients told apart by {@link ClientKeys}
+ */
+public class ReplicaClientFilter implements Filter {
+
+    private final ReplicaRouter router;
+
+    /**
+     * Constructor
+     *
+     * @param router the router to bind clients on
+     */
+    public ReplicaClientFilter(ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain) throws IOException, ServletException {
+
+        router.bindClient(ClientKeys.of((HttpServletRequest) req));
+
+        try {
+            chain.doFilter(req, res);
+        } finally {
+            router.unbindClient();
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {}
+
+    @Override
+    public void destroy() {}
+}
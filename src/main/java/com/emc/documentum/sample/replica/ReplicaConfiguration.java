@@ -0,0 +1,139 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.DqlTemplate;
+import com.emc.documentum.sample.dfc.PooledSessionSource;
+import com.emc.documentum.sample.dfc.SessionManagerSessionSource;
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.repositories.ContactRepositoryImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica configuration, enabled by listing the replicas in <code>repository.replica.docbases</code> and not
+ * used with the <code>offline</code> profile active.
+ *
+ * Each replica is named as DFC addresses a particular content server, <code>docbase.server</code>, and its
+ * docbroker must be listed in <code>dfc.properties</code> next to the primary's. The replica sessions are pooled
+ * apart from the primary's and are not beans, the repository takes the primary session source by type.
+ */
+@Configuration
+@Profile("!offline")
+@ConditionalOnProperty(prefix = "repository.replica", name = "docbases")
+public class ReplicaConfiguration {
+
+    @Value("${repository.replica.docbases}")
+    private String docbases;
+
+    @Value("${repository.replica.username:${repository.username}}")
+    private String username;
+
+    @Value("${repository.replica.password:${repository.password}}")
+    private String password;
+
+    @Value("${repository.replica.session-pool.max-size:16}")
+    private int poolMaxSize;
+
+    @Value("${repository.replica.max-lag-seconds:30}")
+    private long maxLagSeconds;
+
+    @Value("${repository.replica.sticky-seconds:5}")
+    private long stickySeconds;
+
+    @Value("${repository.replica.check-interval-seconds:10}")
+    private long checkIntervalSeconds;
+
+    @Value("${repository.session-pool.max-wait-millis:5000}")
+    private long poolMaxWaitMillis;
+
+    @Value("${repository.session-pool.idle-timeout-seconds:300}")
+    private long poolIdleTimeoutSeconds;
+
+    @Value("${repository.session-pool.leak-threshold-seconds:60}")
+    private long poolLeakThresholdSeconds;
+
+    @Value("${repository.session-pool.leak-stack-traces:false}")
+    private boolean poolLeakStackTraces;
+
+    @Value("${repository.session-pool.maintenance-interval-seconds:30}")
+    private long poolMaintenanceIntervalSeconds;
+
+    @Value("${contact.query.fetch-size:200}")
+    private int fetchSize;
+
+    /**
+     * Replica router bean, checking the replicas every <code>repository.replica.check-interval-seconds</code>
+     *
+     * @param primarySessionSource the primary session source
+     * @param primaryDqlTemplate the primary DQL template
+     * @return the replica router
+     */
+    @Bean
+    public ReplicaRouter replicaRouter(DocbaseSessionSource primarySessionSource, DqlTemplate primaryDqlTemplate) {
+
+        List<Replica> replicas = new ArrayList<Replica>();
+
+        for (String docbase : StringUtils.commaDelimitedListToStringArray(docbases)) {
+
+            final PooledSessionSource pool = new PooledSessionSource(
+                    new SessionManagerSessionSource(docbase.trim(), username, password), 0, poolMaxSize,
+                    poolMaxWaitMillis, poolIdleTimeoutSeconds * 1000, poolLeakThresholdSeconds * 1000);
+            pool.setLeakStackTraces(poolLeakStackTraces);
+            pool.start(poolMaintenanceIntervalSeconds * 1000, false);
+
+            replicas.add(new Replica(docbase.trim(),
+                    new ContactRepositoryImpl(pool, new DqlTemplate(pool), fetchSize), new Closeable() {
+                @Override
+                public void close() {
+                    pool.close();
+                }
+            }));
+        }
+
+        ReplicaRouter router = new ReplicaRouter(
+                new ContactRepositoryImpl(primarySessionSource, primaryDqlTemplate, fetchSize), replicas,
+                maxLagSeconds * 1000, stickySeconds * 1000);
+        router.start(checkIntervalSeconds * 1000);
+
+        return router;
+    }
+
+    /**
+     * Replica routing repository interceptor bean
+     *
+     * @param router the replica router
+     * @param metricsRegistry the metrics registry
+     * @return the replica routing interceptor
+     */
+    @Bean
+    public ReplicaRoutingInterceptor replicaRoutingInterceptor(ReplicaRouter router, MetricsRegistry metricsRegistry) {
+        return new ReplicaRoutingInterceptor(router, metricsRegistry);
+    }
+
+    /**
+     * Replica client filter registration bean, binding every request for read-after-write stickiness and for keeping
+     * its reads on one replica
+     *
+     * @param router the replica router
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean replicaClientFilter(ReplicaRouter router) {
+
+        FilterRegistrationBean registration = new FilterRegistrationBean(new ReplicaClientFilter(router));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        registration.setAsyncSupported(true);
+
+        return registration;
+    }
+}
@@ -0,0 +1,415 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.repositories.ContactRepositoryCustom;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides where contact reads go: to a healthy replica close enough behind the primary, taking turns between the
+ * replicas, or to the primary.
+ *
+ * A background check compares every replica's collection version with the primary's, the lag being how much older
+ * the last change seen by the replica is than the last change on the primary. A replica with another version but
+ * no older last change, as after a delete, is taken to be as far behind as can be. Replicas further behind than the
+ * maximum lag are skipped until they catch up, and a replica is not read from before its first check.
+ *
+ * With read-after-write stickiness, reads of a client that wrote within the sticky window go to the primary, so the
+ * client sees its own writes. Clients are bound to the current thread, by {@link ReplicaClientFilter} for HTTP
+ * requests, reads and writes on other threads are not attributed to any client.
+ *
+ * The reads of a request bound to a thread all go where its first read went, so a body is never older than the
+ * entity tag or the other reads it was computed with. A request leaves its replica for the primary when the replica
+ * fails or falls behind, when it writes, or when it read something from the primary itself, never for another
+ * replica.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ReplicaRouter", description = "Read replica routing")
+public class ReplicaRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private final ContactRepositoryCustom primary;
+
+    private final List<Replica> replicas;
+
+    private final long maxLagMillis;
+
+    private final long stickyNanos;
+
+    private final ThreadLocal<String> client = new ThreadLocal<String>();
+
+    private final ThreadLocal<Pin> pin = new ThreadLocal<Pin>();
+
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+
+    private final AtomicLong stickyReads = new AtomicLong();
+
+    private final AtomicLong unavailableReads = new AtomicLong();
+
+    private final AtomicLong failovers = new AtomicLong();
+
+    private final AtomicLong pinnedReads = new AtomicLong();
+
+    private ScheduledExecutorService checker;
+
+    /**
+     * Constructor
+     *
+     * @param primary the contact queries on the primary, for the lag checks
+     * @param replicas the replicas
+     * @param maxLagMillis the lag above which a replica is not read from
+     * @param stickyMillis how long the reads of a client that wrote go to the primary, 0 for no stickiness
+     */
+    public ReplicaRouter(ContactRepositoryCustom primary, List<Replica> replicas, long maxLagMillis,
+                         long stickyMillis) {
+        this.primary = primary;
+        this.replicas = new ArrayList<Replica>(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+    }
+
+    /**
+     * Start checking the replicas in the background, straight away and then at the given interval
+     *
+     * @param checkIntervalMillis interval between checks
+     */
+    public void start(long checkIntervalMillis) {
+
+        checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "replica-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        checker.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    check();
+                } catch (RuntimeException e) {
+                    logger.warn("Replica check failed", e);
+                }
+            }
+        }, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop checking and release the replicas
+     */
+    public void close() {
+
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+
+        for (Replica replica : replicas) {
+            try {
+                replica.close();
+            } catch (IOException e) {
+                logger.warn("Unable to close replica {}", replica, e);
+            }
+        }
+    }
+
+    /**
+     * Check the health and lag of every replica, and forget writes older than the sticky window
+     */
+    public void check() {
+
+        ContactVersion primaryVersion = primary.findCollectionVersion();
+
+        for (Replica replica : replicas) {
+            try {
+                replica.checked(lag(primaryVersion, replica.getReader().findCollectionVersion()));
+            } catch (RuntimeException e) {
+                if (replica.isHealthy() || replica.getFailures() == 0) {
+                    logger.warn("Replica {} is unreachable, reading from the other replicas or the primary", replica, e);
+                }
+                replica.failed();
+            }
+        }
+
+        long now = System.nanoTime();
+        for (Iterator<Long> writes = lastWrites.values().iterator(); writes.hasNext(); ) {
+            if (now - writes.next() >= stickyNanos) {
+                writes.remove();
+            }
+        }
+    }
+
+    /**
+     * Pick the replica the next read goes to
+     *
+     * @return the replica, or null if the read should go to the primary
+     */
+    public Replica route() {
+
+        Pin current = pin.get();
+
+        if (current != null && current.routed) {
+            return pinned(current);
+        }
+
+        Replica replica = pick();
+
+        if (current != null) {
+            current.routed = true;
+            current.replica = replica;
+        }
+
+        return replica;
+    }
+
+    /**
+     * Take a replica out of rotation after a read on it failed, until the next check reaches it
+     *
+     * @param replica the replica
+     * @param e the failure
+     */
+    public void failed(Replica replica, RuntimeException e) {
+
+        failovers.incrementAndGet();
+
+        if (replica.isHealthy()) {
+            logger.warn("Read on replica {} failed, reading from the other replicas or the primary", replica, e);
+        }
+
+        replica.failed();
+
+        Pin current = pin.get();
+        if (current != null && current.replica == replica) {
+            current.replica = null;
+        }
+    }
+
+    /**
+     * Record a write by the client bound to the current thread, if any, the rest of its request reading from the
+     * primary
+     */
+    public void written() {
+
+        String current = client.get();
+
+        if (current != null && stickyNanos > 0) {
+            lastWrites.put(current, System.nanoTime());
+        }
+
+        readFromPrimary();
+    }
+
+    /**
+     * Send the remaining reads of the request bound to the current thread to the primary, as it read something there
+     * that an older replica must not contradict, such as the entity tag it answers with
+     */
+    public void readFromPrimary() {
+
+        Pin current = pin.get();
+
+        if (current != null) {
+            current.routed = true;
+            current.replica = null;
+        }
+    }
+
+    /**
+     * Bind a client to the current thread, starting a request whose reads all go to the same place
+     *
+     * @param clientKey the client key, null for none
+     */
+    public void bindClient(String clientKey) {
+        client.set(clientKey);
+        pin.set(new Pin());
+    }
+
+    /**
+     * Unbind the client from the current thread, ending its request
+     */
+    public void unbindClient() {
+        client.remove();
+        pin.remove();
+    }
+
+    /**
+     * Whether the reads of the client bound to the current thread go to the primary, as it wrote recently
+     *
+     * @return true if the client's reads are sticky
+     */
+    public boolean isSticky() {
+
+        String current = client.get();
+
+        if (current == null || stickyNanos == 0) {
+            return false;
+        }
+
+        Long lastWrite = lastWrites.get(current);
+
+        return lastWrite != null && System.nanoTime() - lastWrite < stickyNanos;
+    }
+
+    /**
+     * Get the replicas
+     *
+     * @return the replicas
+     */
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    @ManagedAttribute(description = "Number of reads routed to a replica")
+    public long getReplicaReads() {
+        return replicaReads.get();
+    }
+
+    @ManagedAttribute(description = "Number of reads routed to the primary after a write by the same client")
+    public long getStickyReads() {
+        return stickyReads.get();
+    }
+
+    @ManagedAttribute(description = "Number of reads routed to the primary as no replica was healthy and up to date")
+    public long getUnavailableReads() {
+        return unavailableReads.get();
+    }
+
+    @ManagedAttribute(description = "Number of reads that failed on a replica and were retried elsewhere")
+    public long getFailovers() {
+        return failovers.get();
+    }
+
+    @ManagedAttribute(description = "Number of reads routed to the primary to stay on the source of their request")
+    public long getPinnedReads() {
+        return pinnedReads.get();
+    }
+
+    @ManagedAttribute(description = "Number of clients currently reading from the primary after a write")
+    public int getStickyClients() {
+        return lastWrites.size();
+    }
+
+    @ManagedAttribute(description = "Replica lag at the last check by replica, in milliseconds")
+    public Map<String, Long> getReplicaLagMillis() {
+
+        Map<String, Long> lags = new LinkedHashMap<String, Long>();
+        for (Replica replica : replicas) {
+            lags.put(replica.getName(), replica.getLagMillis());
+        }
+
+        return lags;
+    }
+
+    @ManagedAttribute(description = "Replica health by replica")
+    public Map<String, Boolean> getReplicaHealth() {
+
+        Map<String, Boolean> health = new LinkedHashMap<String, Boolean>();
+        for (Replica replica : replicas) {
+            health.put(replica.getName(), replica.isHealthy());
+        }
+
+        return health;
+    }
+
+    /*
+     * the primary after a write, otherwise the next healthy replica close enough behind
+     */
+    private Replica pick() {
+
+        if (isSticky()) {
+            stickyReads.incrementAndGet();
+            return null;
+        }
+
+        int start = next.getAndIncrement() & Integer.MAX_VALUE;
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (isUsable(replica)) {
+                replica.read();
+                replicaReads.incrementAndGet();
+                return replica;
+            }
+        }
+
+        unavailableReads.incrementAndGet();
+        return null;
+    }
+
+    /*
+     * the primary is never behind what the request read so far, another replica may be
+     */
+    private Replica pinned(Pin current) {
+
+        if (current.replica != null && isUsable(current.replica)) {
+            current.replica.read();
+            replicaReads.incrementAndGet();
+            return current.replica;
+        }
+
+        current.replica = null;
+        if (isSticky()) {
+            stickyReads.incrementAndGet();
+        } else {
+            pinnedReads.incrementAndGet();
+        }
+        return null;
+    }
+
+    private boolean isUsable(Replica replica) {
+        return replica.isHealthy() && replica.getLagMillis() <= maxLagMillis;
+    }
+
+    /*
+     * the same version is no lag, another version as far behind as can be unless its last change is older than the
+     * primary's, a delete or a change within the same second leaves the modification dates equal
+     */
+    private static long lag(ContactVersion primaryVersion, ContactVersion replicaVersion) {
+
+        if (primaryVersion == null || replicaVersion == null) {
+            return primaryVersion == replicaVersion ? 0 : Long.MAX_VALUE;
+        }
+
+        if (primaryVersion.getTag().equals(replicaVersion.getTag())) {
+            return 0;
+        }
+
+        if (primaryVersion.getLastModified() == null || replicaVersion.getLastModified() == null) {
+            return Long.MAX_VALUE;
+        }
+
+        long lag = primaryVersion.getLastModified().getTime() - replicaVersion.getLastModified().getTime();
+
+        return lag > 0 ? lag : Long.MAX_VALUE;
+    }
+
+    /*
+     * where the reads of the request bound to a thread go, the primary once routed with no replica
+     */
+    private static class Pin {
+
+        private boolean routed;
+
+        private Replica replica;
+    }
+}
@@ -0,0 +1,171 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.metrics.Timer;
+import com.emc.documentum.sample.repositories.ContactRepositoryCustom;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.dao.DataAccessException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read/write splitting around the contact repository.
+ *
+ * Queries go to the replica picked by the {@link ReplicaRouter}, everything else goes on to the primary. A query
+ * that fails on a replica with a data access exception is retried on the next replica and finally on the primary.
+ * Writes are recorded for read-after-write stickiness. Reads of content, counts and versions always go to the
+ * primary.
+ *
+ * Runs inside the write-behind buffer, the cache and the name index, so reads they answer never reach a replica.
+ * Saves held by the write-behind buffer are recorded for stickiness when the buffer writes them, on its own thread
+ * and so for no client, their client reads them back from the buffer until then.
+ *
+ * Every routed read is timed as <code>replica[name]</code>, or <code>replica[primary]</code> when it goes to the
+ * primary.
+ */
+public class ReplicaRoutingInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = 400;
+
+    private static final Set<String> VERSIONS =
+            new HashSet<String>(Arrays.asList("findVersion", "findCollectionVersion"));
+
+    private final ReplicaRouter router;
+
+    private final MetricsRegistry registry;
+
+    private final Timer primaryReads;
+
+    /**
+     * Constructor
+     *
+     * @param router the replica router
+     * @param registry the registry of the replica read timers
+     */
+    public ReplicaRoutingInterceptor(ReplicaRouter router, MetricsRegistry registry) {
+        this.router = router;
+        this.registry = registry;
+        this.primaryReads = registry.timer("replica[primary]");
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        Method method = invocation.getMethod();
+
+        if (ContactRepositoryInterceptor.isWrite(method.getName())) {
+            try {
+                return invocation.proceed();
+            } finally {
+                router.written();
+            }
+        }
+
+        if (!isRead(method, invocation.getArguments())) {
+            return invocation.proceed();
+        }
+
+        for (Replica replica = router.route(); replica != null; replica = router.route()) {
+
+            Timer timer = registry.timer("replica[" + replica.getName() + "]");
+            long start = timer.start();
+            boolean success = false;
+
+            try {
+                Object result = read(replica.getReader(), method, invocation.getArguments());
+                success = true;
+                return result;
+            } catch (DataAccessException e) {
+                router.failed(replica, e);
+            } finally {
+                timer.stop(start, success);
+            }
+        }
+
+        long start = primaryReads.start();
+        boolean success = false;
+
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            return result;
+        } finally {
+            primaryReads.stop(start, success);
+        }
+    }
+
+    /*
+     * versions are validators for conditional requests and the yardstick of replica lag, they come from the primary
+     */
+    private static boolean isRead(Method method, Object[] arguments) {
+
+        String name = method.getName();
+
+        if (method.getDeclaringClass() == ContactRepositoryCustom.class) {
+            return (name.startsWith("find") && !VERSIONS.contains(name)) || "streamAll".equals(name);
+        }
+
+        return ("findOne".equals(name) && arguments.length == 1 && arguments[0] instanceof String)
+                || ("exists".equals(name) && arguments.length == 1 && arguments[0] instanceof String)
+                || ("findAll".equals(name) && arguments.length == 0)
+                || ("findAll".equals(name) && arguments.length == 1 && arguments[0] instanceof Iterable)
+                || ("findByNameContaining".equals(name) && arguments.length == 1);
+    }
+
+    /*
+     * the custom queries run as they are, the Spring Data ones are answered with custom queries
+     */
+    private static Object read(ContactRepositoryCustom reader, Method method, Object[] arguments) throws Throwable {
+
+        if (method.getDeclaringClass() == ContactRepositoryCustom.class) {
+            try {
+                return method.invoke(reader, arguments);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        String name = method.getName();
+
+        if ("findOne".equals(name)) {
+            List<Contact> found = reader.findAllById(Collections.singleton((String) arguments[0]));
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        if ("exists".equals(name)) {
+            return reader.findVersion((String) arguments[0]) != null;
+        }
+
+        if ("findAll".equals(name) && arguments.length == 0) {
+            try (Stream<Contact> contacts = reader.streamAll()) {
+                return contacts.collect(Collectors.toList());
+            }
+        }
+
+        if ("findAll".equals(name)) {
+            List<String> ids = new ArrayList<String>();
+            for (Object id : (Iterable<?>) arguments[0]) {
+                ids.add((String) id);
+            }
+            return reader.findAllById(ids);
+        }
+
+        return reader.findAllById(reader.findIdsByNameContaining((String) arguments[0]));
+    }
+}
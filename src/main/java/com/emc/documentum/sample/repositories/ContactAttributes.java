@@ -0,0 +1,90 @@
+package com.emc.documentum.sample.repositories;
+
+import com.documentum.fc.client.IDfPersistentObject;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.emc.documentum.sample.dfc.RowMapper;
+import com.emc.documentum.sample.domain.Contact;
+
+/**
+ * Docbase type and attribute names of {@link Contact} for code that reads or writes contact objects directly
+ * through DFC, kept in line with the mapping annotations on the domain object.
+ */
+public final class ContactAttributes {
+
+    public static final String TYPE = "contact";
+
+    public static final String ID = "r_object_id";
+
+    public static final String NAME = "object_name";
+
+    public static final String EMAIL = "email";
+
+    public static final String TELEPHONE = "telephone";
+
+    /**
+     * Attributes selected when hydrating a complete contact
+     */
+    public static final String SELECT_LIST = ID + ", " + NAME + ", " + EMAIL + ", " + TELEPHONE;
+
+    /**
+     * Maps query rows selecting {@link #SELECT_LIST} to contacts
+     */
+    public static final RowMapper<Contact> ROW_MAPPER = new RowMapper<Contact>() {
+        @Override
+        public Contact mapRow(IDfTypedObject row) throws DfException {
+            return read(row);
+        }
+    };
+
+    private ContactAttributes() {
+    }
+
+    /**
+     * Create a contact from a query result row or docbase object
+     *
+     * @param row the row holding the contact attributes
+     * @return the contact
+     * @throws DfException if an attribute could not be read
+     */
+    public static Contact read(IDfTypedObject row) throws DfException {
+
+        Contact contact = new Contact();
+        contact.setId(row.getString(ID));
+        contact.setName(row.getString(NAME));
+        contact.setEmail(row.getString(EMAIL));
+        contact.setTelephone(row.getString(TELEPHONE));
+
+        return contact;
+    }
+
+    /**
+     * Copy the contact attributes onto a docbase object
+     *
+     * @param contact the contact
+     * @param object the docbase object
+     * @throws DfException if an attribute could not be set
+     */
+    public static void write(Contact contact, IDfPersistentObject object) throws DfException {
+        object.setString(NAME, valueOf(contact.getName()));
+        object.setString(EMAIL, valueOf(contact.getEmail()));
+        object.setString(TELEPHONE, valueOf(contact.getTelephone()));
+    }
+
+    /**
+     * Quote a value for use as a DQL string literal
+     *
+     * @param value the value
+     * @return the quoted literal
+     */
+    public static String quote(String value) {
+        return "'" + valueOf(value).replace("'", "''") + "'";
+    }
+
+    /*
+     * DFC does not accept null strings, empty is its null value
+     */
+    private static String valueOf(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,24 @@
+package com.emc.documentum.sample.repositories;
+
+/**
+ * Published after the content of a contact was replaced
+ */
+public class ContactContentChangedEvent extends ContactRepositoryEvent {
+
+    private final String id;
+
+    /**
+     * Constructor
+     *
+     * @param source the repository the change went through
+     * @param id the id of the contact
+     */
+    public ContactContentChangedEvent(Object source, String id) {
+        super(source);
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,24 @@
+package com.emc.documentum.sample.repositories;
+
+/**
+ * Published after a contact was deleted
+ */
+public class ContactDeletedEvent extends ContactRepositoryEvent {
+
+    private final String id;
+
+    /**
+     * Constructor
+     *
+     * @param source the repository the change went through
+     * @param id the id of the deleted contact
+     */
+    public ContactDeletedEvent(Object source, String id) {
+        super(source);
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
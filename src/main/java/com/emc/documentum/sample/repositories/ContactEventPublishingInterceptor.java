@@ -0,0 +1,125 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publishes a {@link ContactRepositoryEvent} for every save, update, delete or content change that completed
+ * successfully. Bulk operations publish an event per contact they affected, deletes look up which of the contacts
+ * exist before deleting them so missing ids publish nothing.
+ *
+ * Runs innermost so events reflect what actually reached the repository.
+ */
+@Component
+public class ContactEventPublishingInterceptor implements ContactRepositoryInterceptor, ApplicationEventPublisherAware {
+
+    public static final int ORDER = 1000;
+
+    private ApplicationEventPublisher publisher;
+
+    @Override
+    public void setApplicationEventPublisher(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        String methodName = invocation.getMethod().getName();
+        Object[] arguments = invocation.getArguments();
+
+        // deletes do not report which contacts they matched, look up the ones that exist first
+        List<String> matchedIds = null;
+        if ("delete".equals(methodName) && arguments.length == 1) {
+            matchedIds = existingIds((ContactRepositoryCustom) invocation.getThis(), ids(arguments[0]));
+        } else if ("deleteByNameContaining".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            matchedIds = ((ContactRepositoryCustom) invocation.getThis()).findIdsByNameContaining((String) arguments[0]);
+        } else if ("deleteAllByIdIn".equals(methodName) && arguments.length == 1 && arguments[0] instanceof Collection) {
+            matchedIds = existingIds((ContactRepositoryCustom) invocation.getThis(), (Collection<String>) arguments[0]);
+        }
+
+        Object result = invocation.proceed();
+
+        if (("save".equals(methodName) || "saveAll".equals(methodName)) && arguments.length == 1) {
+            publishSaved(invocation.getThis(), result);
+        } else if ("updateAllByIdIn".equals(methodName) && arguments.length == 2 && arguments[0] instanceof Collection) {
+            // listeners are handed whole contacts, read back what the update left
+            publishSaved(invocation.getThis(),
+                    ((ContactRepositoryCustom) invocation.getThis()).findAllById((Collection<String>) arguments[0]));
+        } else if (matchedIds != null) {
+            publishDeleted(invocation.getThis(), matchedIds);
+        } else if ("deleteAll".equals(methodName) && arguments.length == 0) {
+            publisher.publishEvent(new ContactsClearedEvent(invocation.getThis()));
+        } else if ("setContent".equals(methodName) && arguments.length == 3 && arguments[0] instanceof Contact) {
+            publisher.publishEvent(new ContactContentChangedEvent(invocation.getThis(), ((Contact) arguments[0]).getId()));
+        }
+
+        return result;
+    }
+
+    private static List<String> existingIds(ContactRepositoryCustom repository, Collection<String> ids) {
+
+        if (ids.isEmpty()) {
+            return new ArrayList<String>();
+        }
+
+        List<String> existing = new ArrayList<String>(ids.size());
+        for (Contact contact : repository.findAllById(ids)) {
+            existing.add(contact.getId());
+        }
+
+        return existing;
+    }
+
+    /*
+     * ids of an id, a contact or an iterable of either, contacts never saved have none
+     */
+    private static List<String> ids(Object idsOrContacts) {
+
+        List<String> ids = new ArrayList<String>();
+
+        if (idsOrContacts instanceof String) {
+            ids.add((String) idsOrContacts);
+        } else if (idsOrContacts instanceof Contact) {
+            if (((Contact) idsOrContacts).getId() != null) {
+                ids.add(((Contact) idsOrContacts).getId());
+            }
+        } else if (idsOrContacts instanceof Iterable) {
+            for (Object idOrContact : (Iterable<?>) idsOrContacts) {
+                ids.addAll(ids(idOrContact));
+            }
+        }
+
+        return ids;
+    }
+
+    private void publishSaved(Object source, Object saved) {
+
+        if (saved instanceof Contact) {
+            publisher.publishEvent(new ContactSavedEvent(source, (Contact) saved));
+        } else if (saved instanceof Iterable) {
+            for (Object contact : (Iterable<?>) saved) {
+                publishSaved(source, contact);
+            }
+        }
+    }
+
+    private void publishDeleted(Object source, List<String> deletedIds) {
+        for (String id : deletedIds) {
+            publisher.publishEvent(new ContactDeletedEvent(source, id));
+        }
+    }
+}
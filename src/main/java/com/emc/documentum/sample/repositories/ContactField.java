@@ -0,0 +1,149 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Contact properties that can be fetched selectively, with the docbase attribute each is mapped to
+ */
+public enum ContactField {
+
+    ID("id", ContactAttributes.ID) {
+        @Override
+        public String get(Contact contact) {
+            return contact.getId();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            throw new IllegalArgumentException("The id of a contact cannot be changed");
+        }
+    },
+
+    NAME("name", ContactAttributes.NAME) {
+        @Override
+        public String get(Contact contact) {
+            return contact.getName();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setName(value);
+        }
+    },
+
+    EMAIL("email", ContactAttributes.EMAIL) {
+        @Override
+        public String get(Contact contact) {
+            return contact.getEmail();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setEmail(value);
+        }
+    },
+
+    TELEPHONE("telephone", ContactAttributes.TELEPHONE) {
+        @Override
+        public String get(Contact contact) {
+            return contact.getTelephone();
+        }
+
+        @Override
+        public void set(Contact contact, String value) {
+            contact.setTelephone(value);
+        }
+    };
+
+    private final String property;
+
+    private final String attribute;
+
+    ContactField(String property, String attribute) {
+        this.property = property;
+        this.attribute = attribute;
+    }
+
+    /**
+     * Read this field from a contact
+     *
+     * @param contact the contact
+     * @return the field value
+     */
+    public abstract String get(Contact contact);
+
+    /**
+     * Write this field to a contact
+     *
+     * @param contact the contact
+     * @param value the field value
+     * @throws IllegalArgumentException if the field cannot be changed
+     */
+    public abstract void set(Contact contact, String value);
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Get the field of a contact property
+     *
+     * @param property the property name
+     * @return the field
+     * @throws IllegalArgumentException if the property is not a contact field
+     */
+    public static ContactField forProperty(String property) {
+
+        for (ContactField field : values()) {
+            if (field.property.equals(property)) {
+                return field;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown contact field: " + property);
+    }
+
+    /**
+     * Parse a comma separated list of property names
+     *
+     * @param properties the property names
+     * @return the fields, empty for an empty list
+     * @throws IllegalArgumentException if a property is not a contact field
+     */
+    public static Set<ContactField> parse(String properties) {
+
+        Set<ContactField> fields = EnumSet.noneOf(ContactField.class);
+
+        for (String property : properties.split(",")) {
+            if (!property.trim().isEmpty()) {
+                fields.add(forProperty(property.trim()));
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * The given fields plus the id, which every partial contact carries, in declaration order
+     *
+     * @param fields the requested fields
+     * @return the fields to fetch
+     */
+    public static List<ContactField> withId(Collection<ContactField> fields) {
+
+        Set<ContactField> selected = EnumSet.of(ID);
+        selected.addAll(fields);
+
+        return new ArrayList<ContactField>(selected);
+    }
+}
@@ -0,0 +1,95 @@
+package com.emc.documentum.sample.repositories;
+
+import java.beans.Introspector;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interface based projections of contacts, in the style of Spring Data projections.
+ *
+ * A projection is an interface whose getters are named after contact properties, e.g.
+ * <code>interface ContactName { String getName(); }</code>. Only the properties it declares are fetched and its
+ * instances are backed by the fetched values.
+ */
+final class ContactProjections {
+
+    private static final ConcurrentMap<Class<?>, Set<ContactField>> FIELDS =
+            new ConcurrentHashMap<Class<?>, Set<ContactField>>();
+
+    private ContactProjections() {
+    }
+
+    /**
+     * Fields read by the getters of a projection interface
+     *
+     * @param projection the projection interface
+     * @return the fields
+     * @throws IllegalArgumentException if the projection is not an interface or a getter is not a contact property
+     */
+    static Set<ContactField> fieldsOf(Class<?> projection) {
+
+        Set<ContactField> fields = FIELDS.get(projection);
+
+        if (fields == null) {
+
+            if (!projection.isInterface()) {
+                throw new IllegalArgumentException("Projection must be an interface: " + projection.getName());
+            }
+
+            fields = EnumSet.noneOf(ContactField.class);
+            for (Method method : projection.getMethods()) {
+                fields.add(ContactField.forProperty(property(method)));
+            }
+
+            FIELDS.putIfAbsent(projection, fields);
+        }
+
+        return fields;
+    }
+
+    /**
+     * Create a projection instance backed by fetched values
+     *
+     * @param projection the projection interface
+     * @param values the fetched values by property name
+     * @param <T> the projection type
+     * @return the projection instance
+     */
+    static <T> T create(Class<T> projection, final Map<String, String> values) {
+
+        return projection.cast(Proxy.newProxyInstance(projection.getClassLoader(), new Class<?>[]{projection},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+
+                        if (method.getDeclaringClass() == Object.class) {
+                            if ("equals".equals(method.getName())) {
+                                return proxy == args[0];
+                            } else if ("hashCode".equals(method.getName())) {
+                                return System.identityHashCode(proxy);
+                            }
+                            return values.toString();
+                        }
+
+                        return values.get(property(method));
+                    }
+                }));
+    }
+
+    private static String property(Method method) {
+
+        String name = method.getName();
+
+        if (method.getParameterTypes().length == 0 && name.startsWith("get") && name.length() > 3) {
+            return Introspector.decapitalize(name.substring(3));
+        }
+
+        throw new IllegalArgumentException("Projection methods must be getters: " + method);
+    }
+}
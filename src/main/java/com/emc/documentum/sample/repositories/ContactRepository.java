@@ -9,7 +9,7 @@ import com.emc.documentum.springdata.repository.Query;
  *
  * @author Simon O'Brien
  */
-public interface ContactRepository extends DctmRepositoryWithContent<Contact, String> {
+public interface ContactRepository extends DctmRepositoryWithContent<Contact, String>, ContactRepositoryCustom {
 
     public Iterable<Contact> findAll();
 
@@ -0,0 +1,132 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Contact repository operations implemented directly against DFC rather than derived by Spring Data
+ */
+public interface ContactRepositoryCustom {
+
+    /**
+     * Save a batch of contacts using a single docbase session and transaction
+     *
+     * @param contacts the contacts to create or update
+     * @return the saved contacts, in the same order, with their ids set
+     */
+    List<Contact> saveAll(Collection<Contact> contacts);
+
+    /**
+     * Find the contacts with the given ids, missing ids are skipped
+     *
+     * @param ids the contact ids
+     * @return the contacts found, in no particular order
+     */
+    List<Contact> findAllById(Collection<String> ids);
+
+    /**
+     * Find a slice of contacts ordered by id, seeking past the last id of the previous slice rather than counting
+     * an offset, so every slice costs the same however deep into the contacts it is.
+     *
+     * Only the page size of the pageable is used, contacts are always ordered by id.
+     *
+     * @param afterId the last id of the previous slice, null for the first slice
+     * @param pageable the slice size
+     * @return the slice of contacts with ids greater than <code>afterId</code>
+     */
+    Slice<Contact> findAllAfter(String afterId, Pageable pageable);
+
+    /**
+     * Stream all contacts ordered by id, fetching them from the docbase a batch at a time as the stream is
+     * consumed. The stream holds a docbase session until it is closed.
+     *
+     * @return the stream of contacts, to be closed by the caller
+     */
+    Stream<Contact> streamAll();
+
+    /**
+     * Find all contacts reading only some of their fields, the id is always read
+     *
+     * @param fields the fields to read
+     * @return the field values of each contact by property name
+     */
+    List<Map<String, String>> findAllFields(Set<ContactField> fields);
+
+    /**
+     * Find a slice of contacts ordered by id reading only some of their fields, seeking past the last id of the
+     * previous slice like {@link #findAllAfter(String, Pageable)}. The id is always read.
+     *
+     * @param fields the fields to read
+     * @param afterId the last id of the previous slice, null for the first slice
+     * @param pageable the slice size
+     * @return the field values by property name of the contacts with ids greater than <code>afterId</code>
+     */
+    Slice<Map<String, String>> findFieldsAfter(Set<ContactField> fields, String afterId, Pageable pageable);
+
+    /**
+     * Find all contacts as instances of a projection interface, reading only the fields its getters declare
+     *
+     * @param projection the projection interface, with getters named after contact properties
+     * @param <T> the projection type
+     * @return the projected contacts
+     */
+    <T> List<T> findAllProjected(Class<T> projection);
+
+    /**
+     * Read the version of a contact, tagged from its fields as {@link ContactVersion#of} does, with its modification
+     * date
+     *
+     * @param id the contact id
+     * @return the version, null if there is no such contact or its stored state is not known yet
+     */
+    ContactVersion findVersion(String id);
+
+    /**
+     * Read a version of the whole set of contacts, which changes whenever a contact is created, updated or deleted
+     *
+     * @return the version, null if the stored state is not known yet
+     */
+    ContactVersion findCollectionVersion();
+
+    /**
+     * Find the ids of the contacts whose name contains a value, without reading the contacts themselves
+     *
+     * @param value the value to look for in the names
+     * @return the ids of the matching contacts
+     */
+    List<String> findIdsByNameContaining(String value);
+
+    /**
+     * Delete the contacts with the given ids on the server, a batch of ids per statement rather than an object at
+     * a time. Missing ids are skipped.
+     *
+     * @param ids the contact ids
+     * @return the number of contacts deleted
+     */
+    int deleteAllByIdIn(Collection<String> ids);
+
+    /**
+     * Delete the contacts whose name contains a value with a single statement on the server
+     *
+     * @param value the value to look for in the names, not empty
+     * @return the number of contacts deleted
+     */
+    int deleteByNameContaining(String value);
+
+    /**
+     * Set fields of the contacts with the given ids to the same values on the server, a batch of ids per statement.
+     * Missing ids are skipped.
+     *
+     * @param ids the contact ids
+     * @param values the new values by field, the id cannot be updated
+     * @return the number of contacts updated
+     */
+    int updateAllByIdIn(Collection<String> ids, Map<ContactField, String> values);
+}
@@ -0,0 +1,19 @@
+package com.emc.documentum.sample.repositories;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Base class of the events published after a {@link ContactRepository} change went through, whether it came in
+ * through Spring Data REST or from application code
+ */
+public abstract class ContactRepositoryEvent extends ApplicationEvent {
+
+    /**
+     * Constructor
+     *
+     * @param source the repository the change went through
+     */
+    protected ContactRepositoryEvent(Object source) {
+        super(source);
+    }
+}
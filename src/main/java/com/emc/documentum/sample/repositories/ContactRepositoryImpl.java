@@ -0,0 +1,383 @@
+package com.emc.documentum.sample.repositories;
+
+import com.documentum.fc.client.IDfPersistentObject;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.client.IDfTypedObject;
+import com.documentum.fc.common.DfException;
+import com.documentum.fc.common.DfId;
+import com.documentum.fc.common.IDfTime;
+import com.emc.documentum.sample.dfc.DocbaseAccessException;
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.DqlTemplate;
+import com.emc.documentum.sample.dfc.RowMapper;
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * DFC implementation of the custom contact repository operations, picked up by Spring Data through the
+ * <code>Impl</code> naming convention
+ */
+public class ContactRepositoryImpl implements ContactRepositoryCustom {
+
+    /*
+     * ids per IN list, keeps the statements well inside the DQL length limits
+     */
+    private static final int IN_LIST_SIZE = 250;
+
+    private static final String SELECT_CONTACTS = "SELECT " + ContactAttributes.SELECT_LIST
+            + " FROM " + ContactAttributes.TYPE;
+
+    private static final String DELETE_CONTACTS = "DELETE " + ContactAttributes.TYPE + " OBJECTS";
+
+    private static final String OBJECTS_DELETED = "objects_deleted";
+
+    private static final String OBJECTS_UPDATED = "objects_updated";
+
+    private static final String VERSION = "i_vstamp";
+
+    private static final String MODIFY_DATE = "r_modify_date";
+
+    private static final String LIKE_ESCAPE = "\\";
+
+    private final DocbaseSessionSource sessionSource;
+
+    private final DqlTemplate dqlTemplate;
+
+    private final int fetchSize;
+
+    /**
+     * Constructor
+     *
+     * @param sessionSource source of docbase sessions
+     * @param dqlTemplate template for DQL queries
+     * @param fetchSize number of rows fetched from the docbase at a time when streaming
+     */
+    @Autowired
+    public ContactRepositoryImpl(DocbaseSessionSource sessionSource, DqlTemplate dqlTemplate,
+                                 @Value("${contact.query.fetch-size:200}") int fetchSize) {
+        this.sessionSource = sessionSource;
+        this.dqlTemplate = dqlTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public List<Contact> saveAll(Collection<Contact> contacts) {
+
+        List<Contact> savedContacts = new ArrayList<Contact>(contacts.size());
+
+        if (contacts.isEmpty()) {
+            return savedContacts;
+        }
+
+        IDfSession session = null;
+        boolean transactionStarted = false;
+
+        try {
+
+            session = sessionSource.getSession();
+
+            // join an enclosing transaction rather than committing it early
+            if (!session.isTransactionActive()) {
+                session.beginTrans();
+                transactionStarted = true;
+            }
+
+            for (Contact contact : contacts) {
+
+                IDfPersistentObject object = contact.getId() == null
+                        ? session.newObject(ContactAttributes.TYPE)
+                        : session.getObject(new DfId(contact.getId()));
+
+                ContactAttributes.write(contact, object);
+                object.save();
+
+                savedContacts.add(ContactAttributes.read(object));
+            }
+
+            if (transactionStarted) {
+                session.commitTrans();
+                transactionStarted = false;
+            }
+
+            return savedContacts;
+
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to save batch of " + contacts.size() + " contacts", e);
+        } finally {
+            abortQuietly(session, transactionStarted);
+            sessionSource.release(session);
+        }
+    }
+
+    @Override
+    public List<Contact> findAllById(Collection<String> ids) {
+
+        List<Contact> contacts = new ArrayList<Contact>(ids.size());
+        List<String> idList = new ArrayList<String>(ids);
+
+        for (int from = 0; from < idList.size(); from += IN_LIST_SIZE) {
+            String dql = SELECT_CONTACTS + " WHERE " + inList(idList.subList(from, Math.min(from + IN_LIST_SIZE, idList.size())));
+            contacts.addAll(dqlTemplate.query(dql, ContactAttributes.ROW_MAPPER));
+        }
+
+        return contacts;
+    }
+
+    @Override
+    public Slice<Contact> findAllAfter(String afterId, Pageable pageable) {
+
+        int size = pageable.getPageSize();
+
+        StringBuilder dql = new StringBuilder(SELECT_CONTACTS);
+        if (afterId != null) {
+            dql.append(" WHERE ").append(ContactAttributes.ID).append(" > ").append(ContactAttributes.quote(afterId));
+        }
+
+        // one row more than asked for tells whether another slice follows
+        dql.append(" ORDER BY ").append(ContactAttributes.ID).append(" ENABLE (RETURN_TOP ").append(size + 1).append(")");
+
+        List<Contact> contacts = dqlTemplate.query(dql.toString(), ContactAttributes.ROW_MAPPER);
+
+        boolean hasNext = contacts.size() > size;
+        if (hasNext) {
+            contacts = contacts.subList(0, size);
+        }
+
+        return new SliceImpl<Contact>(contacts, pageable, hasNext);
+    }
+
+    @Override
+    public Stream<Contact> streamAll() {
+        return dqlTemplate.stream(SELECT_CONTACTS + " ORDER BY " + ContactAttributes.ID, fetchSize,
+                ContactAttributes.ROW_MAPPER);
+    }
+
+    @Override
+    public List<Map<String, String>> findAllFields(Set<ContactField> fields) {
+
+        List<ContactField> selected = ContactField.withId(fields);
+
+        return dqlTemplate.query(selectFields(selected).toString(), fieldsMapper(selected));
+    }
+
+    @Override
+    public Slice<Map<String, String>> findFieldsAfter(Set<ContactField> fields, String afterId, Pageable pageable) {
+
+        int size = pageable.getPageSize();
+        List<ContactField> selected = ContactField.withId(fields);
+
+        StringBuilder dql = selectFields(selected);
+        if (afterId != null) {
+            dql.append(" WHERE ").append(ContactAttributes.ID).append(" > ").append(ContactAttributes.quote(afterId));
+        }
+        dql.append(" ORDER BY ").append(ContactAttributes.ID).append(" ENABLE (RETURN_TOP ").append(size + 1).append(")");
+
+        List<Map<String, String>> rows = dqlTemplate.query(dql.toString(), fieldsMapper(selected));
+
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+
+        return new SliceImpl<Map<String, String>>(rows, pageable, hasNext);
+    }
+
+    @Override
+    public <T> List<T> findAllProjected(Class<T> projection) {
+
+        List<Map<String, String>> rows = findAllFields(ContactProjections.fieldsOf(projection));
+
+        List<T> projected = new ArrayList<T>(rows.size());
+        for (Map<String, String> row : rows) {
+            projected.add(ContactProjections.create(projection, row));
+        }
+
+        return projected;
+    }
+
+    @Override
+    public ContactVersion findVersion(String id) {
+
+        String dql = "SELECT " + ContactAttributes.SELECT_LIST + ", " + MODIFY_DATE + " FROM " + ContactAttributes.TYPE
+                + " WHERE " + ContactAttributes.ID + " = " + ContactAttributes.quote(id);
+
+        // tagged from the fields rather than the version stamp, like contacts read from anywhere else
+        List<ContactVersion> versions = dqlTemplate.query(dql, new RowMapper<ContactVersion>() {
+            @Override
+            public ContactVersion mapRow(IDfTypedObject row) throws DfException {
+                return ContactVersion.of(ContactAttributes.read(row), date(row.getTime(MODIFY_DATE)));
+            }
+        });
+
+        return versions.isEmpty() ? null : versions.get(0);
+    }
+
+    @Override
+    public ContactVersion findCollectionVersion() {
+
+        // the count catches deletes, the stamp sum updates within the second the modify date is kept to
+        String dql = "SELECT COUNT(*) AS contact_count, SUM(" + VERSION + ") AS version_sum, MAX(" + MODIFY_DATE
+                + ") AS last_modified FROM " + ContactAttributes.TYPE;
+
+        return dqlTemplate.query(dql, new RowMapper<ContactVersion>() {
+            @Override
+            public ContactVersion mapRow(IDfTypedObject row) throws DfException {
+
+                Date lastModified = date(row.getTime("last_modified"));
+                String tag = row.getInt("contact_count") + "." + (long) row.getDouble("version_sum") + "."
+                        + (lastModified == null ? 0 : lastModified.getTime() / 1000);
+
+                return new ContactVersion(tag, lastModified);
+            }
+        }).get(0);
+    }
+
+    @Override
+    public List<String> findIdsByNameContaining(String value) {
+
+        String dql = "SELECT " + ContactAttributes.ID + " FROM " + ContactAttributes.TYPE
+                + " WHERE " + nameContaining(value);
+
+        return dqlTemplate.query(dql, new RowMapper<String>() {
+            @Override
+            public String mapRow(IDfTypedObject row) throws DfException {
+                return row.getString(ContactAttributes.ID);
+            }
+        });
+    }
+
+    @Override
+    public int deleteAllByIdIn(Collection<String> ids) {
+
+        List<String> idList = new ArrayList<String>(ids);
+        int deleted = 0;
+
+        for (int from = 0; from < idList.size(); from += IN_LIST_SIZE) {
+            String dql = DELETE_CONTACTS + " WHERE " + inList(idList.subList(from, Math.min(from + IN_LIST_SIZE, idList.size())));
+            deleted += dqlTemplate.update(dql, OBJECTS_DELETED);
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public int deleteByNameContaining(String value) {
+
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("A name value is required, an empty value would delete every contact");
+        }
+
+        return dqlTemplate.update(DELETE_CONTACTS + " WHERE " + nameContaining(value), OBJECTS_DELETED);
+    }
+
+    @Override
+    public int updateAllByIdIn(Collection<String> ids, Map<ContactField, String> values) {
+
+        if (values.isEmpty()) {
+            return 0;
+        }
+
+        if (values.containsKey(ContactField.ID)) {
+            throw new IllegalArgumentException("The id of a contact cannot be changed");
+        }
+
+        StringBuilder update = new StringBuilder("UPDATE ").append(ContactAttributes.TYPE).append(" OBJECTS");
+        String separator = " ";
+        for (Map.Entry<ContactField, String> value : values.entrySet()) {
+            update.append(separator).append("SET ").append(value.getKey().getAttribute())
+                    .append(" = ").append(ContactAttributes.quote(value.getValue()));
+            separator = ", ";
+        }
+
+        List<String> idList = new ArrayList<String>(ids);
+        int updated = 0;
+
+        for (int from = 0; from < idList.size(); from += IN_LIST_SIZE) {
+            String dql = update + " WHERE " + inList(idList.subList(from, Math.min(from + IN_LIST_SIZE, idList.size())));
+            updated += dqlTemplate.update(dql, OBJECTS_UPDATED);
+        }
+
+        return updated;
+    }
+
+    private static StringBuilder selectFields(List<ContactField> selected) {
+
+        StringBuilder dql = new StringBuilder("SELECT ");
+        for (int i = 0; i < selected.size(); i++) {
+            dql.append(i > 0 ? ", " : "").append(selected.get(i).getAttribute());
+        }
+
+        return dql.append(" FROM ").append(ContactAttributes.TYPE);
+    }
+
+    private static RowMapper<Map<String, String>> fieldsMapper(final List<ContactField> selected) {
+        return new RowMapper<Map<String, String>>() {
+            @Override
+            public Map<String, String> mapRow(IDfTypedObject row) throws DfException {
+
+                Map<String, String> values = new LinkedHashMap<String, String>(selected.size() * 2);
+                for (ContactField field : selected) {
+                    values.put(field.getProperty(), row.getString(field.getAttribute()));
+                }
+
+                return values;
+            }
+        };
+    }
+
+    /*
+     * LIKE condition matching names containing the value literally, wildcards in the value are escaped
+     */
+    private static String nameContaining(String value) {
+
+        String escaped = value.replace(LIKE_ESCAPE, LIKE_ESCAPE + LIKE_ESCAPE)
+                .replace("%", LIKE_ESCAPE + "%").replace("_", LIKE_ESCAPE + "_");
+
+        return ContactAttributes.NAME + " LIKE " + ContactAttributes.quote("%" + escaped + "%")
+                + " ESCAPE " + ContactAttributes.quote(LIKE_ESCAPE);
+    }
+
+    private static String inList(List<String> ids) {
+
+        StringBuilder condition = new StringBuilder(ContactAttributes.ID).append(" IN (");
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                condition.append(", ");
+            }
+            condition.append(ContactAttributes.quote(ids.get(i)));
+        }
+
+        return condition.append(")").toString();
+    }
+
+    private static Date date(IDfTime time) {
+        return time == null || time.isNullDate() ? null : time.getDate();
+    }
+
+    private static void abortQuietly(IDfSession session, boolean transactionStarted) {
+
+        if (session == null || !transactionStarted) {
+            return;
+        }
+
+        try {
+            session.abortTrans();
+        } catch (DfException e) {
+            // the original failure is the one worth reporting
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.emc.documentum.sample.repositories;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.core.Ordered;
+
+/**
+ * Marker for interceptors applied around the {@link ContactRepository} proxy.
+ *
+ * Every bean implementing this interface is picked up by {@link ContactRepositoryPostProcessor} and added to the
+ * repository proxy, lowest order outermost.
+ */
+public interface ContactRepositoryInterceptor extends MethodInterceptor, Ordered {
+
+    /**
+     * Check if a repository method changes contacts or their content
+     *
+     * @param methodName the repository method name
+     * @return true for saves, deletes, updates and content changes
+     */
+    static boolean isWrite(String methodName) {
+        return methodName.startsWith("save") || methodName.startsWith("delete") || methodName.startsWith("update")
+                || "setContent".equals(methodName);
+    }
+}
@@ -0,0 +1,60 @@
+package com.emc.documentum.sample.repositories;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wraps the {@link ContactRepository} bean in a proxy carrying every {@link ContactRepositoryInterceptor} bean.
+ *
+ * Spring Data REST looks the repository up by bean name, so the wrapped proxy is also what serves the
+ * <code>/contacts</code> resources.
+ */
+@Component
+public class ContactRepositoryPostProcessor implements BeanPostProcessor, BeanFactoryAware {
+
+    private ListableBeanFactory beanFactory;
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        this.beanFactory = (ListableBeanFactory) beanFactory;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+
+        if (!(bean instanceof ContactRepository)) {
+            return bean;
+        }
+
+        List<ContactRepositoryInterceptor> interceptors =
+                new ArrayList<ContactRepositoryInterceptor>(beanFactory.getBeansOfType(ContactRepositoryInterceptor.class).values());
+
+        if (interceptors.isEmpty()) {
+            return bean;
+        }
+
+        AnnotationAwareOrderComparator.sort(interceptors);
+
+        // proxy the repository (itself usually a proxy) keeping all of its interfaces
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        for (ContactRepositoryInterceptor interceptor : interceptors) {
+            proxyFactory.addAdvice(interceptor);
+        }
+
+        return proxyFactory.getProxy();
+    }
+}
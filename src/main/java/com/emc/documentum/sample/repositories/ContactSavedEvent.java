@@ -0,0 +1,31 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+
+/**
+ * Published after a contact was created or updated
+ */
+public class ContactSavedEvent extends ContactRepositoryEvent {
+
+    private final Contact contact;
+
+    /**
+     * Constructor
+     *
+     * @param source the repository the change went through
+     * @param contact the saved contact
+     */
+    public ContactSavedEvent(Object source, Contact contact) {
+        super(source);
+        this.contact = contact;
+    }
+
+    /**
+     * The saved contact, shared by all listeners and not to be modified
+     *
+     * @return the saved contact
+     */
+    public Contact getContact() {
+        return contact;
+    }
+}
@@ -0,0 +1,65 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+
+/**
+ * Version of a contact or of the whole set of contacts, read without reading the contacts themselves, so HTTP
+ * validators can be computed cheaply
+ */
+public class ContactVersion {
+
+    private final String tag;
+
+    private final Date lastModified;
+
+    /**
+     * Constructor
+     *
+     * @param tag opaque value that changes whenever the versioned contacts change
+     * @param lastModified the last modification date, null if unknown
+     */
+    public ContactVersion(String tag, Date lastModified) {
+        this.tag = tag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Version of a contact tagged from the fields it is represented with, so the same state of a contact has the same
+     * tag wherever it was read, from the docbase, a replica or a cache
+     *
+     * @param contact the contact, with its id set
+     * @param lastModified the last modification date, null if unknown
+     * @return the version
+     */
+    public static ContactVersion of(Contact contact, Date lastModified) {
+
+        String fields = contact.getName() + "\u0000" + contact.getEmail() + "\u0000" + contact.getTelephone();
+
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(fields.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+
+        StringBuilder tag = new StringBuilder(contact.getId()).append('.');
+        for (byte b : digest) {
+            tag.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return new ContactVersion(tag.toString(), lastModified);
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+}
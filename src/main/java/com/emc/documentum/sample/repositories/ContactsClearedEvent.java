@@ -0,0 +1,16 @@
+package com.emc.documentum.sample.repositories;
+
+/**
+ * Published after all contacts were deleted at once
+ */
+public class ContactsClearedEvent extends ContactRepositoryEvent {
+
+    /**
+     * Constructor
+     *
+     * @param source the repository the change went through
+     */
+    public ContactsClearedEvent(Object source) {
+        super(source);
+    }
+}
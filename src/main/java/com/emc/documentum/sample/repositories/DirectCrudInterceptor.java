@@ -0,0 +1,146 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Answers the Spring Data lookups, saves and deletes of contacts with the DFC implementation of the custom operations,
+ * so they run on the pooled docbase sessions like every custom query rather than on sessions Spring Data opens for
+ * itself. Off unless <code>repository.direct-crud.enabled=true</code>.
+ *
+ * Only the calls that map onto a single custom operation are answered: <code>findOne</code> and <code>findAll</code>
+ * by id with one <code>findAllById</code> query, <code>findAll</code> with <code>streamAll</code>, saves with
+ * <code>saveAll</code> and deletes with <code>deleteAllByIdIn</code>. Everything else, name searches, existence
+ * checks, counts, content and <code>deleteAll</code> included, goes on to Spring Data.
+ *
+ * Runs innermost, inside the event publishing interceptor, so answered calls still publish their events.
+ */
+public class DirectCrudInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = ContactEventPublishingInterceptor.ORDER + 100;
+
+    private final ContactRepositoryCustom repository;
+
+    /**
+     * Constructor
+     *
+     * @param repository the DFC implementation answering the CRUD methods
+     */
+    public DirectCrudInterceptor(ContactRepositoryCustom repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        Method method = invocation.getMethod();
+        Object[] arguments = invocation.getArguments();
+
+        if (isCrudRead(method, arguments)) {
+            return read(method, arguments);
+        }
+
+        if (isCrudWrite(method, arguments)) {
+            return write(method, arguments);
+        }
+
+        return invocation.proceed();
+    }
+
+    private static boolean isCrudRead(Method method, Object[] arguments) {
+
+        if (method.getDeclaringClass() == ContactRepositoryCustom.class) {
+            return false;
+        }
+
+        String name = method.getName();
+
+        return ("findOne".equals(name) && arguments.length == 1 && arguments[0] instanceof String)
+                || ("findAll".equals(name) && arguments.length == 0)
+                || ("findAll".equals(name) && arguments.length == 1 && arguments[0] instanceof Iterable);
+    }
+
+    private Object read(Method method, Object[] arguments) {
+
+        if ("findOne".equals(method.getName())) {
+            List<Contact> found = repository.findAllById(Collections.singleton((String) arguments[0]));
+            return found.isEmpty() ? null : found.get(0);
+        }
+
+        if (arguments.length == 0) {
+            try (Stream<Contact> contacts = repository.streamAll()) {
+                return contacts.collect(Collectors.toList());
+            }
+        }
+
+        return repository.findAllById(ids((Iterable<?>) arguments[0]));
+    }
+
+    private static boolean isCrudWrite(Method method, Object[] arguments) {
+
+        if (method.getDeclaringClass() == ContactRepositoryCustom.class || arguments.length != 1) {
+            return false;
+        }
+
+        String name = method.getName();
+        Object argument = arguments[0];
+
+        return ("save".equals(name) && (argument instanceof Contact || argument instanceof Iterable))
+                || ("delete".equals(name)
+                && (argument instanceof String || argument instanceof Contact || argument instanceof Iterable));
+    }
+
+    private Object write(Method method, Object[] arguments) {
+
+        Object argument = arguments[0];
+
+        if ("save".equals(method.getName())) {
+
+            if (argument instanceof Contact) {
+                return repository.saveAll(Collections.singletonList((Contact) argument)).get(0);
+            }
+
+            List<Contact> contacts = new ArrayList<Contact>();
+            for (Object contact : (Iterable<?>) argument) {
+                contacts.add((Contact) contact);
+            }
+            return repository.saveAll(contacts);
+        }
+
+        if (argument instanceof Iterable) {
+            repository.deleteAllByIdIn(ids((Iterable<?>) argument));
+        } else {
+            repository.deleteAllByIdIn(ids(Collections.singleton(argument)));
+        }
+
+        return null;
+    }
+
+    /*
+     * ids of a mix of ids and contacts, contacts never saved have none
+     */
+    private static List<String> ids(Iterable<?> idsOrContacts) {
+
+        List<String> ids = new ArrayList<String>();
+        for (Object idOrContact : idsOrContacts) {
+            String id = idOrContact instanceof Contact ? ((Contact) idOrContact).getId() : (String) idOrContact;
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+
+        return ids;
+    }
+}
@@ -0,0 +1,36 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.DqlTemplate;
+import com.emc.documentum.springdata.repository.config.EnableDctmRepositories;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Docbase backed Spring Data repositories, used unless the <code>offline</code> profile is active
+ */
+@Configuration
+@Profile("!offline")
+@EnableDctmRepositories
+public class DocbaseRepositoryConfiguration {
+
+    @Value("${contact.query.fetch-size:200}")
+    private int fetchSize;
+
+    /**
+     * Repository interceptor answering the Spring Data lookups, saves and deletes on the docbase session source, only
+     * with <code>repository.direct-crud.enabled=true</code>
+     *
+     * @param sessionSource the docbase session source, usually the session pool
+     * @param dqlTemplate the DQL template on the same session source
+     * @return the CRUD interceptor
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "repository.direct-crud", name = "enabled")
+    public DirectCrudInterceptor directCrudInterceptor(DocbaseSessionSource sessionSource, DqlTemplate dqlTemplate) {
+        return new DirectCrudInterceptor(new ContactRepositoryImpl(sessionSource, dqlTemplate, fetchSize));
+    }
+}
@@ -0,0 +1,561 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory stand-in for the docbase backed contact repository, for tests and tools that must run offline.
+ *
+ * Contacts are held sorted by id in a concurrent skip list, ids are generated in the docbase object id format and
+ * stored contacts are copied on the way in and out like a real round trip would. Content is kept in memory.
+ *
+ * Every repository call can be made to cost a docbase round trip: a fixed latency plus a random jitter, and a
+ * share of calls failing with a {@link TransientDataAccessResourceException} the way an overloaded docbase would.
+ * Batch operations cost a single round trip, like their DFC implementations.
+ */
+public class InMemoryContactRepository implements ContactRepository {
+
+    private final long latencyNanos;
+
+    private final long latencyJitterNanos;
+
+    private final double failureRate;
+
+    private final ConcurrentNavigableMap<String, Contact> contacts = new ConcurrentSkipListMap<String, Contact>();
+
+    private final Map<String, byte[]> contents = new ConcurrentHashMap<String, byte[]>();
+
+    private final Map<String, ContactVersion> versions = new ConcurrentHashMap<String, ContactVersion>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong modifications = new AtomicLong();
+
+    private volatile Date lastModified;
+
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    private final AtomicLong injectedFailures = new AtomicLong();
+
+    /**
+     * Constructor for a repository answering straight away
+     */
+    public InMemoryContactRepository() {
+        this(0, 0, 0);
+    }
+
+    /**
+     * Constructor for a repository simulating docbase round trips
+     *
+     * @param latencyMicros the latency added to every call
+     * @param latencyJitterMicros the upper bound of a uniformly distributed latency added on top
+     * @param failureRate the share of calls failing, between 0 and 1
+     */
+    public InMemoryContactRepository(long latencyMicros, long latencyJitterMicros, double failureRate) {
+
+        if (latencyMicros < 0 || latencyJitterMicros < 0 || failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Latencies must not be negative and the failure rate between 0 and 1");
+        }
+
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        this.latencyJitterNanos = TimeUnit.MICROSECONDS.toNanos(latencyJitterMicros);
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public <S extends Contact> S save(S contact) {
+        roundTrip();
+        return store(contact);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S extends Contact> S store(S contact) {
+
+        Contact stored = contact.copy();
+
+        if (stored.getId() == null) {
+            stored.setId(nextId());
+        }
+
+        contacts.put(stored.getId(), stored);
+        modified(stored.getId());
+
+        return (S) stored.copy();
+    }
+
+    @Override
+    public <S extends Contact> Iterable<S> save(Iterable<S> contactsToSave) {
+
+        List<S> savedContacts = new ArrayList<S>();
+
+        for (S contact : contactsToSave) {
+            savedContacts.add(save(contact));
+        }
+
+        return savedContacts;
+    }
+
+    @Override
+    public List<Contact> saveAll(Collection<Contact> contactsToSave) {
+
+        roundTrip();
+
+        List<Contact> savedContacts = new ArrayList<Contact>(contactsToSave.size());
+
+        for (Contact contact : contactsToSave) {
+            savedContacts.add(store(contact));
+        }
+
+        return savedContacts;
+    }
+
+    @Override
+    public Contact findOne(String id) {
+        roundTrip();
+        return lookup(id);
+    }
+
+    @Override
+    public boolean exists(String id) {
+        roundTrip();
+        return contacts.containsKey(id);
+    }
+
+    @Override
+    public List<Contact> findAll() {
+        roundTrip();
+        return copyOf(contacts.values());
+    }
+
+    @Override
+    public Iterable<Contact> findAll(Iterable<String> ids) {
+
+        roundTrip();
+
+        List<Contact> foundContacts = new ArrayList<Contact>();
+
+        for (String id : ids) {
+            Contact contact = lookup(id);
+            if (contact != null) {
+                foundContacts.add(contact);
+            }
+        }
+
+        return foundContacts;
+    }
+
+    @Override
+    public List<Contact> findAllById(Collection<String> ids) {
+
+        roundTrip();
+
+        List<Contact> foundContacts = new ArrayList<Contact>(ids.size());
+
+        for (String id : ids) {
+            Contact contact = lookup(id);
+            if (contact != null) {
+                foundContacts.add(contact);
+            }
+        }
+
+        return foundContacts;
+    }
+
+    @Override
+    public List<Contact> findByNameContaining(String value) {
+
+        roundTrip();
+
+        List<Contact> foundContacts = new ArrayList<Contact>();
+
+        for (Contact contact : contacts.values()) {
+            if (contact.getName() != null && contact.getName().contains(value)) {
+                foundContacts.add(contact.copy());
+            }
+        }
+
+        return foundContacts;
+    }
+
+    @Override
+    public Slice<Contact> findAllAfter(String afterId, Pageable pageable) {
+
+        roundTrip();
+
+        int size = pageable.getPageSize();
+        Collection<Contact> candidates = afterId == null ? contacts.values() : contacts.tailMap(afterId, false).values();
+
+        List<Contact> slice = new ArrayList<Contact>(size);
+        boolean hasNext = false;
+
+        for (Contact contact : candidates) {
+            if (slice.size() == size) {
+                hasNext = true;
+                break;
+            }
+            slice.add(contact.copy());
+        }
+
+        return new SliceImpl<Contact>(slice, pageable, hasNext);
+    }
+
+    @Override
+    public Stream<Contact> streamAll() {
+        roundTrip();
+        return contacts.values().stream().map(Contact::copy);
+    }
+
+    @Override
+    public List<Map<String, String>> findAllFields(Set<ContactField> fields) {
+        roundTrip();
+        return fields(fields);
+    }
+
+    @Override
+    public Slice<Map<String, String>> findFieldsAfter(Set<ContactField> fields, String afterId, Pageable pageable) {
+
+        roundTrip();
+
+        int size = pageable.getPageSize();
+        List<ContactField> selected = ContactField.withId(fields);
+        Collection<Contact> candidates = afterId == null ? contacts.values() : contacts.tailMap(afterId, false).values();
+
+        List<Map<String, String>> slice = new ArrayList<Map<String, String>>(size);
+        boolean hasNext = false;
+
+        for (Contact contact : candidates) {
+            if (slice.size() == size) {
+                hasNext = true;
+                break;
+            }
+            slice.add(fields(selected, contact));
+        }
+
+        return new SliceImpl<Map<String, String>>(slice, pageable, hasNext);
+    }
+
+    private List<Map<String, String>> fields(Set<ContactField> fields) {
+
+        List<ContactField> selected = ContactField.withId(fields);
+        List<Map<String, String>> rows = new ArrayList<Map<String, String>>(contacts.size());
+
+        for (Contact contact : contacts.values()) {
+            rows.add(fields(selected, contact));
+        }
+
+        return rows;
+    }
+
+    private static Map<String, String> fields(List<ContactField> selected, Contact contact) {
+
+        Map<String, String> values = new LinkedHashMap<String, String>(selected.size() * 2);
+        for (ContactField field : selected) {
+            values.put(field.getProperty(), field.get(contact));
+        }
+
+        return values;
+    }
+
+    @Override
+    public <T> List<T> findAllProjected(Class<T> projection) {
+
+        roundTrip();
+
+        List<T> projected = new ArrayList<T>(contacts.size());
+        for (Map<String, String> row : fields(ContactProjections.fieldsOf(projection))) {
+            projected.add(ContactProjections.create(projection, row));
+        }
+
+        return projected;
+    }
+
+    @Override
+    public ContactVersion findVersion(String id) {
+
+        roundTrip();
+
+        Contact contact = contacts.get(id);
+        ContactVersion version = versions.get(id);
+
+        return contact == null || version == null ? null : ContactVersion.of(contact, version.getLastModified());
+    }
+
+    @Override
+    public ContactVersion findCollectionVersion() {
+        roundTrip();
+        return new ContactVersion("m" + modifications.get(), lastModified);
+    }
+
+    @Override
+    public List<String> findIdsByNameContaining(String value) {
+        roundTrip();
+        return idsByNameContaining(value);
+    }
+
+    private List<String> idsByNameContaining(String value) {
+
+        List<String> ids = new ArrayList<String>();
+
+        for (Contact contact : contacts.values()) {
+            if (contact.getName() != null && contact.getName().contains(value)) {
+                ids.add(contact.getId());
+            }
+        }
+
+        return ids;
+    }
+
+    @Override
+    public int deleteAllByIdIn(Collection<String> ids) {
+        roundTrip();
+        return removeAll(ids);
+    }
+
+    private int removeAll(Collection<String> ids) {
+
+        int deleted = 0;
+
+        for (String id : ids) {
+            contents.remove(id);
+            if (contacts.remove(id) != null) {
+                deleted(id);
+                deleted++;
+            }
+        }
+
+        return deleted;
+    }
+
+    @Override
+    public int deleteByNameContaining(String value) {
+
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("A name value is required, an empty value would delete every contact");
+        }
+
+        roundTrip();
+
+        return removeAll(idsByNameContaining(value));
+    }
+
+    @Override
+    public int updateAllByIdIn(Collection<String> ids, Map<ContactField, String> values) {
+
+        if (values.isEmpty()) {
+            return 0;
+        }
+
+        if (values.containsKey(ContactField.ID)) {
+            throw new IllegalArgumentException("The id of a contact cannot be changed");
+        }
+
+        roundTrip();
+
+        int updated = 0;
+
+        for (String id : ids) {
+
+            Contact contact = contacts.get(id);
+            if (contact == null) {
+                continue;
+            }
+
+            // replace rather than change in place, readers may be copying the stored contact
+            Contact changed = contact.copy();
+            for (Map.Entry<ContactField, String> value : values.entrySet()) {
+                value.getKey().set(changed, value.getValue());
+            }
+
+            if (contacts.replace(id, changed) != null) {
+                modified(id);
+                updated++;
+            }
+        }
+
+        return updated;
+    }
+
+    @Override
+    public long count() {
+        roundTrip();
+        return contacts.size();
+    }
+
+    @Override
+    public void delete(String id) {
+        roundTrip();
+        contents.remove(id);
+        if (contacts.remove(id) != null) {
+            deleted(id);
+        }
+    }
+
+    @Override
+    public void delete(Contact contact) {
+        delete(contact.getId());
+    }
+
+    @Override
+    public void delete(Iterable<? extends Contact> contactsToDelete) {
+        for (Contact contact : contactsToDelete) {
+            delete(contact);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        roundTrip();
+        contacts.clear();
+        contents.clear();
+        versions.clear();
+        modified(null);
+    }
+
+    @Override
+    public String setContent(Contact contact, String contentType, String path) {
+
+        roundTrip();
+
+        if (!contacts.containsKey(contact.getId())) {
+            throw new IllegalArgumentException("No contact with id " + contact.getId());
+        }
+
+        try {
+            contents.put(contact.getId(), Files.readAllBytes(Paths.get(path)));
+            modified(contact.getId());
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read content from " + path, e);
+        }
+
+        return contact.getId();
+    }
+
+    @Override
+    public String getContent(Contact contact, String path) {
+
+        roundTrip();
+
+        byte[] content = contents.get(contact.getId());
+
+        if (content == null) {
+            return null;
+        }
+
+        try {
+            Files.write(Paths.get(path), content);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write content to " + path, e);
+        }
+
+        return path;
+    }
+
+    /**
+     * Get the number of repository calls made
+     *
+     * @return the number of simulated round trips
+     */
+    public long getRoundTripCount() {
+        return roundTrips.get();
+    }
+
+    /**
+     * Get the number of calls failed on purpose
+     *
+     * @return the number of injected failures
+     */
+    public long getInjectedFailureCount() {
+        return injectedFailures.get();
+    }
+
+    private Contact lookup(String id) {
+        Contact contact = contacts.get(id);
+        return contact == null ? null : contact.copy();
+    }
+
+    /*
+     * wait out the simulated latency, then fail the call if it drew the short straw
+     */
+    private void roundTrip() {
+
+        roundTrips.incrementAndGet();
+
+        if (latencyNanos == 0 && latencyJitterNanos == 0 && failureRate == 0) {
+            return;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long latency = latencyNanos + (latencyJitterNanos > 0 ? random.nextLong(latencyJitterNanos + 1) : 0);
+        if (latency > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (failureRate > 0 && random.nextDouble() < failureRate) {
+            injectedFailures.incrementAndGet();
+            throw new TransientDataAccessResourceException("Injected docbase failure");
+        }
+    }
+
+    /*
+     * every change gets the next modification number, which versions the changed contact and the whole set
+     */
+    private void modified(String id) {
+
+        Date now = new Date();
+        long modification = modifications.incrementAndGet();
+
+        if (id != null) {
+            versions.put(id, new ContactVersion(id + "." + modification, now));
+        }
+        lastModified = now;
+    }
+
+    private void deleted(String id) {
+        versions.remove(id);
+        modified(null);
+    }
+
+    /*
+     * docbase style 16 hex digit object id
+     */
+    private String nextId() {
+        return String.format("09%014x", sequence.incrementAndGet());
+    }
+
+    private static List<Contact> copyOf(Collection<Contact> contacts) {
+
+        List<Contact> copies = new ArrayList<Contact>(contacts.size());
+
+        for (Contact contact : contacts) {
+            copies.add(contact.copy());
+        }
+
+        return copies;
+    }
+}
@@ -0,0 +1,70 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.sharding.ShardedContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory contact repository in place of the docbase, with the <code>offline</code> profile active.
+ *
+ * The repository is a plain bean rather than a Spring Data repository, so the interceptors and the application's
+ * own controllers work against it but Spring Data REST does not export it. The contact CRUD resources are served by
+ * {@link com.emc.documentum.sample.controller.OfflineContactController} instead. With
+ * <code>contact.offline.shards</code> above 1 the contacts are spread over that many in-memory repositories, each
+ * standing in for a docbase.
+ */
+@Configuration
+@Profile("offline")
+public class OfflineRepositoryConfiguration {
+
+    @Value("${contact.offline.latency-micros:0}")
+    private long latencyMicros;
+
+    @Value("${contact.offline.latency-jitter-micros:0}")
+    private long latencyJitterMicros;
+
+    @Value("${contact.offline.failure-rate:0}")
+    private double failureRate;
+
+    @Value("${contact.offline.shards:1}")
+    private int shards;
+
+    /**
+     * In-memory contact repository bean, sharded over several in-memory repositories if configured
+     *
+     * @return the contact repository
+     */
+    @Bean
+    public ContactRepository contactRepository() {
+
+        if (shards <= 1) {
+            return new InMemoryContactRepository(latencyMicros, latencyJitterMicros, failureRate);
+        }
+
+        Map<String, ContactRepository> shardRepositories = new LinkedHashMap<String, ContactRepository>();
+        for (int i = 1; i <= shards; i++) {
+            shardRepositories.put("shard-" + i,
+                    new InMemoryContactRepository(latencyMicros, latencyJitterMicros, failureRate));
+        }
+
+        return new ShardedContactRepository(shardRepositories, Executors.newCachedThreadPool(new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "contact-shard-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }));
+    }
+}
@@ -0,0 +1,168 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactRepositoryEvent;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * In-memory index over contacts, rebuilt by a {@link ContactIndexLoader} and kept current from repository events.
+ *
+ * The index only answers queries once a rebuild has completed. Contacts saved or deleted while a rebuild is
+ * loading are remembered so the rebuild never overwrites them with the older state it read. Once all contacts are
+ * deleted during a rebuild, everything the rebuild read is stale: it stops loading and the index is kept current
+ * from events alone.
+ */
+public abstract class ContactIndex implements ApplicationListener<ContactRepositoryEvent> {
+
+    private final Object rebuildLock = new Object();
+
+    private Set<String> changedDuringRebuild;
+
+    private boolean clearedDuringRebuild;
+
+    private volatile boolean ready;
+
+    private volatile ContactIndexLoader deferredLoader;
+
+    /*
+     * changes are recorded and applied together, a rebuild starting in between cannot wipe them unrecorded
+     */
+    @Override
+    public void onApplicationEvent(ContactRepositoryEvent event) {
+
+        synchronized (rebuildLock) {
+            if (event instanceof ContactSavedEvent) {
+                Contact contact = ((ContactSavedEvent) event).getContact();
+                changed(contact.getId());
+                put(contact);
+            } else if (event instanceof ContactDeletedEvent) {
+                String id = ((ContactDeletedEvent) event).getId();
+                changed(id);
+                remove(id);
+            } else if (event instanceof ContactsClearedEvent) {
+                clearedDuringRebuild = changedDuringRebuild != null;
+                clear();
+            }
+        }
+    }
+
+    /**
+     * Start a rebuild, the index stops answering queries until {@link #completeRebuild()}
+     */
+    public void beginRebuild() {
+        synchronized (rebuildLock) {
+            ready = false;
+            clear();
+            changedDuringRebuild = new HashSet<String>();
+            clearedDuringRebuild = false;
+        }
+    }
+
+    /**
+     * Load a contact read by the running rebuild, ignored if the contact changed since the rebuild began
+     *
+     * @param contact the contact
+     * @return false if there is no rebuild running or all contacts were deleted since it began, the rebuild is to
+     * stop loading
+     */
+    public boolean load(Contact contact) {
+        synchronized (rebuildLock) {
+
+            if (changedDuringRebuild == null || clearedDuringRebuild) {
+                return false;
+            }
+
+            if (!changedDuringRebuild.contains(contact.getId())) {
+                put(contact);
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Complete the running rebuild and start answering queries
+     */
+    public void completeRebuild() {
+        synchronized (rebuildLock) {
+            changedDuringRebuild = null;
+            ready = true;
+        }
+    }
+
+    /**
+     * Abandon the running rebuild, queries keep going to the docbase
+     */
+    public void abortRebuild() {
+        synchronized (rebuildLock) {
+            changedDuringRebuild = null;
+            ready = false;
+            clear();
+        }
+    }
+
+    @ManagedAttribute(description = "Whether the index answers queries")
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Check whether the index answers a query, starting the rebuild on the first query when it was deferred until
+     * then
+     *
+     * @return true if the index answers queries
+     */
+    public boolean isReadyForQuery() {
+
+        if (!ready) {
+            ContactIndexLoader loader = deferredLoader;
+            if (loader != null) {
+                deferredLoader = null;
+                loader.start();
+            }
+        }
+
+        return ready;
+    }
+
+    /**
+     * Defer the rebuild to the first query
+     *
+     * @param loader the loader to start on the first query, null to start none
+     */
+    void deferLoad(ContactIndexLoader loader) {
+        deferredLoader = loader;
+    }
+
+    /**
+     * Index a contact, replacing its previous state
+     *
+     * @param contact the contact
+     */
+    protected abstract void put(Contact contact);
+
+    /**
+     * Remove a contact from the index
+     *
+     * @param id the contact id
+     */
+    protected abstract void remove(String id);
+
+    /**
+     * Remove all contacts from the index
+     */
+    protected abstract void clear();
+
+    private void changed(String id) {
+        if (changedDuringRebuild != null) {
+            changedDuringRebuild.add(id);
+        }
+    }
+}
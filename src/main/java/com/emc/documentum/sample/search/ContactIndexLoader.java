@@ -0,0 +1,143 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds a {@link ContactIndex} in the background once the application context has started, loading the
+ * contacts a keyset slice at a time so startup is not held up and memory stays flat. Loaders not loading on startup
+ * start on the first query of their index instead, until then queries go to the docbase.
+ */
+public class ContactIndexLoader implements ApplicationListener<ContextRefreshedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactIndexLoader.class);
+
+    private final String name;
+
+    private final ContactIndex index;
+
+    private final ContactRepository contactRepository;
+
+    private final int sliceSize;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean loadOnStartup = true;
+
+    /**
+     * Constructor
+     *
+     * @param name the index name, for the loader thread and log
+     * @param index the index to rebuild
+     * @param contactRepository the repository to load contacts from
+     * @param sliceSize the number of contacts loaded per query
+     */
+    public ContactIndexLoader(String name, ContactIndex index, ContactRepository contactRepository, int sliceSize) {
+        this.name = name;
+        this.index = index;
+        this.contactRepository = contactRepository;
+        this.sliceSize = sliceSize;
+    }
+
+    /**
+     * Set whether the index is rebuilt once the application context has started, or on its first query
+     *
+     * @param loadOnStartup true to rebuild on startup, false to wait for the first query
+     */
+    public void setLoadOnStartup(boolean loadOnStartup) {
+        this.loadOnStartup = loadOnStartup;
+        index.deferLoad(loadOnStartup ? null : this);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (loadOnStartup) {
+            start();
+        }
+    }
+
+    /**
+     * Start rebuilding the index in the background, unless a rebuild was started before
+     */
+    public void start() {
+
+        // refreshes of child contexts are passed up, one rebuild is enough
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                rebuild();
+            }
+        }, "contact-" + name.replace(' ', '-') + "-loader");
+
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Check whether the rebuild was started
+     *
+     * @return true once the rebuild was started
+     */
+    public boolean isStarted() {
+        return started.get();
+    }
+
+    /**
+     * Rebuild the index from the repository
+     */
+    public void rebuild() {
+
+        long start = System.currentTimeMillis();
+        long loaded = 0;
+
+        index.beginRebuild();
+
+        try {
+
+            String lastId = null;
+            boolean loading = true;
+            Slice<Contact> slice;
+
+            do {
+
+                slice = contactRepository.findAllAfter(lastId, new PageRequest(0, sliceSize));
+
+                for (Contact contact : slice) {
+                    if (!index.load(contact)) {
+                        loading = false;
+                        break;
+                    }
+                    lastId = contact.getId();
+                    loaded++;
+                }
+
+            } while (loading && slice.hasNext());
+
+            index.completeRebuild();
+
+            if (loading) {
+                logger.info("Contact {} loaded {} contacts in {} ms", name, loaded,
+                        System.currentTimeMillis() - start);
+            } else {
+                logger.info("Contact {} stopped loading after {} contacts, all contacts were deleted meanwhile",
+                        name, loaded);
+            }
+
+        } catch (RuntimeException e) {
+            index.abortRebuild();
+            logger.error("Contact {} rebuild failed after {} contacts, its queries go to the docbase", name, loaded, e);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.List;
+
+/**
+ * Trigram index over contact names, kept current from repository events.
+ *
+ * Ids of contacts deleted behind the index's back are harmless, matching contacts are fetched from the repository
+ * by id.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ContactNameIndex", description = "Contact name trigram index")
+public class ContactNameIndex extends ContactIndex {
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    /**
+     * Find the ids of contacts whose name contains a substring
+     *
+     * @param substring the substring, case sensitive
+     * @return the matching contact ids
+     */
+    public List<String> search(String substring) {
+        return index.search(substring);
+    }
+
+    @ManagedAttribute(description = "Number of indexed contacts")
+    public int getSize() {
+        return index.size();
+    }
+
+    @ManagedAttribute(description = "Number of distinct trigrams")
+    public int getTrigramCount() {
+        return index.getTrigramCount();
+    }
+
+    @ManagedAttribute(description = "Number of posting list entries")
+    public long getPostingCount() {
+        return index.getPostingCount();
+    }
+
+    @Override
+    protected void put(Contact contact) {
+        index.put(contact.getId(), contact.getName());
+    }
+
+    @Override
+    protected void remove(String id) {
+        index.remove(id);
+    }
+
+    @Override
+    protected void clear() {
+        index.clear();
+    }
+}
@@ -0,0 +1,58 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact name index configuration, enabled unless <code>contact.name-index.enabled=false</code>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.name-index", name = "enabled", matchIfMissing = true)
+public class ContactNameIndexConfiguration {
+
+    @Value("${contact.name-index.load-slice-size:1000}")
+    private int loadSliceSize;
+
+    @Value("${contact.index.load-on-startup:true}")
+    private boolean loadOnStartup;
+
+    /**
+     * Contact name index bean
+     *
+     * @return the contact name index
+     */
+    @Bean
+    public ContactNameIndex contactNameIndex() {
+        return new ContactNameIndex();
+    }
+
+    /**
+     * Contact name index repository interceptor bean
+     *
+     * @return the contact name index interceptor
+     */
+    @Bean
+    public ContactNameIndexInterceptor contactNameIndexInterceptor() {
+        return new ContactNameIndexInterceptor(contactNameIndex());
+    }
+
+    /**
+     * Contact name index loader bean, loading once the application has started unless
+     * <code>contact.index.load-on-startup=false</code>, then on the first query
+     *
+     * @param contactRepository the repository to load contacts from
+     * @return the contact name index loader
+     */
+    @Bean
+    public ContactIndexLoader contactNameIndexLoader(ContactRepository contactRepository) {
+
+        ContactIndexLoader loader =
+                new ContactIndexLoader("name index", contactNameIndex(), contactRepository, loadSliceSize);
+        loader.setLoadOnStartup(loadOnStartup);
+
+        return loader;
+    }
+}
@@ -0,0 +1,64 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers <code>findByNameContaining</code> from the {@link ContactNameIndex} once it is ready, only fetching the
+ * matching contacts from the docbase by id. Until then the derived query runs as before.
+ */
+public class ContactNameIndexInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = 300;
+
+    private final ContactNameIndex index;
+
+    /**
+     * Constructor
+     *
+     * @param index the contact name index
+     */
+    public ContactNameIndexInterceptor(ContactNameIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        Object[] arguments = invocation.getArguments();
+
+        if (!"findByNameContaining".equals(invocation.getMethod().getName()) || arguments.length != 1
+                || !(arguments[0] instanceof String) || !index.isReadyForQuery()) {
+            return invocation.proceed();
+        }
+
+        String value = (String) arguments[0];
+        List<String> ids = index.search(value);
+
+        if (ids.isEmpty()) {
+            return new ArrayList<Contact>();
+        }
+
+        List<Contact> candidates = ((ContactRepository) invocation.getThis()).findAllById(ids);
+
+        // the name may have changed since it was indexed
+        List<Contact> contacts = new ArrayList<Contact>(candidates.size());
+        for (Contact contact : candidates) {
+            if (contact.getName() != null && contact.getName().contains(value)) {
+                contacts.add(contact);
+            }
+        }
+
+        return contacts;
+    }
+}
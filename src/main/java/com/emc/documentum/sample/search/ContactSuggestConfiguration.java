@@ -0,0 +1,49 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact type-ahead configuration
+ */
+@Configuration
+public class ContactSuggestConfiguration {
+
+    @Value("${contact.suggest.max-results:10}")
+    private int maxResults;
+
+    @Value("${contact.suggest.load-slice-size:1000}")
+    private int loadSliceSize;
+
+    @Value("${contact.index.load-on-startup:true}")
+    private boolean loadOnStartup;
+
+    /**
+     * Contact suggest index bean, suggesting up to <code>contact.suggest.max-results</code> contacts
+     *
+     * @return the contact suggest index
+     */
+    @Bean
+    public ContactSuggestIndex contactSuggestIndex() {
+        return new ContactSuggestIndex(maxResults);
+    }
+
+    /**
+     * Contact suggest index loader bean, loading once the application has started unless
+     * <code>contact.index.load-on-startup=false</code>, then on the first query
+     *
+     * @param contactRepository the repository to load contacts from
+     * @return the contact suggest index loader
+     */
+    @Bean
+    public ContactIndexLoader contactSuggestIndexLoader(ContactRepository contactRepository) {
+
+        ContactIndexLoader loader =
+                new ContactIndexLoader("suggest index", contactSuggestIndex(), contactRepository, loadSliceSize);
+        loader.setLoadOnStartup(loadOnStartup);
+
+        return loader;
+    }
+}
@@ -0,0 +1,172 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Prefix index over contact names, email local parts and telephone digits, answering type-ahead queries.
+ *
+ * Text is matched without case and accents. A name is found by its start and by the start of any later word, so
+ * <code>chap</code> finds Cecilia Chapman, a telephone number by its digits whatever the punctuation typed.
+ * Matches on the start of the name rank first, then on a later word, the email and the telephone, names in
+ * alphabetical order within each.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ContactSuggestIndex", description = "Contact type-ahead prefix index")
+public class ContactSuggestIndex extends ContactIndex {
+
+    private static final int NAME = 0;
+
+    private static final int NAME_WORD = 1;
+
+    private static final int EMAIL = 2;
+
+    private static final int TELEPHONE = 3;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private static final Pattern TELEPHONE_QUERY = Pattern.compile("[0-9+()./ -]*[0-9][0-9+()./ -]*");
+
+    private static final Pattern NOT_DIGITS = Pattern.compile("[^0-9]");
+
+    private final PrefixTrie trie;
+
+    /**
+     * Constructor
+     *
+     * @param maxResults the most contacts suggested for a query
+     */
+    public ContactSuggestIndex(int maxResults) {
+        this.trie = new PrefixTrie(maxResults);
+    }
+
+    /**
+     * Suggest contacts for what has been typed so far
+     *
+     * @param query the text typed
+     * @param max the most contacts to suggest
+     * @return the contacts, best match first
+     */
+    public List<ContactSuggestion> suggest(String query, int max) {
+
+        List<PrefixTrie.Match> matches = trie.search(normalize(query), max);
+
+        if (TELEPHONE_QUERY.matcher(query).matches()) {
+            matches = merge(matches, trie.search(digits(query), max), max);
+        }
+
+        List<ContactSuggestion> suggestions = new ArrayList<ContactSuggestion>(matches.size());
+        for (PrefixTrie.Match match : matches) {
+            suggestions.add(new ContactSuggestion(match.getKey(), match.getLabel()));
+        }
+
+        return suggestions;
+    }
+
+    /**
+     * Get the most contacts suggested for a query
+     *
+     * @return the maximum number of suggestions
+     */
+    public int getMaxResults() {
+        return trie.getMaxResults();
+    }
+
+    @ManagedAttribute(description = "Number of indexed contacts")
+    public int getSize() {
+        return trie.size();
+    }
+
+    @ManagedAttribute(description = "Number of trie nodes")
+    public int getNodeCount() {
+        return trie.getNodeCount();
+    }
+
+    @Override
+    protected void put(Contact contact) {
+
+        if (contact.getName() == null) {
+            trie.remove(contact.getId());
+            return;
+        }
+
+        Map<String, Integer> terms = new HashMap<String, Integer>();
+
+        String name = normalize(contact.getName());
+        term(terms, name, NAME);
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            term(terms, name.substring(i + 1), NAME_WORD);
+        }
+
+        if (contact.getEmail() != null) {
+            int at = contact.getEmail().indexOf('@');
+            term(terms, normalize(at >= 0 ? contact.getEmail().substring(0, at) : contact.getEmail()), EMAIL);
+        }
+
+        if (contact.getTelephone() != null) {
+            term(terms, digits(contact.getTelephone()), TELEPHONE);
+        }
+
+        trie.put(contact.getId(), contact.getName(), terms);
+    }
+
+    @Override
+    protected void remove(String id) {
+        trie.remove(id);
+    }
+
+    @Override
+    protected void clear() {
+        trie.clear();
+    }
+
+    /*
+     * a term indexed twice keeps its best weight
+     */
+    private static void term(Map<String, Integer> terms, String term, int weight) {
+
+        Integer existing = terms.get(term);
+
+        if (existing == null || existing > weight) {
+            terms.put(term, weight);
+        }
+    }
+
+    /*
+     * both lists are ranked, the text matches first as they rank higher
+     */
+    private static List<PrefixTrie.Match> merge(List<PrefixTrie.Match> first, List<PrefixTrie.Match> second, int max) {
+
+        Map<String, PrefixTrie.Match> merged = new LinkedHashMap<String, PrefixTrie.Match>();
+        for (PrefixTrie.Match match : first) {
+            merged.put(match.getKey(), match);
+        }
+        for (PrefixTrie.Match match : second) {
+            if (merged.size() < max && !merged.containsKey(match.getKey())) {
+                merged.put(match.getKey(), match);
+            }
+        }
+
+        return new ArrayList<PrefixTrie.Match>(merged.values());
+    }
+
+    private static String normalize(String text) {
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SPACES.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static String digits(String text) {
+        return NOT_DIGITS.matcher(text).replaceAll("");
+    }
+}
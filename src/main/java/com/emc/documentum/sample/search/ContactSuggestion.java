@@ -0,0 +1,34 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.ContactName;
+
+/**
+ * Contact suggested for a type-ahead query
+ */
+public class ContactSuggestion implements ContactName {
+
+    private final String id;
+
+    private final String name;
+
+    /**
+     * Constructor
+     *
+     * @param id the contact id
+     * @param name the contact name
+     */
+    public ContactSuggestion(String id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,129 @@
+package com.emc.documentum.sample.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of document numbers held in a primitive array, growing by half when full.
+ *
+ * Not thread safe, guarded by the owning index.
+ */
+final class IntPostingList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] documents = EMPTY;
+
+    private int size;
+
+    /**
+     * Add a document number, keeping the list sorted
+     *
+     * @param document the document number
+     */
+    void add(int document) {
+
+        // documents are usually numbered in insertion order, appending is the common case
+        if (size > 0 && documents[size - 1] >= document) {
+
+            int index = Arrays.binarySearch(documents, 0, size, document);
+            if (index >= 0) {
+                return;
+            }
+
+            insert(-index - 1, document);
+            return;
+        }
+
+        insert(size, document);
+    }
+
+    /**
+     * Remove a document number
+     *
+     * @param document the document number
+     */
+    void remove(int document) {
+
+        int index = Arrays.binarySearch(documents, 0, size, document);
+
+        if (index >= 0) {
+            System.arraycopy(documents, index + 1, documents, index, size - index - 1);
+            size--;
+        }
+
+        // give back memory once the list shrank to a quarter of its capacity
+        if (documents.length > 16 && size < documents.length / 4) {
+            documents = Arrays.copyOf(documents, documents.length / 2);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int get(int index) {
+        return documents[index];
+    }
+
+    /**
+     * Intersect with a sorted array of candidates
+     *
+     * @param candidates sorted document numbers
+     * @param candidateCount number of valid entries in candidates
+     * @param target array receiving the intersection, may be candidates itself
+     * @return number of entries written to target
+     */
+    int intersect(int[] candidates, int candidateCount, int[] target) {
+
+        int count = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < candidateCount && j < size) {
+            if (candidates[i] < documents[j]) {
+                i++;
+            } else if (candidates[i] > documents[j]) {
+                j++;
+            } else {
+                target[count++] = candidates[i];
+                i++;
+                j++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Copy the document numbers into a new array
+     *
+     * @return the document numbers
+     */
+    int[] toArray() {
+        return Arrays.copyOf(documents, size);
+    }
+
+    /**
+     * Capacity in entries, for memory accounting
+     *
+     * @return the capacity
+     */
+    int capacity() {
+        return documents.length;
+    }
+
+    private void insert(int index, int document) {
+
+        if (size == documents.length) {
+            documents = Arrays.copyOf(documents, Math.max(4, size + (size >> 1)));
+        }
+
+        System.arraycopy(documents, index, documents, index + 1, size - index);
+        documents[index] = document;
+        size++;
+    }
+}
@@ -0,0 +1,549 @@
+package com.emc.documentum.sample.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed prefix trie answering ranked prefix queries over the terms of a set of keyed entries.
+ *
+ * Each key is indexed under a few terms, each with a weight, lower weights ranking first, then labels in case
+ * insensitive order. Edges hold whole runs of characters, and every node keeps the best entries of its subtree, one
+ * per key, so a query only walks down its prefix and copies that list. Adding a term offers its entry to the nodes
+ * on its path, removing one recomputes those nodes' lists from their children's.
+ */
+public class PrefixTrie {
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private static final Comparator<Entry> RANK = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry first, Entry second) {
+
+            if (first.weight != second.weight) {
+                return first.weight < second.weight ? -1 : 1;
+            }
+
+            int byLabel = String.CASE_INSENSITIVE_ORDER.compare(first.label, second.label);
+
+            return byLabel != 0 ? byLabel : first.key.compareTo(second.key);
+        }
+    };
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Entry[]> entries = new HashMap<String, Entry[]>();
+
+    private final int maxResults;
+
+    private Node root = new Node("");
+
+    private int nodeCount;
+
+    /**
+     * Constructor
+     *
+     * @param maxResults the most entries a query returns
+     */
+    public PrefixTrie(int maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    /**
+     * Index a key under its terms, replacing any terms previously indexed under it
+     *
+     * @param key the key returned by queries
+     * @param label the label returned by queries, also ranking entries of the same weight
+     * @param terms the weight of each term, empty terms are ignored
+     */
+    public void put(String key, String label, Map<String, Integer> terms) {
+
+        List<Entry> added = new ArrayList<Entry>(terms.size());
+        for (Map.Entry<String, Integer> term : terms.entrySet()) {
+            if (!term.getKey().isEmpty()) {
+                added.add(new Entry(key, label, term.getKey(), term.getValue()));
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+
+            Entry[] existing = entries.get(key);
+
+            if (existing != null) {
+                if (sameEntries(existing, added)) {
+                    return;
+                }
+                for (Entry entry : existing) {
+                    remove(root, entry.term, 0, key);
+                }
+            }
+
+            entries.put(key, added.toArray(new Entry[added.size()]));
+
+            for (Entry entry : added) {
+                insert(root, entry.term, 0, entry);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the terms indexed under a key
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+
+        lock.writeLock().lock();
+        try {
+
+            Entry[] existing = entries.remove(key);
+
+            if (existing != null) {
+                for (Entry entry : existing) {
+                    remove(root, entry.term, 0, key);
+                }
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all keys
+     */
+    public void clear() {
+
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            root = new Node("");
+            nodeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the best ranked keys with a term starting with a prefix
+     *
+     * @param prefix the prefix, matched exactly
+     * @param max the most keys to return, at most the trie's maximum
+     * @return the keys and labels, best first
+     */
+    public List<Match> search(String prefix, int max) {
+
+        Entry[] top;
+
+        lock.readLock().lock();
+        try {
+            Node node = find(prefix);
+            top = node != null ? node.top : NO_ENTRIES;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Match> matches = new ArrayList<Match>(Math.min(max, top.length));
+        for (int i = 0; i < top.length && i < max; i++) {
+            matches.add(new Match(top[i]));
+        }
+
+        return matches;
+    }
+
+    /**
+     * Get the number of indexed keys
+     *
+     * @return the number of keys
+     */
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the number of trie nodes, not counting the root
+     *
+     * @return the number of nodes
+     */
+    public int getNodeCount() {
+
+        lock.readLock().lock();
+        try {
+            return nodeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the most entries a query returns
+     *
+     * @return the maximum number of results
+     */
+    public int getMaxResults() {
+        return maxResults;
+    }
+
+    private Node find(String prefix) {
+
+        if (prefix.isEmpty()) {
+            return null;
+        }
+
+        Node node = root;
+        int offset = 0;
+
+        while (offset < prefix.length()) {
+
+            node = node.child(prefix.charAt(offset));
+
+            if (node == null) {
+                return null;
+            }
+
+            int common = commonLength(node.edge, prefix, offset);
+
+            // the prefix ends inside this edge
+            if (offset + common == prefix.length()) {
+                return node;
+            }
+
+            if (common < node.edge.length()) {
+                return null;
+            }
+
+            offset += common;
+        }
+
+        return node;
+    }
+
+    private void insert(Node parent, String term, int offset, Entry entry) {
+
+        Node child = parent.child(term.charAt(offset));
+
+        if (child == null) {
+            child = new Node(term.substring(offset));
+            child.terminal = new Entry[]{entry};
+            child.top = new Entry[]{entry};
+            parent.addChild(child);
+            nodeCount++;
+        } else {
+
+            int common = commonLength(child.edge, term, offset);
+
+            if (common < child.edge.length()) {
+                child = split(parent, child, common);
+            }
+
+            if (offset + common == term.length()) {
+                child.terminal = append(child.terminal, entry);
+                offer(child, entry);
+            } else {
+                insert(child, term, offset + common, entry);
+            }
+        }
+
+        offer(parent, entry);
+    }
+
+    /*
+     * the new node takes the first characters of the child's edge and the child as its only child
+     */
+    private Node split(Node parent, Node child, int length) {
+
+        Node middle = new Node(child.edge.substring(0, length));
+        child.edge = child.edge.substring(length);
+
+        middle.addChild(child);
+        middle.top = child.top;
+        parent.replaceChild(middle);
+        nodeCount++;
+
+        return middle;
+    }
+
+    /*
+     * returns whether the key was removed below the parent, so the parent's best entries may have to be recomputed
+     */
+    private boolean remove(Node parent, String term, int offset, String key) {
+
+        Node child = parent.child(term.charAt(offset));
+
+        if (child == null || !term.startsWith(child.edge, offset)) {
+            return false;
+        }
+
+        boolean removed;
+        if (offset + child.edge.length() == term.length()) {
+            removed = child.removeTerminal(key);
+        } else {
+            removed = remove(child, term, offset + child.edge.length(), key);
+        }
+
+        if (!removed) {
+            return false;
+        }
+
+        if (child.terminal.length == 0 && child.children.length == 0) {
+            parent.removeChild(child);
+            nodeCount--;
+        } else if (child.terminal.length == 0 && child.children.length == 1) {
+            Node only = child.children[0];
+            only.edge = child.edge + only.edge;
+            parent.replaceChild(only);
+            nodeCount--;
+        } else if (contains(child.top, key)) {
+            child.top = rank(child);
+        }
+
+        return true;
+    }
+
+    /*
+     * the best entries of a subtree are among the node's own and the best entries of its children
+     */
+    private Entry[] rank(Node node) {
+
+        List<Entry> candidates = new ArrayList<Entry>(Arrays.asList(node.terminal));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+
+        Collections.sort(candidates, RANK);
+
+        List<Entry> top = new ArrayList<Entry>(maxResults);
+        Set<String> keys = new HashSet<String>();
+        for (int i = 0; i < candidates.size() && top.size() < maxResults; i++) {
+            if (keys.add(candidates.get(i).key)) {
+                top.add(candidates.get(i));
+            }
+        }
+
+        return top.toArray(new Entry[top.size()]);
+    }
+
+    private void offer(Node node, Entry entry) {
+
+        if (node == root) {
+            return;
+        }
+
+        Entry[] top = node.top;
+
+        for (int i = 0; i < top.length; i++) {
+            if (top[i].key.equals(entry.key)) {
+                if (RANK.compare(top[i], entry) <= 0) {
+                    return;
+                }
+                top = removeAt(top, i);
+                break;
+            }
+        }
+
+        if (top.length == maxResults && RANK.compare(entry, top[top.length - 1]) >= 0) {
+            return;
+        }
+
+        int position = -Arrays.binarySearch(top, entry, RANK) - 1;
+        int length = Math.min(top.length + 1, maxResults);
+
+        Entry[] ranked = new Entry[length];
+        System.arraycopy(top, 0, ranked, 0, position);
+        ranked[position] = entry;
+        System.arraycopy(top, position, ranked, position + 1, length - position - 1);
+
+        node.top = ranked;
+    }
+
+    private static boolean sameEntries(Entry[] existing, List<Entry> added) {
+
+        if (existing.length != added.size()) {
+            return false;
+        }
+
+        for (int i = 0; i < existing.length; i++) {
+            Entry entry = added.get(i);
+            if (!existing[i].term.equals(entry.term) || existing[i].weight != entry.weight
+                    || !existing[i].label.equals(entry.label)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean contains(Entry[] entries, String key) {
+        for (Entry entry : entries) {
+            if (entry.key.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        Entry[] appended = Arrays.copyOf(entries, entries.length + 1);
+        appended[entries.length] = entry;
+        return appended;
+    }
+
+    private static Entry[] removeAt(Entry[] entries, int index) {
+        Entry[] removed = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, removed, 0, index);
+        System.arraycopy(entries, index + 1, removed, index, entries.length - index - 1);
+        return removed;
+    }
+
+    private static int commonLength(String edge, String term, int offset) {
+
+        int length = Math.min(edge.length(), term.length() - offset);
+
+        for (int i = 0; i < length; i++) {
+            if (edge.charAt(i) != term.charAt(offset + i)) {
+                return i;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * A key found by a query
+     */
+    public static class Match {
+
+        private final String key;
+
+        private final String label;
+
+        private Match(Entry entry) {
+            this.key = entry.key;
+            this.label = entry.label;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static class Entry {
+
+        private final String key;
+
+        private final String label;
+
+        private final String term;
+
+        private final int weight;
+
+        private Entry(String key, String label, String term, int weight) {
+            this.key = key;
+            this.label = label;
+            this.term = term;
+            this.weight = weight;
+        }
+    }
+
+    /*
+     * children are kept sorted by the first character of their edge
+     */
+    private static class Node {
+
+        private String edge;
+
+        private char[] firsts = new char[0];
+
+        private Node[] children = NO_CHILDREN;
+
+        private Entry[] terminal = NO_ENTRIES;
+
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        private Node child(char first) {
+            int index = Arrays.binarySearch(firsts, first);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private void addChild(Node child) {
+
+            int position = -Arrays.binarySearch(firsts, child.edge.charAt(0)) - 1;
+
+            char[] newFirsts = new char[firsts.length + 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, position);
+            newFirsts[position] = child.edge.charAt(0);
+            System.arraycopy(firsts, position, newFirsts, position + 1, firsts.length - position);
+
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newChildren[position] = child;
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+
+            firsts = newFirsts;
+            children = newChildren;
+        }
+
+        private void replaceChild(Node child) {
+            children[Arrays.binarySearch(firsts, child.edge.charAt(0))] = child;
+        }
+
+        private void removeChild(Node child) {
+
+            int index = Arrays.binarySearch(firsts, child.edge.charAt(0));
+
+            char[] newFirsts = new char[firsts.length - 1];
+            System.arraycopy(firsts, 0, newFirsts, 0, index);
+            System.arraycopy(firsts, index + 1, newFirsts, index, firsts.length - index - 1);
+
+            firsts = newFirsts;
+            children = removeAt(children, index);
+        }
+
+        private boolean removeTerminal(String key) {
+
+            for (int i = 0; i < terminal.length; i++) {
+                if (terminal[i].key.equals(key)) {
+                    terminal = PrefixTrie.removeAt(terminal, i);
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private static Node[] removeAt(Node[] nodes, int index) {
+            Node[] removed = new Node[nodes.length - 1];
+            System.arraycopy(nodes, 0, removed, 0, index);
+            System.arraycopy(nodes, index + 1, removed, index, nodes.length - index - 1);
+            return removed;
+        }
+    }
+}
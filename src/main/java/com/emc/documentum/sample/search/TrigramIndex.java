@@ -0,0 +1,326 @@
+package com.emc.documentum.sample.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted trigram index answering case sensitive substring queries over a set of keyed texts.
+ *
+ * Every text is numbered and each of its three character sequences maps to a sorted {@link IntPostingList} of the
+ * numbers of the texts containing it. A query intersects the posting lists of its own trigrams, smallest first, and
+ * checks the remaining candidates against the stored texts, so results are exact. Queries shorter than a trigram
+ * scan the stored texts. Numbers of removed texts are reused.
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Integer> documents = new HashMap<String, Integer>();
+
+    private final Map<Long, IntPostingList> postings = new HashMap<Long, IntPostingList>();
+
+    private String[] keys = new String[1024];
+
+    private String[] texts = new String[1024];
+
+    private int[] freeDocuments = new int[16];
+
+    private int freeCount;
+
+    private int nextDocument;
+
+    private long postingCount;
+
+    /**
+     * Index a text, replacing any text previously indexed under the same key
+     *
+     * @param key the key returned by searches
+     * @param text the text, null removes the key
+     */
+    public void put(String key, String text) {
+
+        if (text == null) {
+            remove(key);
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+
+            Integer existing = documents.get(key);
+            int document;
+
+            if (existing != null) {
+                document = existing;
+                if (text.equals(texts[document])) {
+                    return;
+                }
+                unindex(document);
+            } else {
+                document = allocate();
+                documents.put(key, document);
+                keys[document] = key;
+            }
+
+            texts[document] = text;
+
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+
+                long gram = gram(text, i);
+                IntPostingList list = postings.get(gram);
+
+                if (list == null) {
+                    list = new IntPostingList();
+                    postings.put(gram, list);
+                }
+
+                int before = list.size();
+                list.add(document);
+                postingCount += list.size() - before;
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the text indexed under a key
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+
+        lock.writeLock().lock();
+        try {
+
+            Integer document = documents.remove(key);
+
+            if (document != null) {
+                unindex(document);
+                keys[document] = null;
+                texts[document] = null;
+                release(document);
+            }
+
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all texts
+     */
+    public void clear() {
+
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            postings.clear();
+            Arrays.fill(keys, null);
+            Arrays.fill(texts, null);
+            freeCount = 0;
+            nextDocument = 0;
+            postingCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the keys of all texts containing a substring
+     *
+     * @param substring the substring, case sensitive
+     * @return the matching keys, in no particular order
+     */
+    public List<String> search(String substring) {
+
+        lock.readLock().lock();
+        try {
+
+            if (substring.length() < GRAM) {
+                return scan(substring);
+            }
+
+            List<IntPostingList> lists = new ArrayList<IntPostingList>();
+
+            for (int i = 0; i + GRAM <= substring.length(); i++) {
+
+                IntPostingList list = postings.get(gram(substring, i));
+
+                // a trigram no text contains rules out every text
+                if (list == null) {
+                    return Collections.emptyList();
+                }
+
+                lists.add(list);
+            }
+
+            // intersect the rarest trigrams first to keep the candidate set small
+            Collections.sort(lists, new Comparator<IntPostingList>() {
+                @Override
+                public int compare(IntPostingList a, IntPostingList b) {
+                    return Integer.compare(a.size(), b.size());
+                }
+            });
+
+            int[] candidates = lists.get(0).toArray();
+            int count = candidates.length;
+
+            for (int i = 1; i < lists.size() && count > 0; i++) {
+                if (lists.get(i) != lists.get(i - 1)) {
+                    count = lists.get(i).intersect(candidates, count, candidates);
+                }
+            }
+
+            // trigrams can match out of order, check the candidates against the texts
+            List<String> matches = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                if (texts[candidates[i]].contains(substring)) {
+                    matches.add(keys[candidates[i]]);
+                }
+            }
+
+            return matches;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a key is indexed
+     *
+     * @param key the key
+     * @return true if a text is indexed under the key
+     */
+    public boolean contains(String key) {
+
+        lock.readLock().lock();
+        try {
+            return documents.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed texts
+     *
+     * @return the number of texts
+     */
+    public int size() {
+
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct trigrams
+     *
+     * @return the number of trigrams
+     */
+    public int getTrigramCount() {
+
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of entries over all posting lists
+     *
+     * @return the number of postings
+     */
+    public long getPostingCount() {
+
+        lock.readLock().lock();
+        try {
+            return postingCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<String> scan(String substring) {
+
+        List<String> matches = new ArrayList<String>();
+
+        for (int document = 0; document < nextDocument; document++) {
+            if (texts[document] != null && texts[document].contains(substring)) {
+                matches.add(keys[document]);
+            }
+        }
+
+        return matches;
+    }
+
+    private void unindex(int document) {
+
+        String text = texts[document];
+
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+
+            long gram = gram(text, i);
+            IntPostingList list = postings.get(gram);
+
+            if (list == null) {
+                continue;
+            }
+
+            int before = list.size();
+            list.remove(document);
+            postingCount -= before - list.size();
+
+            if (list.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private int allocate() {
+
+        if (freeCount > 0) {
+            return freeDocuments[--freeCount];
+        }
+
+        if (nextDocument == keys.length) {
+            keys = Arrays.copyOf(keys, keys.length * 2);
+            texts = Arrays.copyOf(texts, texts.length * 2);
+        }
+
+        return nextDocument++;
+    }
+
+    private void release(int document) {
+
+        if (freeCount == freeDocuments.length) {
+            freeDocuments = Arrays.copyOf(freeDocuments, freeDocuments.length * 2);
+        }
+
+        freeDocuments[freeCount++] = document;
+    }
+
+    /*
+     * three UTF-16 code units packed into one long
+     */
+    private static long gram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+}
@@ -0,0 +1,106 @@
+package com.emc.documentum.sample.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring mapping keys to shard names.
+ *
+ * Each shard is placed on the ring at a number of points, and a key belongs to the shard at the first point at or
+ * after the key's hash. Adding a shard only moves the keys falling just before its points, about one in every
+ * <code>shards + 1</code>, and moves them all to the new shard. Hashes are taken from MD5 so every node agrees on
+ * them whatever its JVM.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, String> points;
+
+    private final List<String> shards;
+
+    private final int pointsPerShard;
+
+    /**
+     * Constructor
+     *
+     * @param shards the shard names
+     * @param pointsPerShard the number of points each shard takes on the ring, more points spread keys more evenly
+     */
+    public ConsistentHashRing(List<String> shards, int pointsPerShard) {
+
+        if (shards.isEmpty() || pointsPerShard < 1) {
+            throw new IllegalArgumentException("A ring needs at least one shard and one point per shard");
+        }
+
+        this.shards = Collections.unmodifiableList(new ArrayList<String>(shards));
+        this.pointsPerShard = pointsPerShard;
+        this.points = new TreeMap<Long, String>();
+
+        for (String shard : shards) {
+            for (int i = 0; i < pointsPerShard; i++) {
+                String previous = points.put(hash(shard + "#" + i), shard);
+                if (previous != null && !previous.equals(shard)) {
+                    throw new IllegalArgumentException("Shards " + previous + " and " + shard + " collide on the ring");
+                }
+            }
+        }
+    }
+
+    /**
+     * A ring with one more shard
+     *
+     * @param shard the name of the shard to add
+     * @return the new ring
+     */
+    public ConsistentHashRing withShard(String shard) {
+
+        if (shards.contains(shard)) {
+            throw new IllegalArgumentException("Shard " + shard + " is already on the ring");
+        }
+
+        List<String> withShard = new ArrayList<String>(shards);
+        withShard.add(shard);
+
+        return new ConsistentHashRing(withShard, pointsPerShard);
+    }
+
+    /**
+     * The shard a key belongs to
+     *
+     * @param key the key
+     * @return the shard name
+     */
+    public String shardFor(String key) {
+
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+
+        // past the last point the ring wraps around to the first
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    public List<String> getShards() {
+        return shards;
+    }
+
+    static long hash(String key) {
+
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xff);
+        }
+
+        return hash;
+    }
+}
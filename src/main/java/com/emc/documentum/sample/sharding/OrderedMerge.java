@@ -0,0 +1,88 @@
+package com.emc.documentum.sample.sharding;
+
+import com.emc.documentum.sample.domain.Contact;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Merges iterators of contacts ordered by id into one iterator ordered by id, reading each source only as far as
+ * the merge has got. A contact found in more than one source, as it is while being moved between shards, is
+ * returned once.
+ */
+class OrderedMerge implements Iterator<Contact> {
+
+    private final PriorityQueue<Head> heads;
+
+    private String lastId;
+
+    /**
+     * Constructor
+     *
+     * @param sources the iterators to merge, each ordered by id
+     */
+    OrderedMerge(List<? extends Iterator<Contact>> sources) {
+
+        heads = new PriorityQueue<Head>(Math.max(1, sources.size()), new Comparator<Head>() {
+            @Override
+            public int compare(Head a, Head b) {
+                return a.contact.getId().compareTo(b.contact.getId());
+            }
+        });
+
+        for (Iterator<Contact> source : sources) {
+            advance(new Head(source));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+
+        while (!heads.isEmpty() && heads.peek().contact.getId().equals(lastId)) {
+            advance(heads.poll());
+        }
+
+        return !heads.isEmpty();
+    }
+
+    @Override
+    public Contact next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Head head = heads.poll();
+        Contact contact = head.contact;
+        lastId = contact.getId();
+        advance(head);
+
+        return contact;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void advance(Head head) {
+        if (head.source.hasNext()) {
+            head.contact = head.source.next();
+            heads.add(head);
+        }
+    }
+
+    private static final class Head {
+
+        private final Iterator<Contact> source;
+
+        private Contact contact;
+
+        private Head(Iterator<Contact> source) {
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.emc.documentum.sample.sharding;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Results of a query sent to every shard, handed on as the shards answer rather than once all have.
+ *
+ * Iterating takes the result of the first shard to answer, then the next, so callers start on the contacts while
+ * slower shards are still working. Results taken are kept, so the results can be iterated more than once.
+ *
+ * @param <T> the result type
+ */
+class ShardResults<T> implements Iterable<T> {
+
+    /**
+     * Key results are told apart by, for dropping the second copy of a contact being moved between shards
+     *
+     * @param <T> the result type
+     */
+    interface Key<T> {
+        Object of(T result);
+    }
+
+    private final Iterator<List<T>> shardResults;
+
+    private final Key<T> key;
+
+    private final List<T> taken = new ArrayList<T>();
+
+    private final Set<Object> seen = new HashSet<Object>();
+
+    /**
+     * Constructor
+     *
+     * @param shardResults the result of each shard in the order they answer
+     * @param key the key of a result, null if results cannot be duplicated
+     */
+    ShardResults(Iterator<List<T>> shardResults, Key<T> key) {
+        this.shardResults = shardResults;
+        this.key = key;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+
+        return new Iterator<T>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return available(index);
+            }
+
+            @Override
+            public T next() {
+
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return get(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Take every result, waiting for all shards
+     *
+     * @return the results
+     */
+    synchronized List<T> toList() {
+        available(Integer.MAX_VALUE);
+        return new ArrayList<T>(taken);
+    }
+
+    /*
+     * wait for further shards until there are more than index results or no shards are left
+     */
+    private synchronized boolean available(int index) {
+
+        while (taken.size() <= index && shardResults.hasNext()) {
+            for (T result : shardResults.next()) {
+                if (key == null || seen.add(key.of(result))) {
+                    taken.add(result);
+                }
+            }
+        }
+
+        return taken.size() > index;
+    }
+
+    private synchronized T get(int index) {
+        return taken.get(index);
+    }
+}
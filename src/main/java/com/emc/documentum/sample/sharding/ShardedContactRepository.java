@@ -0,0 +1,1087 @@
+package com.emc.documentum.sample.sharding;
+
+import com.documentum.fc.common.DfException;
+import com.emc.documentum.sample.dfc.DocbaseAccessException;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactField;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Contact repository spreading the contacts over several shard repositories, each contact stored on the shard its id
+ * maps to on a {@link ConsistentHashRing}.
+ *
+ * Ids of new contacts are assigned here rather than by a shard, in the docbase object id format, so a contact is
+ * stored on its shard from the start. Ids are random, so nodes assigning ids at once do not need to agree, and are
+ * checked against the shards before use. Operations on given ids go to the shards owning them. Queries over all
+ * contacts go to every shard in parallel, their results are handed on as the shards answer, and
+ * {@link #streamAll()} merges the shards' streams in id order without reading any shard ahead of the merge.
+ *
+ * {@link #addShard(String, ContactRepository)} puts a shard on the ring straight away and moves the contacts that
+ * now belong to it in the background. Until the move is done lookups missing a contact on its new shard try the one
+ * it came from, and writes move the contacts they touch first, so no write is lost to a move or overwritten by a
+ * stale copy. Counts may include contacts being moved twice. A move that fails is retried a few times, after that
+ * lookups keep falling back to the old shards until {@link #resumeRebalance()} completes it.
+ */
+public class ShardedContactRepository implements ContactRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedContactRepository.class);
+
+    private static final int POINTS_PER_SHARD = 128;
+
+    private static final int MOVE_BATCH_SIZE = 100;
+
+    private static final int MOVE_ATTEMPTS = 3;
+
+    private static final long MOVE_RETRY_MILLIS = 500;
+
+    private final Map<String, ContactRepository> shards = new ConcurrentHashMap<String, ContactRepository>();
+
+    private final Executor executor;
+
+    private volatile ConsistentHashRing ring;
+
+    private volatile ConsistentHashRing previousRing;
+
+    private Future<Long> rebalance;
+
+    private final ReentrantReadWriteLock moveLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong moved = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param shards the shard repositories by shard name
+     * @param executor the executor running the calls made to every shard at once, and moves after adding a shard
+     */
+    public ShardedContactRepository(Map<String, ? extends ContactRepository> shards, Executor executor) {
+        this.shards.putAll(shards);
+        this.executor = executor;
+        this.ring = new ConsistentHashRing(new ArrayList<String>(shards.keySet()), POINTS_PER_SHARD);
+    }
+
+    /**
+     * Add a shard and move the contacts that belong to it there in the background.
+     *
+     * The shard takes its share of new contacts straight away. Only one shard can be added at a time.
+     *
+     * @param name the shard name
+     * @param shard the shard repository, empty
+     * @return the number of contacts moved, once the move is done
+     */
+    public synchronized Future<Long> addShard(String name, ContactRepository shard) {
+
+        if (previousRing != null) {
+            throw new IllegalStateException("Contacts are still being moved to the last shard added");
+        }
+
+        ConsistentHashRing newRing = ring.withShard(name);
+
+        shards.put(name, shard);
+        previousRing = ring;
+        ring = newRing;
+
+        return startRebalance();
+    }
+
+    /**
+     * Move the contacts left on the shards they no longer belong to, after the move started by
+     * {@link #addShard(String, ContactRepository)} failed
+     *
+     * @return the number of contacts moved, once the move is done
+     */
+    public synchronized Future<Long> resumeRebalance() {
+
+        if (previousRing == null) {
+            throw new IllegalStateException("No contacts are being moved");
+        }
+        if (!rebalance.isDone()) {
+            throw new IllegalStateException("Contacts are still being moved to the last shard added");
+        }
+
+        return startRebalance();
+    }
+
+    /**
+     * Whether contacts are being moved to a newly added shard
+     *
+     * @return true until the move is done
+     */
+    public boolean isRebalancing() {
+        return previousRing != null;
+    }
+
+    /**
+     * Get the number of contacts moved between shards
+     *
+     * @return the number of contacts moved
+     */
+    public long getMovedCount() {
+        return moved.get();
+    }
+
+    /**
+     * Get the shard repositories
+     *
+     * @return the shard repositories by shard name, in the order they were added
+     */
+    public Map<String, ContactRepository> getShards() {
+
+        Map<String, ContactRepository> ordered = new LinkedHashMap<String, ContactRepository>();
+        for (String name : ring.getShards()) {
+            ordered.put(name, shards.get(name));
+        }
+
+        return ordered;
+    }
+
+    /**
+     * Get the name of the shard a contact belongs to
+     *
+     * @param id the contact id
+     * @return the shard name
+     */
+    public String shardFor(String id) {
+        return ring.shardFor(id);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Contact> S save(S contact) {
+
+        S toSave = contact;
+
+        if (contact.getId() == null) {
+            toSave = (S) contact.copy();
+            toSave.setId(newIds(1).get(0));
+        } else {
+            settle(Collections.singleton(contact.getId()));
+        }
+
+        moveLock.readLock().lock();
+        try {
+            return owner(toSave.getId()).save(toSave);
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <S extends Contact> Iterable<S> save(Iterable<S> contacts) {
+
+        List<S> saved = new ArrayList<S>();
+
+        for (S contact : contacts) {
+            saved.add(save(contact));
+        }
+
+        return saved;
+    }
+
+    @Override
+    public List<Contact> saveAll(Collection<Contact> contacts) {
+
+        List<Contact> toSave = new ArrayList<Contact>(contacts.size());
+        List<String> existingIds = new ArrayList<String>();
+
+        int newContacts = 0;
+        for (Contact contact : contacts) {
+            if (contact.getId() == null) {
+                newContacts++;
+            }
+        }
+        Iterator<String> ids = newIds(newContacts).iterator();
+
+        for (Contact contact : contacts) {
+            if (contact.getId() == null) {
+                Contact copy = contact.copy();
+                copy.setId(ids.next());
+                toSave.add(copy);
+            } else {
+                toSave.add(contact);
+                existingIds.add(contact.getId());
+            }
+        }
+
+        settle(existingIds);
+
+        final Map<String, List<Contact>> byShard = new LinkedHashMap<String, List<Contact>>();
+        for (Contact contact : toSave) {
+            group(byShard, ring.shardFor(contact.getId()), contact);
+        }
+
+        Map<String, Contact> savedById = new ConcurrentHashMap<String, Contact>();
+
+        moveLock.readLock().lock();
+        try {
+            Iterator<List<Contact>> results = fanOut(byShard.keySet(), new ShardCall<List<Contact>>() {
+                @Override
+                public List<Contact> call(String name, ContactRepository shard) {
+                    return shard.saveAll(byShard.get(name));
+                }
+            });
+            while (results.hasNext()) {
+                for (Contact saved : results.next()) {
+                    savedById.put(saved.getId(), saved);
+                }
+            }
+        } finally {
+            moveLock.readLock().unlock();
+        }
+
+        // back in the order they were given
+        List<Contact> saved = new ArrayList<Contact>(toSave.size());
+        for (Contact contact : toSave) {
+            saved.add(savedById.get(contact.getId()));
+        }
+
+        return saved;
+    }
+
+    @Override
+    public Contact findOne(String id) {
+
+        Contact contact = owner(id).findOne(id);
+
+        if (contact == null && previousRing != null) {
+            ContactRepository previous = previousOwner(id);
+            contact = previous != null ? previous.findOne(id) : null;
+            // moved to the new shard since it was looked up there
+            if (contact == null) {
+                contact = owner(id).findOne(id);
+            }
+        }
+
+        return contact;
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return findVersion(id) != null;
+    }
+
+    @Override
+    public Iterable<Contact> findAll() {
+        return queryAll(new ShardCall<List<Contact>>() {
+            @Override
+            public List<Contact> call(String name, ContactRepository shard) {
+                return toList(shard.findAll());
+            }
+        }, CONTACT_ID);
+    }
+
+    @Override
+    public Iterable<Contact> findAll(Iterable<String> ids) {
+
+        List<String> idList = new ArrayList<String>();
+        for (String id : ids) {
+            idList.add(id);
+        }
+
+        return findAllById(idList);
+    }
+
+    @Override
+    public List<Contact> findAllById(Collection<String> ids) {
+
+        final Map<String, List<String>> byShard = byOwner(ids);
+
+        List<Contact> found = toList(new ShardResults<Contact>(fanOut(byShard.keySet(), new ShardCall<List<Contact>>() {
+            @Override
+            public List<Contact> call(String name, ContactRepository shard) {
+                return shard.findAllById(byShard.get(name));
+            }
+        }), null));
+
+        if (previousRing != null && found.size() < new HashSet<String>(ids).size()) {
+            found = findMissing(ids, found);
+        }
+
+        return found;
+    }
+
+    @Override
+    public Iterable<Contact> findByNameContaining(final String value) {
+        return queryAll(new ShardCall<List<Contact>>() {
+            @Override
+            public List<Contact> call(String name, ContactRepository shard) {
+                return toList(shard.findByNameContaining(value));
+            }
+        }, CONTACT_ID);
+    }
+
+    @Override
+    public Slice<Contact> findAllAfter(final String afterId, final Pageable pageable) {
+
+        final int size = pageable.getPageSize();
+        final Pageable shardPage = new PageRequest(0, size);
+
+        List<Slice<Contact>> slices = new ArrayList<Slice<Contact>>();
+        Iterator<Slice<Contact>> results = fanOut(ring.getShards(), new ShardCall<Slice<Contact>>() {
+            @Override
+            public Slice<Contact> call(String name, ContactRepository shard) {
+                return shard.findAllAfter(afterId, shardPage);
+            }
+        });
+        while (results.hasNext()) {
+            slices.add(results.next());
+        }
+
+        List<Iterator<Contact>> sources = new ArrayList<Iterator<Contact>>(slices.size());
+        boolean shardHasNext = false;
+        for (Slice<Contact> slice : slices) {
+            sources.add(slice.getContent().iterator());
+            shardHasNext |= slice.hasNext();
+        }
+
+        OrderedMerge merge = new OrderedMerge(sources);
+        List<Contact> slice = new ArrayList<Contact>(size);
+        while (slice.size() < size && merge.hasNext()) {
+            slice.add(merge.next());
+        }
+
+        return new SliceImpl<Contact>(slice, pageable, merge.hasNext() || shardHasNext);
+    }
+
+    @Override
+    public Stream<Contact> streamAll() {
+
+        final List<Stream<Contact>> streams = Collections.synchronizedList(new ArrayList<Stream<Contact>>());
+
+        try {
+            Iterator<Stream<Contact>> opened = fanOut(ring.getShards(), new ShardCall<Stream<Contact>>() {
+                @Override
+                public Stream<Contact> call(String name, ContactRepository shard) {
+                    return shard.streamAll();
+                }
+            });
+            while (opened.hasNext()) {
+                streams.add(opened.next());
+            }
+        } catch (RuntimeException e) {
+            close(streams);
+            throw e;
+        }
+
+        List<Iterator<Contact>> sources = new ArrayList<Iterator<Contact>>(streams.size());
+        for (Stream<Contact> stream : streams) {
+            sources.add(stream.iterator());
+        }
+
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new OrderedMerge(sources),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false)
+                .onClose(new Runnable() {
+                    @Override
+                    public void run() {
+                        close(streams);
+                    }
+                });
+    }
+
+    @Override
+    public List<Map<String, String>> findAllFields(final Set<ContactField> fields) {
+        return queryAll(new ShardCall<List<Map<String, String>>>() {
+            @Override
+            public List<Map<String, String>> call(String name, ContactRepository shard) {
+                return shard.findAllFields(fields);
+            }
+        }, new ShardResults.Key<Map<String, String>>() {
+            @Override
+            public Object of(Map<String, String> row) {
+                return row.get(ContactField.ID.getProperty());
+            }
+        }).toList();
+    }
+
+    @Override
+    public Slice<Map<String, String>> findFieldsAfter(final Set<ContactField> fields, final String afterId,
+                                                      final Pageable pageable) {
+
+        final int size = pageable.getPageSize();
+        final Pageable shardPage = new PageRequest(0, size);
+
+        Iterator<Slice<Map<String, String>>> results = fanOut(ring.getShards(),
+                new ShardCall<Slice<Map<String, String>>>() {
+                    @Override
+                    public Slice<Map<String, String>> call(String name, ContactRepository shard) {
+                        return shard.findFieldsAfter(fields, afterId, shardPage);
+                    }
+                });
+
+        // at most a slice per shard, ordered by id with contacts being moved counted once
+        TreeMap<String, Map<String, String>> rows = new TreeMap<String, Map<String, String>>();
+        boolean shardHasNext = false;
+        while (results.hasNext()) {
+            Slice<Map<String, String>> slice = results.next();
+            for (Map<String, String> row : slice.getContent()) {
+                rows.put(row.get(ContactField.ID.getProperty()), row);
+            }
+            shardHasNext |= slice.hasNext();
+        }
+
+        List<Map<String, String>> slice = new ArrayList<Map<String, String>>(size);
+        for (Map<String, String> row : rows.values()) {
+            if (slice.size() == size) {
+                break;
+            }
+            slice.add(row);
+        }
+
+        return new SliceImpl<Map<String, String>>(slice, pageable, rows.size() > size || shardHasNext);
+    }
+
+    @Override
+    public <T> List<T> findAllProjected(final Class<T> projection) {
+        // projections cannot be told apart, a contact being moved may be returned twice
+        return new ShardResults<T>(fanOut(ring.getShards(), new ShardCall<List<T>>() {
+            @Override
+            public List<T> call(String name, ContactRepository shard) {
+                return shard.findAllProjected(projection);
+            }
+        }), null).toList();
+    }
+
+    @Override
+    public ContactVersion findVersion(String id) {
+
+        ContactVersion version = owner(id).findVersion(id);
+
+        if (version == null && previousRing != null) {
+            ContactRepository previous = previousOwner(id);
+            version = previous != null ? previous.findVersion(id) : null;
+            if (version == null) {
+                version = owner(id).findVersion(id);
+            }
+        }
+
+        return version;
+    }
+
+    @Override
+    public ContactVersion findCollectionVersion() {
+
+        List<String> shardNames = ring.getShards();
+        final Map<String, ContactVersion> versions = new ConcurrentHashMap<String, ContactVersion>();
+        final Set<String> unknown = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        Iterator<Void> results = fanOut(shardNames, new ShardCall<Void>() {
+            @Override
+            public Void call(String name, ContactRepository shard) {
+                ContactVersion version = shard.findCollectionVersion();
+                if (version == null) {
+                    unknown.add(name);
+                } else {
+                    versions.put(name, version);
+                }
+                return null;
+            }
+        });
+        while (results.hasNext()) {
+            results.next();
+        }
+
+        if (!unknown.isEmpty()) {
+            return null;
+        }
+
+        // the tags in ring order, so every node builds the same tag
+        StringBuilder tag = new StringBuilder();
+        Date lastModified = null;
+        for (String name : shardNames) {
+            ContactVersion version = versions.get(name);
+            tag.append(tag.length() == 0 ? "" : "|").append(version.getTag());
+            if (version.getLastModified() != null
+                    && (lastModified == null || version.getLastModified().after(lastModified))) {
+                lastModified = version.getLastModified();
+            }
+        }
+
+        return new ContactVersion(Long.toHexString(ConsistentHashRing.hash(tag.toString())), lastModified);
+    }
+
+    @Override
+    public List<String> findIdsByNameContaining(final String value) {
+        return queryAll(new ShardCall<List<String>>() {
+            @Override
+            public List<String> call(String name, ContactRepository shard) {
+                return shard.findIdsByNameContaining(value);
+            }
+        }, new ShardResults.Key<String>() {
+            @Override
+            public Object of(String id) {
+                return id;
+            }
+        }).toList();
+    }
+
+    @Override
+    public int deleteAllByIdIn(Collection<String> ids) {
+
+        settle(ids);
+
+        final Map<String, List<String>> byShard = byOwner(ids);
+
+        moveLock.readLock().lock();
+        try {
+            return sum(fanOut(byShard.keySet(), new ShardCall<Integer>() {
+                @Override
+                public Integer call(String name, ContactRepository shard) {
+                    return shard.deleteAllByIdIn(byShard.get(name));
+                }
+            }));
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteByNameContaining(final String value) {
+
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("A name value is required, an empty value would delete every contact");
+        }
+
+        moveLock.readLock().lock();
+        try {
+            return sum(fanOut(ring.getShards(), new ShardCall<Integer>() {
+                @Override
+                public Integer call(String name, ContactRepository shard) {
+                    return shard.deleteByNameContaining(value);
+                }
+            }));
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAllByIdIn(Collection<String> ids, final Map<ContactField, String> values) {
+
+        if (values.containsKey(ContactField.ID)) {
+            throw new IllegalArgumentException("The id of a contact cannot be changed");
+        }
+
+        settle(ids);
+
+        final Map<String, List<String>> byShard = byOwner(ids);
+
+        moveLock.readLock().lock();
+        try {
+            return sum(fanOut(byShard.keySet(), new ShardCall<Integer>() {
+                @Override
+                public Integer call(String name, ContactRepository shard) {
+                    return shard.updateAllByIdIn(byShard.get(name), values);
+                }
+            }));
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long count() {
+
+        long count = 0;
+        Iterator<Long> counts = fanOut(ring.getShards(), new ShardCall<Long>() {
+            @Override
+            public Long call(String name, ContactRepository shard) {
+                return shard.count();
+            }
+        });
+        while (counts.hasNext()) {
+            count += counts.next();
+        }
+
+        return count;
+    }
+
+    @Override
+    public void delete(String id) {
+        deleteAllByIdIn(Collections.singleton(id));
+    }
+
+    @Override
+    public void delete(Contact contact) {
+        delete(contact.getId());
+    }
+
+    @Override
+    public void delete(Iterable<? extends Contact> contacts) {
+
+        List<String> ids = new ArrayList<String>();
+        for (Contact contact : contacts) {
+            ids.add(contact.getId());
+        }
+
+        deleteAllByIdIn(ids);
+    }
+
+    @Override
+    public void deleteAll() {
+
+        moveLock.readLock().lock();
+        try {
+            Iterator<Void> results = fanOut(ring.getShards(), new ShardCall<Void>() {
+                @Override
+                public Void call(String name, ContactRepository shard) {
+                    shard.deleteAll();
+                    return null;
+                }
+            });
+            while (results.hasNext()) {
+                results.next();
+            }
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String setContent(Contact contact, String contentType, String path) throws DfException {
+
+        settle(Collections.singleton(contact.getId()));
+
+        moveLock.readLock().lock();
+        try {
+            return owner(contact.getId()).setContent(contact, contentType, path);
+        } finally {
+            moveLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String getContent(Contact contact, String path) throws DfException {
+
+        String content = owner(contact.getId()).getContent(contact, path);
+
+        if (content == null && previousRing != null) {
+            ContactRepository previous = previousOwner(contact.getId());
+            content = previous != null ? previous.getContent(contact, path) : null;
+            if (content == null) {
+                content = owner(contact.getId()).getContent(contact, path);
+            }
+        }
+
+        return content;
+    }
+
+    private Future<Long> startRebalance() {
+
+        FutureTask<Long> task = new FutureTask<Long>(new Callable<Long>() {
+            @Override
+            public Long call() throws InterruptedException {
+                return rebalance();
+            }
+        });
+
+        rebalance = task;
+        executor.execute(task);
+
+        return task;
+    }
+
+    /*
+     * a failed pass is repeated from the start, contacts moved before it failed are no longer on the old shards
+     */
+    private long rebalance() throws InterruptedException {
+
+        long start = System.currentTimeMillis();
+        AtomicLong movedHere = new AtomicLong();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                moveAll(movedHere);
+                previousRing = null;
+                logger.info("Moved {} contacts to their new shards in {} ms", movedHere.get(),
+                        System.currentTimeMillis() - start);
+                return movedHere.get();
+            } catch (RuntimeException e) {
+                if (attempt == MOVE_ATTEMPTS) {
+                    // lookups keep falling back to the old shards until the move is resumed
+                    logger.error("Unable to move contacts to their new shards after {} attempts, {} moved so far",
+                            attempt, movedHere.get(), e);
+                    throw e;
+                }
+                logger.warn("Unable to move contacts to their new shards, {} moved so far, retrying",
+                        movedHere.get(), e);
+                Thread.sleep(MOVE_RETRY_MILLIS * attempt);
+            }
+        }
+    }
+
+    /*
+     * move every contact off the shards it no longer belongs to, a batch at a time
+     */
+    private void moveAll(AtomicLong movedHere) {
+
+        for (String name : previousRing.getShards()) {
+
+            ContactRepository source = shards.get(name);
+            String afterId = null;
+            Slice<Contact> slice;
+
+            do {
+                slice = source.findAllAfter(afterId, new PageRequest(0, MOVE_BATCH_SIZE));
+
+                List<String> leaving = new ArrayList<String>();
+                for (Contact contact : slice.getContent()) {
+                    afterId = contact.getId();
+                    if (!name.equals(ring.shardFor(contact.getId()))) {
+                        leaving.add(contact.getId());
+                    }
+                }
+
+                if (!leaving.isEmpty()) {
+                    movedHere.addAndGet(move(source, leaving));
+                }
+
+            } while (slice.hasNext());
+        }
+    }
+
+    /*
+     * move contacts from the shard they were on before the last shard was added to the shard they now belong to
+     */
+    private void settle(Collection<String> ids) {
+
+        ConsistentHashRing previous = previousRing;
+
+        if (previous == null || ids.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<String>> bySource = new LinkedHashMap<String, List<String>>();
+        for (String id : ids) {
+            String from = previous.shardFor(id);
+            if (!from.equals(ring.shardFor(id))) {
+                group(bySource, from, id);
+            }
+        }
+
+        for (Map.Entry<String, List<String>> source : bySource.entrySet()) {
+            move(shards.get(source.getKey()), source.getValue());
+        }
+    }
+
+    /*
+     * reread under the move lock, so no write runs between reading a contact and removing it from its old shard
+     */
+    private int move(ContactRepository source, Collection<String> ids) {
+
+        moveLock.writeLock().lock();
+
+        try {
+            List<Contact> contacts = source.findAllById(ids);
+
+            if (contacts.isEmpty()) {
+                return 0;
+            }
+
+            Map<String, List<Contact>> byTarget = new LinkedHashMap<String, List<Contact>>();
+            for (Contact contact : contacts) {
+                group(byTarget, ring.shardFor(contact.getId()), contact);
+            }
+
+            List<String> movedIds = new ArrayList<String>(contacts.size());
+            for (Map.Entry<String, List<Contact>> target : byTarget.entrySet()) {
+                ContactRepository targetShard = shards.get(target.getKey());
+                targetShard.saveAll(target.getValue());
+                for (Contact contact : target.getValue()) {
+                    moveContent(source, targetShard, contact);
+                    movedIds.add(contact.getId());
+                }
+            }
+
+            source.deleteAllByIdIn(movedIds);
+            moved.addAndGet(movedIds.size());
+
+            return movedIds.size();
+
+        } finally {
+            moveLock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * content is copied without its format, which the repository does not give back
+     */
+    private static void moveContent(ContactRepository source, ContactRepository target, Contact contact) {
+
+        Path file = null;
+
+        try {
+            file = Files.createTempFile("contact-move", ".content");
+
+            if (source.getContent(contact, file.toString()) != null) {
+                target.setContent(contact, null, file.toString());
+            }
+
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to move the content of contact " + contact.getId(), e);
+        } catch (DfException e) {
+            throw new DocbaseAccessException("Unable to move the content of contact " + contact.getId(), e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    logger.warn("Unable to delete {}", file, e);
+                }
+            }
+        }
+    }
+
+    private ContactRepository owner(String id) {
+        return shards.get(ring.shardFor(id));
+    }
+
+    /*
+     * the shard a contact was on before the last shard was added, null if it has not changed or no move is going on
+     */
+    private ContactRepository previousOwner(String id) {
+
+        ConsistentHashRing previous = previousRing;
+
+        if (previous == null) {
+            return null;
+        }
+
+        String name = previous.shardFor(id);
+
+        return name.equals(ring.shardFor(id)) ? null : shards.get(name);
+    }
+
+    private Map<String, List<String>> byOwner(Collection<String> ids) {
+
+        Map<String, List<String>> byShard = new LinkedHashMap<String, List<String>>();
+        for (String id : ids) {
+            group(byShard, ring.shardFor(id), id);
+        }
+
+        return byShard;
+    }
+
+    /*
+     * contacts that were not yet moved when their new shard was asked for them
+     */
+    private List<Contact> findMissing(Collection<String> ids, List<Contact> found) {
+
+        Set<String> foundIds = new HashSet<String>();
+        for (Contact contact : found) {
+            foundIds.add(contact.getId());
+        }
+
+        List<Contact> all = new ArrayList<Contact>(found);
+        for (String id : ids) {
+            if (!foundIds.contains(id)) {
+                Contact contact = findOne(id);
+                if (contact != null && foundIds.add(id)) {
+                    all.add(contact);
+                }
+            }
+        }
+
+        return all;
+    }
+
+    /*
+     * results of every shard as they answer, dropping second copies while contacts are being moved
+     */
+    private <T> ShardResults<T> queryAll(ShardCall<List<T>> call, ShardResults.Key<T> key) {
+        boolean moving = previousRing != null;
+        return new ShardResults<T>(fanOut(ring.getShards(), call), moving ? key : null);
+    }
+
+    /*
+     * call each shard on the executor, returning the results in the order the shards answer
+     */
+    private <T> Iterator<T> fanOut(Collection<String> names, final ShardCall<T> call) {
+
+        final CompletionService<T> completion = new ExecutorCompletionService<T>(executor);
+        final int calls = names.size();
+
+        for (final String name : names) {
+            final ContactRepository shard = shards.get(name);
+            completion.submit(new Callable<T>() {
+                @Override
+                public T call() {
+                    return call.call(name, shard);
+                }
+            });
+        }
+
+        return new Iterator<T>() {
+
+            private int taken;
+
+            @Override
+            public boolean hasNext() {
+                return taken < calls;
+            }
+
+            @Override
+            public T next() {
+
+                taken++;
+
+                try {
+                    return completion.take().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new TransientDataAccessResourceException("Interrupted waiting for the contact shards", e);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException("Contact shard call failed", e.getCause());
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private static int sum(Iterator<Integer> counts) {
+
+        int sum = 0;
+        while (counts.hasNext()) {
+            sum += counts.next();
+        }
+
+        return sum;
+    }
+
+    private static <K, V> void group(Map<K, List<V>> groups, K key, V value) {
+
+        List<V> group = groups.get(key);
+        if (group == null) {
+            group = new ArrayList<V>();
+            groups.put(key, group);
+        }
+
+        group.add(value);
+    }
+
+    private static <T> List<T> toList(Iterable<T> results) {
+
+        if (results instanceof List) {
+            return (List<T>) results;
+        }
+
+        List<T> list = new ArrayList<T>();
+        for (T result : results) {
+            list.add(result);
+        }
+
+        return list;
+    }
+
+    private static void close(List<Stream<Contact>> streams) {
+
+        RuntimeException failure = null;
+
+        for (Stream<Contact> stream : streams) {
+            try {
+                stream.close();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /*
+     * ids no shard holds yet, random ids collide too rarely to be worth more than a lookup per batch
+     */
+    private List<String> newIds(int count) {
+
+        Set<String> ids = new LinkedHashSet<String>();
+
+        while (ids.size() < count) {
+
+            Set<String> candidates = new LinkedHashSet<String>();
+            while (ids.size() + candidates.size() < count) {
+                String id = nextId();
+                if (!ids.contains(id)) {
+                    candidates.add(id);
+                }
+            }
+
+            for (Contact existing : findAllById(candidates)) {
+                candidates.remove(existing.getId());
+            }
+
+            ids.addAll(candidates);
+        }
+
+        return new ArrayList<String>(ids);
+    }
+
+    /*
+     * docbase style 16 hex digit object id, random so nodes assigning ids at once do not collide
+     */
+    private static String nextId() {
+        return String.format("09%014x", ThreadLocalRandom.current().nextLong() & 0xffffffffffffffL);
+    }
+
+    private static final ShardResults.Key<Contact> CONTACT_ID = new ShardResults.Key<Contact>() {
+        @Override
+        public Object of(Contact contact) {
+            return contact.getId();
+        }
+    };
+
+    /**
+     * A call made on one shard
+     *
+     * @param <T> the result type
+     */
+    private interface ShardCall<T> {
+        T call(String name, ContactRepository shard);
+    }
+}
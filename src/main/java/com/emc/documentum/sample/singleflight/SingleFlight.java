@@ -0,0 +1,221 @@
+package com.emc.documentum.sample.singleflight;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Shares one in-flight call between concurrent callers making the same call.
+ *
+ * The first caller of a key leads the flight and makes the call, callers arriving with the same key before it
+ * returns wait for it and get its result or exception instead of calling again. Every caller, the leader included,
+ * gets its own share of the result, so no caller can change the result the others are still copying from. Nothing
+ * is kept once the call returns, the next caller starts a new flight.
+ *
+ * Callers do not join a flight older than the timeout and stop waiting for one at the timeout, they then make the
+ * call themselves, so one stuck call does not hold up everyone after it. Past the maximum number of flights, calls
+ * are made without coalescing.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=SingleFlight", description = "Coalescing of identical repository calls")
+public class SingleFlight {
+
+    private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+
+    private final long timeoutNanos;
+
+    private final int maxFlights;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong bypassed = new AtomicLong();
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param timeoutMillis how long callers wait for a flight they joined
+     * @param maxFlights maximum number of flights at a time
+     */
+    public SingleFlight(long timeoutMillis, int maxFlights) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.maxFlights = maxFlights;
+    }
+
+    /**
+     * Make a call, or wait for the same call already in flight
+     *
+     * @param key the call key, equal for calls that may share a result
+     * @param call the call
+     * @return the share of the result handed out by {@link Call#share}, or the result itself if the call was made
+     * without coalescing
+     * @throws Throwable the exception of the call
+     */
+    public Object execute(Object key, Call call) throws Throwable {
+
+        calls.incrementAndGet();
+
+        Flight flight = new Flight(System.nanoTime());
+
+        for (;;) {
+
+            Flight current = flights.get(key);
+
+            if (current == null) {
+
+                if (flights.size() >= maxFlights) {
+                    bypassed.incrementAndGet();
+                    return call.proceed();
+                }
+
+                if (flights.putIfAbsent(key, flight) == null) {
+                    return lead(key, flight, call);
+                }
+
+            } else if (System.nanoTime() - current.started >= timeoutNanos) {
+
+                // stuck, later callers start over
+                if (flights.replace(key, current, flight)) {
+                    return lead(key, flight, call);
+                }
+
+            } else {
+                return join(current, call);
+            }
+        }
+    }
+
+    /**
+     * Drop the flights in progress, callers from now on start new ones. Callers that already joined a flight still
+     * get its result.
+     */
+    @ManagedOperation(description = "Drop the flights in progress")
+    public void invalidate() {
+        invalidations.incrementAndGet();
+        flights.clear();
+    }
+
+    /**
+     * Drop the flights in progress with the given keys, callers of those keys from now on start new ones. Callers
+     * that already joined one of the flights still get its result.
+     *
+     * @param stale whether a key is one to drop
+     */
+    public void invalidate(Predicate<Object> stale) {
+        invalidations.incrementAndGet();
+        flights.keySet().removeIf(stale);
+    }
+
+    @ManagedAttribute(description = "Number of calls")
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    @ManagedAttribute(description = "Number of calls that shared a flight instead of calling again")
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @ManagedAttribute(description = "Number of calls that stopped waiting for a flight and called themselves")
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    @ManagedAttribute(description = "Number of calls made without coalescing as too many flights were in progress")
+    public long getBypassedCount() {
+        return bypassed.get();
+    }
+
+    @ManagedAttribute(description = "Number of times flights in progress were dropped")
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    @ManagedAttribute(description = "Number of flights in progress")
+    public int getFlightCount() {
+        return flights.size();
+    }
+
+    private Object lead(Object key, Flight flight, Call call) throws Throwable {
+
+        Object result;
+        try {
+            result = call.proceed();
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+
+        flights.remove(key, flight);
+        flight.result.complete(result);
+
+        return call.share(result);
+    }
+
+    private Object join(Flight flight, Call call) throws Throwable {
+
+        long remaining = timeoutNanos - (System.nanoTime() - flight.started);
+
+        Object result;
+        try {
+            result = flight.result.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            return call.proceed();
+        } catch (ExecutionException e) {
+            coalesced.incrementAndGet();
+            throw e.getCause();
+        }
+
+        coalesced.incrementAndGet();
+
+        return call.share(result);
+    }
+
+    /**
+     * A call that can be coalesced
+     */
+    public interface Call {
+
+        /**
+         * Make the call
+         *
+         * @return the result
+         * @throws Throwable if the call fails
+         */
+        Object proceed() throws Throwable;
+
+        /**
+         * Hand the result of a flight to one of its callers, the leader included
+         *
+         * @param result the result
+         * @return the result for this caller, a copy if callers may modify it
+         */
+        Object share(Object result);
+    }
+
+    private static class Flight {
+
+        private final long started;
+
+        private final CompletableFuture<Object> result = new CompletableFuture<Object>();
+
+        private Flight(long started) {
+            this.started = started;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.emc.documentum.sample.singleflight;
+
+import com.emc.documentum.sample.replica.ReplicaRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Single-flight configuration, enabled unless <code>contact.single-flight.enabled=false</code>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.single-flight", name = "enabled", matchIfMissing = true)
+public class SingleFlightConfiguration {
+
+    @Value("${contact.single-flight.timeout-millis:5000}")
+    private long timeoutMillis;
+
+    @Value("${contact.single-flight.max-flights:10000}")
+    private int maxFlights;
+
+    /*
+     * only there with read replicas
+     */
+    @Autowired(required = false)
+    private ReplicaRouter replicaRouter;
+
+    /**
+     * Single-flight bean, holding the repository calls in progress
+     *
+     * @return the single-flight
+     */
+    @Bean
+    public SingleFlight singleFlight() {
+        return new SingleFlight(timeoutMillis, maxFlights);
+    }
+
+    /**
+     * Single-flight repository interceptor bean
+     *
+     * @return the single-flight interceptor
+     */
+    @Bean
+    public SingleFlightInterceptor singleFlightInterceptor() {
+        return new SingleFlightInterceptor(singleFlight(), replicaRouter);
+    }
+}
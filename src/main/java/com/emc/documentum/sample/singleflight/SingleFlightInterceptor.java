@@ -0,0 +1,220 @@
+package com.emc.documentum.sample.singleflight;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.replica.ReplicaRouter;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Coalesces concurrent identical lookups on the contact repository.
+ *
+ * Lookups by id, name and version with the same arguments share one call through {@link SingleFlight}. Callers
+ * sharing a call get their own copies of the contacts found, as they would from separate calls, and lazy results
+ * are read into a list so they can be shared. Saves, updates and deletes drop the lookups in progress that they may
+ * have changed the result of once they return, the lookups of the contacts they wrote and every count, search and
+ * collection version, so a lookup started after a write returns never gets the result of one started before it.
+ * Lookups of other contacts carry on. Writes that do not name their contacts drop every lookup.
+ *
+ * Runs inside the cache so only cache misses are coalesced. With read replicas, the lookups of clients that have
+ * to read their own writes from the primary are kept apart from the others, which may be routed to a replica.
+ */
+public class SingleFlightInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = 150;
+
+    private static final Set<String> LOOKUPS = new HashSet<String>(Arrays.asList("findOne", "exists", "count",
+            "findByNameContaining", "findIdsByNameContaining", "findAllById", "findVersion", "findCollectionVersion"));
+
+    private static final Set<String> BY_ID = new HashSet<String>(Arrays.asList("findOne", "exists", "findVersion"));
+
+    private final SingleFlight singleFlight;
+
+    private final ReplicaRouter replicaRouter;
+
+    /**
+     * Constructor
+     *
+     * @param singleFlight the flights in progress
+     * @param replicaRouter the replica router, null without read replicas
+     */
+    public SingleFlightInterceptor(SingleFlight singleFlight, ReplicaRouter replicaRouter) {
+        this.singleFlight = singleFlight;
+        this.replicaRouter = replicaRouter;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(final MethodInvocation invocation) throws Throwable {
+
+        String methodName = invocation.getMethod().getName();
+
+        if (ContactRepositoryInterceptor.isWrite(methodName)) {
+            Object result = null;
+            try {
+                result = invocation.proceed();
+                return result;
+            } finally {
+                invalidate(writtenIds(methodName, invocation.getArguments(), result));
+            }
+        }
+
+        List<Object> key = LOOKUPS.contains(methodName) ? key(methodName, invocation.getArguments()) : null;
+
+        if (key == null) {
+            return invocation.proceed();
+        }
+
+        return singleFlight.execute(key, new SingleFlight.Call() {
+            @Override
+            public Object proceed() throws Throwable {
+                return materialise(invocation.proceed());
+            }
+
+            @Override
+            public Object share(Object result) {
+                return copy(result);
+            }
+        });
+    }
+
+    /*
+     * lookups by id are kept unless they name a written contact, anything else may have changed
+     */
+    private void invalidate(final Set<String> writtenIds) {
+
+        if (writtenIds == null) {
+            singleFlight.invalidate();
+            return;
+        }
+
+        singleFlight.invalidate(new Predicate<Object>() {
+            @Override
+            public boolean test(Object key) {
+
+                List<?> lookup = (List<?>) key;
+
+                if (BY_ID.contains(lookup.get(0))) {
+                    return writtenIds.contains(lookup.get(1));
+                }
+
+                if ("findAllById".equals(lookup.get(0))) {
+                    return !Collections.disjoint((Collection<?>) lookup.get(1), writtenIds);
+                }
+
+                return true;
+            }
+        });
+    }
+
+    /*
+     * ids of the contacts a write named or saved, null when it selects them otherwise
+     */
+    private static Set<String> writtenIds(String methodName, Object[] arguments, Object result) {
+
+        if (arguments.length == 0 || "deleteByNameContaining".equals(methodName)) {
+            return null;
+        }
+
+        Set<String> ids = new HashSet<String>();
+        addIds(ids, arguments[0]);
+        addIds(ids, result);
+
+        return ids;
+    }
+
+    /*
+     * ids of an id, a contact or an iterable of either, contacts never saved have none
+     */
+    private static void addIds(Set<String> ids, Object idsOrContacts) {
+
+        if (idsOrContacts instanceof String) {
+            ids.add((String) idsOrContacts);
+        } else if (idsOrContacts instanceof Contact) {
+            if (((Contact) idsOrContacts).getId() != null) {
+                ids.add(((Contact) idsOrContacts).getId());
+            }
+        } else if (idsOrContacts instanceof Iterable) {
+            for (Object idOrContact : (Iterable<?>) idsOrContacts) {
+                addIds(ids, idOrContact);
+            }
+        }
+    }
+
+    /*
+     * only arguments compared by value make a key, anything else is not coalesced
+     */
+    private List<Object> key(String methodName, Object[] arguments) {
+
+        List<Object> key = new ArrayList<Object>(arguments.length + 2);
+        key.add(methodName);
+
+        for (Object argument : arguments) {
+            if (argument instanceof Collection) {
+                for (Object element : (Collection<?>) argument) {
+                    if (!isValue(element)) {
+                        return null;
+                    }
+                }
+                key.add(new ArrayList<Object>((Collection<?>) argument));
+            } else if (isValue(argument)) {
+                key.add(argument);
+            } else {
+                return null;
+            }
+        }
+
+        if (replicaRouter != null) {
+            key.add(replicaRouter.isSticky());
+        }
+
+        return key;
+    }
+
+    private static boolean isValue(Object argument) {
+        return argument instanceof String || argument instanceof Number || argument instanceof Boolean;
+    }
+
+    private static Object materialise(Object result) {
+
+        if (result instanceof Iterable && !(result instanceof Collection)) {
+            List<Object> list = new ArrayList<Object>();
+            for (Object element : (Iterable<?>) result) {
+                list.add(element);
+            }
+            return list;
+        }
+
+        return result;
+    }
+
+    private static Object copy(Object result) {
+
+        if (result instanceof Contact) {
+            return ((Contact) result).copy();
+        }
+
+        if (result instanceof Collection) {
+            List<Object> copy = new ArrayList<Object>(((Collection<?>) result).size());
+            for (Object element : (Collection<?>) result) {
+                copy.add(copy(element));
+            }
+            return copy;
+        }
+
+        // ids, counts and versions are not modified by callers
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.emc.documentum.sample.streaming;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Formats contacts can be streamed in.
+ *
+ * JSON and the binary formats write one array of contacts, NDJSON a contact per line so consumers can process it
+ * line by line. Smile refers back to field names already written rather than repeating them, CBOR is the more
+ * widely supported binary format.
+ */
+public enum ContactStreamFormat {
+
+    JSON("application/json", false),
+    NDJSON("application/x-ndjson", true),
+    SMILE("application/x-jackson-smile", false),
+    CBOR("application/cbor", false);
+
+    private final MediaType mediaType;
+
+    private final boolean lines;
+
+    private final JsonFactory factory;
+
+    ContactStreamFormat(String mediaType, boolean lines) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.lines = lines;
+        this.factory = createFactory(mediaType);
+    }
+
+    /**
+     * Pick the format best matching an <code>Accept</code> header, JSON when any format will do
+     *
+     * @param accept the header value, null if there was none
+     * @return the format, or null if none is acceptable
+     * @throws IllegalArgumentException if the header cannot be parsed
+     */
+    public static ContactStreamFormat negotiate(String accept) {
+
+        if (accept == null || accept.trim().isEmpty()) {
+            return JSON;
+        }
+
+        List<MediaType> acceptable = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(acceptable);
+
+        for (MediaType mediaType : acceptable) {
+            for (ContactStreamFormat format : values()) {
+                if (mediaType.includes(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The media type of the format
+     *
+     * @return the media type
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Whether contacts are written one per line rather than as an array
+     *
+     * @return true for line delimited formats
+     */
+    public boolean isLines() {
+        return lines;
+    }
+
+    /**
+     * The factory of the generators writing the format, shared by all requests
+     *
+     * @return the generator factory
+     */
+    JsonFactory getFactory() {
+        return factory;
+    }
+
+    private static JsonFactory createFactory(String mediaType) {
+
+        JsonFactory factory;
+
+        if ("application/x-jackson-smile".equals(mediaType)) {
+            factory = new SmileFactory();
+        } else if ("application/cbor".equals(mediaType)) {
+            factory = new CBORFactory();
+        } else {
+            factory = new JsonFactory();
+            factory.setRootValueSeparator("\n");
+        }
+
+        // the response stream is closed by the container
+        factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        return factory;
+    }
+}
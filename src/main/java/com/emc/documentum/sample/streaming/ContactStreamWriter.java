@@ -0,0 +1,87 @@
+package com.emc.documentum.sample.streaming;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * Writes contacts to a stream as they are read, without building the response in memory.
+ *
+ * Contacts are written field by field rather than through a mapper, with the same property names the controllers'
+ * JSON uses and without null fields. Output reaches the stream whenever the generator's buffer fills, and after
+ * every <code>flushInterval</code> contacts so slow reads do not hold back contacts already read.
+ */
+public class ContactStreamWriter {
+
+    private final int flushInterval;
+
+    /**
+     * Constructor
+     *
+     * @param flushInterval number of contacts after which the output is flushed
+     */
+    public ContactStreamWriter(int flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Write contacts in the given format
+     *
+     * @param contacts the contacts
+     * @param format the format
+     * @param out the stream to write to, left open
+     * @return the number of contacts written
+     * @throws IOException if writing fails
+     */
+    public long write(Iterator<Contact> contacts, ContactStreamFormat format, OutputStream out) throws IOException {
+
+        long count = 0;
+
+        try (JsonGenerator generator = format.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+
+            if (!format.isLines()) {
+                generator.writeStartArray();
+            }
+
+            while (contacts.hasNext()) {
+
+                writeContact(generator, contacts.next());
+
+                if (++count % flushInterval == 0) {
+                    generator.flush();
+                }
+            }
+
+            if (format.isLines()) {
+                // root values are separated by line breaks, the last one ends with one too
+                if (count > 0) {
+                    generator.writeRaw('\n');
+                }
+            } else {
+                generator.writeEndArray();
+            }
+        }
+
+        return count;
+    }
+
+    private static void writeContact(JsonGenerator generator, Contact contact) throws IOException {
+
+        generator.writeStartObject();
+        writeField(generator, "id", contact.getId());
+        writeField(generator, "name", contact.getName());
+        writeField(generator, "email", contact.getEmail());
+        writeField(generator, "telephone", contact.getTelephone());
+        generator.writeEndObject();
+    }
+
+    private static void writeField(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+}
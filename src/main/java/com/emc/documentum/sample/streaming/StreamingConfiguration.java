@@ -0,0 +1,25 @@
+package com.emc.documentum.sample.streaming;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact streaming configuration
+ */
+@Configuration
+public class StreamingConfiguration {
+
+    @Value("${contact.stream.flush-interval:500}")
+    private int flushInterval;
+
+    /**
+     * Contact stream writer bean, flushing every <code>contact.stream.flush-interval</code> contacts
+     *
+     * @return the contact stream writer
+     */
+    @Bean
+    public ContactStreamWriter contactStreamWriter() {
+        return new ContactStreamWriter(flushInterval);
+    }
+}
@@ -0,0 +1,82 @@
+package com.emc.documentum.sample.writebehind;
+
+import com.emc.documentum.sample.cache.ContactCacheInterceptor;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Write-behind around the contact repository.
+ *
+ * Saves of existing contacts are put in the {@link ContactWriteBuffer} and return straight away, saves of new
+ * contacts still go through as they need the docbase to assign their id. <code>findOne</code> and
+ * <code>exists</code> see buffered updates, so callers read their own writes on this node, other queries see them
+ * once they are flushed. Every other write flushes the buffer before it runs, so a delete or bulk update is never
+ * overtaken by an older buffered save.
+ *
+ * Runs outside the cache, so contacts answered from the buffer are never cached as if they were written and a
+ * buffered update that is given up leaves the cache as it was. The buffer writes its batches through the whole
+ * interceptor chain, so the cache evicts their contacts whether the batch is written or fails, and the event
+ * publishing publishes events when the buffered contacts are actually written.
+ */
+public class ContactWriteBehindInterceptor implements ContactRepositoryInterceptor {
+
+    public static final int ORDER = ContactCacheInterceptor.ORDER - 10;
+
+    private final ContactWriteBuffer buffer;
+
+    /**
+     * Constructor
+     *
+     * @param buffer the contact write buffer
+     */
+    public ContactWriteBehindInterceptor(ContactWriteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+
+        String methodName = invocation.getMethod().getName();
+        Object[] arguments = invocation.getArguments();
+
+        // the buffer's own batches
+        if (buffer.isFlushing()) {
+            return invocation.proceed();
+        }
+
+        if ("save".equals(methodName) && arguments.length == 1 && arguments[0] instanceof Contact
+                && ((Contact) arguments[0]).getId() != null) {
+            return buffer.put((Contact) arguments[0]);
+        }
+
+        if ("findOne".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            Contact buffered = buffer.get((String) arguments[0]);
+            return buffered != null ? buffered : invocation.proceed();
+        }
+
+        if ("exists".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            return buffer.get((String) arguments[0]) != null || (Boolean) invocation.proceed();
+        }
+
+        // stored versions do not cover buffered updates, no version rather than a stale one
+        if ("findVersion".equals(methodName) && arguments.length == 1 && arguments[0] instanceof String) {
+            return buffer.get((String) arguments[0]) != null ? null : invocation.proceed();
+        }
+
+        if ("findCollectionVersion".equals(methodName) && arguments.length == 0) {
+            return buffer.isEmpty() ? invocation.proceed() : null;
+        }
+
+        if (ContactRepositoryInterceptor.isWrite(methodName)) {
+            buffer.flush();
+        }
+
+        return invocation.proceed();
+    }
+}
@@ -0,0 +1,504 @@
+package com.emc.documentum.sample.writebehind;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.metrics.Timer;
+import com.emc.documentum.sample.repositories.ContactRepositoryCustom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffer of contact updates written to the repository in batches some time after they were made.
+ *
+ * Updates of the same contact replace each other while they wait, so a contact edited many times between two
+ * flushes is written once. The buffer is flushed in batches of <code>saveAll</code> when it holds a batch worth of
+ * contacts, when the flush interval passes and when the application context closes. Flushes are serialised, so
+ * updates reach the repository in the order they were made, and contacts being flushed stay readable until their
+ * batch is written. Batches that fail are put back unless a newer update of the contact arrived meanwhile, and
+ * are retried on the next flush.
+ *
+ * An update is tried at most the maximum number of attempts. An update failing its last attempt in a batch is
+ * written on its own, so only the updates that fail by themselves are given up. Updates given up are logged and
+ * kept as dead letters, the most recent {@value #DEAD_LETTER_CAPACITY} can be inspected through JMX.
+ *
+ * The buffer holds at most the maximum number of pending contacts. A caller finding it full writes out what is
+ * pending itself, and the update is rejected with a {@link RejectedExecutionException} if that does not make room.
+ */
+@ManagedResource(objectName = "com.emc.documentum.sample:type=ContactWriteBuffer", description = "Contact write-behind buffer")
+public class ContactWriteBuffer implements ApplicationListener<ContextClosedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactWriteBuffer.class);
+
+    static final int DEAD_LETTER_CAPACITY = 100;
+
+    private final ObjectFactory<? extends ContactRepositoryCustom> repository;
+
+    private final int batchSize;
+
+    private final int maxPending;
+
+    private final int maxAttempts;
+
+    private final Timer flushTimer;
+
+    private final LinkedHashMap<String, Contact> pending = new LinkedHashMap<String, Contact>();
+
+    private final Map<String, Contact> inFlight = new LinkedHashMap<String, Contact>();
+
+    private final Map<String, Integer> attempts = new HashMap<String, Integer>();
+
+    private final LinkedHashMap<String, Contact> deadLetters = new LinkedHashMap<String, Contact>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Contact> eldest) {
+            return size() > DEAD_LETTER_CAPACITY;
+        }
+    };
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final ThreadLocal<Boolean> flushing = new ThreadLocal<Boolean>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong buffered = new AtomicLong();
+
+    private final AtomicLong coalesced = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong flushes = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Constructor
+     *
+     * @param repository the repository the contacts are written to, looked up on the first flush
+     * @param batchSize the number of contacts written per <code>saveAll</code>, and the number pending that
+     *                  triggers a flush
+     * @param maxPending the maximum number of pending contacts, callers finding the buffer full flush it themselves
+     * @param maxAttempts the number of times an update is tried before it is given up
+     * @param flushTimer the timer recording flush latencies
+     */
+    public ContactWriteBuffer(ObjectFactory<? extends ContactRepositoryCustom> repository, int batchSize,
+                              int maxPending, int maxAttempts, Timer flushTimer) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.maxAttempts = maxAttempts;
+        this.flushTimer = flushTimer;
+    }
+
+    /**
+     * Start flushing the buffer in the background
+     *
+     * @param flushIntervalMillis the longest time an update waits before a flush
+     */
+    public void start(long flushIntervalMillis) {
+
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "contact-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flushQuietly();
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onApplicationEvent(ContextClosedEvent event) {
+        close();
+    }
+
+    /**
+     * Stop flushing in the background and write out everything still pending
+     */
+    public void close() {
+
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        flush();
+
+        synchronized (this) {
+            if (!pending.isEmpty()) {
+                logger.error("Unable to write {} buffered contacts on shutdown: {}", pending.size(), pending.keySet());
+            }
+        }
+    }
+
+    /**
+     * Buffer an update of an existing contact, replacing any update of it still pending
+     *
+     * @param contact the contact, with its id set
+     * @return a copy of the contact as it will be written
+     * @throws RejectedExecutionException if the buffer is full and flushing it did not make room
+     */
+    public Contact put(Contact contact) {
+
+        if (contact.getId() == null) {
+            throw new IllegalArgumentException("Only contacts with an id can be buffered");
+        }
+
+        if (closed.get()) {
+            throw new IllegalStateException("The contact write buffer is closed");
+        }
+
+        Contact stored = contact.copy();
+
+        if (!offer(stored)) {
+
+            // full, write out what is pending on this thread rather than grow
+            flush();
+
+            if (!offer(stored)) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("The contact write buffer is full with " + maxPending
+                        + " pending contacts");
+            }
+        }
+
+        buffered.incrementAndGet();
+
+        if (getPending() >= batchSize) {
+            requestFlush();
+        }
+
+        return stored.copy();
+    }
+
+    /**
+     * Get the buffered state of a contact
+     *
+     * @param id the contact id
+     * @return a copy of the contact as it will be written, null if no update of it is pending or being written
+     */
+    public synchronized Contact get(String id) {
+
+        Contact contact = pending.get(id);
+        if (contact == null) {
+            contact = inFlight.get(id);
+        }
+
+        return contact == null ? null : contact.copy();
+    }
+
+    /**
+     * Get the updates given up after failing every attempt, the most recent last
+     *
+     * @return copies of the contacts as they would have been written
+     */
+    public synchronized List<Contact> getDeadLetters() {
+
+        List<Contact> contacts = new ArrayList<Contact>(deadLetters.size());
+        for (Contact contact : deadLetters.values()) {
+            contacts.add(contact.copy());
+        }
+
+        return contacts;
+    }
+
+    /**
+     * Whether no contact is waiting or being written
+     *
+     * @return true if the repository holds every buffered update
+     */
+    public synchronized boolean isEmpty() {
+        return pending.isEmpty() && inFlight.isEmpty();
+    }
+
+    /**
+     * Whether the current thread is writing buffered contacts to the repository
+     *
+     * @return true while the current thread is flushing
+     */
+    public boolean isFlushing() {
+        return Boolean.TRUE.equals(flushing.get());
+    }
+
+    /**
+     * Write all pending contacts to the repository, waiting for a flush in progress first
+     */
+    @ManagedOperation(description = "Write all buffered contacts")
+    public void flush() {
+
+        flushLock.lock();
+        flushing.set(Boolean.TRUE);
+
+        try {
+            while (flushBatch()) {
+                // until the buffer is empty or a batch failed
+            }
+        } finally {
+            flushing.remove();
+            flushLock.unlock();
+        }
+    }
+
+    @ManagedAttribute(description = "Number of contacts waiting to be written")
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    @ManagedAttribute(description = "Number of contacts being written")
+    public synchronized int getInFlight() {
+        return inFlight.size();
+    }
+
+    @ManagedAttribute(description = "Number of contact updates buffered")
+    public long getBufferedCount() {
+        return buffered.get();
+    }
+
+    @ManagedAttribute(description = "Number of buffered updates replaced by a later update of the same contact")
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @ManagedAttribute(description = "Number of contacts written")
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    @ManagedAttribute(description = "Number of batches written")
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    @ManagedAttribute(description = "Number of batches that failed and were put back")
+    public long getFailureCount() {
+        return failures.get();
+    }
+
+    @ManagedAttribute(description = "Number of updates given up after failing every attempt")
+    public long getDeadLetterCount() {
+        return deadLettered.get();
+    }
+
+    @ManagedAttribute(description = "Ids of the most recent contacts whose updates were given up")
+    public synchronized List<String> getDeadLetterIds() {
+        return new ArrayList<String>(deadLetters.keySet());
+    }
+
+    @ManagedAttribute(description = "Number of updates rejected because the buffer was full")
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /*
+     * add or replace a pending update, false if the buffer is full
+     */
+    private synchronized boolean offer(Contact contact) {
+
+        // remove first so the contact moves to the end and is written after the updates made before it
+        if (pending.remove(contact.getId()) != null) {
+            coalesced.incrementAndGet();
+        } else if (pending.size() >= maxPending) {
+            return false;
+        }
+
+        pending.put(contact.getId(), contact);
+
+        // a new update starts over
+        attempts.remove(contact.getId());
+
+        return true;
+    }
+
+    private void requestFlush() {
+
+        if (flusher == null || closed.get() || !flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+
+        flusher.execute(new Runnable() {
+            @Override
+            public void run() {
+                flushRequested.set(false);
+                flushQuietly();
+            }
+        });
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Unable to flush buffered contacts", e);
+        }
+    }
+
+    /*
+     * write the oldest batch, returning whether the buffer may hold more
+     */
+    private boolean flushBatch() {
+
+        List<Contact> batch = new ArrayList<Contact>(batchSize);
+
+        synchronized (this) {
+            Iterator<Contact> iterator = pending.values().iterator();
+            while (batch.size() < batchSize && iterator.hasNext()) {
+                Contact contact = iterator.next();
+                iterator.remove();
+                inFlight.put(contact.getId(), contact);
+                batch.add(contact);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        long start = flushTimer.start();
+        boolean success = false;
+        RuntimeException failure = null;
+
+        try {
+
+            repository.getObject().saveAll(batch);
+            success = true;
+
+            written.addAndGet(batch.size());
+            flushes.incrementAndGet();
+
+        } catch (RuntimeException e) {
+            failure = e;
+            failures.incrementAndGet();
+            logger.warn("Unable to write a batch of {} buffered contacts, keeping them for the next flush",
+                    batch.size(), e);
+        } finally {
+            flushTimer.stop(start, success);
+        }
+
+        List<Contact> exhausted = complete(batch, success);
+
+        for (Contact contact : exhausted) {
+            if (batch.size() == 1) {
+                deadLetter(contact, failure);
+            } else {
+                writeAlone(contact);
+            }
+        }
+
+        return success;
+    }
+
+    /*
+     * drop the batch from the in flight contacts, putting failed ones back ahead of newer updates, and return the
+     * failed ones out of attempts, which stay in flight
+     */
+    private synchronized List<Contact> complete(List<Contact> batch, boolean success) {
+
+        List<Contact> exhausted = new ArrayList<Contact>();
+
+        if (success) {
+            for (Contact contact : batch) {
+                inFlight.remove(contact.getId());
+                attempts.remove(contact.getId());
+            }
+            return exhausted;
+        }
+
+        LinkedHashMap<String, Contact> requeued = new LinkedHashMap<String, Contact>();
+        for (Contact contact : batch) {
+
+            // a newer update replaced it and has attempts of its own
+            if (pending.containsKey(contact.getId())) {
+                inFlight.remove(contact.getId());
+                continue;
+            }
+
+            Integer tried = attempts.get(contact.getId());
+            int attempt = tried == null ? 1 : tried + 1;
+
+            if (attempt >= maxAttempts) {
+                attempts.remove(contact.getId());
+                exhausted.add(contact);
+            } else {
+                inFlight.remove(contact.getId());
+                attempts.put(contact.getId(), attempt);
+                requeued.put(contact.getId(), contact);
+            }
+        }
+
+        requeued.putAll(pending);
+        pending.clear();
+        pending.putAll(requeued);
+
+        return exhausted;
+    }
+
+    /*
+     * last attempt of an update that failed in a batch, so a single bad contact does not take the batch with it
+     */
+    private void writeAlone(Contact contact) {
+
+        try {
+            repository.getObject().saveAll(Collections.singletonList(contact));
+            written.incrementAndGet();
+            synchronized (this) {
+                inFlight.remove(contact.getId());
+            }
+        } catch (RuntimeException e) {
+            deadLetter(contact, e);
+        }
+    }
+
+    private synchronized void deadLetter(Contact contact, RuntimeException failure) {
+
+        inFlight.remove(contact.getId());
+        deadLetters.remove(contact.getId());
+        deadLetters.put(contact.getId(), contact);
+        deadLettered.incrementAndGet();
+
+        logger.error("Giving up on the buffered update of contact {} after {} attempts, it was not written",
+                contact.getId(), maxAttempts, failure);
+    }
+}
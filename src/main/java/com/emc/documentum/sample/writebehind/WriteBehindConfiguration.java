@@ -0,0 +1,65 @@
+package com.emc.documentum.sample.writebehind;
+
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Contact write-behind configuration, only enabled with <code>contact.write-behind.enabled=true</code> as buffered
+ * saves are lost if the node dies before they are flushed
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "contact.write-behind", name = "enabled")
+public class WriteBehindConfiguration {
+
+    @Value("${contact.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${contact.write-behind.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${contact.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${contact.write-behind.flush-interval-millis:1000}")
+    private long flushIntervalMillis;
+
+    /*
+     * looked up lazily, the repository is only built after its interceptors
+     */
+    @Autowired
+    private ObjectFactory<ContactRepository> contactRepository;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /**
+     * Contact write buffer bean, flushing in the background
+     *
+     * @return the contact write buffer
+     */
+    @Bean
+    public ContactWriteBuffer contactWriteBuffer() {
+
+        ContactWriteBuffer buffer = new ContactWriteBuffer(contactRepository, batchSize, maxPending,
+                maxAttempts, metricsRegistry.timer("writeBehind.flush"));
+        buffer.start(flushIntervalMillis);
+
+        return buffer;
+    }
+
+    /**
+     * Contact write-behind repository interceptor bean
+     *
+     * @return the write-behind interceptor
+     */
+    @Bean
+    public ContactWriteBehindInterceptor contactWriteBehindInterceptor() {
+        return new ContactWriteBehindInterceptor(contactWriteBuffer());
+    }
+}
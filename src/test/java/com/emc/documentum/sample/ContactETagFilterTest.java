@@ -0,0 +1,263 @@
+package com.emc.documentum.sample;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.replica.Replica;
+import com.emc.documentum.sample.replica.ReplicaRouter;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for conditional requests on the contact resources, over the in-memory repository
+ */
+public class ContactETagFilterTest {
+
+    private static final String HAL = "application/hal+json";
+
+    private CountingContactRepository contactRepository;
+
+    private ContactETagFilter filter;
+
+    private Contact contact;
+
+    /**
+     * Setup a filter over a single contact
+     */
+    @Before
+    public void setup() {
+
+        contactRepository = new CountingContactRepository();
+        contact = contactRepository.save(createTestContact("Cecilia Chapman"));
+
+        filter = new ContactETagFilter();
+        ReflectionTestUtils.setField(filter, "contactRepository", contactRepository);
+        ReflectionTestUtils.setField(filter, "collectionVersionTtlMillis", 60000L);
+    }
+
+    /**
+     * Test that a GET naming the current entity tag in If-None-Match is answered with 304 without reaching the
+     * resource
+     */
+    @Test
+    public void notModified() throws Exception {
+
+        String etag = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+        assertThat(etag, is(notNullValue()));
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter("GET", "/contacts/" + contact.getId(), HAL,
+                HttpHeaders.IF_NONE_MATCH, etag, chain);
+
+        assertThat(response.getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(chain.getRequest(), is(nullValue()));
+    }
+
+    /**
+     * Test that the entity tag of a contact changes after it is saved, and that an If-Match naming the tag from
+     * before is answered with 412 without reaching the resource
+     */
+    @Test
+    public void staleIfMatch() throws Exception {
+
+        String stale = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+
+        contact.setTelephone("555-0199");
+        contactRepository.save(contact);
+
+        String current = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+        assertThat(current, is(not(stale)));
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter("PUT", "/contacts/" + contact.getId(), HAL,
+                HttpHeaders.IF_MATCH, stale, chain);
+
+        assertThat(response.getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(chain.getRequest(), is(nullValue()));
+
+        chain = new MockFilterChain();
+        assertThat(filter("PUT", "/contacts/" + contact.getId(), HAL, HttpHeaders.IF_MATCH, "W/" + current, chain)
+                .getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+
+        chain = new MockFilterChain();
+        filter("PUT", "/contacts/" + contact.getId(), HAL, HttpHeaders.IF_MATCH, current, chain);
+        assertThat(chain.getRequest(), is(notNullValue()));
+
+        chain = new MockFilterChain();
+        assertThat(filter("DELETE", "/contacts/0900000000000000", HAL, HttpHeaders.IF_MATCH, "*", chain)
+                .getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+    }
+
+    /**
+     * Test that a contact is validated from the contact as read, without reading its version, and that an If-Match
+     * with that tag matches the version read for it
+     */
+    @Test
+    public void tagFromContact() throws Exception {
+
+        String etag = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+        assertThat(get("/contacts/" + contact.getId(), HAL, etag).getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(contactRepository.versions, is(0));
+
+        MockFilterChain chain = new MockFilterChain();
+        filter("PUT", "/contacts/" + contact.getId(), HAL, HttpHeaders.IF_MATCH, etag, chain);
+        assertThat(chain.getRequest(), is(notNullValue()));
+        assertThat(contactRepository.versions, is(1));
+    }
+
+    /**
+     * Test that each media type of a contact has its own entity tag
+     */
+    @Test
+    public void tagPerRepresentation() throws Exception {
+
+        String hal = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+        String json = get("/contacts/" + contact.getId(), "application/json", null).getHeader(HttpHeaders.ETAG);
+
+        assertThat(json, is(not(hal)));
+        assertThat(get("/contacts/" + contact.getId(), "application/json", hal).getStatus(),
+                is(HttpStatus.OK.value()));
+    }
+
+    /**
+     * Test that an If-Match compares the version only, a tag read with another media type matching
+     */
+    @Test
+    public void ifMatchAnyRepresentation() throws Exception {
+
+        String hal = get("/contacts/" + contact.getId(), HAL, null).getHeader(HttpHeaders.ETAG);
+
+        MockFilterChain chain = new MockFilterChain();
+        filter("PUT", "/contacts/" + contact.getId(), "application/json", HttpHeaders.IF_MATCH, hal, chain);
+        assertThat(chain.getRequest(), is(notNullValue()));
+
+        contact.setTelephone("555-0199");
+        contactRepository.save(contact);
+
+        chain = new MockFilterChain();
+        MockHttpServletResponse response = filter("DELETE", "/contacts/" + contact.getId(), "application/json",
+                HttpHeaders.IF_MATCH, "\"0900000000000000.1-1a2b\", " + hal, chain);
+        assertThat(response.getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+    }
+
+    /**
+     * Test that the collection version is read once until the next repository event, and that the collection tag
+     * changes after a save
+     */
+    @Test
+    public void cacheCollectionVersion() throws Exception {
+
+        String first = get("/contacts", HAL, null).getHeader(HttpHeaders.ETAG);
+        assertThat(get("/contacts?page=1", HAL, null).getHeader(HttpHeaders.ETAG), is(not(first)));
+        assertThat(get("/contacts", HAL, first).getStatus(), is(HttpStatus.NOT_MODIFIED.value()));
+        assertThat(contactRepository.collectionVersions, is(1));
+
+        Contact saved = contactRepository.save(createTestContact("Iris Watson"));
+        filter.onApplicationEvent(new ContactSavedEvent(contactRepository, saved));
+
+        assertThat(get("/contacts", HAL, first).getStatus(), is(HttpStatus.OK.value()));
+        assertThat(get("/contacts", HAL, null).getHeader(HttpHeaders.ETAG), is(not(first)));
+        assertThat(contactRepository.collectionVersions, is(2));
+    }
+
+    /**
+     * Test that a request tagged from the collection version on the primary reads from the primary, and a request
+     * for a single contact from wherever its contact was read
+     */
+    @Test
+    public void collectionBodyFromPrimary() throws Exception {
+
+        InMemoryContactRepository replica = new InMemoryContactRepository();
+        replica.saveAll(Arrays.asList(contact));
+
+        ReplicaRouter router = new ReplicaRouter(contactRepository,
+                Arrays.asList(new Replica("replica", replica, null)), 1000, 0);
+        ReflectionTestUtils.setField(filter, "replicaRouter", router);
+        router.check();
+
+        router.bindClient(null);
+        get("/contacts", HAL, null);
+        assertThat(router.route(), is(nullValue()));
+        assertThat(router.getPinnedReads(), is(1L));
+
+        router.bindClient(null);
+        get("/contacts/" + contact.getId(), HAL, null);
+        assertThat(router.route(), is(notNullValue()));
+
+        router.unbindClient();
+    }
+
+    private MockHttpServletResponse get(String uri, String accept, String ifNoneMatch) throws Exception {
+        return filter("GET", uri, accept, HttpHeaders.IF_NONE_MATCH, ifNoneMatch, new MockFilterChain());
+    }
+
+    private MockHttpServletResponse filter(String method, String uri, String accept, String header, String value,
+                                           MockFilterChain chain) throws Exception {
+
+        int query = uri.indexOf('?');
+
+        MockHttpServletRequest request = new MockHttpServletRequest(method, query < 0 ? uri : uri.substring(0, query));
+        if (query >= 0) {
+            request.setQueryString(uri.substring(query + 1));
+        }
+        request.addHeader(HttpHeaders.ACCEPT, accept);
+        if (value != null) {
+            request.addHeader(header, value);
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+
+        return response;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+
+    /*
+     * in-memory repository counting the reads of contact versions and of the collection version
+     */
+    private static class CountingContactRepository extends InMemoryContactRepository {
+
+        private int versions;
+
+        private int collectionVersions;
+
+        @Override
+        public ContactVersion findVersion(String id) {
+            versions++;
+            return super.findVersion(id);
+        }
+
+        @Override
+        public ContactVersion findCollectionVersion() {
+            collectionVersions++;
+            return super.findCollectionVersion();
+        }
+    }
+}
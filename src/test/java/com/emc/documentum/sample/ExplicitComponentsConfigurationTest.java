@@ -0,0 +1,46 @@
+package com.emc.documentum.sample;
+
+import org.junit.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.annotation.Import;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the explicit component registration of the fast-startup profile
+ */
+public class ExplicitComponentsConfigurationTest {
+
+    private static final List<String> NOT_IMPORTED = Arrays.asList(
+            Application.class.getName(),
+            ComponentScanConfiguration.class.getName(),
+            ExplicitComponentsConfiguration.class.getName(),
+            TestConfig.class.getName());
+
+    /**
+     * Test that every component the scan finds is also registered explicitly
+     */
+    @Test
+    public void importScannedComponents() {
+
+        Set<String> imported = new HashSet<String>();
+        for (Class<?> component : ExplicitComponentsConfiguration.class.getAnnotation(Import.class).value()) {
+            imported.add(component.getName());
+        }
+
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(true);
+
+        for (BeanDefinition candidate : scanner.findCandidateComponents("com.emc.documentum.sample")) {
+            if (!NOT_IMPORTED.contains(candidate.getBeanClassName())) {
+                assertThat(imported, hasItem(candidate.getBeanClassName()));
+            }
+        }
+    }
+}
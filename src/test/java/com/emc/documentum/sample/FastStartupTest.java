@@ -0,0 +1,49 @@
+package com.emc.documentum.sample;
+
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import com.emc.documentum.sample.dfc.PooledSessionSource;
+import com.emc.documentum.sample.search.ContactIndexLoader;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.SpringApplicationConfiguration;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Integration test starting the fast-startup profile without a docbase, nothing may reach for the docbroker before
+ * the first repository call
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@SpringApplicationConfiguration(classes = {TestConfig.class})
+@ActiveProfiles("fast-startup")
+public class FastStartupTest {
+
+    @Autowired
+    private DocbaseSessionSource docbaseSessionSource;
+
+    @Autowired
+    @Qualifier("contactNameIndexLoader")
+    private ContactIndexLoader contactNameIndexLoader;
+
+    @Autowired
+    @Qualifier("contactSuggestIndexLoader")
+    private ContactIndexLoader contactSuggestIndexLoader;
+
+    /**
+     * Test that the context starts without opening a docbase session or loading the indexes
+     */
+    @Test
+    public void startWithoutDocbase() {
+
+        assertThat(docbaseSessionSource, is(instanceOf(PooledSessionSource.class)));
+        assertThat(((PooledSessionSource) docbaseSessionSource).getCreatedCount(), is(0L));
+
+        assertThat(contactNameIndexLoader.isStarted(), is(false));
+        assertThat(contactSuggestIndexLoader.isStarted(), is(false));
+    }
+}
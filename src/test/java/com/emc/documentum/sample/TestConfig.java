@@ -1,7 +1,6 @@
 package com.emc.documentum.sample;
 
 //import com.emc.documentum.sample.controller.ContactController;
-import com.emc.documentum.springdata.repository.config.EnableDctmRepositories;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.*;
@@ -9,12 +8,13 @@ import org.springframework.core.env.Environment;
 
 /**
  * Basic configuration class for running Spring Data repository test WITHOUT loading main MVC Application
+ *
+ * Runs against the docbase, or fully offline against the in-memory repository with
+ * <code>-Dspring.profiles.active=offline</code>. Components are found by scanning, or registered explicitly with the
+ * <code>fast-startup</code> profile active.
  */
 @Configuration
-@ComponentScan(basePackages = {"com.emc.documentum.springdata", "com.emc.documentum.sample"}, excludeFilters={
-		@ComponentScan.Filter(type=FilterType.ASSIGNABLE_TYPE, value=Application.class)
-		})
-@EnableDctmRepositories
+@Import({ComponentScanConfiguration.class, ExplicitComponentsConfiguration.class})
 @PropertySource("classpath:application.properties")
 public class TestConfig {
 	
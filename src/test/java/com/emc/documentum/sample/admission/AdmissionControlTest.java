@@ -0,0 +1,113 @@
+package com.emc.documentum.sample.admission;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for admission control, its adaptive concurrency limit and per client rate limits
+ */
+public class AdmissionControlTest {
+
+    /**
+     * Test that the limit grows while calls keep their usual latency and shrinks once they slow down
+     */
+    @Test
+    public void adaptToLatency() {
+
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 100, 2.0);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire(), is(true));
+        }
+        assertThat(limit.tryAcquire(), is(false));
+
+        sample(limit, 10, 50);
+        int grown = limit.getLimit();
+        assertThat(grown, is(greaterThan(10)));
+        assertThat(limit.tryAcquire(), is(true));
+
+        // no growth without the calls to use it
+        sample(limit, 10, 50);
+        assertThat(limit.getLimit(), is(lessThanOrEqualTo(2 * limit.getInFlight() + 1)));
+
+        sample(limit, 200, 20);
+        assertThat(limit.getLimit(), is(lessThan(grown / 2)));
+
+        for (int i = 0; i < 11; i++) {
+            limit.release();
+        }
+        assertThat(limit.getInFlight(), is(0));
+        assertThat(limit.getUsualLatency(), is(greaterThan(TimeUnit.MILLISECONDS.toNanos(10))));
+    }
+
+    /**
+     * Test that each client gets its burst then its rate, and idle clients are forgotten
+     */
+    @Test
+    public void rateLimitClients() throws Exception {
+
+        ClientRateLimiter rateLimiter = new ClientRateLimiter(10, 3, 2);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire("a"), is(0L));
+        }
+
+        long wait = rateLimiter.tryAcquire("a");
+        assertThat(wait, is(greaterThan(0L)));
+        assertThat(wait, is(lessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100))));
+
+        assertThat(rateLimiter.tryAcquire("b"), is(0L));
+
+        Thread.sleep(150);
+        assertThat(rateLimiter.tryAcquire("a"), is(0L));
+
+        // b has filled up again and makes room for c
+        assertThat(rateLimiter.tryAcquire("c"), is(0L));
+        assertThat(rateLimiter.getClientCount(), is(2));
+
+        // a and c are busy, d and e share a bucket
+        for (int i = 0; i < 3; i++) {
+            assertThat(rateLimiter.tryAcquire(i == 0 ? "d" : "e"), is(0L));
+        }
+        assertThat(rateLimiter.tryAcquire("e"), is(greaterThan(0L)));
+        assertThat(rateLimiter.getClientCount(), is(3));
+    }
+
+    /**
+     * Test that content transfers and metadata calls are let in apart, and turned away requests are counted
+     */
+    @Test
+    public void bulkheads() {
+
+        AdmissionControl admissionControl = new AdmissionControl(new ClientRateLimiter(1000, 1000, 10),
+                new AdaptiveConcurrencyLimit(2, 1, 10, 2.0), 1);
+
+        assertThat(admissionControl.tryAcquire(true), is(true));
+        assertThat(admissionControl.tryAcquire(true), is(false));
+        assertThat(admissionControl.tryAcquire(false), is(true));
+        assertThat(admissionControl.tryAcquire(false), is(true));
+        assertThat(admissionControl.tryAcquire(false), is(false));
+
+        assertThat(admissionControl.getContentInFlight(), is(1));
+        assertThat(admissionControl.getMetadataInFlight(), is(2));
+
+        admissionControl.release(true);
+        assertThat(admissionControl.tryAcquire(true), is(true));
+
+        assertThat(admissionControl.getAdmittedCount(), is(4L));
+        assertThat(admissionControl.getShedContentCount(), is(1L));
+        assertThat(admissionControl.getShedMetadataCount(), is(1L));
+        assertThat(admissionControl.checkRate("client"), is(0L));
+        assertThat(admissionControl.getRateLimitedCount(), is(0L));
+    }
+
+    private static void sample(AdaptiveConcurrencyLimit limit, long millis, int count) {
+        for (int i = 0; i < count; i++) {
+            limit.sample(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+    }
+}
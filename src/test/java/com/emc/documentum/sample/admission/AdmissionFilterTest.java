@@ -0,0 +1,185 @@
+package com.emc.documentum.sample.admission;
+
+import com.emc.documentum.sample.ClientKeys;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.security.Principal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for letting HTTP requests in through admission control
+ */
+public class AdmissionFilterTest {
+
+    /**
+     * Test that an asynchronous request takes one token and one place, and that the dispatch writing its response
+     * is not let in again
+     */
+    @Test
+    public void admitAsyncRequestOnce() throws Exception {
+
+        AdmissionControl admissionControl = new AdmissionControl(new ClientRateLimiter(1, 1, 10),
+                new AdaptiveConcurrencyLimit(1, 1, 10, 2.0), 1);
+        AdmissionFilter filter = new AdmissionFilter(admissionControl);
+
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contacts/async");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                request.startAsync();
+            }
+        });
+
+        assertThat(admissionControl.getMetadataInFlight(), is(1));
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        MockFilterChain dispatch = new MockFilterChain();
+        filter.doFilter(request, response, dispatch);
+
+        assertThat(dispatch.getRequest(), is(notNullValue()));
+        assertThat(response.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(admissionControl.getRateLimitedCount(), is(0L));
+        assertThat(admissionControl.getMetadataInFlight(), is(1));
+
+        request.getAsyncContext().complete();
+
+        assertThat(admissionControl.getMetadataInFlight(), is(0));
+        assertThat(admissionControl.getAdmittedCount(), is(1L));
+    }
+
+    /**
+     * Test that a client cannot get round the rate limit of its address by naming itself anew, while other
+     * addresses and authenticated users have limits of their own
+     */
+    @Test
+    public void rateLimitPerOwner() throws Exception {
+
+        AdmissionFilter filter = new AdmissionFilter(new AdmissionControl(new ClientRateLimiter(1, 2, 10),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0), 1));
+
+        assertThat(filter(filter, "10.0.0.1", "a", null).getStatus(), is(HttpStatus.OK.value()));
+        assertThat(filter(filter, "10.0.0.1", "b", null).getStatus(), is(HttpStatus.OK.value()));
+        assertThat(filter(filter, "10.0.0.1", "c", null).getStatus(), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+
+        assertThat(filter(filter, "10.0.0.2", "c", null).getStatus(), is(HttpStatus.OK.value()));
+        assertThat(filter(filter, "10.0.0.1", null, "alice").getStatus(), is(HttpStatus.OK.value()));
+
+        assertThat(ClientKeys.of(request("10.0.0.1", "a", null)), is("address:10.0.0.1/id:a"));
+        assertThat(ClientKeys.of(request("10.0.0.1", null, "alice")), is("user:alice"));
+    }
+
+    /**
+     * Test that behind a proxy anonymous clients are rate limited by the last forwarded address, and that without
+     * rate limits no client is turned away
+     */
+    @Test
+    public void rateLimitForwardedAddress() throws Exception {
+
+        AdmissionFilter filter = new AdmissionFilter(new AdmissionControl(new ClientRateLimiter(1, 1, 10),
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0), 1), "X-Forwarded-For");
+
+        MockHttpServletRequest first = request("10.0.0.9", null, null);
+        first.addHeader("X-Forwarded-For", "192.0.2.1");
+        assertThat(forward(filter, first).getStatus(), is(HttpStatus.OK.value()));
+
+        MockHttpServletRequest second = request("10.0.0.9", null, null);
+        second.addHeader("X-Forwarded-For", "192.0.2.2");
+        assertThat(forward(filter, second).getStatus(), is(HttpStatus.OK.value()));
+
+        // an address the client forwarded itself does not make it a new client
+        MockHttpServletRequest spoofed = request("10.0.0.9", null, null);
+        spoofed.addHeader("X-Forwarded-For", "198.51.100.7, 192.0.2.1");
+        assertThat(forward(filter, spoofed).getStatus(), is(HttpStatus.TOO_MANY_REQUESTS.value()));
+
+        AdmissionFilter unlimited = new AdmissionFilter(new AdmissionControl(null,
+                new AdaptiveConcurrencyLimit(10, 1, 10, 2.0), 1));
+        for (int i = 0; i < 3; i++) {
+            assertThat(filter(unlimited, "10.0.0.9", null, null).getStatus(), is(HttpStatus.OK.value()));
+        }
+    }
+
+    /**
+     * Test that docbase latencies are reported for calls inside a request that was let in, and not for calls outside
+     * of any request
+     */
+    @Test
+    public void sampleAdmittedRequestsOnly() throws Exception {
+
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 1, 10, 2.0);
+        AdmissionControl admissionControl = new AdmissionControl(null, limit, 1);
+        AdmissionFilter filter = new AdmissionFilter(admissionControl);
+
+        ProxyFactory factory = new ProxyFactory(new InMemoryContactRepository(1000, 0, 0));
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(new DocbaseLatencyInterceptor(admissionControl));
+        final ContactRepository repository = (ContactRepository) factory.getProxy();
+
+        repository.count();
+        assertThat(limit.getUsualLatency(), is(0L));
+        assertThat(admissionControl.isAdmitted(), is(false));
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/contacts"), new MockHttpServletResponse(),
+                new FilterChain() {
+                    @Override
+                    public void doFilter(ServletRequest req, ServletResponse res) {
+                        repository.count();
+                    }
+                });
+
+        assertThat(limit.getUsualLatency(), is(greaterThan(0L)));
+        assertThat(admissionControl.isAdmitted(), is(false));
+    }
+
+    private static MockHttpServletResponse forward(AdmissionFilter filter, MockHttpServletRequest request)
+            throws Exception {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+
+        return response;
+    }
+
+    private static MockHttpServletResponse filter(AdmissionFilter filter, String address, String clientId,
+                                                   String user) throws Exception {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(address, clientId, user), response, new MockFilterChain());
+
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String address, String clientId, final String user) {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contacts");
+        request.setRemoteAddr(address);
+        if (clientId != null) {
+            request.addHeader(ClientKeys.CLIENT_ID_HEADER, clientId);
+        }
+        if (user != null) {
+            request.setUserPrincipal(new Principal() {
+                @Override
+                public String getName() {
+                    return user;
+                }
+            });
+        }
+
+        return request;
+    }
+}
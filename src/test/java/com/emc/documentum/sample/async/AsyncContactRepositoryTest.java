@@ -0,0 +1,134 @@
+package com.emc.documentum.sample.async;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the asynchronous contact repository
+ */
+public class AsyncContactRepositoryTest {
+
+    private ExecutorService executorService;
+
+    /**
+     * Setup a two thread executor
+     */
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(2);
+    }
+
+    /**
+     * Shut the executor down
+     */
+    @After
+    public void cleanup() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * Test that calls complete with the results of the repository
+     */
+    @Test
+    public void completeCalls() throws Exception {
+
+        AsyncContactRepository repository =
+                new AsyncContactRepository(new InMemoryContactRepository(), new BoundedExecutor(executorService, 10));
+
+        Contact saved = repository.save(createTestContact("Cecilia Chapman")).get();
+        repository.save(createTestContact("Iris Watson")).get();
+
+        assertThat(repository.findOne(saved.getId()).get().getName(), is("Cecilia Chapman"));
+        assertThat(repository.findOne("0900000000000000").get(), is(nullValue()));
+        assertThat(repository.findAll().get(), hasSize(2));
+        assertThat(repository.findByNameContaining("Wat").get(), hasSize(1));
+    }
+
+    /**
+     * Test that updates and deletes complete with null for unknown contacts
+     */
+    @Test
+    public void updateAndDelete() throws Exception {
+
+        AsyncContactRepository repository =
+                new AsyncContactRepository(new InMemoryContactRepository(), new BoundedExecutor(executorService, 10));
+
+        Contact saved = repository.save(createTestContact("Cecilia Chapman")).get();
+        saved.setEmail("cecilia@thecloud.com");
+
+        assertThat(repository.update(saved).get().getEmail(), is("cecilia@thecloud.com"));
+        assertThat(repository.findOne(saved.getId()).get().getEmail(), is("cecilia@thecloud.com"));
+
+        Contact unknown = createTestContact("Iris Watson");
+        unknown.setId("0900000000000000");
+        assertThat(repository.update(unknown).get(), is(nullValue()));
+        assertThat(repository.findAll().get(), hasSize(1));
+
+        assertThat(repository.delete(saved.getId()).get(), is(saved.getId()));
+        assertThat(repository.delete(saved.getId()).get(), is(nullValue()));
+        assertThat(repository.findAll().get(), is(empty()));
+    }
+
+    /**
+     * Test that calls beyond the executor bound fail right away
+     */
+    @Test
+    public void rejectWhenSaturated() throws Exception {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        BoundedExecutor executor = new BoundedExecutor(executorService, 1);
+
+        // occupy the only slot
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        AsyncContactRepository repository = new AsyncContactRepository(new InMemoryContactRepository(), executor);
+        CompletableFuture<Contact> rejected = repository.findOne("0900000000000000");
+
+        try {
+            rejected.get();
+            throw new AssertionError("Expected the call to be rejected");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        }
+
+        release.countDown();
+
+        // the slot is free again once the blocking task finished
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getPendingTasks() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertThat(repository.findAll().get(), is(empty()));
+    }
+
+    private static Contact createTestContact(String name) {
+        Contact contact = new Contact();
+        contact.setName(name);
+        contact.setEmail(name.replace(' ', '.').toLowerCase() + "@thecloud.com");
+        contact.setTelephone("(555) 555-5555");
+        return contact;
+    }
+}
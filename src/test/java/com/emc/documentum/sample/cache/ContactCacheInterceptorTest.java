@@ -0,0 +1,117 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for reading through the contact cache around the in-memory repository
+ */
+public class ContactCacheInterceptorTest {
+
+    /**
+     * Test that a lookup coming back with the state from before a save does not leave that state cached
+     */
+    @Test
+    public void dropLookupOverlappingSave() {
+
+        ContactCache cache = new ContactCache(100, 1024 * 1024, 300000);
+        RacingContactRepository target = new RacingContactRepository();
+        ContactRepository repository = proxy(target, cache);
+
+        Contact contact = target.save(createTestContact("Cecilia Chapman"));
+
+        // the save goes through while the lookup is between reading and storing
+        Contact renamed = contact.copy();
+        renamed.setName("Cecilia Chaplin");
+        target.racingSave = renamed;
+        target.racingRepository = repository;
+
+        assertThat(repository.findOne(contact.getId()).getName(), is("Cecilia Chapman"));
+        assertThat(cache.get(contact.getId()), is(nullValue()));
+        assertThat(repository.findOne(contact.getId()).getName(), is("Cecilia Chaplin"));
+        assertThat(cache.get(contact.getId()).getName(), is("Cecilia Chaplin"));
+    }
+
+    /**
+     * Test that contacts listed while a save went through are not used to warm the cache
+     */
+    @Test
+    public void dropListingOverlappingSave() {
+
+        ContactCache cache = new ContactCache(100, 1024 * 1024, 300000);
+        RacingContactRepository target = new RacingContactRepository();
+        ContactRepository repository = proxy(target, cache);
+
+        Contact contact = target.save(createTestContact("Cecilia Chapman"));
+        Contact renamed = contact.copy();
+        renamed.setName("Cecilia Chaplin");
+        target.racingSave = renamed;
+        target.racingRepository = repository;
+
+        assertThat(repository.findAll(), is(iterableWithSize(1)));
+        assertThat(cache.get(contact.getId()), is(nullValue()));
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+
+    private static ContactRepository proxy(ContactRepository target, ContactCache cache) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(ContactRepository.class);
+        proxyFactory.addAdvice(new ContactCacheInterceptor(cache));
+        return (ContactRepository) proxyFactory.getProxy();
+    }
+
+    /*
+     * in-memory repository saving a contact through the proxy once a read has the state it returns
+     */
+    private static class RacingContactRepository extends InMemoryContactRepository {
+
+        private Contact racingSave;
+
+        private ContactRepository racingRepository;
+
+        @Override
+        public Contact findOne(String id) {
+            Contact found = super.findOne(id);
+            race();
+            return found;
+        }
+
+        @Override
+        public List<Contact> findAll() {
+            List<Contact> found = super.findAll();
+            race();
+            return found;
+        }
+
+        private void race() {
+            if (racingSave != null) {
+                Contact save = racingSave;
+                racingSave = null;
+                racingRepository.save(save);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact cache
+ */
+public class ContactCacheTest {
+
+    private long now;
+
+    private ContactCache cache;
+
+    /**
+     * Setup a cache with a controllable clock
+     */
+    @Before
+    public void setup() {
+        now = 0;
+        cache = new TestContactCache(32, 1024 * 1024, 1000);
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param id the contact id
+     * @return the test contact
+     */
+    protected Contact createTestContact(String id) {
+
+        Contact testContact = new Contact();
+        testContact.setId(id);
+        testContact.setName("name " + id);
+        testContact.setEmail(id + "@thecloud.com");
+        testContact.setTelephone("(257) 563-7401");
+
+        return testContact;
+    }
+
+    /**
+     * Test that a cached contact is returned as a copy and counted as a hit
+     */
+    @Test
+    public void getCachedContact() {
+
+        cache.put(createTestContact("0900000180000001"));
+
+        Contact cached = cache.get("0900000180000001");
+
+        // check the contact was found and its attributes were copied
+        assertThat(cached, is(notNullValue()));
+        assertThat(cached.getName(), is(equalTo("name 0900000180000001")));
+
+        // modifying the returned contact must not change the cached one
+        cached.setName("changed");
+        assertThat(cache.get("0900000180000001").getName(), is(equalTo("name 0900000180000001")));
+
+        assertThat(cache.getHitCount(), is(2L));
+        assertThat(cache.getMissCount(), is(0L));
+    }
+
+    /**
+     * Test that a missing contact is counted as a miss
+     */
+    @Test
+    public void getMissingContact() {
+
+        assertThat(cache.get("0900000180000001"), is(nullValue()));
+        assertThat(cache.getMissCount(), is(1L));
+    }
+
+    /**
+     * Test that contacts expire after their time to live
+     */
+    @Test
+    public void expireContact() {
+
+        cache.put(createTestContact("0900000180000001"));
+
+        now = 999;
+        assertThat(cache.get("0900000180000001"), is(notNullValue()));
+
+        now = 1000;
+        assertThat(cache.get("0900000180000001"), is(nullValue()));
+        assertThat(cache.getExpirationCount(), is(1L));
+        assertThat(cache.getSize(), is(0));
+    }
+
+    /**
+     * Test that the entry limit is enforced by evicting contacts
+     */
+    @Test
+    public void evictOverEntryLimit() {
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(createTestContact("09000001800" + (10000 + i)));
+        }
+
+        assertThat(cache.getSize(), is(lessThanOrEqualTo(32)));
+        assertThat(cache.getEvictionCount(), is(greaterThanOrEqualTo(1000L - 32)));
+    }
+
+    /**
+     * Test that the memory limit is enforced by evicting contacts
+     */
+    @Test
+    public void evictOverMemoryLimit() {
+
+        cache = new TestContactCache(1000, 16 * 1024, 1000);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(createTestContact("09000001800" + (10000 + i)));
+        }
+
+        assertThat(cache.getWeight(), is(lessThanOrEqualTo(16L * 1024)));
+        assertThat(cache.getEvictionCount(), is(greaterThan(0L)));
+    }
+
+    /**
+     * Test that an evicted contact is no longer returned
+     */
+    @Test
+    public void evictContact() {
+
+        cache.put(createTestContact("0900000180000001"));
+        cache.evict("0900000180000001");
+
+        assertThat(cache.get("0900000180000001"), is(nullValue()));
+        assertThat(cache.getInvalidationCount(), is(1L));
+        assertThat(cache.getWeight(), is(0L));
+    }
+
+    /*
+     * contact cache using the test clock
+     */
+    private class TestContactCache extends ContactCache {
+
+        private TestContactCache(int maxEntries, long maxBytes, long ttlMillis) {
+            super(maxEntries, maxBytes, ttlMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.emc.documentum.sample.cache;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the off-heap contact store
+ */
+public class OffHeapContactStoreTest {
+
+    private static final int MAX_BYTES = 64 * 1024;
+
+    private long now;
+
+    private File file;
+
+    /**
+     * Delete the mapped file of a test
+     */
+    @After
+    public void deleteFile() {
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param id the contact id
+     * @return the test contact
+     */
+    protected Contact createTestContact(String id) {
+
+        Contact testContact = new Contact();
+        testContact.setId(id);
+        testContact.setName("name " + id);
+        testContact.setEmail(id + "@thecloud.com");
+        testContact.setTelephone("(257) 563-7401");
+
+        return testContact;
+    }
+
+    /**
+     * Test that stored contacts are decoded with their null and non ASCII fields, and are removed
+     */
+    @Test
+    public void storeContacts() throws Exception {
+
+        OffHeapContactStore store = new TestOffHeapContactStore(null, false);
+
+        Contact contact = createTestContact("0900000180000001");
+        contact.setName("Th\u00e9odore Chaplin \u4e2d");
+        contact.setTelephone(null);
+        store.put(contact);
+
+        ContactView view = store.view("0900000180000001");
+        assertThat(view.getName(), is("Th\u00e9odore Chaplin \u4e2d"));
+        assertThat(view.getTelephone(), is(nullValue()));
+        assertThat(view.getEmail(), is("0900000180000001@thecloud.com"));
+
+        Contact found = store.get("0900000180000001");
+        assertThat(found.getId(), is("0900000180000001"));
+        assertThat(found.getName(), is("Th\u00e9odore Chaplin \u4e2d"));
+
+        contact.setName("changed");
+        store.put(contact);
+        assertThat(store.get("0900000180000001").getName(), is("changed"));
+        assertThat(store.getSize(), is(1));
+
+        assertThat(store.contains("0900000180000002"), is(false));
+        store.evict("0900000180000001");
+        assertThat(store.get("0900000180000001"), is(nullValue()));
+        assertThat(store.getHitCount(), is(3L));
+        assertThat(store.getMissCount(), is(1L));
+
+        Contact large = createTestContact("0900000180000003");
+        large.setName(new String(new char[MAX_BYTES / 16]).replace('\0', 'x'));
+        store.put(large);
+        assertThat(store.contains("0900000180000003"), is(false));
+        assertThat(store.getRejectionCount(), is(1L));
+    }
+
+    /**
+     * Test that the logs wrap around through random puts and removes, always returning the latest contact stored
+     */
+    @Test
+    public void wrapAround() throws Exception {
+
+        OffHeapContactStore store = new TestOffHeapContactStore(null, false);
+        Map<String, String> latest = new HashMap<String, String>();
+        Random random = new Random(42);
+
+        for (int operation = 0; operation < 20000; operation++) {
+
+            String id = String.format("09000001%08x", random.nextInt(2000));
+
+            if (random.nextInt(5) == 0) {
+                store.evict(id);
+                latest.remove(id);
+                assertThat(store.contains(id), is(false));
+            } else {
+                Contact contact = createTestContact(id);
+                contact.setName("name " + operation);
+                store.put(contact);
+                latest.put(id, contact.getName());
+                assertThat(store.get(id).getName(), is(contact.getName()));
+            }
+
+            String other = String.format("09000001%08x", random.nextInt(2000));
+            Contact found = store.get(other);
+            if (found != null) {
+                assertThat(found.getName(), is(latest.get(other)));
+            }
+        }
+
+        assertThat(store.getEvictionCount(), is(greaterThan(0L)));
+        assertThat(store.getUsedBytes(), is(lessThanOrEqualTo(store.getCapacityBytes())));
+
+        int stored = 0;
+        for (String id : latest.keySet()) {
+            stored += store.contains(id) ? 1 : 0;
+        }
+        assertThat(store.getSize(), is(stored));
+
+        store.clear();
+        assertThat(store.getSize(), is(0));
+        assertThat(store.getUsedBytes(), is(0L));
+    }
+
+    /**
+     * Test that contacts expire after their time to live
+     */
+    @Test
+    public void expireContacts() throws Exception {
+
+        OffHeapContactStore store = new TestOffHeapContactStore(null, false);
+        store.put(createTestContact("0900000180000001"));
+
+        now += 999;
+        assertThat(store.contains("0900000180000001"), is(true));
+
+        now += 1;
+        assertThat(store.get("0900000180000001"), is(nullValue()));
+        assertThat(store.getExpirationCount(), is(1L));
+        assertThat(store.getSize(), is(0));
+    }
+
+    /**
+     * Test that a mapped file is restored after a clean shutdown and started empty otherwise
+     */
+    @Test
+    public void restoreFromFile() throws Exception {
+
+        file = File.createTempFile("contacts", ".dat");
+        file.delete();
+
+        OffHeapContactStore store = new TestOffHeapContactStore(file, true);
+        for (int i = 0; i < 100; i++) {
+            store.put(createTestContact(String.format("090000018%07d", i)));
+        }
+        store.evict("0900000180000042");
+        store.close();
+
+        store = new TestOffHeapContactStore(file, true);
+        assertThat(store.isPersistent(), is(true));
+        assertThat(store.getRestoredCount(), is(99));
+        assertThat(store.get("0900000180000007").getName(), is("name 0900000180000007"));
+        assertThat(store.contains("0900000180000042"), is(false));
+
+        // not closed, as if the node had crashed
+        store.put(createTestContact("0900000180000100"));
+
+        store = new TestOffHeapContactStore(file, true);
+        assertThat(store.getRestoredCount(), is(0));
+        assertThat(store.contains("0900000180000007"), is(false));
+    }
+
+    /**
+     * Test that a mapped file closed cleanly is emptied at startup unless restoring is asked for
+     */
+    @Test
+    public void emptyFileUnlessRestoring() throws Exception {
+
+        file = File.createTempFile("contacts", ".dat");
+        file.delete();
+
+        OffHeapContactStore store = new TestOffHeapContactStore(file, true);
+        store.put(createTestContact("0900000180000001"));
+        store.close();
+
+        store = new TestOffHeapContactStore(file, false);
+        assertThat(store.isPersistent(), is(true));
+        assertThat(store.getRestoredCount(), is(0));
+        assertThat(store.contains("0900000180000001"), is(false));
+        store.close();
+
+        store = new TestOffHeapContactStore(file, true);
+        assertThat(store.getRestoredCount(), is(0));
+    }
+
+    /*
+     * store with a controllable clock
+     */
+    private class TestOffHeapContactStore extends OffHeapContactStore {
+
+        private TestOffHeapContactStore(File file, boolean restore) throws IOException {
+            super(MAX_BYTES, 1000, file, restore);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.emc.documentum.sample.changes;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact change feed and its change log
+ */
+public class ContactChangeFeedTest {
+
+    private final InMemoryContactRepository repository = new InMemoryContactRepository();
+
+    /**
+     * Test that a new client gets a snapshot in pages, then only what changed since the snapshot started
+     */
+    @Test
+    public void snapshotThenChanges() {
+
+        ContactChangeLog changeLog = new ContactChangeLog(100);
+        ContactChangeFeed feed = new ContactChangeFeed(repository, changeLog);
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (String name : new String[]{"Cecilia Chapman", "Iris Watson", "Celeste Slater", "Theodore Lowe"}) {
+            contacts.add(save(changeLog, createTestContact(name)));
+        }
+
+        ContactChanges page = feed.read(null, 3);
+        assertThat(page.isSnapshot(), is(true));
+        assertThat(page.isMore(), is(true));
+        assertThat(page.getContacts(), hasSize(3));
+
+        // changed while the snapshot is read
+        Contact iris = contacts.get(1);
+        iris.setEmail("iris@example.com");
+        save(changeLog, iris);
+
+        page = feed.read(page.getCursor(), 3);
+        assertThat(page.isSnapshot(), is(true));
+        assertThat(page.getContacts(), hasSize(1));
+        assertThat(page.isMore(), is(true));
+
+        page = feed.read(page.getCursor(), 3);
+        assertThat(page.isSnapshot(), is(false));
+        assertThat(page.getContacts(), hasSize(1));
+        assertThat(page.getContacts().get(0).getEmail(), is("iris@example.com"));
+        assertThat(page.isMore(), is(false));
+
+        String cursor = page.getCursor();
+        assertThat(feed.read(cursor, 3).getContacts(), is(empty()));
+
+        Contact cecilia = contacts.get(0);
+        cecilia.setTelephone("555-0199");
+        save(changeLog, cecilia);
+        save(changeLog, cecilia);
+        delete(changeLog, contacts.get(3).getId());
+        Contact mary = save(changeLog, createTestContact("Mary Wong"));
+
+        page = feed.read(cursor, 10);
+        assertThat(page.getContacts(), hasSize(2));
+        assertThat(page.getContacts().get(0).getTelephone(), is("555-0199"));
+        assertThat(page.getContacts().get(1).getId(), is(mary.getId()));
+        assertThat(page.getDeleted(), contains(contacts.get(3).getId()));
+
+        page = feed.read(cursor, 2);
+        assertThat(page.isMore(), is(true));
+        page = feed.read(page.getCursor(), 2);
+        assertThat(page.getContacts(), hasSize(1));
+        assertThat(page.getContacts().get(0).getId(), is(mary.getId()));
+        assertThat(page.isMore(), is(false));
+    }
+
+    /**
+     * Test that the log keeps one change per contact, and cursors it no longer covers expire
+     */
+    @Test
+    public void compactAndExpire() {
+
+        ContactChangeLog changeLog = new ContactChangeLog(4);
+        ContactChangeFeed feed = new ContactChangeFeed(repository, changeLog);
+
+        Contact contact = save(changeLog, createTestContact("Cecilia Chapman"));
+        String cursor = feed.read(null, 10).getCursor();
+
+        for (int i = 0; i < 10; i++) {
+            save(changeLog, contact);
+        }
+        assertThat(changeLog.getSize(), is(1));
+        assertThat(feed.read(cursor, 10).getContacts(), hasSize(1));
+
+        for (int i = 0; i < 4; i++) {
+            save(changeLog, createTestContact("Contact " + i));
+        }
+        assertThat(changeLog.getSize(), is(3));
+        assertThat(changeLog.getCompactions(), is(1L));
+
+        expectExpired(feed, cursor);
+
+        String current = feed.read(null, 10).getCursor();
+        assertThat(feed.read(current, 10).getContacts(), is(empty()));
+
+        changeLog.onApplicationEvent(new ContactsClearedEvent(repository));
+        expectExpired(feed, current);
+
+        expectExpired(feed, "0." + changeLog.getSequence());
+
+        try {
+            feed.read("not a cursor", 10);
+            throw new AssertionError("Expected an invalid cursor");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void expectExpired(ContactChangeFeed feed, String cursor) {
+        try {
+            feed.read(cursor, 10);
+            throw new AssertionError("Expected cursor " + cursor + " to have expired");
+        } catch (ChangeLogExpiredException e) {
+            // expected
+        }
+    }
+
+    private Contact save(ContactChangeLog changeLog, Contact contact) {
+        Contact saved = repository.save(contact);
+        changeLog.onApplicationEvent(new ContactSavedEvent(repository, saved));
+        return saved;
+    }
+
+    private void delete(ContactChangeLog changeLog, String id) {
+        repository.delete(id);
+        changeLog.onApplicationEvent(new ContactDeletedEvent(repository, id));
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
@@ -0,0 +1,214 @@
+package com.emc.documentum.sample.content;
+
+import com.documentum.fc.client.IDfCollection;
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.client.IDfSysObject;
+import com.documentum.fc.common.IDfId;
+import com.emc.documentum.sample.dfc.DocbaseSessionSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for writing and reading pictures through DFC, against a fake docbase holding the content of each object
+ * as a single page handed out in chunks
+ */
+public class DocbasePictureStoreTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final long MAX_BYTES = 8 * 1024 * 1024;
+
+    private static final String CONTACT_ID = "0900000180000001";
+
+    private Path spoolDirectory;
+
+    private FakeSessionSource sessions;
+
+    private DocbasePictureStore pictureStore;
+
+    /**
+     * Setup a picture store over the fake docbase, spooling to a directory of its own
+     */
+    @Before
+    public void setup() throws Exception {
+        spoolDirectory = Files.createTempDirectory(null);
+        sessions = new FakeSessionSource();
+        pictureStore = new DocbasePictureStore(sessions, null, new DirectBufferPool(2, 8192, 1000), spoolDirectory,
+                MAX_BYTES);
+    }
+
+    /**
+     * Clean up the spool directory
+     */
+    @After
+    public void cleanup() throws Exception {
+        Files.delete(spoolDirectory);
+    }
+
+    /**
+     * Test that a picture of several megabytes is set as a single page from its spool file and read back whole and
+     * in ranges crossing chunks
+     */
+    @Test
+    public void roundTrip() throws Exception {
+
+        byte[] picture = new byte[3 * 1024 * 1024 + 17];
+        new Random(42).nextBytes(picture);
+
+        PictureInfo written = pictureStore.write(CONTACT_ID, "png",
+                Channels.newChannel(new ByteArrayInputStream(picture)));
+
+        assertThat(written.getLength(), is((long) picture.length));
+        assertThat(written.getFormat(), is("png"));
+        assertThat(sessions.pages.get(CONTACT_ID), is(1));
+        assertThat(Arrays.equals(sessions.contents.get(CONTACT_ID), picture), is(true));
+
+        assertThat(Arrays.equals(read(0, picture.length), picture), is(true));
+        assertThat(Arrays.equals(read(CHUNK_SIZE - 10, 20),
+                Arrays.copyOfRange(picture, CHUNK_SIZE - 10, CHUNK_SIZE + 10)), is(true));
+        assertThat(Arrays.equals(read(picture.length - 5, 5),
+                Arrays.copyOfRange(picture, picture.length - 5, picture.length)), is(true));
+
+        assertThat(spoolDirectory.toFile().list().length, is(0));
+        assertThat(sessions.open, is(0));
+    }
+
+    /**
+     * Test that a picture over the maximum size is rejected before a session is taken and its spool file is removed
+     */
+    @Test
+    public void rejectOversizePicture() throws Exception {
+
+        byte[] picture = new byte[(int) MAX_BYTES + 1];
+
+        try {
+            pictureStore.write(CONTACT_ID, "png", Channels.newChannel(new ByteArrayInputStream(picture)));
+            throw new AssertionError("Oversize picture accepted");
+        } catch (PictureTooLargeException e) {
+            assertThat(e.getMaxBytes(), is(MAX_BYTES));
+        }
+
+        assertThat(sessions.checkouts, is(0));
+        assertThat(sessions.contents.containsKey(CONTACT_ID), is(false));
+        assertThat(spoolDirectory.toFile().list().length, is(0));
+    }
+
+    private byte[] read(long offset, long length) throws Exception {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        pictureStore.read(CONTACT_ID, offset, length, Channels.newChannel(content));
+        return content.toByteArray();
+    }
+
+    /*
+     * session source over a fake docbase, objects keep the content set from a file as their only page
+     */
+    private static class FakeSessionSource implements DocbaseSessionSource {
+
+        private final Map<String, byte[]> contents = new HashMap<String, byte[]>();
+
+        private final Map<String, Integer> pages = new HashMap<String, Integer>();
+
+        private int open;
+
+        private int checkouts;
+
+        @Override
+        public IDfSession getSession() {
+
+            open++;
+            checkouts++;
+
+            return proxy(IDfSession.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    return method.getName().equals("getObject") ? object(((IDfId) args[0]).getId()) : null;
+                }
+            });
+        }
+
+        @Override
+        public void release(IDfSession session) {
+            if (session != null) {
+                open--;
+            }
+        }
+
+        private IDfSysObject object(final String id) {
+
+            final byte[][] content = {contents.get(id)};
+            final String[] format = {"png"};
+
+            return proxy(IDfSysObject.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+                    String name = method.getName();
+
+                    if (name.equals("getPageCount")) {
+                        return pages.containsKey(id) ? pages.get(id) : 0;
+                    } else if (name.equals("getContentType")) {
+                        return format[0];
+                    } else if (name.equals("setFileEx")) {
+                        assertThat((Integer) args[2], is(0));
+                        content[0] = Files.readAllBytes(Paths.get((String) args[0]));
+                        format[0] = (String) args[1];
+                        return true;
+                    } else if (name.equals("save")) {
+                        contents.put(id, content[0]);
+                        pages.put(id, 1);
+                    } else if (name.equals("getVStamp")) {
+                        return 1;
+                    } else if (name.equals("getCollectionForContent")) {
+                        return collection(content[0]);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private IDfCollection collection(final byte[] content) {
+
+            final int[] position = {0};
+
+            return proxy(IDfCollection.class, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+
+                    String name = method.getName();
+
+                    if (name.equals("next")) {
+                        return position[0] < content.length;
+                    } else if (name.equals("getBytesBuffer")) {
+                        int length = Math.min(CHUNK_SIZE, content.length - position[0]);
+                        ByteArrayInputStream chunk = new ByteArrayInputStream(content, position[0], length);
+                        position[0] += length;
+                        return chunk;
+                    }
+                    return null;
+                }
+            });
+        }
+
+        private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+            return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.emc.documentum.sample.content;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the thumbnail disk cache
+ */
+public class ThumbnailCacheTest {
+
+    private Path tempDir;
+
+    /**
+     * Setup a temp dir for the cache files
+     */
+    @Before
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory(null);
+    }
+
+    /**
+     * Clean up the cache files
+     */
+    @After
+    public void cleanup() throws Exception {
+        for (Path file : Files.newDirectoryStream(tempDir)) {
+            Files.delete(file);
+        }
+        Files.delete(tempDir);
+    }
+
+    /**
+     * Test that the least recently used entries are evicted once the cache exceeds its size
+     */
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+
+        ThumbnailCache cache = new ThumbnailCache(tempDir, 300);
+
+        cache.put("a-1", new byte[100]);
+        cache.put("b-1", new byte[100]);
+        cache.put("c-1", new byte[100]);
+
+        // touch a so b is the least recently used
+        assertThat(cache.get("a-1").remaining(), is(100));
+
+        cache.put("d-1", new byte[100]);
+
+        assertThat(cache.get("b-1"), is(nullValue()));
+        assertThat(cache.get("a-1"), is(notNullValue()));
+        assertThat(cache.getBytes(), is(300L));
+        assertThat(cache.getEvictionCount(), is(1L));
+        assertThat(Files.exists(tempDir.resolve("b-1.bin")), is(false));
+    }
+
+    /**
+     * Test removing entries by key prefix
+     */
+    @Test
+    public void invalidatePrefix() throws Exception {
+
+        ThumbnailCache cache = new ThumbnailCache(tempDir, 1000);
+
+        cache.put("a-1-128", new byte[10]);
+        cache.put("a-2-128", new byte[10]);
+        cache.put("ab-1-128", new byte[10]);
+
+        cache.invalidate("a-");
+
+        assertThat(cache.get("a-1-128"), is(nullValue()));
+        assertThat(cache.get("a-2-128"), is(nullValue()));
+        assertThat(cache.get("ab-1-128"), is(notNullValue()));
+        assertThat(cache.getSize(), is(1));
+    }
+
+    /**
+     * Test that a new cache over the same directory serves the entries of the previous one
+     */
+    @Test
+    public void reopen() throws Exception {
+
+        ThumbnailCache cache = new ThumbnailCache(tempDir, 1000);
+        cache.put("a-1", new byte[]{1, 2, 3});
+
+        ThumbnailCache reopened = new ThumbnailCache(tempDir, 1000);
+        ByteBuffer content = reopened.get("a-1");
+
+        assertThat(content.remaining(), is(3));
+        assertThat(content.get(2), is((byte) 3));
+        assertThat(reopened.getBytes(), is(3L));
+    }
+}
@@ -0,0 +1,135 @@
+package com.emc.documentum.sample.content;
+
+import com.emc.documentum.sample.repositories.ContactContentChangedEvent;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for thumbnail rendering and caching
+ */
+public class ThumbnailServiceTest {
+
+    private Path tempDir;
+
+    private FakePictureStore pictureStore;
+
+    private ThumbnailCache cache;
+
+    private ThumbnailService thumbnailService;
+
+    /**
+     * Setup a thumbnail service over a single 400x200 picture
+     */
+    @Before
+    public void setup() throws Exception {
+
+        tempDir = Files.createTempDirectory(null);
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 200, BufferedImage.TYPE_INT_RGB), "png", png);
+
+        pictureStore = new FakePictureStore(png.toByteArray());
+        cache = new ThumbnailCache(tempDir, 1024 * 1024);
+        thumbnailService = new ThumbnailService(pictureStore, cache, 128, 1024 * 1024);
+    }
+
+    /**
+     * Clean up the cache files
+     */
+    @After
+    public void cleanup() throws Exception {
+        for (Path file : Files.newDirectoryStream(tempDir)) {
+            Files.delete(file);
+        }
+        Files.delete(tempDir);
+    }
+
+    /**
+     * Test that thumbnails keep the aspect ratio and are rendered once per picture version
+     */
+    @Test
+    public void renderAndCache() throws Exception {
+
+        Thumbnail thumbnail = thumbnailService.getThumbnail("1");
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes(thumbnail.getContent())));
+
+        assertThat(image.getWidth(), is(128));
+        assertThat(image.getHeight(), is(64));
+        assertThat(pictureStore.reads, is(1));
+
+        Thumbnail cached = thumbnailService.getThumbnail("1");
+
+        assertThat(cached.getETag(), is(thumbnail.getETag()));
+        assertThat(pictureStore.reads, is(1));
+        assertThat(cache.getHitCount(), is(1L));
+
+        // a new version renders again and the event drops the old thumbnail
+        pictureStore.version++;
+        thumbnailService.onApplicationEvent(new ContactContentChangedEvent(this, "1"));
+
+        assertThat(cache.getSize(), is(0));
+        assertThat(thumbnailService.getThumbnail("1").getETag(), is(not(thumbnail.getETag())));
+        assertThat(pictureStore.reads, is(2));
+    }
+
+    /**
+     * Test that contacts without a picture have no thumbnail
+     */
+    @Test
+    public void noPicture() throws Exception {
+        assertThat(thumbnailService.getThumbnail("2"), is(nullValue()));
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /*
+     * picture store holding one png picture for contact 1
+     */
+    private static class FakePictureStore implements PictureStore {
+
+        private final byte[] picture;
+
+        private int version = 1;
+
+        private int reads;
+
+        FakePictureStore(byte[] picture) {
+            this.picture = picture;
+        }
+
+        @Override
+        public PictureInfo describe(String contactId) {
+            return "1".equals(contactId) ? new PictureInfo(contactId, "png", picture.length, version, null) : null;
+        }
+
+        @Override
+        public void read(String contactId, long offset, long length, WritableByteChannel target) throws IOException {
+            reads++;
+            target.write(ByteBuffer.wrap(picture, (int) offset, (int) length));
+        }
+
+        @Override
+        public PictureInfo write(String contactId, String format, ReadableByteChannel source) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.emc.documentum.sample.controller;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for HTTP byte range parsing
+ */
+public class ByteRangeTest {
+
+    /**
+     * Test closed, open ended and suffix ranges
+     */
+    @Test
+    public void parseRanges() {
+
+        ByteRange range = ByteRange.parse("bytes=0-99", 1000);
+        assertThat(range.getFirst(), is(0L));
+        assertThat(range.getLast(), is(99L));
+        assertThat(range.getLength(), is(100L));
+        assertThat(range.toContentRange(1000), is("bytes 0-99/1000"));
+
+        range = ByteRange.parse("bytes=900-", 1000);
+        assertThat(range.getFirst(), is(900L));
+        assertThat(range.getLast(), is(999L));
+
+        range = ByteRange.parse("bytes=-300", 1000);
+        assertThat(range.getFirst(), is(700L));
+        assertThat(range.getLast(), is(999L));
+
+        // ranges running past the end are cut to the length
+        range = ByteRange.parse("bytes=500-5000", 1000);
+        assertThat(range.getLast(), is(999L));
+
+        range = ByteRange.parse("bytes=-5000", 1000);
+        assertThat(range.getFirst(), is(0L));
+    }
+
+    /**
+     * Test that ranges beyond the end are unsatisfiable and unsupported headers are ignored
+     */
+    @Test
+    public void rejectRanges() {
+
+        assertThat(ByteRange.parse("bytes=1000-", 1000), is(sameInstance(ByteRange.UNSATISFIABLE)));
+        assertThat(ByteRange.UNSATISFIABLE.toContentRange(1000), is("bytes */1000"));
+
+        assertThat(ByteRange.parse(null, 1000), is(nullValue()));
+        assertThat(ByteRange.parse("items=0-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=0-1,5-6", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=9-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=a-b", 1000), is(nullValue()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.content.InMemoryPictureStore;
+import com.emc.documentum.sample.content.PictureTooLargeException;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact picture resource, over the in-memory picture store
+ */
+public class ContactPictureControllerTest {
+
+    private static final long MAX_BYTES = 4 * 1024 * 1024;
+
+    private ContactPictureController controller;
+
+    private String contactId;
+
+    /**
+     * Setup a controller over a single contact without a picture
+     */
+    @Before
+    public void setup() {
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        contactId = contactRepository.save(createTestContact("Cecilia Chapman")).getId();
+
+        controller = new ContactPictureController();
+        ReflectionTestUtils.setField(controller, "pictureStore", new InMemoryPictureStore(contactRepository, MAX_BYTES));
+    }
+
+    /**
+     * Test that an uploaded picture of several megabytes is returned whole and as a byte range
+     */
+    @Test
+    public void uploadAndGetRange() throws Exception {
+
+        byte[] picture = new byte[3 * 1024 * 1024];
+        new Random(42).nextBytes(picture);
+
+        MockHttpServletResponse put = put(picture, null);
+        assertThat(put.getStatus(), is(HttpStatus.NO_CONTENT.value()));
+
+        MockHttpServletResponse whole = get(null);
+        assertThat(whole.getStatus(), is(HttpStatus.OK.value()));
+        assertThat(whole.getContentType(), is("image/png"));
+        assertThat(whole.getHeader(HttpHeaders.ETAG), is(put.getHeader(HttpHeaders.ETAG)));
+        assertThat(Arrays.equals(whole.getContentAsByteArray(), picture), is(true));
+
+        MockHttpServletResponse range = get("bytes=1000-1999");
+        assertThat(range.getStatus(), is(HttpStatus.PARTIAL_CONTENT.value()));
+        assertThat(range.getHeader(HttpHeaders.CONTENT_RANGE), is("bytes 1000-1999/" + picture.length));
+        assertThat(range.getHeader(HttpHeaders.CONTENT_LENGTH), is("1000"));
+        assertThat(Arrays.equals(range.getContentAsByteArray(), Arrays.copyOfRange(picture, 1000, 2000)), is(true));
+
+        MockHttpServletResponse unsatisfiable = get("bytes=" + picture.length + "-");
+        assertThat(unsatisfiable.getStatus(), is(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()));
+    }
+
+    /**
+     * Test that a picture is only replaced when If-Match names its current entity tag with the strong comparison
+     */
+    @Test
+    public void ifMatch() throws Exception {
+
+        String etag = put(new byte[]{1, 2, 3}, null).getHeader(HttpHeaders.ETAG);
+
+        assertThat(put(new byte[]{4}, "W/" + etag).getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(put(new byte[]{4}, "\"" + contactId + ".0\"").getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(get(null).getContentAsByteArray(), is(new byte[]{1, 2, 3}));
+
+        assertThat(put(new byte[]{4}, etag).getStatus(), is(HttpStatus.NO_CONTENT.value()));
+        assertThat(put(new byte[]{5}, etag).getStatus(), is(HttpStatus.PRECONDITION_FAILED.value()));
+        assertThat(get(null).getContentAsByteArray(), is(new byte[]{4}));
+    }
+
+    /**
+     * Test that a picture over the maximum size is answered with 413 and leaves the contact without a picture
+     */
+    @Test
+    public void rejectOversizePicture() throws Exception {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        try {
+            put(new byte[(int) MAX_BYTES + 1], null);
+            throw new AssertionError("Oversize picture accepted");
+        } catch (PictureTooLargeException e) {
+            new ControllerExceptionHandler().payloadTooLarge(e, response);
+        }
+
+        assertThat(response.getStatus(), is(HttpStatus.PAYLOAD_TOO_LARGE.value()));
+        assertThat(get(null).getStatus(), is(HttpStatus.NOT_FOUND.value()));
+    }
+
+    private MockHttpServletResponse put(byte[] picture, String ifMatch) throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/contacts/" + contactId + "/picture");
+        request.setContentType("image/png");
+        request.setContent(picture);
+        if (ifMatch != null) {
+            request.addHeader(HttpHeaders.IF_MATCH, ifMatch);
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.putPicture(contactId, request, response);
+
+        return response;
+    }
+
+    private MockHttpServletResponse get(String range) throws Exception {
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contacts/" + contactId + "/picture");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.getPicture(contactId, request, response);
+
+        return response;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
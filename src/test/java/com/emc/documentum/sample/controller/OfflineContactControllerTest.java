@@ -0,0 +1,126 @@
+package com.emc.documentum.sample.controller;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact CRUD resources of the offline profile, over the in-memory repository
+ */
+public class OfflineContactControllerTest {
+
+    private InMemoryContactRepository contactRepository;
+
+    private OfflineContactController controller;
+
+    /**
+     * Setup a controller over an empty repository
+     */
+    @Before
+    public void setup() {
+        contactRepository = new InMemoryContactRepository();
+        controller = new OfflineContactController();
+        ReflectionTestUtils.setField(controller, "contactRepository", contactRepository);
+    }
+
+    /**
+     * Test that a contact can be created, read, found by name, replaced and deleted
+     */
+    @Test
+    public void crud() {
+
+        ResponseEntity<Void> created = controller.createContact(createTestContact("Cecilia Chapman"),
+                new MockHttpServletRequest("POST", "/contacts"));
+
+        assertThat(created.getStatusCode(), is(HttpStatus.CREATED));
+        String location = created.getHeaders().getFirst(HttpHeaders.LOCATION);
+        String id = location.substring(location.lastIndexOf('/') + 1);
+        assertThat(location, is("http://localhost/contacts/" + id));
+
+        assertThat(controller.getContact(id, get("/contacts/" + id)).getBody().getContent().getName(),
+                is("Cecilia Chapman"));
+        assertThat(controller.getContacts(0, 20, get("/contacts")).getContent(), hasSize(1));
+        assertThat(controller.findByNameContaining("Chapman", get("/contacts/search/findByNameContaining"))
+                .getContent(), hasSize(1));
+        assertThat(controller.findByNameContaining("Watson", get("/contacts/search/findByNameContaining"))
+                .getContent(), hasSize(0));
+
+        Contact replacement = createTestContact("Celeste Slater");
+        assertThat(controller.replaceContact(id, replacement).getStatusCode(), is(HttpStatus.NO_CONTENT));
+        assertThat(controller.getContact(id, get("/contacts/" + id)).getBody().getContent().getName(),
+                is("Celeste Slater"));
+
+        assertThat(controller.deleteContact(id).getStatusCode(), is(HttpStatus.NO_CONTENT));
+        assertThat(controller.getContact(id, get("/contacts/" + id)).getStatusCode(), is(HttpStatus.NOT_FOUND));
+        assertThat(controller.deleteContact(id).getStatusCode(), is(HttpStatus.NOT_FOUND));
+        assertThat(controller.replaceContact(id, replacement).getStatusCode(), is(HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Test that contacts are linked to themselves and the collection is paged with links to the neighbouring pages,
+     * as in HAL from Spring Data REST
+     */
+    @Test
+    public void halLinksAndPaging() {
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(contactRepository.save(createTestContact("Contact " + i)).getId());
+        }
+
+        Resource<Contact> contact = controller.getContact(ids.get(0), get("/contacts/" + ids.get(0))).getBody();
+        assertThat(contact.getLink(Link.REL_SELF).getHref(), is("http://localhost/contacts/" + ids.get(0)));
+        assertThat(contact.getLink("contact").getHref(), is("http://localhost/contacts/" + ids.get(0)));
+
+        PagedResources<Resource<Contact>> page = controller.getContacts(1, 2, get("/contacts"));
+        assertThat(page.getContent(), hasSize(2));
+        assertThat(page.getMetadata().getNumber(), is(1L));
+        assertThat(page.getMetadata().getTotalElements(), is(5L));
+        assertThat(page.getMetadata().getTotalPages(), is(3L));
+        assertThat(page.getLink(Link.REL_SELF).getHref(), is("http://localhost/contacts?page=1&size=2"));
+        assertThat(page.getLink(Link.REL_PREVIOUS).getHref(), is("http://localhost/contacts?page=0&size=2"));
+        assertThat(page.getLink(Link.REL_NEXT).getHref(), is("http://localhost/contacts?page=2&size=2"));
+        assertThat(page.getLink(Link.REL_LAST).getHref(), is("http://localhost/contacts?page=2&size=2"));
+        assertThat(page.getContent().iterator().next().getLink(Link.REL_SELF).getHref(),
+                is("http://localhost/contacts/" + ids.get(2)));
+
+        PagedResources<Resource<Contact>> last = controller.getContacts(2, 2, get("/contacts"));
+        assertThat(last.getContent(), hasSize(1));
+        assertThat(last.getLink(Link.REL_NEXT), is(nullValue()));
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
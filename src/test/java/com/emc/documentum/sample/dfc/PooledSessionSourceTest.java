@@ -0,0 +1,171 @@
+package com.emc.documentum.sample.dfc;
+
+import com.documentum.fc.client.IDfSession;
+import com.documentum.fc.common.DfException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the docbase session pool
+ */
+public class PooledSessionSourceTest {
+
+    private FakeSessionSource sessions;
+
+    /**
+     * Setup a source of fake sessions
+     */
+    @Before
+    public void setup() {
+        sessions = new FakeSessionSource();
+    }
+
+    /**
+     * Test that released sessions are reused and the pool never exceeds its maximum size
+     */
+    @Test
+    public void reuseAndBound() throws DfException {
+
+        PooledSessionSource pool = new PooledSessionSource(sessions, 0, 2, 50, 60000, 60000);
+
+        IDfSession first = pool.getSession();
+        pool.release(first);
+        assertThat(pool.getSession(), is(sameInstance(first)));
+
+        pool.getSession();
+        assertThat(pool.getSize(), is(2));
+        assertThat(pool.getActive(), is(2));
+
+        try {
+            pool.getSession();
+            throw new AssertionError("Expected the checkout to time out");
+        } catch (TransientDataAccessResourceException e) {
+            // expected
+        }
+
+        assertThat(pool.getTimeoutCount(), is(1L));
+        assertThat(pool.getWaitCount(), is(1L));
+        assertThat(pool.getCreatedCount(), is(2L));
+        assertThat(sessions.open.size(), is(2));
+    }
+
+    /**
+     * Test that prewarming opens the minimum number of sessions and closing releases them
+     */
+    @Test
+    public void prewarmAndClose() {
+
+        PooledSessionSource pool = new PooledSessionSource(sessions, 3, 5, 50, 60000, 60000);
+        pool.prewarm();
+
+        assertThat(pool.getSize(), is(3));
+        assertThat(pool.getIdle(), is(3));
+        assertThat(pool.getActive(), is(0));
+
+        pool.close();
+
+        assertThat(pool.getSize(), is(0));
+        assertThat(sessions.open, is(empty()));
+    }
+
+    /**
+     * Test that sessions dropped while idle are replaced rather than handed out
+     */
+    @Test
+    public void replaceDisconnected() throws DfException {
+
+        PooledSessionSource pool = new PooledSessionSource(sessions, 0, 2, 50, 60000, 60000);
+
+        IDfSession dropped = pool.getSession();
+        pool.release(dropped);
+        sessions.open.remove(dropped);
+
+        IDfSession session = pool.getSession();
+
+        assertThat(session, is(not(sameInstance(dropped))));
+        assertThat(pool.getSize(), is(1));
+        assertThat(pool.getDestroyedCount(), is(1L));
+    }
+
+    /**
+     * Test that idle eviction keeps the minimum size and leak detection reports each session once, with or without
+     * its checkout stack
+     */
+    @Test
+    public void evictAndDetectLeaks() throws DfException {
+
+        PooledSessionSource pool = new PooledSessionSource(sessions, 1, 4, 50, 0, 0);
+
+        IDfSession held = pool.getSession();
+        IDfSession a = pool.getSession();
+        IDfSession b = pool.getSession();
+        pool.release(a);
+        pool.release(b);
+
+        pool.evictIdle();
+        assertThat(pool.getSize(), is(1));
+        assertThat(sessions.open, contains(held));
+
+        pool.detectLeaks();
+        pool.detectLeaks();
+        assertThat(pool.getLeakCount(), is(1L));
+
+        pool.setLeakStackTraces(true);
+        IDfSession traced = pool.getSession();
+        pool.detectLeaks();
+        assertThat(pool.getLeakCount(), is(2L));
+
+        pool.release(traced);
+        pool.release(held);
+        pool.evictIdle();
+        assertThat(pool.getSize(), is(1));
+        assertThat(pool.getIdle(), is(1));
+    }
+
+    /*
+     * session source handing out proxies that stay connected until released
+     */
+    private static class FakeSessionSource implements DocbaseSessionSource {
+
+        private final Set<IDfSession> open = new HashSet<IDfSession>();
+
+        @Override
+        public IDfSession getSession() {
+
+            final IDfSession[] session = new IDfSession[1];
+
+            session[0] = (IDfSession) Proxy.newProxyInstance(IDfSession.class.getClassLoader(),
+                    new Class<?>[]{IDfSession.class}, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if (method.getName().equals("isConnected")) {
+                                return open.contains(session[0]);
+                            } else if (method.getName().equals("equals")) {
+                                return proxy == args[0];
+                            } else if (method.getName().equals("hashCode")) {
+                                return System.identityHashCode(proxy);
+                            }
+                            return null;
+                        }
+                    });
+
+            open.add(session[0]);
+            return session[0];
+        }
+
+        @Override
+        public void release(IDfSession session) {
+            open.remove(session);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.emc.documentum.sample.importer;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the bulk contact import against the in-memory repository
+ */
+public class ContactImporterTest {
+
+    private Path tempDir;
+
+    /**
+     * Setup a temp dir for checkpoint files
+     */
+    @Before
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory(null);
+    }
+
+    /**
+     * Clean up the checkpoint files
+     */
+    @After
+    public void cleanup() throws Exception {
+        for (Path file : Files.newDirectoryStream(tempDir)) {
+            Files.delete(file);
+        }
+        Files.delete(tempDir);
+    }
+
+    /*
+     * generate CSV rows of name,telephone
+     */
+    private String generateCsv(int rows) {
+
+        StringBuilder csv = new StringBuilder();
+
+        for (int i = 0; i < rows; i++) {
+            csv.append("Contact ").append(i).append(",(257) 563-").append(1000 + i).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    /**
+     * Test reading contacts from CSV with quoted fields and an optional email column
+     */
+    @Test
+    public void readCsv() throws Exception {
+
+        ContactCsvReader reader = new ContactCsvReader(new StringReader(
+                "Cecilia Chapman,(257) 563-7401\n\n\"Watson, Iris\",(372) 587-2335,iris@thecloud.com\n"));
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        while (reader.hasNext()) {
+            contacts.add(reader.next());
+        }
+        reader.close();
+
+        assertThat(contacts.size(), is(2));
+        assertThat(contacts.get(0).getName(), is(equalTo("Cecilia Chapman")));
+        assertThat(contacts.get(0).getEmail(), is(nullValue()));
+        assertThat(contacts.get(1).getName(), is(equalTo("Watson, Iris")));
+        assertThat(contacts.get(1).getTelephone(), is(equalTo("(372) 587-2335")));
+        assertThat(contacts.get(1).getEmail(), is(equalTo("iris@thecloud.com")));
+    }
+
+    /**
+     * Test importing contacts with parallel writers
+     */
+    @Test
+    public void importContacts() {
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        ContactImporter importer = new ContactImporter(contactRepository, 100, 4);
+
+        final List<BatchReport> reports = Collections.synchronizedList(new ArrayList<BatchReport>());
+        importer.setListener(new ImportListener() {
+            @Override
+            public void batchCompleted(BatchReport report) {
+                reports.add(report);
+            }
+        });
+
+        ImportReport report = importer.importContacts(new ContactCsvReader(new StringReader(generateCsv(1050))));
+
+        // check every contact was written in batches of the configured size
+        assertThat(report.isComplete(), is(true));
+        assertThat(report.getImported(), is(1050L));
+        assertThat(report.getBatches(), is(11));
+        assertThat(contactRepository.count(), is(1050L));
+        assertThat(reports.size(), is(11));
+    }
+
+    /**
+     * Test resuming a failed import from its checkpoint without writing any contact twice
+     */
+    @Test
+    public void resumeFromCheckpoint() {
+
+        final AtomicBoolean failing = new AtomicBoolean(true);
+
+        // repository failing every batch holding contact 450 while failing is set
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository() {
+            @Override
+            public List<Contact> saveAll(Collection<Contact> contacts) {
+                for (Contact contact : contacts) {
+                    if (failing.get() && contact.getName().equals("Contact 450")) {
+                        throw new IllegalStateException("docbase unavailable");
+                    }
+                }
+                return super.saveAll(contacts);
+            }
+        };
+
+        ContactImporter importer = new ContactImporter(contactRepository, 100, 2);
+        Path checkpointFile = tempDir.resolve("import.checkpoint");
+
+        ImportReport failedReport = importer.importContacts(
+                new ContactCsvReader(new StringReader(generateCsv(1000))), ImportCheckpoint.open(checkpointFile, 100));
+
+        // check the import stopped at the failed batch
+        assertThat(failedReport.isComplete(), is(false));
+        assertThat(failedReport.getFailedBatches(), is(1));
+        assertThat(contactRepository.count(), is(lessThan(1000L)));
+        assertThat(Files.exists(checkpointFile), is(true));
+
+        // resume once the repository recovered
+        failing.set(false);
+
+        ImportReport resumedReport = importer.importContacts(
+                new ContactCsvReader(new StringReader(generateCsv(1000))), ImportCheckpoint.open(checkpointFile, 100));
+
+        assertThat(resumedReport.isComplete(), is(true));
+        assertThat(resumedReport.getSkipped(), is(failedReport.getImported()));
+        assertThat(contactRepository.count(), is(1000L));
+        assertThat(contactRepository.findByNameContaining("Contact 450").size(), is(1));
+    }
+
+    /**
+     * Test resuming a batch that was written but not recorded as complete without writing its contacts twice
+     */
+    @Test
+    public void resumeBatchInDoubt() throws Exception {
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        ContactImporter importer = new ContactImporter(contactRepository, 100, 2);
+        Path checkpointFile = tempDir.resolve("import.checkpoint");
+
+        // batch 1 was written, then the import died before recording it
+        ImportCheckpoint checkpoint = ImportCheckpoint.open(checkpointFile, 100);
+        checkpoint.markCompleted(0);
+        checkpoint.markStarted(1);
+
+        List<Contact> written = new ArrayList<Contact>();
+        ContactCsvReader reader = new ContactCsvReader(new StringReader(generateCsv(300)));
+        for (int i = 0; i < 200; i++) {
+            Contact contact = reader.next();
+            if (i >= 100) {
+                written.add(contact);
+            }
+        }
+        contactRepository.saveAll(written);
+
+        ImportCheckpoint resumed = ImportCheckpoint.open(checkpointFile, 100);
+        assertThat(resumed.isInDoubt(1), is(true));
+
+        ImportReport report = importer.importContacts(
+                new ContactCsvReader(new StringReader(generateCsv(300))), resumed);
+
+        assertThat(report.isComplete(), is(true));
+        assertThat(report.getImported(), is(100L));
+        assertThat(report.getSkipped(), is(200L));
+        assertThat(contactRepository.count(), is(200L));
+        assertThat(contactRepository.findByNameContaining("Contact 150").size(), is(1));
+        assertThat(resumed.isInDoubt(1), is(false));
+    }
+
+    /**
+     * Test that a checkpoint cannot be resumed with a different batch size
+     */
+    @Test(expected = IllegalStateException.class)
+    public void resumeWithDifferentBatchSize() {
+
+        Path checkpointFile = tempDir.resolve("import.checkpoint");
+
+        ImportCheckpoint.open(checkpointFile, 100).markCompleted(0);
+        ImportCheckpoint.open(checkpointFile, 50);
+    }
+}
@@ -0,0 +1,66 @@
+package com.emc.documentum.sample.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the latency histogram
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test that every value falls in a bucket whose bounds contain it and that buckets are contiguous
+     */
+    @Test
+    public void bucketBounds() {
+
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100000; i++) {
+
+            long value = i < 1000 ? i : random.nextLong() >>> (23 + random.nextInt(40));
+            int index = LatencyHistogram.index(value);
+
+            assertThat(LatencyHistogram.upperBound(index), is(greaterThanOrEqualTo(value)));
+            assertThat(index == 0 || LatencyHistogram.upperBound(index - 1) < value, is(true));
+
+            // at most about 3% too high
+            assertThat((double) LatencyHistogram.upperBound(index), is(lessThanOrEqualTo(value * 1.032 + 1)));
+        }
+    }
+
+    /**
+     * Test quantiles against the exact quantiles of random latencies
+     */
+    @Test
+    public void quantiles() {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(42);
+        long[] values = new long[100000];
+
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (long) (Math.exp(random.nextGaussian() * 2) * 1000000);
+            histogram.record(values[i]);
+        }
+
+        Arrays.sort(values);
+
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+        long[] measured = histogram.getValuesAtQuantiles(quantiles);
+
+        for (int i = 0; i < quantiles.length; i++) {
+            long exact = values[(int) Math.ceil(quantiles[i] * values.length) - 1];
+            assertThat((double) measured[i], is(closeTo(exact, exact * 0.032)));
+        }
+
+        assertThat(histogram.getCount(), is(100000L));
+        assertThat(histogram.getMax(), is(values[values.length - 1]));
+        assertThat(new LatencyHistogram().getValuesAtQuantiles(0.5)[0], is(0L));
+    }
+}
@@ -0,0 +1,53 @@
+package com.emc.documentum.sample.metrics;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the HTTP request timers
+ */
+public class RequestMetricsFilterTest {
+
+    /**
+     * Test that an asynchronous request is timed once, when its async context completes, and not again by the
+     * dispatch that writes its response
+     */
+    @Test
+    public void timeAsyncRequestOnce() throws Exception {
+
+        MetricsRegistry registry = new MetricsRegistry();
+        RequestMetricsFilter filter = new RequestMetricsFilter(registry);
+
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/contacts/async");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                request.startAsync();
+            }
+        });
+
+        assertThat(registry.timer("http").snapshot().getCount(), is(0L));
+        assertThat(registry.timer("http").snapshot().getInFlight(), is(1));
+
+        request.setDispatcherType(DispatcherType.ASYNC);
+        filter.doFilter(request, response, new MockFilterChain());
+        request.getAsyncContext().complete();
+
+        assertThat(registry.timer("http").snapshot().getCount(), is(1L));
+        assertThat(registry.timer("http").snapshot().getInFlight(), is(0));
+        assertThat(registry.timer("http.GET unmatched").snapshot().getCount(), is(1L));
+    }
+}
@@ -0,0 +1,70 @@
+package com.emc.documentum.sample.metrics;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the startup report
+ */
+public class StartupReportTest {
+
+    /**
+     * Test that the time spent creating dependencies is not counted against the bean depending on them
+     */
+    @Test
+    public void timeBeansWithoutDependencies() throws Exception {
+
+        StartupReport report = new StartupReport(10);
+        StartupReport.BeanTimer timer = report.getBeanTimer();
+
+        timer.postProcessBeforeInstantiation(Object.class, "controller");
+        Thread.sleep(20);
+        timer.postProcessBeforeInstantiation(Object.class, "repository");
+        Thread.sleep(60);
+        timer.postProcessAfterInitialization(new Object(), "repository");
+        timer.postProcessAfterInitialization(new Object(), "controller");
+
+        Map<String, Long> slowest = report.getSlowestBeans();
+
+        assertThat(slowest.keySet(), contains("repository", "controller"));
+        assertThat(slowest.get("repository"), is(greaterThanOrEqualTo(60L)));
+        assertThat(slowest.get("controller"), is(allOf(greaterThanOrEqualTo(20L), lessThan(60L))));
+        assertThat(timer.getCount(), is(2));
+    }
+
+    /**
+     * Test that failed creations and factory bean objects do not upset the timings
+     */
+    @Test
+    public void skipUnmatchedBeans() {
+
+        StartupReport report = new StartupReport(10);
+        StartupReport.BeanTimer timer = report.getBeanTimer();
+
+        timer.postProcessBeforeInstantiation(Object.class, "parent");
+        timer.postProcessBeforeInstantiation(Object.class, "broken");
+        timer.postProcessAfterInitialization(new Object(), "parent");
+        timer.postProcessAfterInitialization(new Object(), "factoryObject");
+
+        timer.postProcessBeforeInstantiation(Object.class, "next");
+        timer.postProcessAfterInitialization(new Object(), "next");
+
+        assertThat(report.getSlowestBeans().keySet(), containsInAnyOrder("parent", "next"));
+    }
+
+    /**
+     * Test that the report starts with the time the JVM took to reach the application
+     */
+    @Test
+    public void reportJvmPhase() {
+
+        Map<String, Long> phases = new StartupReport().getPhases();
+
+        assertThat(phases.keySet(), contains("jvm"));
+        assertThat(phases.get("jvm"), is(greaterThanOrEqualTo(0L)));
+    }
+}
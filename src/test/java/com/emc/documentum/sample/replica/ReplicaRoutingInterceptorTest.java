@@ -0,0 +1,320 @@
+package com.emc.documentum.sample.replica;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.metrics.MetricsRegistry;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactVersion;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for routing contact reads to replicas, with in-memory repositories as primary and replicas
+ */
+public class ReplicaRoutingInterceptorTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+
+    /**
+     * Test that reads take turns between the replicas and writes go to the primary
+     */
+    @Test
+    public void splitReadsAndWrites() {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository first = new InMemoryContactRepository();
+        InMemoryContactRepository second = new InMemoryContactRepository();
+        List<Contact> contacts = seed(primary, Arrays.asList(first, second));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(
+                new Replica("first", first, null), new Replica("second", second, null)), 1000, 0);
+        ContactRepository repository = proxy(primary, router);
+        router.check();
+
+        long primaryRoundTrips = primary.getRoundTripCount();
+
+        assertThat(repository.findAll(), is(iterableWithSize(3)));
+        assertThat(repository.findOne(contacts.get(0).getId()).getName(), is("Cecilia Chapman"));
+        assertThat(repository.findByNameContaining("Ce"), is(iterableWithSize(2)));
+        assertThat(repository.exists(contacts.get(1).getId()), is(true));
+
+        assertThat(primary.getRoundTripCount(), is(primaryRoundTrips));
+        assertThat(router.getReplicaReads(), is(4L));
+        assertThat(router.getReplicas().get(0).getReads(), is(2L));
+        assertThat(router.getReplicas().get(1).getReads(), is(2L));
+        assertThat(registry.snapshot().keySet(), hasItem("replica[first]"));
+
+        repository.save(createTestContact("Iris Watson"));
+
+        assertThat(primary.count(), is(4L));
+        assertThat(first.count(), is(3L));
+        assertThat(second.count(), is(3L));
+    }
+
+    /**
+     * Test that a client that wrote reads from the primary for the sticky window, and other clients do not
+     */
+    @Test
+    public void readYourWrites() throws Exception {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository replica = new InMemoryContactRepository();
+        seed(primary, Arrays.asList(replica));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(new Replica("replica", replica, null)),
+                1000, 200);
+        ContactRepository repository = proxy(primary, router);
+        router.check();
+
+        router.bindClient("writer");
+        Contact saved = repository.save(createTestContact("Iris Watson"));
+
+        assertThat(repository.findOne(saved.getId()).getName(), is("Iris Watson"));
+        assertThat(router.getStickyReads(), is(1L));
+
+        router.bindClient("reader");
+        assertThat(repository.findOne(saved.getId()), is(nullValue()));
+        assertThat(router.getReplicaReads(), is(1L));
+
+        Thread.sleep(250);
+
+        router.bindClient("writer");
+        assertThat(repository.findOne(saved.getId()), is(nullValue()));
+        assertThat(router.getReplicaReads(), is(2L));
+
+        router.check();
+        assertThat(router.getStickyClients(), is(0));
+
+        router.unbindClient();
+    }
+
+    /**
+     * Test that the reads of a request stay on the replica its first read went to, and go to the primary once the
+     * request read from the primary or the replica failed
+     */
+    @Test
+    public void pinRequestReads() {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository first = new InMemoryContactRepository();
+        InMemoryContactRepository second = new InMemoryContactRepository();
+        List<Contact> contacts = seed(primary, Arrays.asList(first, second));
+        String id = contacts.get(0).getId();
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(
+                new Replica("first", first, null), new Replica("second", second, null)), 1000, 0);
+        ContactRepository repository = proxy(primary, router);
+        router.check();
+
+        router.bindClient("client");
+        repository.findOne(id);
+        repository.findOne(id);
+        assertThat(router.getReplicas().get(0).getReads(), is(2L));
+        assertThat(router.getReplicas().get(1).getReads(), is(0L));
+
+        // the replica fails and the request goes on to the primary, not the other replica
+        router.failed(router.getReplicas().get(0), new IllegalStateException("Replica down"));
+        assertThat(repository.findOne(id), is(notNullValue()));
+        assertThat(repository.findOne(id), is(notNullValue()));
+        assertThat(router.getReplicas().get(1).getReads(), is(0L));
+        assertThat(router.getPinnedReads(), is(2L));
+
+        router.check();
+        router.bindClient("client");
+        router.readFromPrimary();
+        repository.findOne(id);
+        assertThat(router.getPinnedReads(), is(3L));
+        assertThat(router.getReplicaReads(), is(2L));
+
+        router.unbindClient();
+    }
+
+    /**
+     * Test that reads fail over to the next replica and then the primary, and failing replicas stay out of rotation
+     */
+    @Test
+    public void failOver() {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository failing = new InMemoryContactRepository(0, 0, 1);
+        InMemoryContactRepository working = new InMemoryContactRepository();
+        List<Contact> contacts = seed(primary, Arrays.asList(working));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(
+                new Replica("failing", failing, null), new Replica("working", working, null)), 1000, 0);
+        ContactRepository repository = proxy(primary, router);
+
+        // the failing replica went down after its last check
+        router.check();
+        router.getReplicas().get(0).checked(0);
+
+        for (Contact contact : contacts) {
+            assertThat(repository.findOne(contact.getId()), is(notNullValue()));
+        }
+
+        assertThat(router.getFailovers(), is(1L));
+        assertThat(router.getReplicaHealth().get("failing"), is(false));
+        assertThat(router.getReplicas().get(1).getReads(), is(3L));
+
+        router.check();
+        assertThat(router.getReplicaHealth(), is(equalTo(healthMap(false, true))));
+
+        router.failed(router.getReplicas().get(1), new IllegalStateException("Replica down"));
+        assertThat(repository.findOne(contacts.get(0).getId()), is(notNullValue()));
+        assertThat(router.getUnavailableReads(), is(1L));
+        assertThat(registry.timer("replica[primary]").snapshot().getCount(), is(1L));
+
+        router.check();
+        assertThat(router.getReplicaHealth().get("working"), is(true));
+    }
+
+    /**
+     * Test that a replica too far behind the primary is not read from until it catches up
+     */
+    @Test
+    public void skipLaggingReplica() throws Exception {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository replica = new InMemoryContactRepository();
+        seed(primary, Arrays.asList(replica));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(new Replica("replica", replica, null)),
+                50, 0);
+        ContactRepository repository = proxy(primary, router);
+
+        Thread.sleep(100);
+        Contact saved = repository.save(createTestContact("Iris Watson"));
+
+        router.check();
+        assertThat(router.getReplicaLagMillis().get("replica"), is(greaterThanOrEqualTo(100L)));
+        assertThat(repository.findOne(saved.getId()), is(notNullValue()));
+        assertThat(router.getUnavailableReads(), is(1L));
+
+        replica.save(saved);
+        router.check();
+        assertThat(router.getReplicaLagMillis().get("replica"), is(lessThan(50L)));
+        assertThat(repository.findOne(saved.getId()), is(notNullValue()));
+        assertThat(router.getReplicaReads(), is(1L));
+    }
+
+    /**
+     * Test that a replica is not read from before its first check, nor while its version differs from the primary's
+     * with no older last change, as after a delete
+     */
+    @Test
+    public void skipUncheckedReplica() {
+
+        final InMemoryContactRepository primary = new InMemoryContactRepository();
+        final AtomicBoolean deleted = new AtomicBoolean();
+        InMemoryContactRepository replica = new InMemoryContactRepository() {
+            @Override
+            public ContactVersion findCollectionVersion() {
+                // a docbase delete leaves the last modification date of the primary where it was
+                return deleted.get() ? new ContactVersion("stale", primary.findCollectionVersion().getLastModified())
+                        : super.findCollectionVersion();
+            }
+        };
+        List<Contact> contacts = seed(primary, Arrays.asList(replica));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(new Replica("replica", replica, null)),
+                1000, 0);
+        ContactRepository repository = proxy(primary, router);
+
+        assertThat(router.getReplicaHealth().get("replica"), is(false));
+        assertThat(repository.findOne(contacts.get(0).getId()), is(notNullValue()));
+        assertThat(router.getReplicaReads(), is(0L));
+
+        router.check();
+        assertThat(repository.findOne(contacts.get(0).getId()), is(notNullValue()));
+        assertThat(router.getReplicaReads(), is(1L));
+
+        repository.delete(contacts.get(0).getId());
+        deleted.set(true);
+        router.check();
+        assertThat(router.getReplicaLagMillis().get("replica"), is(Long.MAX_VALUE));
+        assertThat(repository.findOne(contacts.get(0).getId()), is(nullValue()));
+        assertThat(router.getReplicaReads(), is(1L));
+    }
+
+    /**
+     * Test that contact versions, the validators of conditional requests, are read from the primary
+     */
+    @Test
+    public void versionsFromPrimary() {
+
+        InMemoryContactRepository primary = new InMemoryContactRepository();
+        InMemoryContactRepository replica = new InMemoryContactRepository();
+        List<Contact> contacts = seed(primary, Arrays.asList(replica));
+
+        ReplicaRouter router = new ReplicaRouter(primary, Arrays.asList(new Replica("replica", replica, null)),
+                1000, 0);
+        ContactRepository repository = proxy(primary, router);
+
+        String id = contacts.get(0).getId();
+
+        assertThat(repository.findVersion(id).getTag(), is(primary.findVersion(id).getTag()));
+        assertThat(repository.findCollectionVersion().getTag(), is(primary.findCollectionVersion().getTag()));
+        assertThat(router.getReplicaReads(), is(0L));
+    }
+
+    private ContactRepository proxy(ContactRepository primary, ReplicaRouter router) {
+
+        ProxyFactory factory = new ProxyFactory(primary);
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(new ReplicaRoutingInterceptor(router, registry));
+
+        return (ContactRepository) factory.getProxy();
+    }
+
+    /*
+     * the same contacts on the primary and every replica
+     */
+    private List<Contact> seed(ContactRepository primary, List<? extends ContactRepository> replicas) {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (String name : Arrays.asList("Cecilia Chapman", "Celeste Slater", "Theodore Lowe")) {
+            contacts.add(primary.save(createTestContact(name)));
+        }
+
+        for (ContactRepository replica : replicas) {
+            replica.saveAll(contacts);
+        }
+
+        return contacts;
+    }
+
+    private static Map<String, Boolean> healthMap(boolean failing, boolean working) {
+
+        Map<String, Boolean> health = new LinkedHashMap<String, Boolean>();
+        health.put("failing", failing);
+        health.put("working", working);
+
+        return health;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
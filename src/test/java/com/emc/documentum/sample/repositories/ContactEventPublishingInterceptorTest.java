@@ -0,0 +1,107 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for publishing repository events, around the in-memory repository
+ */
+public class ContactEventPublishingInterceptorTest {
+
+    /**
+     * Test that a bulk delete by id publishes a deleted event for each contact it deleted and none for missing ids
+     */
+    @Test
+    public void publishDeletedContactsOnly() {
+
+        final List<String> deletedIds = new ArrayList<String>();
+
+        ContactEventPublishingInterceptor interceptor = new ContactEventPublishingInterceptor();
+        interceptor.setApplicationEventPublisher(new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                if (event instanceof ContactDeletedEvent) {
+                    deletedIds.add(((ContactDeletedEvent) event).getId());
+                }
+            }
+        });
+
+        ProxyFactory factory = new ProxyFactory(new InMemoryContactRepository());
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(interceptor);
+        ContactRepository repository = (ContactRepository) factory.getProxy();
+
+        Contact first = repository.save(createTestContact("Cecilia Chapman"));
+        Contact second = repository.save(createTestContact("Celeste Slater"));
+
+        int deleted = repository.deleteAllByIdIn(Arrays.asList(first.getId(), "0900000000000000", second.getId()));
+
+        assertThat(deleted, is(2));
+        assertThat(deletedIds, containsInAnyOrder(first.getId(), second.getId()));
+
+        deletedIds.clear();
+        assertThat(repository.deleteAllByIdIn(Arrays.asList(first.getId())), is(0));
+        assertThat(deletedIds, is(empty()));
+    }
+
+    /**
+     * Test that deleting a single contact, by id, as a contact or as a list, publishes no deleted event when it is
+     * missing
+     */
+    @Test
+    public void publishDeletedContactOnly() {
+
+        final List<String> deletedIds = new ArrayList<String>();
+
+        ContactEventPublishingInterceptor interceptor = new ContactEventPublishingInterceptor();
+        interceptor.setApplicationEventPublisher(new ApplicationEventPublisher() {
+            @Override
+            public void publishEvent(ApplicationEvent event) {
+                if (event instanceof ContactDeletedEvent) {
+                    deletedIds.add(((ContactDeletedEvent) event).getId());
+                }
+            }
+        });
+
+        ProxyFactory factory = new ProxyFactory(new InMemoryContactRepository());
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(interceptor);
+        ContactRepository repository = (ContactRepository) factory.getProxy();
+
+        Contact first = repository.save(createTestContact("Cecilia Chapman"));
+        Contact second = repository.save(createTestContact("Celeste Slater"));
+
+        repository.delete(first.getId());
+        repository.delete(first.getId());
+        repository.delete(first);
+        repository.delete(Arrays.asList(first, second));
+
+        assertThat(deletedIds, contains(first.getId(), second.getId()));
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
@@ -0,0 +1,106 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.domain.ContactName;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for partial contact reads, run against the in-memory repository
+ */
+public class ContactProjectionsTest {
+
+    /**
+     * Test that projection interfaces read only the fields their getters declare
+     */
+    @Test
+    public void interfaceProjection() {
+
+        assertThat(ContactProjections.fieldsOf(ContactName.class), is(EnumSet.of(ContactField.ID, ContactField.NAME)));
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        Contact saved = contactRepository.save(createTestContact("Cecilia Chapman"));
+
+        List<ContactName> names = contactRepository.findAllProjected(ContactName.class);
+
+        assertThat(names, hasSize(1));
+        assertThat(names.get(0).getId(), is(saved.getId()));
+        assertThat(names.get(0).getName(), is("Cecilia Chapman"));
+    }
+
+    /**
+     * Test that field lists select only the listed fields plus the id
+     */
+    @Test
+    public void fieldList() {
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        contactRepository.save(createTestContact("Cecilia Chapman"));
+
+        List<Map<String, String>> contacts = contactRepository.findAllFields(ContactField.parse("email"));
+
+        assertThat(contacts.get(0).keySet(), contains("id", "email"));
+        assertThat(contacts.get(0).get("email"), is("cecilia.chapman@thecloud.com"));
+        assertThat(ContactField.withId(Arrays.asList(ContactField.TELEPHONE, ContactField.NAME)),
+                contains(ContactField.ID, ContactField.NAME, ContactField.TELEPHONE));
+    }
+
+    /**
+     * Test that field lists are read a slice at a time in id order
+     */
+    @Test
+    public void fieldSlices() {
+
+        InMemoryContactRepository contactRepository = new InMemoryContactRepository();
+        for (String name : Arrays.asList("Cecilia Chapman", "Celeste Slater", "Theodore Lowe")) {
+            contactRepository.save(createTestContact(name));
+        }
+
+        Slice<Map<String, String>> first =
+                contactRepository.findFieldsAfter(ContactField.parse("name"), null, new PageRequest(0, 2));
+
+        assertThat(first.getContent(), hasSize(2));
+        assertThat(first.getContent().get(0).keySet(), contains("id", "name"));
+        assertThat(first.hasNext(), is(true));
+
+        Slice<Map<String, String>> second = contactRepository.findFieldsAfter(ContactField.parse("name"),
+                first.getContent().get(1).get("id"), new PageRequest(0, 2));
+
+        assertThat(second.getContent(), hasSize(1));
+        assertThat(second.getContent().get(0).get("id"), is(greaterThan(first.getContent().get(1).get("id"))));
+        assertThat(second.hasNext(), is(false));
+    }
+
+    /**
+     * Test that unknown fields are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectUnknownField() {
+        ContactField.parse("name,address");
+    }
+
+    /**
+     * Test that projections with methods other than property getters are rejected
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectNonGetter() {
+        ContactProjections.fieldsOf(Runnable.class);
+    }
+
+    private static Contact createTestContact(String name) {
+        Contact contact = new Contact();
+        contact.setName(name);
+        contact.setEmail(name.replace(' ', '.').toLowerCase() + "@thecloud.com");
+        contact.setTelephone("(555) 555-5555");
+        return contact;
+    }
+}
@@ -15,6 +15,8 @@ import org.springframework.boot.test.SpringApplicationConfiguration;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.authentication.UserCredentials;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
@@ -24,8 +26,13 @@ import java.io.FileInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -90,6 +97,22 @@ public class ContactRepositoryTest {
         return testContact;
     }
 
+    /**
+     * Get the ids of contacts
+     *
+     * @param contacts the contacts
+     * @return the contact ids
+     */
+    protected List<String> idsOf(List<Contact> contacts) {
+
+        List<String> ids = new ArrayList<String>(contacts.size());
+        for (Contact contact : contacts) {
+            ids.add(contact.getId());
+        }
+
+        return ids;
+    }
+
     /**
      * Test the creation of a contact
      */
@@ -216,6 +239,107 @@ public class ContactRepositoryTest {
         }
     }
 
+    /**
+     * Test the deletion of contacts by id in a single bulk operation
+     */
+    @Test
+    public void bulkDeleteContactsById() {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+
+        try {
+
+            // create test contacts
+            for(int i=0; i<5; i++) {
+                contacts.add(contactRepository.save(createTestContact()));
+            }
+
+            // delete them all, plus an id that does not exist
+            List<String> ids = idsOf(contacts);
+            ids.add("0900000000000000");
+            int deleted = contactRepository.deleteAllByIdIn(ids);
+
+            // check only the test contacts were counted and none of them can be found
+            assertThat(deleted, is(5));
+            assertThat(contactRepository.findAllById(ids), is(empty()));
+
+        } finally {
+
+            // clean up the contacts left if the bulk delete failed
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
+        }
+    }
+
+    /**
+     * Test the deletion of contacts by part of their name in a single bulk operation
+     */
+    @Test
+    public void bulkDeleteContactsByName() {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        String marker = RandomStringUtils.randomAlphanumeric(32);
+
+        try {
+
+            // create test contacts sharing a marker in their names, and one without it
+            for(int i=0; i<3; i++) {
+                Contact contact = createTestContact();
+                contact.setName(contact.getName().substring(0, 100) + marker);
+                contacts.add(contactRepository.save(contact));
+            }
+            contacts.add(contactRepository.save(createTestContact()));
+
+            // delete the contacts with the marker
+            int deleted = contactRepository.deleteByNameContaining(marker);
+
+            // check only the marked contacts were deleted
+            assertThat(deleted, is(3));
+            assertThat(contactRepository.findAllById(idsOf(contacts)), hasSize(1));
+
+        } finally {
+
+            // clean up the contacts
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
+        }
+    }
+
+    /**
+     * Test the update of contact attributes in a single bulk operation
+     */
+    @Test
+    public void bulkUpdateContacts() {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+
+        try {
+
+            // create test contacts
+            for(int i=0; i<5; i++) {
+                contacts.add(contactRepository.save(createTestContact()));
+            }
+
+            // give all of them the same email and telephone
+            Map<ContactField, String> values = new EnumMap<ContactField, String>(ContactField.class);
+            values.put(ContactField.EMAIL, "bulk.update@example.com");
+            values.put(ContactField.TELEPHONE, "0123456789");
+            int updated = contactRepository.updateAllByIdIn(idsOf(contacts), values);
+
+            // check every contact was updated and kept its name
+            assertThat(updated, is(5));
+            for (Contact contact : contacts) {
+                Contact updatedContact = contactRepository.findOne(contact.getId());
+                assertThat(updatedContact.getEmail(), is(equalTo("bulk.update@example.com")));
+                assertThat(updatedContact.getTelephone(), is(equalTo("0123456789")));
+                assertThat(updatedContact.getName(), is(equalTo(contact.getName())));
+            }
+
+        } finally {
+
+            // clean up the contacts
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
+        }
+    }
+
     /**
      * Test to find all contacts
      *
@@ -257,10 +381,92 @@ public class ContactRepositoryTest {
 
         } finally {
 
-            // clean up the contacts
-            for(Contact contact : contacts) {
-                contactRepository.delete(contact);
+            // clean up the contacts in one go
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
+        }
+    }
+
+    /**
+     * Test to find all contacts a slice at a time
+     */
+    @Test
+    public void findAllContactsBySlice() {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+
+        try {
+
+            // create test contacts
+            for(int i=0; i<25; i++) {
+                contacts.add(contactRepository.save(createTestContact()));
             }
+
+            Set<String> foundIds = new HashSet<String>();
+            String lastId = null;
+            Slice<Contact> slice;
+
+            // page through all contacts 10 at a time
+            do {
+
+                slice = contactRepository.findAllAfter(lastId, new PageRequest(0, 10));
+                assertThat(slice.getNumberOfElements(), is(lessThanOrEqualTo(10)));
+
+                for (Contact contact : slice) {
+
+                    // check the slices are ordered by id and do not overlap
+                    if (lastId != null) {
+                        assertThat(contact.getId(), is(greaterThan(lastId)));
+                    }
+
+                    foundIds.add(contact.getId());
+                    lastId = contact.getId();
+                }
+
+            } while (slice.hasNext());
+
+            // check every test contact was found
+            for (Contact contact : contacts) {
+                assertThat(foundIds.contains(contact.getId()), is(true));
+            }
+
+        } finally {
+
+            // clean up the contacts in one go
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
+        }
+    }
+
+    /**
+     * Test to stream all contacts
+     */
+    @Test
+    public void streamAllContacts() {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+
+        try {
+
+            // create test contacts
+            for(int i=0; i<25; i++) {
+                contacts.add(contactRepository.save(createTestContact()));
+            }
+
+            Set<String> foundIds = new HashSet<String>();
+
+            // stream the contacts, closing the underlying collection when done
+            try (Stream<Contact> contactStream = contactRepository.streamAll()) {
+                contactStream.forEach(contact -> foundIds.add(contact.getId()));
+            }
+
+            // check every test contact was found
+            for (Contact contact : contacts) {
+                assertThat(foundIds.contains(contact.getId()), is(true));
+            }
+
+        } finally {
+
+            // clean up the contacts in one go
+            contactRepository.deleteAllByIdIn(idsOf(contacts));
         }
     }
 
@@ -0,0 +1,141 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for answering the Spring Data lookups, saves and deletes with the custom operations, with in-memory repositories
+ * standing in for Spring Data and for the DFC implementation
+ */
+public class DirectCrudInterceptorTest {
+
+    /**
+     * Test that lookups, saves and deletes are answered by the custom operations and the rest goes on to Spring Data
+     */
+    @Test
+    public void answerCrudMethods() {
+
+        InMemoryContactRepository springData = new InMemoryContactRepository();
+        InMemoryContactRepository direct = new InMemoryContactRepository();
+        ContactRepository repository = proxy(springData, direct);
+
+        Contact saved = repository.save(createTestContact("Cecilia Chapman"));
+        repository.save(Arrays.asList(createTestContact("Celeste Slater"), createTestContact("Theodore Lowe")));
+
+        assertThat(saved.getId(), is(notNullValue()));
+        assertThat(direct.findAll(), is(iterableWithSize(3)));
+        assertThat(springData.count(), is(0L));
+
+        assertThat(repository.findOne(saved.getId()).getName(), is("Cecilia Chapman"));
+        assertThat(repository.findAll(), is(iterableWithSize(3)));
+        assertThat(repository.findAll(Arrays.asList(saved.getId(), "0900000000000000")), is(iterableWithSize(1)));
+
+        repository.delete(saved.getId());
+        assertThat(repository.findOne(saved.getId()), is(nullValue()));
+        repository.delete(direct.findByNameContaining("Theodore"));
+        assertThat(direct.findAll(), is(iterableWithSize(1)));
+
+        // name searches, existence checks and counts are not answered
+        assertThat(repository.findByNameContaining("Ce"), is(iterableWithSize(0)));
+        assertThat(repository.exists(direct.findAll().get(0).getId()), is(false));
+        assertThat(repository.count(), is(0L));
+    }
+
+    /**
+     * Test that the answered calls return what Spring Data returns for the same calls, missing ids included
+     */
+    @Test
+    public void answerAsSpringData() {
+
+        InMemoryContactRepository springData = new InMemoryContactRepository();
+        InMemoryContactRepository direct = new InMemoryContactRepository();
+
+        assertThat(crudCalls(proxy(new InMemoryContactRepository(), direct)), is(crudCalls(springData)));
+        assertThat(names(direct.findAll()), is(names(springData.findAll())));
+    }
+
+    /*
+     * the results of a run of CRUD calls, by contact name since each repository hands out its own ids
+     */
+    private static List<Object> crudCalls(ContactRepository repository) {
+
+        List<Object> results = new ArrayList<Object>();
+
+        Contact cecilia = repository.save(createTestContact("Cecilia Chapman"));
+        List<Contact> saved = toList(repository.save(Arrays.asList(
+                createTestContact("Celeste Slater"), createTestContact("Theodore Lowe"))));
+        results.add(names(saved));
+
+        Contact renamed = repository.findOne(cecilia.getId());
+        renamed.setName("Cecilia Chaplin");
+        results.add(repository.save(renamed).getName());
+        results.add(repository.findOne(cecilia.getId()).getName());
+        results.add(repository.findOne("0900000000000000"));
+
+        results.add(names(repository.findAll()));
+        results.add(names(repository.findAll(Arrays.asList(saved.get(0).getId(), "0900000000000000"))));
+        results.add(names(repository.findAll(Collections.<String>emptyList())));
+
+        repository.delete(saved.get(0).getId());
+        repository.delete("0900000000000000");
+        repository.delete(saved.get(1));
+        results.add(repository.findOne(saved.get(0).getId()));
+        results.add(names(repository.findAll()));
+
+        return results;
+    }
+
+    private static ContactRepository proxy(ContactRepository springData, ContactRepositoryCustom direct) {
+
+        ProxyFactory factory = new ProxyFactory(springData);
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(new DirectCrudInterceptor(direct));
+        return (ContactRepository) factory.getProxy();
+    }
+
+    private static List<Contact> toList(Iterable<Contact> contacts) {
+
+        List<Contact> list = new ArrayList<Contact>();
+        for (Contact contact : contacts) {
+            list.add(contact);
+        }
+
+        return list;
+    }
+
+    private static List<String> names(Iterable<Contact> contacts) {
+
+        List<String> names = new ArrayList<String>();
+        for (Contact contact : contacts) {
+            names.add(contact.getName());
+        }
+        Collections.sort(names);
+
+        return names;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    private static Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
@@ -0,0 +1,195 @@
+package com.emc.documentum.sample.repositories;
+
+import com.emc.documentum.sample.domain.Contact;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the in-memory contact repository
+ */
+public class InMemoryContactRepositoryTest {
+
+    private Path tempDir;
+
+    /**
+     * Create a temp dir for content files
+     */
+    @Before
+    public void setup() throws Exception {
+        tempDir = Files.createTempDirectory("contacts");
+    }
+
+    /**
+     * Delete the temp dir
+     */
+    @After
+    public void cleanup() throws Exception {
+        for (File file : tempDir.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(tempDir);
+    }
+
+    /**
+     * Test that every call costs the injected latency and batches cost a single round trip
+     */
+    @Test
+    public void injectLatency() {
+
+        InMemoryContactRepository repository = new InMemoryContactRepository(5000, 0, 0);
+
+        long start = System.nanoTime();
+        repository.saveAll(Arrays.asList(createTestContact("Cecilia Chapman"), createTestContact("Iris Watson")));
+        repository.findAll();
+        long elapsed = System.nanoTime() - start;
+
+        assertThat(repository.getRoundTripCount(), is(2L));
+        assertThat(elapsed, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10))));
+    }
+
+    /**
+     * Test that calls fail at the injected failure rate without changing anything
+     */
+    @Test
+    public void injectFailures() {
+
+        InMemoryContactRepository failing = new InMemoryContactRepository(0, 0, 1);
+
+        try {
+            failing.save(createTestContact("Celeste Slater"));
+            throw new AssertionError("Expected an injected failure");
+        } catch (TransientDataAccessResourceException e) {
+            // expected
+        }
+
+        assertThat(failing.getInjectedFailureCount(), is(1L));
+
+        InMemoryContactRepository flaky = new InMemoryContactRepository(0, 0, 0.5);
+        int failures = 0;
+        for (int i = 0; i < 1000; i++) {
+            try {
+                flaky.exists("0900000000000001");
+            } catch (TransientDataAccessResourceException e) {
+                failures++;
+            }
+        }
+
+        assertThat(failures, is(allOf(greaterThan(350), lessThan(650))));
+        assertThat(flaky.getInjectedFailureCount(), is((long) failures));
+    }
+
+    /**
+     * Test derived queries, bulk operations and versions
+     */
+    @Test
+    public void queryAndVersion() {
+
+        InMemoryContactRepository repository = new InMemoryContactRepository();
+
+        Contact cecilia = repository.save(createTestContact("Cecilia Chapman"));
+        Contact iris = repository.save(createTestContact("Iris Watson"));
+        repository.save(createTestContact("Celeste Slater"));
+
+        assertThat(repository.findByNameContaining("Ce"), hasSize(2));
+        assertThat(repository.findIdsByNameContaining("Watson"), contains(iris.getId()));
+
+        ContactVersion version = repository.findVersion(cecilia.getId());
+        ContactVersion collectionVersion = repository.findCollectionVersion();
+
+        cecilia.setEmail("cecilia@example.com");
+        repository.save(cecilia);
+
+        assertThat(repository.findVersion(cecilia.getId()).getTag(), is(not(version.getTag())));
+        assertThat(repository.findCollectionVersion().getTag(), is(not(collectionVersion.getTag())));
+
+        assertThat(repository.deleteByNameContaining("Ce"), is(2));
+        assertThat(repository.findVersion(cecilia.getId()), is(nullValue()));
+        assertThat(repository.count(), is(1L));
+    }
+
+    /**
+     * Test that content is kept per contact and dropped with it
+     */
+    @Test
+    public void storeContent() throws Exception {
+
+        InMemoryContactRepository repository = new InMemoryContactRepository();
+        Contact contact = repository.save(createTestContact("Theodore Lowe"));
+
+        Path picture = tempDir.resolve("picture.png");
+        Files.write(picture, new byte[]{1, 2, 3, 4});
+        repository.setContent(contact, "png", picture.toString());
+
+        String copy = repository.getContent(contact, tempDir.resolve("copy.png").toString());
+        assertThat(Arrays.equals(Files.readAllBytes(new File(copy).toPath()), new byte[]{1, 2, 3, 4}), is(true));
+
+        repository.delete(contact);
+        assertThat(repository.getContent(contact, tempDir.resolve("gone.png").toString()), is(nullValue()));
+    }
+
+    /**
+     * Test that concurrent saves all land
+     */
+    @Test
+    public void saveConcurrently() throws Exception {
+
+        final InMemoryContactRepository repository = new InMemoryContactRepository(100, 100, 0);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+
+        try {
+
+            List<Future<Contact>> saves = new ArrayList<Future<Contact>>();
+            for (int i = 0; i < 200; i++) {
+                final String name = "Contact " + i;
+                saves.add(executorService.submit(new Callable<Contact>() {
+                    @Override
+                    public Contact call() {
+                        return repository.save(createTestContact(name));
+                    }
+                }));
+            }
+
+            for (Future<Contact> save : saves) {
+                assertThat(repository.findOne(save.get().getId()), is(notNullValue()));
+            }
+
+            assertThat(repository.count(), is(200L));
+
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
@@ -0,0 +1,162 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.ContactsClearedEvent;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact name index rebuild and event handling
+ */
+public class ContactNameIndexTest {
+
+    private InMemoryContactRepository contactRepository;
+
+    private ContactNameIndex index;
+
+    /**
+     * Setup an index over an in-memory repository
+     */
+    @Before
+    public void setup() {
+        contactRepository = new InMemoryContactRepository();
+        index = new ContactNameIndex();
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the saved test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@thecloud.com");
+        testContact.setTelephone("(257) 563-7401");
+
+        return contactRepository.save(testContact);
+    }
+
+    /**
+     * Test rebuilding the index from the repository in slices
+     */
+    @Test
+    public void rebuildFromRepository() {
+
+        for (int i = 0; i < 95; i++) {
+            createTestContact("Contact " + i);
+        }
+        Contact chapman = createTestContact("Cecilia Chapman");
+
+        assertThat(index.isReady(), is(false));
+
+        new ContactIndexLoader("name index", index, contactRepository, 10).rebuild();
+
+        assertThat(index.isReady(), is(true));
+        assertThat(index.getSize(), is(96));
+        assertThat(index.search("Chap"), contains(chapman.getId()));
+        assertThat(index.search("Contact 9").size(), is(6));
+    }
+
+    /**
+     * Test that a loader not loading on startup leaves the index to the docbase until its first query, which starts
+     * the rebuild
+     */
+    @Test
+    public void loadOnFirstQuery() throws Exception {
+
+        Contact chapman = createTestContact("Cecilia Chapman");
+
+        ContactIndexLoader loader = new ContactIndexLoader("name index", index, contactRepository, 10);
+        loader.setLoadOnStartup(false);
+        loader.onApplicationEvent(new ContextRefreshedEvent(new StaticApplicationContext()));
+
+        assertThat(loader.isStarted(), is(false));
+
+        // the load runs in the background and may already be done when the first query returns
+        index.isReadyForQuery();
+        assertThat(loader.isStarted(), is(true));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!index.isReadyForQuery() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertThat(index.search("Chap"), contains(chapman.getId()));
+    }
+
+    /**
+     * Test that changes during a rebuild win over the state the rebuild read
+     */
+    @Test
+    public void changesDuringRebuild() {
+
+        Contact renamed = createTestContact("Iris Watson");
+        Contact deleted = createTestContact("Celeste Slater");
+
+        index.beginRebuild();
+
+        // the contacts change after the rebuild started but before it loads them
+        Contact updated = renamed.copy();
+        updated.setName("Iris Chapman");
+        index.onApplicationEvent(new ContactSavedEvent(contactRepository, updated));
+        index.onApplicationEvent(new ContactDeletedEvent(contactRepository, deleted.getId()));
+
+        index.load(renamed);
+        index.load(deleted);
+        index.completeRebuild();
+
+        assertThat(index.search("Chapman"), contains(renamed.getId()));
+        assertThat(index.search("Watson"), is(empty()));
+        assertThat(index.search("Slater"), is(empty()));
+    }
+
+    /**
+     * Test that a rebuild stops loading the contacts it read once all contacts are deleted, keeping later saves
+     */
+    @Test
+    public void clearDuringRebuild() {
+
+        for (int i = 0; i < 30; i++) {
+            createTestContact("Contact " + i);
+        }
+
+        // all contacts are deleted and one saved while the rebuild reads its second slice
+        InMemoryContactRepository clearingRepository = new InMemoryContactRepository() {
+
+            private int slices;
+
+            @Override
+            public Slice<Contact> findAllAfter(String afterId, Pageable pageable) {
+                Slice<Contact> slice = contactRepository.findAllAfter(afterId, pageable);
+                if (++slices == 2) {
+                    contactRepository.deleteAll();
+                    index.onApplicationEvent(new ContactsClearedEvent(contactRepository));
+                    index.onApplicationEvent(new ContactSavedEvent(contactRepository,
+                            createTestContact("Cecilia Chapman")));
+                }
+                return slice;
+            }
+        };
+
+        new ContactIndexLoader("name index", index, clearingRepository, 10).rebuild();
+
+        assertThat(index.isReady(), is(true));
+        assertThat(index.getSize(), is(1));
+        assertThat(index.search("Contact"), is(empty()));
+        assertThat(index.search("Chapman").size(), is(1));
+        assertThat(index.load(createTestContact("Iris Watson")), is(false));
+    }
+}
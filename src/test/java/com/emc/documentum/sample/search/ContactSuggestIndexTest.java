@@ -0,0 +1,217 @@
+package com.emc.documentum.sample.search;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactDeletedEvent;
+import com.emc.documentum.sample.repositories.ContactSavedEvent;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact type-ahead index and its prefix trie
+ */
+public class ContactSuggestIndexTest {
+
+    private InMemoryContactRepository contactRepository;
+
+    private ContactSuggestIndex index;
+
+    /**
+     * Setup an index over an in-memory repository
+     */
+    @Before
+    public void setup() {
+        contactRepository = new InMemoryContactRepository();
+        index = new ContactSuggestIndex(5);
+    }
+
+    /**
+     * Test matching names, words, emails and telephone numbers, ranked by what matched
+     */
+    @Test
+    public void suggest() {
+
+        Contact cecilia = createTestContact("Cecilia Chapman", "cecilia.chapman", "(257) 563-7401");
+        Contact celeste = createTestContact("Celeste Slater", "celeste.slater", "(786) 713-8616");
+        Contact chaplin = createTestContact("Th\u00e9odore Chaplin", "tchaplin", "(793) 151-6230");
+        Contact jose = createTestContact("Jos\u00e9 Cecil", "jcecil", "(492) 709-6392");
+
+        new ContactIndexLoader("suggest index", index, contactRepository, 2).rebuild();
+
+        assertThat(names(index.suggest("ce", 5)), contains("Cecilia Chapman", "Celeste Slater", "Jos\u00e9 Cecil"));
+        assertThat(names(index.suggest("CHAP", 5)), contains("Cecilia Chapman", "Th\u00e9odore Chaplin"));
+        assertThat(names(index.suggest("theo", 5)), contains("Th\u00e9odore Chaplin"));
+        assertThat(names(index.suggest("jose c", 5)), contains("Jos\u00e9 Cecil"));
+        assertThat(names(index.suggest("tch", 5)), contains("Th\u00e9odore Chaplin"));
+        assertThat(names(index.suggest("(786) 71", 5)), contains("Celeste Slater"));
+        assertThat(names(index.suggest("4927", 5)), contains("Jos\u00e9 Cecil"));
+        assertThat(index.suggest("ce", 2), hasSize(2));
+        assertThat(index.suggest("chapmann", 5), is(empty()));
+        assertThat(index.suggest("", 5), is(empty()));
+
+        assertThat(index.suggest("cel", 5).get(0).getId(), is(celeste.getId()));
+        assertThat(index.suggest("chapm", 5).get(0).getId(), is(cecilia.getId()));
+        assertThat(index.suggest("jc", 5).get(0).getId(), is(jose.getId()));
+        assertThat(index.suggest("chapl", 5).get(0).getId(), is(chaplin.getId()));
+    }
+
+    /**
+     * Test that saves and deletes update the suggestions without a rebuild
+     */
+    @Test
+    public void incrementalUpdates() {
+
+        index.beginRebuild();
+        index.completeRebuild();
+
+        Contact iris = createTestContact("Iris Watson", "iris.watson", "(372) 587-2335");
+        index.onApplicationEvent(new ContactSavedEvent(contactRepository, iris));
+        Contact irene = createTestContact("Irene Watt", "irene.watt", "(372) 587-2336");
+        index.onApplicationEvent(new ContactSavedEvent(contactRepository, irene));
+
+        assertThat(names(index.suggest("ir", 5)), contains("Irene Watt", "Iris Watson"));
+        assertThat(names(index.suggest("wat", 5)), contains("Irene Watt", "Iris Watson"));
+
+        Contact renamed = iris.copy();
+        renamed.setName("Iris Chapman");
+        index.onApplicationEvent(new ContactSavedEvent(contactRepository, renamed));
+
+        assertThat(names(index.suggest("wat", 5)), contains("Irene Watt"));
+        assertThat(names(index.suggest("chap", 5)), contains("Iris Chapman"));
+        assertThat(names(index.suggest("iris.w", 5)), contains("Iris Chapman"));
+
+        index.onApplicationEvent(new ContactDeletedEvent(contactRepository, irene.getId()));
+
+        assertThat(names(index.suggest("ir", 5)), contains("Iris Chapman"));
+        assertThat(index.suggest("3725872336", 5), is(empty()));
+        assertThat(index.getSize(), is(1));
+    }
+
+    /**
+     * Test the trie against a scan of every term, through random puts and removes that split and merge its nodes
+     */
+    @Test
+    public void trieMatchesScan() {
+
+        Random random = new Random(42);
+        PrefixTrie trie = new PrefixTrie(4);
+        Map<String, Map<String, Integer>> indexed = new HashMap<String, Map<String, Integer>>();
+
+        for (int operation = 0; operation < 5000; operation++) {
+
+            String key = "k" + random.nextInt(200);
+
+            if (random.nextInt(4) == 0) {
+                trie.remove(key);
+                indexed.remove(key);
+            } else {
+                Map<String, Integer> terms = new HashMap<String, Integer>();
+                for (int i = random.nextInt(3) + 1; i > 0; i--) {
+                    terms.put(randomTerm(random), random.nextInt(3));
+                }
+                trie.put(key, key, terms);
+                indexed.put(key, terms);
+            }
+
+            if (operation % 50 == 0) {
+                for (String prefix : new String[]{"a", "b", "ab", "ba", "abc", "cab", "aab"}) {
+                    assertThat(prefix + " after " + operation, keys(trie.search(prefix, 4)),
+                            is(scan(indexed, prefix, 4)));
+                }
+            }
+        }
+
+        assertThat(trie.size(), is(indexed.size()));
+
+        for (String key : new ArrayList<String>(indexed.keySet())) {
+            trie.remove(key);
+        }
+        assertThat(trie.getNodeCount(), is(0));
+    }
+
+    private static String randomTerm(Random random) {
+
+        StringBuilder term = new StringBuilder();
+        for (int i = random.nextInt(5) + 1; i > 0; i--) {
+            term.append((char) ('a' + random.nextInt(3)));
+        }
+
+        return term.toString();
+    }
+
+    /*
+     * the best weight of each key with a matching term, then the key
+     */
+    private static List<String> scan(Map<String, Map<String, Integer>> indexed, String prefix, int max) {
+
+        final Map<String, Integer> best = new HashMap<String, Integer>();
+        for (Map.Entry<String, Map<String, Integer>> entry : indexed.entrySet()) {
+            for (Map.Entry<String, Integer> term : entry.getValue().entrySet()) {
+                Integer weight = best.get(entry.getKey());
+                if (term.getKey().startsWith(prefix) && (weight == null || term.getValue() < weight)) {
+                    best.put(entry.getKey(), term.getValue());
+                }
+            }
+        }
+
+        List<String> keys = new ArrayList<String>(best.keySet());
+        Collections.sort(keys, new Comparator<String>() {
+            @Override
+            public int compare(String first, String second) {
+                int byWeight = best.get(first).compareTo(best.get(second));
+                return byWeight != 0 ? byWeight : first.compareToIgnoreCase(second);
+            }
+        });
+
+        return keys.subList(0, Math.min(max, keys.size()));
+    }
+
+    private static List<String> keys(List<PrefixTrie.Match> matches) {
+
+        List<String> keys = new ArrayList<String>();
+        for (PrefixTrie.Match match : matches) {
+            keys.add(match.getKey());
+        }
+
+        return keys;
+    }
+
+    private static List<String> names(List<ContactSuggestion> suggestions) {
+
+        List<String> names = new ArrayList<String>();
+        for (ContactSuggestion suggestion : suggestions) {
+            names.add(suggestion.getName());
+        }
+
+        return names;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @param emailName the local part of the contact email
+     * @param telephone the contact telephone number
+     * @return the saved test contact
+     */
+    protected Contact createTestContact(String name, String emailName, String telephone) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(emailName + "@thecloud.com");
+        testContact.setTelephone(telephone);
+
+        return contactRepository.save(testContact);
+    }
+}
@@ -0,0 +1,110 @@
+package com.emc.documentum.sample.search;
+
+import org.apache.commons.lang.RandomStringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the trigram substring index
+ */
+public class TrigramIndexTest {
+
+    private TrigramIndex index;
+
+    /**
+     * Setup an empty index
+     */
+    @Before
+    public void setup() {
+        index = new TrigramIndex();
+    }
+
+    /**
+     * Test finding texts by substring
+     */
+    @Test
+    public void searchSubstring() {
+
+        index.put("1", "Cecilia Chapman");
+        index.put("2", "Iris Watson");
+        index.put("3", "Celeste Slater");
+
+        assertThat(index.search("Chap"), contains("1"));
+        assertThat(index.search("ate"), contains("3"));
+        assertThat(index.search("Ce"), containsInAnyOrder("1", "3"));
+        assertThat(index.search("Watsons"), is(empty()));
+
+        // trigrams present but not in sequence
+        assertThat(index.search("Celia"), is(empty()));
+
+        // searches are case sensitive like the docbase query
+        assertThat(index.search("chap"), is(empty()));
+    }
+
+    /**
+     * Test that replacing and removing texts updates the postings
+     */
+    @Test
+    public void replaceAndRemove() {
+
+        index.put("1", "Cecilia Chapman");
+        index.put("1", "Iris Watson");
+
+        assertThat(index.search("Chap"), is(empty()));
+        assertThat(index.search("Wats"), contains("1"));
+
+        index.remove("1");
+
+        assertThat(index.search("Wats"), is(empty()));
+        assertThat(index.size(), is(0));
+        assertThat(index.getTrigramCount(), is(0));
+        assertThat(index.getPostingCount(), is(0L));
+    }
+
+    /**
+     * Test index results against a plain scan over random texts with reused document numbers
+     */
+    @Test
+    public void matchScan() {
+
+        Random random = new Random(42);
+        Map<String, String> texts = new HashMap<String, String>();
+
+        for (int i = 0; i < 2000; i++) {
+
+            String key = String.valueOf(random.nextInt(500));
+
+            if (random.nextInt(4) == 0) {
+                index.remove(key);
+                texts.remove(key);
+            } else {
+                String text = RandomStringUtils.random(20, "abcdef");
+                index.put(key, text);
+                texts.put(key, text);
+            }
+        }
+
+        for (int i = 0; i < 200; i++) {
+
+            String substring = RandomStringUtils.random(1 + random.nextInt(5), "abcdef");
+
+            List<String> expected = new ArrayList<String>();
+            for (Map.Entry<String, String> text : texts.entrySet()) {
+                if (text.getValue().contains(substring)) {
+                    expected.add(text.getKey());
+                }
+            }
+
+            assertThat(index.search(substring), containsInAnyOrder(expected.toArray(new String[expected.size()])));
+        }
+    }
+}
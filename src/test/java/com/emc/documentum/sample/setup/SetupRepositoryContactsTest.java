@@ -2,33 +2,25 @@ package com.emc.documentum.sample.setup;
 
 import com.emc.documentum.sample.TestConfig;
 import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.importer.ContactCsvReader;
+import com.emc.documentum.sample.importer.ContactImporter;
+import com.emc.documentum.sample.importer.ImportReport;
 import com.emc.documentum.sample.repositories.ContactRepository;
 import com.emc.documentum.springdata.core.Documentum;
-import junitparams.FileParameters;
-import junitparams.JUnitParamsRunner;
-import junitparams.Parameters;
-import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Before;
-import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.junit.runners.Parameterized;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.SpringApplicationConfiguration;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.authentication.UserCredentials;
-import org.springframework.test.context.TestContextManager;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import org.springframework.util.FileSystemUtils;
-import org.springframework.util.StringUtils;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStreamReader;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -38,12 +30,10 @@ import static org.hamcrest.Matchers.*;
  *
  * @author Simon O'Brien
  */
-@RunWith(JUnitParamsRunner.class)
+@RunWith(SpringJUnit4ClassRunner.class)
 @SpringApplicationConfiguration(classes = {TestConfig.class})
 public class SetupRepositoryContactsTest {
 
-    private TestContextManager testContextManager;
-
     @Autowired
     @Qualifier("repositoryName")
     private String repositoryName;
@@ -62,23 +52,17 @@ public class SetupRepositoryContactsTest {
     @Autowired
     private ContactRepository contactRepository;
 
+    @Autowired
+    private ContactImporter contactImporter;
+
+    @Value("classpath:addresses.csv")
+    private Resource addresses;
+
     /**
-     * Setup Documentum Credentials and Spring
+     * Setup Documentum Credentials
      */
     @Before
-    public void setup() throws Exception {
-
-        /*
-         * As class can only have a single @RunWith annotation, we cannot use both:
-         * @RunWith(SpringJUnit4ClassRunner.class)
-         * and
-         * @RunWith(JUnitParamsRunner.class)
-         *
-         * To ensure Spring Context load we need to manually do what the spring runner would do for us ...
-         */
-        this.testContextManager = new TestContextManager(getClass());
-        this.testContextManager.prepareTestInstance(this);
-
+    public void setup() {
         documentum.setCredentials(new UserCredentials(repositoryUsername, repositoryPassword));
         documentum.setDocBase(repositoryName);
     }
@@ -132,33 +116,59 @@ public class SetupRepositoryContactsTest {
     @Test
     public void deleteAllRepositoryContacts() {
 
-        // find all contacts
-        Iterable<Contact> contactIterator = contactRepository.findAll();
-        assertThat(contactIterator, is(notNullValue()));
-
-        // iterate through the contacts and delete them
-        for (Contact contact : contactIterator) {
-            contactRepository.delete(contact);
+        // stream all contacts rather than loading them all at once, only their ids are kept
+        List<String> ids = new ArrayList<String>();
+        try (Stream<Contact> contactStream = contactRepository.streamAll()) {
+            assertThat(contactStream, is(notNullValue()));
+            contactStream.forEach(contact -> ids.add(contact.getId()));
         }
+
+        // delete the contacts a batch of ids per statement rather than one at a time
+        assertThat(contactRepository.deleteAllByIdIn(ids), is(ids.size()));
     }
 
     /**
-     * Setup of repository contacts
+     * Setup of repository contacts, imported in batches from the address list
      */
     @Test
-    @FileParameters("classpath:addresses.csv")
-    public void setupRepositoryContacts(String name, String telephone) {
+    public void setupRepositoryContacts() throws Exception {
 
-        assertThat(name, not(isEmptyOrNullString()));
-        assertThat(telephone, not(isEmptyOrNullString()));
+        ContactCsvReader reader = new ContactCsvReader(new InputStreamReader(addresses.getInputStream(), "UTF-8"));
 
-        // create the contact
-        Contact sampleContact = new Contact();
-        sampleContact.setName(name);
-        sampleContact.setEmail(generateEmailAddress(name));
-        sampleContact.setTelephone(telephone);
+        try {
 
-        // save the contact to the repository
-        contactRepository.save(sampleContact);
+            // add a generated email to each contact as it is read
+            final Iterator<Contact> contacts = reader;
+            Iterator<Contact> contactsWithEmail = new Iterator<Contact>() {
+
+                @Override
+                public boolean hasNext() {
+                    return contacts.hasNext();
+                }
+
+                @Override
+                public Contact next() {
+                    Contact contact = contacts.next();
+                    assertThat(contact.getName(), not(isEmptyOrNullString()));
+                    assertThat(contact.getTelephone(), not(isEmptyOrNullString()));
+                    contact.setEmail(generateEmailAddress(contact.getName()));
+                    return contact;
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+
+            // save the contacts to the repository
+            ImportReport report = contactImporter.importContacts(contactsWithEmail);
+
+            assertThat(report.isComplete(), is(true));
+            assertThat(report.getImported(), is(greaterThan(0L)));
+
+        } finally {
+            reader.close();
+        }
     }
 }
@@ -0,0 +1,383 @@
+package com.emc.documentum.sample.sharding;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the sharded contact repository, over in-memory shards
+ */
+public class ShardedContactRepositoryTest {
+
+    private ExecutorService executorService;
+
+    private Path tempDir;
+
+    /**
+     * Create the executor and a temp dir for content files
+     */
+    @Before
+    public void setup() throws Exception {
+        executorService = Executors.newCachedThreadPool();
+        tempDir = Files.createTempDirectory("contacts");
+    }
+
+    /**
+     * Stop the executor and delete the temp dir
+     */
+    @After
+    public void cleanup() throws Exception {
+        executorService.shutdownNow();
+        for (File file : tempDir.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(tempDir);
+    }
+
+    /**
+     * Test that contacts are stored on the shard their id maps to, and spread over all shards
+     */
+    @Test
+    public void routeById() {
+
+        ShardedContactRepository repository = createRepository(3, 0);
+
+        List<Contact> saved = new ArrayList<Contact>();
+        for (int i = 0; i < 300; i++) {
+            saved.add(repository.save(createTestContact("Contact " + i)));
+        }
+
+        Map<String, ContactRepository> shards = repository.getShards();
+        for (Contact contact : saved) {
+            assertThat(shards.get(repository.shardFor(contact.getId())).exists(contact.getId()), is(true));
+            assertThat(repository.findOne(contact.getId()).getName(), is(contact.getName()));
+        }
+
+        for (ContactRepository shard : shards.values()) {
+            assertThat(shard.count(), is(allOf(greaterThan(50L), lessThan(150L))));
+        }
+
+        assertThat(repository.count(), is(300L));
+
+        Contact changed = saved.get(0);
+        changed.setEmail("changed@example.com");
+        repository.save(changed);
+        assertThat(repository.findOne(changed.getId()).getEmail(), is("changed@example.com"));
+        assertThat(repository.count(), is(300L));
+
+        repository.delete(changed);
+        assertThat(repository.exists(changed.getId()), is(false));
+    }
+
+    /**
+     * Test queries over all shards, and that streams and slices merge the shards in id order
+     */
+    @Test
+    public void queryAllShards() {
+
+        ShardedContactRepository repository = createRepository(4, 1000);
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (int i = 0; i < 100; i++) {
+            contacts.add(createTestContact((i % 2 == 0 ? "Even " : "Odd ") + i));
+        }
+        List<Contact> saved = repository.saveAll(contacts);
+
+        for (int i = 0; i < saved.size(); i++) {
+            assertThat(saved.get(i).getName(), is(contacts.get(i).getName()));
+        }
+
+        assertThat(repository.findByNameContaining("Odd"), is(iterableWithSize(50)));
+        assertThat(repository.findIdsByNameContaining("Even"), hasSize(50));
+        assertThat(repository.findAll(), is(iterableWithSize(100)));
+
+        List<String> ids = new ArrayList<String>();
+        for (Contact contact : saved) {
+            ids.add(contact.getId());
+        }
+        Collections.sort(ids);
+
+        try (Stream<Contact> stream = repository.streamAll()) {
+            assertThat(stream.map(Contact::getId).collect(Collectors.toList()), is(ids));
+        }
+
+        List<String> paged = new ArrayList<String>();
+        Slice<Contact> slice = null;
+        do {
+            String afterId = slice == null ? null : paged.get(paged.size() - 1);
+            slice = repository.findAllAfter(afterId, new PageRequest(0, 30));
+            for (Contact contact : slice.getContent()) {
+                paged.add(contact.getId());
+            }
+        } while (slice.hasNext());
+
+        assertThat(paged, is(ids));
+
+        String collectionTag = repository.findCollectionVersion().getTag();
+        assertThat(repository.deleteByNameContaining("Odd"), is(50));
+        assertThat(repository.findCollectionVersion().getTag(), is(not(collectionTag)));
+        assertThat(repository.count(), is(50L));
+    }
+
+    /**
+     * Test that adding a shard only moves contacts to the new shard, content included, and loses none
+     */
+    @Test
+    public void addShard() throws Exception {
+
+        ShardedContactRepository repository = createRepository(3, 0);
+
+        List<Contact> saved = new ArrayList<Contact>();
+        for (int i = 0; i < 400; i++) {
+            saved.add(repository.save(createTestContact("Contact " + i)));
+        }
+
+        Path picture = tempDir.resolve("picture.png");
+        Files.write(picture, new byte[]{1, 2, 3, 4});
+        for (Contact contact : saved) {
+            repository.setContent(contact, "png", picture.toString());
+        }
+
+        Map<String, String> before = new HashMap<String, String>();
+        for (Contact contact : saved) {
+            before.put(contact.getId(), repository.shardFor(contact.getId()));
+        }
+
+        InMemoryContactRepository newShard = new InMemoryContactRepository();
+        long moved = repository.addShard("shard-4", newShard).get(10, TimeUnit.SECONDS);
+
+        assertThat(repository.isRebalancing(), is(false));
+        assertThat(moved, is(allOf(greaterThan(50L), lessThan(150L))));
+        assertThat(newShard.count(), is(moved));
+        assertThat(repository.count(), is(400L));
+
+        for (Contact contact : saved) {
+            String shard = repository.shardFor(contact.getId());
+            assertThat(shard, is(anyOf(equalTo(before.get(contact.getId())), equalTo("shard-4"))));
+            assertThat(repository.getShards().get(shard).exists(contact.getId()), is(true));
+        }
+
+        for (Contact contact : newShard.findAll()) {
+            String copy = repository.getContent(contact, tempDir.resolve("copy.png").toString());
+            assertThat(Arrays.equals(Files.readAllBytes(new File(copy).toPath()), new byte[]{1, 2, 3, 4}), is(true));
+            Files.delete(new File(copy).toPath());
+        }
+    }
+
+    /**
+     * Test that contacts are found and writes land while contacts are being moved
+     */
+    @Test
+    public void writeWhileRebalancing() throws Exception {
+
+        final ShardedContactRepository repository = createRepository(2, 200);
+
+        final List<Contact> saved = repository.saveAll(createTestContacts(500));
+
+        Future<Long> rebalance = repository.addShard("shard-3", new InMemoryContactRepository(200, 0, 0));
+
+        Future<Integer> writes = executorService.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int written = 0;
+                for (int i = 0; i < saved.size(); i += 5) {
+                    Contact contact = repository.findOne(saved.get(i).getId());
+                    assertThat(contact, is(notNullValue()));
+                    contact.setEmail("moved" + i + "@example.com");
+                    repository.save(contact);
+                    written++;
+                }
+                return written;
+            }
+        });
+
+        assertThat(writes.get(30, TimeUnit.SECONDS), is(100));
+        rebalance.get(30, TimeUnit.SECONDS);
+
+        assertThat(repository.count(), is(500L));
+        for (int i = 0; i < saved.size(); i++) {
+            Contact contact = repository.findOne(saved.get(i).getId());
+            assertThat(contact.getEmail(), is(i % 5 == 0 ? "moved" + i + "@example.com" : saved.get(i).getEmail()));
+        }
+    }
+
+    /**
+     * Test that several contacts looked up together while contacts are being moved are all found, whether they were
+     * moved yet or not
+     */
+    @Test
+    public void findAllByIdWhileRebalancing() throws Exception {
+
+        ControlledShard first = new ControlledShard();
+        first.gate = new CountDownLatch(1);
+
+        Map<String, ContactRepository> shardRepositories = new LinkedHashMap<String, ContactRepository>();
+        shardRepositories.put("shard-1", first);
+        shardRepositories.put("shard-2", new InMemoryContactRepository());
+        ShardedContactRepository repository = new ShardedContactRepository(shardRepositories, executorService);
+
+        List<Contact> saved = repository.saveAll(createTestContacts(200));
+        Map<String, String> before = new HashMap<String, String>();
+        for (Contact contact : saved) {
+            before.put(contact.getId(), repository.shardFor(contact.getId()));
+        }
+
+        Future<Long> rebalance = repository.addShard("shard-3", new InMemoryContactRepository());
+
+        // two contacts to be moved and two staying, so more contacts than shards asked are missing on the new ring
+        List<String> leaving = new ArrayList<String>();
+        List<String> staying = new ArrayList<String>();
+        for (Contact contact : saved) {
+            boolean moves = !repository.shardFor(contact.getId()).equals(before.get(contact.getId()));
+            List<String> ids = moves ? leaving : staying;
+            if (ids.size() < 2 && (moves || "shard-1".equals(before.get(contact.getId())))) {
+                ids.add(contact.getId());
+            }
+        }
+
+        List<String> ids = new ArrayList<String>(leaving);
+        ids.addAll(staying);
+
+        assertThat(repository.isRebalancing(), is(true));
+        assertThat(ids, hasSize(4));
+        List<String> found = new ArrayList<String>();
+        for (Contact contact : repository.findAllById(ids)) {
+            found.add(contact.getId());
+        }
+        assertThat(found, containsInAnyOrder(ids.toArray()));
+
+        first.gate.countDown();
+        rebalance.get(10, TimeUnit.SECONDS);
+
+        assertThat(repository.findAllById(ids), hasSize(4));
+    }
+
+    /**
+     * Test that a move failing on every attempt leaves the contacts reachable and can be resumed
+     */
+    @Test
+    public void resumeFailedRebalance() throws Exception {
+
+        ControlledShard first = new ControlledShard();
+
+        Map<String, ContactRepository> shardRepositories = new LinkedHashMap<String, ContactRepository>();
+        shardRepositories.put("shard-1", first);
+        shardRepositories.put("shard-2", new InMemoryContactRepository());
+        ShardedContactRepository repository = new ShardedContactRepository(shardRepositories, executorService);
+
+        List<Contact> saved = repository.saveAll(createTestContacts(200));
+
+        first.failures.set(3);
+        try {
+            repository.addShard("shard-3", new InMemoryContactRepository()).get(10, TimeUnit.SECONDS);
+            throw new AssertionError("Move did not fail");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+
+        assertThat(repository.isRebalancing(), is(true));
+        for (Contact contact : saved) {
+            assertThat(repository.findOne(contact.getId()), is(notNullValue()));
+        }
+
+        long moved = repository.resumeRebalance().get(10, TimeUnit.SECONDS);
+
+        assertThat(moved, is(greaterThan(0L)));
+        assertThat(repository.isRebalancing(), is(false));
+        assertThat(repository.count(), is(200L));
+    }
+
+    private ShardedContactRepository createRepository(int shards, long latencyMicros) {
+
+        Map<String, ContactRepository> shardRepositories = new LinkedHashMap<String, ContactRepository>();
+        for (int i = 1; i <= shards; i++) {
+            shardRepositories.put("shard-" + i, new InMemoryContactRepository(latencyMicros, 0, 0));
+        }
+
+        return new ShardedContactRepository(shardRepositories, executorService);
+    }
+
+    private List<Contact> createTestContacts(int count) {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (int i = 0; i < count; i++) {
+            contacts.add(createTestContact("Contact " + i));
+        }
+
+        return contacts;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+
+    /*
+     * in-memory shard whose listing, only used to move contacts off it, can be held or made to fail
+     */
+    private static class ControlledShard extends InMemoryContactRepository {
+
+        private volatile CountDownLatch gate;
+
+        private final AtomicInteger failures = new AtomicInteger();
+
+        @Override
+        public Slice<Contact> findAllAfter(String afterId, Pageable pageable) {
+
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Shard unavailable");
+            }
+
+            if (gate != null) {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return super.findAllAfter(afterId, pageable);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.emc.documentum.sample.singleflight;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for coalescing concurrent contact lookups, with a slow in-memory repository
+ */
+public class SingleFlightInterceptorTest {
+
+    private final InMemoryContactRepository target = new InMemoryContactRepository(200000, 0, 0);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test that concurrent lookups of the same contact share one call and each get their own copy
+     */
+    @Test
+    public void coalesce() throws Exception {
+
+        SingleFlight singleFlight = new SingleFlight(5000, 100);
+        final ContactRepository repository = proxy(singleFlight);
+        final String id = target.save(createTestContact("Cecilia Chapman")).getId();
+        long roundTrips = target.getRoundTripCount();
+
+        List<Future<Contact>> lookups = new ArrayList<Future<Contact>>();
+        for (int i = 0; i < 8; i++) {
+            lookups.add(executor.submit(new Callable<Contact>() {
+                @Override
+                public Contact call() {
+                    return repository.findOne(id);
+                }
+            }));
+        }
+
+        List<Contact> found = new ArrayList<Contact>();
+        for (Future<Contact> lookup : lookups) {
+            Contact contact = lookup.get();
+            assertThat(contact.getName(), is("Cecilia Chapman"));
+            for (Contact other : found) {
+                assertThat(contact, is(not(sameInstance(other))));
+            }
+            found.add(contact);
+        }
+
+        assertThat(target.getRoundTripCount() - roundTrips, is(1L));
+        assertThat(singleFlight.getCoalescedCount(), is(7L));
+        assertThat(singleFlight.getFlightCount(), is(0));
+
+        // a different lookup is not shared
+        assertThat(repository.findByNameContaining("Cecilia"), is(iterableWithSize(1)));
+        assertThat(target.getRoundTripCount() - roundTrips, is(2L));
+    }
+
+    /**
+     * Test that the leader of a flight gets its own share of the result rather than the result the others copy from
+     */
+    @Test
+    public void leaderGetsShare() throws Throwable {
+
+        final Contact result = createTestContact("Cecilia Chapman");
+
+        Object leader = new SingleFlight(5000, 100).execute("key", new SingleFlight.Call() {
+            @Override
+            public Object proceed() {
+                return result;
+            }
+
+            @Override
+            public Object share(Object shared) {
+                return ((Contact) shared).copy();
+            }
+        });
+
+        assertThat(leader, is(not(sameInstance((Object) result))));
+        ((Contact) leader).setName("Celeste Slater");
+        assertThat(result.getName(), is("Cecilia Chapman"));
+    }
+
+    /**
+     * Test that callers stop waiting for a call slower than the timeout and make their own
+     */
+    @Test
+    public void timeout() throws Exception {
+
+        SingleFlight singleFlight = new SingleFlight(50, 100);
+        ContactRepository repository = proxy(singleFlight);
+        String id = target.save(createTestContact("Cecilia Chapman")).getId();
+        long roundTrips = target.getRoundTripCount();
+
+        Future<Contact> first = findLater(repository, id, 0);
+        Future<Contact> second = findLater(repository, id, 20);
+
+        assertThat(first.get().getId(), is(id));
+        assertThat(second.get().getId(), is(id));
+
+        assertThat(target.getRoundTripCount() - roundTrips, is(2L));
+        assertThat(singleFlight.getTimeoutCount(), is(1L));
+        assertThat(singleFlight.getCoalescedCount(), is(0L));
+    }
+
+    /**
+     * Test that a lookup started after a save does not share the result of one started before it
+     */
+    @Test
+    public void writeDropsFlights() throws Exception {
+
+        SingleFlight singleFlight = new SingleFlight(5000, 100);
+        ContactRepository repository = proxy(singleFlight);
+        Contact contact = target.save(createTestContact("Cecilia Chapman"));
+
+        Future<Contact> before = findLater(repository, contact.getId(), 0);
+        Thread.sleep(50);
+
+        contact.setTelephone("555-0199");
+        repository.save(contact);
+
+        assertThat(repository.findOne(contact.getId()).getTelephone(), is("555-0199"));
+        assertThat(before.get().getId(), is(contact.getId()));
+        assertThat(singleFlight.getCoalescedCount(), is(0L));
+        assertThat(singleFlight.getInvalidationCount(), is(1L));
+    }
+
+    /**
+     * Test that a save drops the lookups of the saved contact and the counts in progress, and lookups of other
+     * contacts are still shared
+     */
+    @Test
+    public void writeKeepsOtherFlights() throws Exception {
+
+        SingleFlight singleFlight = new SingleFlight(5000, 100);
+        SlowLookupContactRepository slowTarget = new SlowLookupContactRepository();
+        final ContactRepository repository = proxy(slowTarget, singleFlight);
+        Contact written = slowTarget.save(createTestContact("Cecilia Chapman"));
+        Contact other = slowTarget.save(createTestContact("Iris Watson"));
+
+        Future<Contact> writtenBefore = findLater(repository, written.getId(), 0);
+        Future<Contact> otherBefore = findLater(repository, other.getId(), 0);
+        Future<Long> countBefore = countLater(repository);
+        Thread.sleep(50);
+
+        written.setTelephone("555-0199");
+        repository.save(written);
+        repository.save(createTestContact("Aaron Hawkins"));
+
+        Future<Contact> otherAfter = findLater(repository, other.getId(), 0);
+        assertThat(repository.findOne(written.getId()).getTelephone(), is("555-0199"));
+        assertThat(repository.count(), is(3L));
+
+        assertThat(writtenBefore.get().getTelephone(), is("555-0100"));
+        assertThat(otherBefore.get().getName(), is("Iris Watson"));
+        assertThat(otherAfter.get().getName(), is("Iris Watson"));
+        assertThat(countBefore.get(), is(2L));
+        assertThat(singleFlight.getCoalescedCount(), is(1L));
+        assertThat(singleFlight.getFlightCount(), is(0));
+    }
+
+    /**
+     * Test that lookups are made without coalescing past the maximum number of flights
+     */
+    @Test
+    public void bounded() throws Exception {
+
+        SingleFlight singleFlight = new SingleFlight(5000, 1);
+        ContactRepository repository = proxy(singleFlight);
+        String first = target.save(createTestContact("Cecilia Chapman")).getId();
+        String second = target.save(createTestContact("Iris Watson")).getId();
+
+        Future<Contact> firstLookup = findLater(repository, first, 0);
+        Future<Contact> secondLookup = findLater(repository, second, 50);
+
+        assertThat(firstLookup.get().getName(), is("Cecilia Chapman"));
+        assertThat(secondLookup.get().getName(), is("Iris Watson"));
+        assertThat(singleFlight.getBypassedCount(), is(1L));
+        assertThat(singleFlight.getCallCount(), is(2L));
+    }
+
+    private Future<Contact> findLater(final ContactRepository repository, final String id, final long delayMillis) {
+        return executor.submit(new Callable<Contact>() {
+            @Override
+            public Contact call() throws Exception {
+                Thread.sleep(delayMillis);
+                return repository.findOne(id);
+            }
+        });
+    }
+
+    private Future<Long> countLater(final ContactRepository repository) {
+        return executor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return repository.count();
+            }
+        });
+    }
+
+    private ContactRepository proxy(SingleFlight singleFlight) {
+        return proxy(target, singleFlight);
+    }
+
+    private static ContactRepository proxy(ContactRepository target, SingleFlight singleFlight) {
+
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.addInterface(ContactRepository.class);
+        factory.addAdvice(new SingleFlightInterceptor(singleFlight, null));
+
+        return (ContactRepository) factory.getProxy();
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+
+    /*
+     * in-memory repository with lookups by id and counts returning well after they read, and slower than writes
+     */
+    private static class SlowLookupContactRepository extends InMemoryContactRepository {
+
+        @Override
+        public Contact findOne(String id) {
+            Contact contact = super.findOne(id);
+            pause();
+            return contact;
+        }
+
+        @Override
+        public long count() {
+            long count = super.count();
+            pause();
+            return count;
+        }
+
+        private static void pause() {
+            try {
+                Thread.sleep(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
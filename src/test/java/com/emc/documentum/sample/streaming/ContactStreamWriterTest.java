@@ -0,0 +1,165 @@
+package com.emc.documentum.sample.streaming;
+
+import com.emc.documentum.sample.domain.Contact;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for streaming contacts
+ */
+public class ContactStreamWriterTest {
+
+    private final ContactStreamWriter writer = new ContactStreamWriter(10);
+
+    /**
+     * Test that contacts are written as a JSON array without null fields
+     */
+    @Test
+    public void writeJson() throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long count = writer.write(createTestContacts(3).iterator(), ContactStreamFormat.JSON, out);
+
+        JsonNode contacts = new ObjectMapper().readTree(out.toByteArray());
+
+        assertThat(count, is(3L));
+        assertThat(contacts.isArray(), is(true));
+        assertThat(contacts.size(), is(3));
+        assertThat(contacts.get(0).get("name").asText(), is("Contact 0"));
+        assertThat(contacts.get(0).get("id").asText(), is("0900000000000000"));
+        assertThat(contacts.get(2).has("telephone"), is(false));
+    }
+
+    /**
+     * Test that NDJSON has a contact per line
+     */
+    @Test
+    public void writeNdjson() throws Exception {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(createTestContacts(3).iterator(), ContactStreamFormat.NDJSON, out);
+
+        String[] lines = out.toString("UTF-8").split("\n", -1);
+
+        assertThat(lines.length, is(4));
+        assertThat(lines[3], is(""));
+        assertThat(new ObjectMapper().readTree(lines[1]).get("name").asText(), is("Contact 1"));
+    }
+
+    /**
+     * Test that the binary formats read back the same contacts, Smile smaller than JSON
+     */
+    @Test
+    public void writeBinary() throws Exception {
+
+        List<Contact> contacts = createTestContacts(100);
+
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        writer.write(contacts.iterator(), ContactStreamFormat.JSON, json);
+
+        ByteArrayOutputStream smile = new ByteArrayOutputStream();
+        writer.write(contacts.iterator(), ContactStreamFormat.SMILE, smile);
+
+        ByteArrayOutputStream cbor = new ByteArrayOutputStream();
+        writer.write(contacts.iterator(), ContactStreamFormat.CBOR, cbor);
+
+        JsonNode expected = new ObjectMapper().readTree(json.toByteArray());
+
+        assertThat(new ObjectMapper(new SmileFactory()).readTree(smile.toByteArray()), is(expected));
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor.toByteArray()), is(expected));
+        assertThat(smile.size(), is(lessThan(json.size())));
+    }
+
+    /**
+     * Test that contacts reach the output while the rest are still being read
+     */
+    @Test
+    public void writeAsRead() throws Exception {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final Iterator<Contact> contacts = createTestContacts(25).iterator();
+        final List<Integer> writtenBefore = new ArrayList<Integer>();
+
+        writer.write(new Iterator<Contact>() {
+            @Override
+            public boolean hasNext() {
+                return contacts.hasNext();
+            }
+
+            @Override
+            public Contact next() {
+                writtenBefore.add(out.size());
+                return contacts.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        }, ContactStreamFormat.NDJSON, out);
+
+        assertThat(writtenBefore.get(0), is(0));
+        assertThat(writtenBefore.get(10), is(greaterThan(0)));
+        assertThat(writtenBefore.get(20), is(greaterThan(writtenBefore.get(10))));
+    }
+
+    /**
+     * Test picking the format from the Accept header
+     */
+    @Test
+    public void negotiate() {
+
+        assertThat(ContactStreamFormat.negotiate(null), is(ContactStreamFormat.JSON));
+        assertThat(ContactStreamFormat.negotiate("*/*"), is(ContactStreamFormat.JSON));
+        assertThat(ContactStreamFormat.negotiate("application/x-ndjson"), is(ContactStreamFormat.NDJSON));
+        assertThat(ContactStreamFormat.negotiate("application/json;q=0.5, application/cbor"),
+                is(ContactStreamFormat.CBOR));
+        assertThat(ContactStreamFormat.negotiate("text/html, application/x-jackson-smile;q=0.1"),
+                is(ContactStreamFormat.SMILE));
+        assertThat(ContactStreamFormat.negotiate("text/html"), is(nullValue()));
+    }
+
+    private List<Contact> createTestContacts(int count) {
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (int i = 0; i < count; i++) {
+            Contact contact = createTestContact("Contact " + i);
+            contact.setId(String.format("09%014x", i));
+            contacts.add(contact);
+        }
+
+        // one without a telephone number
+        if (count > 2) {
+            contacts.get(2).setTelephone(null);
+        }
+
+        return contacts;
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+}
@@ -0,0 +1,342 @@
+package com.emc.documentum.sample.writebehind;
+
+import com.emc.documentum.sample.cache.ContactCache;
+import com.emc.documentum.sample.cache.ContactCacheInterceptor;
+import com.emc.documentum.sample.domain.Contact;
+import com.emc.documentum.sample.metrics.Timer;
+import com.emc.documentum.sample.repositories.ContactRepository;
+import com.emc.documentum.sample.repositories.ContactRepositoryInterceptor;
+import com.emc.documentum.sample.repositories.InMemoryContactRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Unit tests for the contact write-behind buffer
+ */
+public class ContactWriteBufferTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private FlakyContactRepository contactRepository;
+
+    private Timer flushTimer;
+
+    /**
+     * Setup an in-memory repository
+     */
+    @Before
+    public void setup() {
+        contactRepository = new FlakyContactRepository();
+        flushTimer = new Timer("writeBehind.flush");
+    }
+
+    /**
+     * Test that repeated updates of a contact are written once, as of the last update
+     */
+    @Test
+    public void coalesceUpdates() {
+
+        ContactWriteBuffer buffer = createBuffer(10, 100);
+        Contact contact = contactRepository.save(createTestContact("Cecilia Chapman"));
+
+        for (String name : new String[]{"Cecilia", "Cecilia C", "Cecilia Chapman-Watson"}) {
+            contact.setName(name);
+            buffer.put(contact);
+        }
+
+        // the update is readable before it is written
+        assertThat(buffer.getPending(), is(1));
+        assertThat(buffer.getCoalescedCount(), is(2L));
+        assertThat(buffer.get(contact.getId()).getName(), is("Cecilia Chapman-Watson"));
+        assertThat(contactRepository.findOne(contact.getId()).getName(), is("Cecilia Chapman"));
+
+        buffer.flush();
+
+        assertThat(buffer.getPending(), is(0));
+        assertThat(buffer.get(contact.getId()), is(nullValue()));
+        assertThat(contactRepository.findOne(contact.getId()).getName(), is("Cecilia Chapman-Watson"));
+        assertThat(contactRepository.batches, contains(1));
+        assertThat(flushTimer.snapshot().getCount(), is(1L));
+    }
+
+    /**
+     * Test that pending contacts are written in batches of the batch size
+     */
+    @Test
+    public void flushInBatches() {
+
+        ContactWriteBuffer buffer = createBuffer(2, 100);
+
+        for (int i = 0; i < 5; i++) {
+            Contact contact = contactRepository.save(createTestContact("Contact " + i));
+            contact.setEmail("contact" + i + "@example.com");
+            buffer.put(contact);
+        }
+
+        buffer.flush();
+
+        assertThat(contactRepository.batches, contains(2, 2, 1));
+        assertThat(buffer.getWrittenCount(), is(5L));
+        assertThat(buffer.getFlushCount(), is(3L));
+    }
+
+    /**
+     * Test that a failed batch is kept for the next flush unless a newer update replaced it
+     */
+    @Test
+    public void keepFailedBatch() {
+
+        ContactWriteBuffer buffer = createBuffer(10, 100);
+        Contact first = contactRepository.save(createTestContact("Iris Watson"));
+        Contact second = contactRepository.save(createTestContact("Aaron Hawkins"));
+
+        first.setName("Iris Watson-Chapman");
+        second.setName("Aaron Hawkins Jr");
+        buffer.put(first);
+        buffer.put(second);
+
+        contactRepository.failures = 1;
+        buffer.flush();
+
+        assertThat(buffer.getFailureCount(), is(1L));
+        assertThat(buffer.getPending(), is(2));
+        assertThat(contactRepository.findOne(first.getId()).getName(), is("Iris Watson"));
+
+        // a newer update wins over the failed one
+        second.setName("Aaron Hawkins Sr");
+        buffer.put(second);
+        buffer.flush();
+
+        assertThat(buffer.getPending(), is(0));
+        assertThat(contactRepository.findOne(first.getId()).getName(), is("Iris Watson-Chapman"));
+        assertThat(contactRepository.findOne(second.getId()).getName(), is("Aaron Hawkins Sr"));
+    }
+
+    /**
+     * Test that an update failing every attempt is given up on its own and the rest of its batch is written
+     */
+    @Test
+    public void deadLetterAfterMaxAttempts() {
+
+        ContactWriteBuffer buffer = createBuffer(10, 100);
+        Contact good = contactRepository.save(createTestContact("Iris Watson"));
+        Contact bad = contactRepository.save(createTestContact("Aaron Hawkins"));
+
+        good.setName("Iris Watson-Chapman");
+        bad.setName("Aaron Hawkins Jr");
+        buffer.put(good);
+        buffer.put(bad);
+        contactRepository.failingIds.add(bad.getId());
+
+        for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+            buffer.flush();
+            assertThat(buffer.getPending(), is(2));
+        }
+
+        buffer.flush();
+
+        assertThat(buffer.isEmpty(), is(true));
+        assertThat(buffer.getFailureCount(), is((long) MAX_ATTEMPTS));
+        assertThat(contactRepository.findOne(good.getId()).getName(), is("Iris Watson-Chapman"));
+        assertThat(contactRepository.findOne(bad.getId()).getName(), is("Aaron Hawkins"));
+        assertThat(buffer.getDeadLetterCount(), is(1L));
+        assertThat(buffer.getDeadLetterIds(), contains(bad.getId()));
+        assertThat(buffer.getDeadLetters().get(0).getName(), is("Aaron Hawkins Jr"));
+    }
+
+    /**
+     * Test that contacts read back from the buffer are not cached and a given up update leaves the written state
+     * readable through the cache
+     */
+    @Test
+    public void keepBufferedContactsOutOfCache() {
+
+        ContactCache cache = new ContactCache(100, 1024 * 1024, 300000);
+
+        // ordered and written through as with the repository bean
+        final AtomicReference<ContactRepository> repository = new AtomicReference<ContactRepository>();
+        ContactWriteBuffer buffer = new ContactWriteBuffer(new ObjectFactory<ContactRepository>() {
+            @Override
+            public ContactRepository getObject() {
+                return repository.get();
+            }
+        }, 10, 100, MAX_ATTEMPTS, flushTimer);
+
+        List<ContactRepositoryInterceptor> interceptors = new ArrayList<ContactRepositoryInterceptor>();
+        interceptors.add(new ContactCacheInterceptor(cache));
+        interceptors.add(new ContactWriteBehindInterceptor(buffer));
+        AnnotationAwareOrderComparator.sort(interceptors);
+
+        ProxyFactory factory = new ProxyFactory(contactRepository);
+        factory.addInterface(ContactRepository.class);
+        for (ContactRepositoryInterceptor interceptor : interceptors) {
+            factory.addAdvice(interceptor);
+        }
+        repository.set((ContactRepository) factory.getProxy());
+        ContactRepository buffered = repository.get();
+
+        Contact contact = buffered.save(createTestContact("Aaron Hawkins"));
+        assertThat(buffered.findOne(contact.getId()).getName(), is("Aaron Hawkins"));
+        assertThat(cache.get(contact.getId()), is(notNullValue()));
+
+        contact.setName("Aaron Hawkins Jr");
+        buffered.save(contact);
+        contactRepository.failingIds.add(contact.getId());
+
+        assertThat(buffered.findOne(contact.getId()).getName(), is("Aaron Hawkins Jr"));
+        assertThat(cache.get(contact.getId()).getName(), is("Aaron Hawkins"));
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            buffer.flush();
+        }
+
+        assertThat(buffer.getDeadLetterIds(), contains(contact.getId()));
+        assertThat(buffered.findOne(contact.getId()).getName(), is("Aaron Hawkins"));
+    }
+
+    /**
+     * Test that a full buffer that cannot be flushed rejects new contacts but still takes updates of pending ones
+     */
+    @Test
+    public void rejectWhenFull() {
+
+        ContactWriteBuffer buffer = createBuffer(10, 2);
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (int i = 0; i < 3; i++) {
+            contacts.add(contactRepository.save(createTestContact("Contact " + i)));
+        }
+
+        buffer.put(contacts.get(0));
+        buffer.put(contacts.get(1));
+
+        contactRepository.failures = 1;
+        try {
+            buffer.put(contacts.get(2));
+            throw new AssertionError("Expected the full buffer to reject the contact");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        assertThat(buffer.getRejectedCount(), is(1L));
+        assertThat(buffer.getPending(), is(2));
+
+        contacts.get(1).setName("Contact one");
+        buffer.put(contacts.get(1));
+        assertThat(buffer.getCoalescedCount(), is(1L));
+
+        // with the repository back the caller makes room itself
+        buffer.put(contacts.get(2));
+        assertThat(buffer.getPending(), is(1));
+        assertThat(contactRepository.findOne(contacts.get(1).getId()).getName(), is("Contact one"));
+    }
+
+    /**
+     * Test that a full buffer flushes in the background and closing writes out the rest
+     */
+    @Test
+    public void flushWhenFullAndOnClose() throws InterruptedException {
+
+        ContactWriteBuffer buffer = createBuffer(3, 100);
+        buffer.start(60000);
+
+        List<Contact> contacts = new ArrayList<Contact>();
+        for (int i = 0; i < 4; i++) {
+            Contact contact = contactRepository.save(createTestContact("Contact " + i));
+            contact.setTelephone("555-010" + i);
+            contacts.add(buffer.put(contact));
+        }
+
+        // the third update triggered a background flush long before the flush interval
+        for (int i = 0; i < 100 && buffer.getWrittenCount() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(buffer.getWrittenCount(), is(greaterThanOrEqualTo(3L)));
+
+        buffer.close();
+
+        assertThat(buffer.getPending(), is(0));
+        for (Contact contact : contacts) {
+            assertThat(contactRepository.findOne(contact.getId()).getTelephone(), is(contact.getTelephone()));
+        }
+
+        try {
+            buffer.put(contacts.get(0));
+            throw new AssertionError("Expected the closed buffer to refuse updates");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    private ContactWriteBuffer createBuffer(int batchSize, int maxPending) {
+        return new ContactWriteBuffer(new ObjectFactory<FlakyContactRepository>() {
+            @Override
+            public FlakyContactRepository getObject() {
+                return contactRepository;
+            }
+        }, batchSize, maxPending, MAX_ATTEMPTS, flushTimer);
+    }
+
+    /**
+     * Create a contact for use in tests
+     *
+     * @param name the contact name
+     * @return the test contact
+     */
+    protected Contact createTestContact(String name) {
+
+        Contact testContact = new Contact();
+        testContact.setName(name);
+        testContact.setEmail(name.toLowerCase().replace(" ", ".") + "@example.com");
+        testContact.setTelephone("555-0100");
+
+        return testContact;
+    }
+
+    /*
+     * in-memory repository recording batch sizes, failing a given number of batches and every batch holding one of
+     * the failing contacts
+     */
+    private static class FlakyContactRepository extends InMemoryContactRepository {
+
+        private final List<Integer> batches = new ArrayList<Integer>();
+
+        private final Set<String> failingIds = new HashSet<String>();
+
+        private volatile int failures;
+
+        @Override
+        public List<Contact> saveAll(Collection<Contact> contacts) {
+
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Docbase unavailable");
+            }
+
+            for (Contact contact : contacts) {
+                if (failingIds.contains(contact.getId())) {
+                    throw new IllegalArgumentException("Contact " + contact.getId() + " cannot be saved");
+                }
+            }
+
+            synchronized (batches) {
+                batches.add(contacts.size());
+            }
+
+            return super.saveAll(contacts);
+        }
+    }
+}